@@ -0,0 +1,94 @@
+package com.jsoft.medpdfmaker.parser.impl;
+
+import com.jsoft.medpdfmaker.excel.StreamingCell;
+import com.jsoft.medpdfmaker.exception.ValueExtractException;
+import com.jsoft.medpdfmaker.parser.ValueExtractor;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares extraction of the values of the rows batch cell by cell, in the row order, with extraction column
+ * by column through {@link ValueExtractor#extractValues}. Batch has one column for each of six extractors,
+ * values are typical for the input files: text dates and times, date formatted numbers, YES/NO markers,
+ * prices, member numbers and names.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ColumnExtractionBenchmark {
+
+    private static final String[] TIMES = {"10:30 AM", "9:05pm", "14:45", "7:00 AM", "12:15 PM"};
+
+    @Param("1024")
+    public int rows;
+
+    private ValueExtractor<?>[] extractors;
+    private StreamingCell[][] columns;
+    private Object[] values;
+    private ValueExtractException[] errors;
+
+    @Setup
+    public void setUp() throws IOException {
+        final CellStyle dateStyle;
+        try (XSSFWorkbook workbook = new XSSFWorkbook()) {
+            dateStyle = workbook.createCellStyle();
+            dateStyle.setDataFormat((short) 14);
+        }
+        final DataFormatter formatter = new DataFormatter();
+        extractors = new ValueExtractor<?>[]{new LocalDateValueExtractor(), new LocalTimeValueExtractor(),
+                new BooleanValueExtractor(), new DecimalMoneyValueExtractor(formatter),
+                new IntegerValueExtractor(formatter), new StringValueExtractor(formatter)};
+        final Random random = new Random(rows);
+        columns = new StreamingCell[extractors.length][rows];
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < extractors.length; column++) {
+                columns[column][row] = new StreamingCell();
+                columns[column][row].reset(row, column, null, false);
+            }
+            if (random.nextBoolean()) {
+                columns[0][row].setCellValue(String.format("%02d/%02d/2020", 1 + random.nextInt(12), 1 + random.nextInt(28)));
+            } else {
+                columns[0][row].reset(row, 0, dateStyle, false);
+                columns[0][row].setCellValue(43831 + random.nextInt(300));
+            }
+            columns[1][row].setCellValue(TIMES[random.nextInt(TIMES.length)]);
+            columns[2][row].setCellValue(random.nextBoolean() ? "Yes" : "No");
+            columns[3][row].setCellValue(String.valueOf(20 + random.nextInt(4000) / 100.0));
+            columns[4][row].setCellValue(100000 + random.nextInt(5000));
+            columns[5][row].setCellValue("Last" + random.nextInt(5000));
+        }
+        values = new Object[rows];
+        errors = new ValueExtractException[rows];
+    }
+
+    @Benchmark
+    public void extractCellByCell(Blackhole blackhole) {
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < extractors.length; column++) {
+                try {
+                    blackhole.consume(extractors[column].extractValue(columns[column][row]));
+                } catch (ValueExtractException e) {
+                    blackhole.consume(e);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public void extractColumnByColumn(Blackhole blackhole) {
+        for (int column = 0; column < extractors.length; column++) {
+            extractors[column].extractValues(columns[column], rows, values, errors);
+            blackhole.consume(values);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.jsoft.medpdfmaker.parser.impl;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares opening of a big xlsx package from an InputStream (the way ServiceRecordXlsParser used to open it)
+ * with opening it from the file in read only mode. Every benchmark call opens the package, reads the workbook part
+ * and reverts the package.
+ * Workbook with random text values is generated once and kept in the temp folder, its size is about 55 MB
+ * for the default number of rows. Peak RSS of the benchmark JVM is reset after the workbook is ready and printed
+ * when the benchmark ends (Linux only), every benchmark runs in its own fork.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PackageOpenBenchmark {
+
+    private static final int COLUMNS = 10;
+    private static final int VALUE_LENGTH = 20;
+    private static final String ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789 ";
+
+    @Param("300000")
+    public int rows;
+
+    private File workbookFile;
+
+    @Setup
+    public void setUp() throws IOException {
+        final Path path = Paths.get(System.getProperty("java.io.tmpdir"), "package-open-benchmark-" + rows + ".xlsx");
+        if (!Files.exists(path)) {
+            writeWorkbook(path);
+        }
+        workbookFile = path.toFile();
+        System.out.printf("%nWorkbook %s, %d MB%n", workbookFile, workbookFile.length() >> 20);
+        System.gc();
+        resetPeakRss();
+    }
+
+    @TearDown
+    public void printPeakRss() throws IOException {
+        final Path status = Paths.get("/proc/self/status");
+        if (Files.isReadable(status)) {
+            final List<String> lines = Files.readAllLines(status, StandardCharsets.US_ASCII);
+            for (final String line : lines) {
+                if (line.startsWith("VmHWM") || line.startsWith("VmRSS")) {
+                    System.out.printf("%n%s", line);
+                }
+            }
+            System.out.println();
+        }
+    }
+
+    private void writeWorkbook(Path path) throws IOException {
+        final Random random = new Random(rows);
+        final Path tmpPath = Paths.get(path + ".tmp");
+        final SXSSFWorkbook workbook = new SXSSFWorkbook(100);
+        try (final OutputStream out = Files.newOutputStream(tmpPath)) {
+            final SXSSFSheet sheet = workbook.createSheet("Data");
+            final char[] value = new char[VALUE_LENGTH];
+            for (int rowIdx = 0; rowIdx < rows; rowIdx++) {
+                final Row row = sheet.createRow(rowIdx);
+                for (int colIdx = 0; colIdx < COLUMNS; colIdx++) {
+                    for (int i = 0; i < value.length; i++) {
+                        value[i] = ALPHABET.charAt(random.nextInt(ALPHABET.length()));
+                    }
+                    row.createCell(colIdx).setCellValue(new String(value));
+                }
+            }
+            workbook.write(out);
+        } finally {
+            workbook.dispose();
+            workbook.close();
+        }
+        Files.move(tmpPath, path);
+    }
+
+    private static void resetPeakRss() {
+        final Path clearRefs = Paths.get("/proc/self/clear_refs");
+        if (Files.isWritable(clearRefs)) {
+            try {
+                // 5 resets the peak resident set size (VmHWM)
+                Files.write(clearRefs, "5".getBytes(StandardCharsets.US_ASCII));
+            } catch (IOException e) {
+                System.out.println("Peak RSS cannot be reset: " + e.getMessage());
+            }
+        }
+    }
+
+    private static long readWorkbookPart(OPCPackage pkg) throws IOException, OpenXML4JException {
+        long result = 0;
+        try (final InputStream workbookData = new XSSFReader(pkg).getWorkbookData()) {
+            final byte[] buffer = new byte[8192];
+            int count;
+            while ((count = workbookData.read(buffer)) >= 0) {
+                result += count;
+            }
+        }
+        return result;
+    }
+
+    @Benchmark
+    public long openFromStream() throws IOException, OpenXML4JException {
+        try (final InputStream in = Files.newInputStream(workbookFile.toPath())) {
+            final OPCPackage pkg = OPCPackage.open(in);
+            try {
+                return readWorkbookPart(pkg);
+            } finally {
+                pkg.revert();
+            }
+        }
+    }
+
+    @Benchmark
+    public long openFromFile() throws IOException, OpenXML4JException {
+        final OPCPackage pkg = ExcelPackages.openReadOnly(workbookFile);
+        try {
+            return readWorkbookPart(pkg);
+        } finally {
+            pkg.revert();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.jsoft.medpdfmaker.parser.impl;
+
+import com.jsoft.medpdfmaker.parser.ValueExtractor;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Measures how parsing of one big xlsx sheet scales with the number of the row conversion threads.
+ * With one thread the rows are decoded and converted by the same thread, with more threads the thread of the parser
+ * only decodes XML and the rows are converted by PipelinedRowsProcessor.
+ * Workbook is generated once and kept in the temp folder.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PipelinedParseBenchmark {
+
+    private static final String[] HEADER = {"TrackingNumber", "LastName", "FirstName", "MemberNumber",
+            "Date of Birth", "Date of Service", "Appointment Pick-up Time", "Pick Up Location", "Destination",
+            "Wheelchair", "Number of Passengers", "ZipCode", "Trip_Price"};
+    private static final int MEMBERS = 5000;
+
+    @Param("500000")
+    public int rows;
+
+    @Param({"1", "2", "4", "8"})
+    public int conversionThreads;
+
+    private File xlsxFile;
+    private ServiceRecordXlsxStreamingParser parser;
+
+    @Setup
+    public void setUp() throws IOException {
+        final Path xlsxPath = Paths.get(System.getProperty("java.io.tmpdir"), "pipelined-parse-benchmark-" + rows + ".xlsx");
+        if (!Files.exists(xlsxPath)) {
+            writeXlsx(xlsxPath);
+        }
+        xlsxFile = xlsxPath.toFile();
+        final DataFormatter formatter = new DataFormatter();
+        final List<ValueExtractor> extractors = Arrays.asList(new BooleanValueExtractor(), new LocalDateValueExtractor(),
+                new LocalTimeValueExtractor(), new IntegerValueExtractor(formatter),
+                new DecimalMoneyValueExtractor(formatter), new StringValueExtractor(formatter));
+        parser = new ServiceRecordXlsxStreamingParser(() -> new ServiceRecordBuilder(extractors, BigDecimal.TEN),
+                0, conversionThreads);
+    }
+
+    private void writeXlsx(Path path) throws IOException {
+        final Path tmpPath = Paths.get(path + ".tmp");
+        final SXSSFWorkbook workbook = new SXSSFWorkbook(null, 100, false, true);
+        try (final OutputStream out = Files.newOutputStream(tmpPath)) {
+            final SXSSFSheet sheet = workbook.createSheet("Data");
+            final CellStyle dateStyle = workbook.createCellStyle();
+            dateStyle.setDataFormat(workbook.createDataFormat().getFormat("m/d/yy"));
+            final CellStyle timeStyle = workbook.createCellStyle();
+            timeStyle.setDataFormat(workbook.createDataFormat().getFormat("h:mm AM/PM"));
+            final Random random = new Random(rows);
+            final Row header = sheet.createRow(0);
+            for (int i = 0; i < HEADER.length; i++) {
+                header.createCell(i).setCellValue(HEADER[i]);
+            }
+            for (int rowIdx = 1; rowIdx <= rows; rowIdx++) {
+                final Row row = sheet.createRow(rowIdx);
+                final int member = random.nextInt(MEMBERS);
+                row.createCell(0).setCellValue("T-" + rowIdx);
+                row.createCell(1).setCellValue("Last" + member);
+                row.createCell(2).setCellValue("First" + member);
+                row.createCell(3).setCellValue(100000 + member);
+                row.createCell(4).setCellValue(18000 + member);
+                row.getCell(4).setCellStyle(dateStyle);
+                row.createCell(5).setCellValue(43831 + random.nextInt(60));
+                row.getCell(5).setCellStyle(dateStyle);
+                row.createCell(6).setCellValue(random.nextInt(96) / 96.0);
+                row.getCell(6).setCellStyle(timeStyle);
+                row.createCell(7).setCellValue(random.nextInt(1000) + " Main St");
+                row.createCell(8).setCellValue(random.nextInt(1000) + " Oak Ave");
+                row.createCell(9).setCellValue(random.nextBoolean() ? "Yes" : "No");
+                row.createCell(10).setCellValue(1 + random.nextInt(3));
+                row.createCell(11).setCellValue(10000 + random.nextInt(90000));
+                row.createCell(12).setCellValue(20 + random.nextInt(4000) / 100.0);
+            }
+            workbook.write(out);
+        } finally {
+            workbook.dispose();
+            workbook.close();
+        }
+        Files.move(tmpPath, path);
+    }
+
+    @Benchmark
+    public int parseXlsx() throws IOException {
+        final AtomicInteger result = new AtomicInteger();
+        parser.parse(xlsxFile, 0, record -> result.incrementAndGet());
+        return result.get();
+    }
+}
@@ -0,0 +1,89 @@
+package com.jsoft.medpdfmaker.parser.impl;
+
+import com.jsoft.medpdfmaker.domain.ExternalField;
+import com.jsoft.medpdfmaker.domain.ServiceRecord;
+import com.jsoft.medpdfmaker.domain.ServiceRecordBinder;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares reflective Method.invoke calls with the setters of the generated ServiceRecordBinder.
+ * Every benchmark call sets all the ServiceRecord attributes marked with ExternalField once.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SetterBenchmark {
+
+    private Method[] methods;
+    private ServiceRecordBinder binder;
+    private int[] slots;
+    private Object[] values;
+    private ServiceRecord record;
+
+    @Setup
+    public void setUp() {
+        final List<Method> setterMethods = new ArrayList<>();
+        for (final Method method : ServiceRecord.class.getDeclaredMethods()) {
+            if (method.isAnnotationPresent(ExternalField.class)) {
+                setterMethods.add(method);
+            }
+        }
+        setterMethods.sort(Comparator.comparing(Method::getName));
+        methods = setterMethods.toArray(new Method[0]);
+        binder = new ServiceRecordBinder();
+        slots = new int[methods.length];
+        values = new Object[methods.length];
+        for (int i = 0; i < methods.length; i++) {
+            final ExternalField field = methods[i].getAnnotation(ExternalField.class);
+            slots[i] = binder.attributeSlot(field.value());
+            values[i] = sampleValue(field);
+        }
+        record = new ServiceRecord();
+    }
+
+    private static Object sampleValue(ExternalField field) {
+        switch (field.fieldType()) {
+            case BOOLEAN:
+                return Boolean.TRUE;
+            case DATE:
+                return LocalDate.of(2020, 1, 3);
+            case TIME:
+                return LocalTime.of(10, 30);
+            case INTEGER:
+                return 2;
+            case DECIMAL_MONEY:
+                return new BigDecimal("35.01");
+            default:
+                return "value";
+        }
+    }
+
+    @Benchmark
+    public ServiceRecord reflectiveSetters() throws InvocationTargetException, IllegalAccessException {
+        for (int i = 0; i < methods.length; i++) {
+            methods[i].invoke(record, values[i]);
+        }
+        return record;
+    }
+
+    @Benchmark
+    public ServiceRecord generatedSetters() {
+        for (int i = 0; i < slots.length; i++) {
+            binder.setAttributeValue(record, slots[i], values[i]);
+        }
+        return record;
+    }
+}
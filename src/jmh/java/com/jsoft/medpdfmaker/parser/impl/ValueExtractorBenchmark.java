@@ -0,0 +1,136 @@
+package com.jsoft.medpdfmaker.parser.impl;
+
+import com.jsoft.medpdfmaker.excel.StreamingCell;
+import com.jsoft.medpdfmaker.parser.ValueExtractor;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the value extractors with the reference (DateTimeFormatter and exception based) implementations.
+ * Every benchmark call extracts values from the set of cells that are typical for the input files:
+ * string values in all the supported formats, a few invalid values and numeric values of date formatted cells.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ValueExtractorBenchmark {
+
+    private static final String[] DATES = {"01/02/2020", "1/2/2020", "12/31/19", "03-Jan-20", "03-Jan-2020", "N/A"};
+    private static final String[] TIMES = {"10:30 AM", "9:05pm", "14:45", "10;30", "W/C", "TBD"};
+    private static final String[] BOOLEANS = {"YES", "No", "Cancelled", "yes (must)", "", "0"};
+    private static final String[] MONEY = {"35", "35.10", " 120.5 ", "-1.255", "$35", "n/a"};
+
+    private StreamingCell[] dateCells;
+    private StreamingCell[] timeCells;
+    private StreamingCell[] booleanCells;
+    private StreamingCell[] moneyCells;
+
+    private ValueExtractor<?> referenceDate;
+    private ValueExtractor<?> referenceTime;
+    private ValueExtractor<?> referenceBoolean;
+    private ValueExtractor<?> referenceMoney;
+    private ValueExtractor<?> date;
+    private ValueExtractor<?> time;
+    private ValueExtractor<?> bool;
+    private ValueExtractor<?> money;
+
+    @Setup
+    public void setUp() throws IOException {
+        final CellStyle dateStyle;
+        try (XSSFWorkbook workbook = new XSSFWorkbook()) {
+            dateStyle = workbook.createCellStyle();
+            dateStyle.setDataFormat((short) 14);
+        }
+        dateCells = withNumericCell(stringCells(DATES), dateStyle, 43831.0);
+        timeCells = withNumericCell(stringCells(TIMES), dateStyle, 43831.4375);
+        booleanCells = stringCells(BOOLEANS);
+        moneyCells = stringCells(MONEY);
+        final DataFormatter formatter = new DataFormatter();
+        referenceDate = new ReferenceValueExtractors.DateExtractor();
+        referenceTime = new ReferenceValueExtractors.TimeExtractor();
+        referenceBoolean = new ReferenceValueExtractors.BooleanExtractor();
+        referenceMoney = new ReferenceValueExtractors.DecimalMoneyExtractor(formatter);
+        date = new LocalDateValueExtractor();
+        time = new LocalTimeValueExtractor();
+        bool = new BooleanValueExtractor();
+        money = new DecimalMoneyValueExtractor(formatter);
+    }
+
+    private static StreamingCell[] stringCells(String[] values) {
+        final StreamingCell[] result = new StreamingCell[values.length];
+        for (int i = 0; i < values.length; i++) {
+            result[i] = new StreamingCell();
+            result[i].reset(0, i, null, false);
+            result[i].setCellValue(values[i]);
+        }
+        return result;
+    }
+
+    private static StreamingCell[] withNumericCell(StreamingCell[] cells, CellStyle style, double value) {
+        final StreamingCell[] result = new StreamingCell[cells.length + 1];
+        System.arraycopy(cells, 0, result, 0, cells.length);
+        result[cells.length] = new StreamingCell();
+        result[cells.length].reset(0, cells.length, style, false);
+        result[cells.length].setCellValue(value);
+        return result;
+    }
+
+    private static void extractAll(ValueExtractor<?> extractor, StreamingCell[] cells, Blackhole blackhole) {
+        for (final StreamingCell cell : cells) {
+            try {
+                blackhole.consume(extractor.extractValue(cell));
+            } catch (RuntimeException e) {
+                blackhole.consume(e);
+            }
+        }
+    }
+
+    @Benchmark
+    public void referenceDates(Blackhole blackhole) {
+        extractAll(referenceDate, dateCells, blackhole);
+    }
+
+    @Benchmark
+    public void dates(Blackhole blackhole) {
+        extractAll(date, dateCells, blackhole);
+    }
+
+    @Benchmark
+    public void referenceTimes(Blackhole blackhole) {
+        extractAll(referenceTime, timeCells, blackhole);
+    }
+
+    @Benchmark
+    public void times(Blackhole blackhole) {
+        extractAll(time, timeCells, blackhole);
+    }
+
+    @Benchmark
+    public void referenceBooleans(Blackhole blackhole) {
+        extractAll(referenceBoolean, booleanCells, blackhole);
+    }
+
+    @Benchmark
+    public void booleans(Blackhole blackhole) {
+        extractAll(bool, booleanCells, blackhole);
+    }
+
+    @Benchmark
+    public void referenceMoney(Blackhole blackhole) {
+        extractAll(referenceMoney, moneyCells, blackhole);
+    }
+
+    @Benchmark
+    public void money(Blackhole blackhole) {
+        extractAll(money, moneyCells, blackhole);
+    }
+}
@@ -0,0 +1,214 @@
+package com.jsoft.medpdfmaker.parser.impl;
+
+import com.jsoft.medpdfmaker.domain.ServiceRecord;
+import com.jsoft.medpdfmaker.parser.TableFileParser;
+import com.jsoft.medpdfmaker.parser.ValueExtractor;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compares parsing of the same sheet saved as xlsx and as xlsb. Every benchmark call parses the whole sheet
+ * with the streaming parser of the format and the same builder, so the difference is the cost of reading
+ * the package and decoding XML or binary records.
+ * Both workbooks are generated once from the same random values and kept in the temp folder. Sizes of the files
+ * are printed when the benchmark starts.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class XlsbParseBenchmark {
+
+    private static final String[] HEADER = {"TrackingNumber", "LastName", "FirstName", "MemberNumber",
+            "Date of Birth", "Date of Service", "Appointment Pick-up Time", "Pick Up Location", "Destination",
+            "Wheelchair", "Number of Passengers", "Notes", "City", "ZipCode", "Trip_Price"};
+    private static final String[] CITIES = {"Springfield", "Riverside", "Franklin", "Greenville", "Bristol"};
+    private static final int MEMBERS = 5000;
+
+    @Param("100000")
+    public int rows;
+
+    private File xlsxFile;
+    private File xlsbFile;
+    private List<ValueExtractor> extractors;
+
+    @Setup
+    public void setUp() throws IOException {
+        final Path xlsxPath = Paths.get(System.getProperty("java.io.tmpdir"), "xlsb-parse-benchmark-" + rows + ".xlsx");
+        final Path xlsbPath = Paths.get(System.getProperty("java.io.tmpdir"), "xlsb-parse-benchmark-" + rows + ".xlsb");
+        if (!Files.exists(xlsxPath)) {
+            writeXlsx(xlsxPath);
+        }
+        if (!Files.exists(xlsbPath)) {
+            writeXlsb(xlsbPath);
+        }
+        xlsxFile = xlsxPath.toFile();
+        xlsbFile = xlsbPath.toFile();
+        System.out.printf("%nWorkbooks %s, %d KB and %s, %d KB%n", xlsxFile, xlsxFile.length() >> 10,
+                xlsbFile, xlsbFile.length() >> 10);
+        final DataFormatter formatter = new DataFormatter();
+        extractors = Arrays.asList(new BooleanValueExtractor(), new LocalDateValueExtractor(),
+                new LocalTimeValueExtractor(), new IntegerValueExtractor(formatter),
+                new DecimalMoneyValueExtractor(formatter), new StringValueExtractor(formatter));
+    }
+
+    /**
+     * Source of the cell values, both formats get the same values in the same order.
+     */
+    private interface RowWriter {
+        void row(int rowIdx) throws IOException;
+
+        void string(int columnIdx, String value) throws IOException;
+
+        void number(int columnIdx, double value) throws IOException;
+
+        void date(int columnIdx, double value) throws IOException;
+
+        void time(int columnIdx, double value) throws IOException;
+    }
+
+    private void writeRows(RowWriter writer) throws IOException {
+        final Random random = new Random(rows);
+        writer.row(0);
+        for (int i = 0; i < HEADER.length; i++) {
+            writer.string(i, HEADER[i]);
+        }
+        for (int rowIdx = 1; rowIdx <= rows; rowIdx++) {
+            writer.row(rowIdx);
+            final int member = random.nextInt(MEMBERS);
+            writer.string(0, "T-" + rowIdx);
+            writer.string(1, "Last" + member);
+            writer.string(2, "First" + member);
+            writer.number(3, 100000 + member);
+            writer.date(4, 18000 + member);
+            writer.date(5, 43831 + random.nextInt(60));
+            writer.time(6, random.nextInt(96) / 96.0);
+            writer.string(7, random.nextInt(1000) + " Main St");
+            writer.string(8, random.nextInt(1000) + " Oak Ave");
+            writer.string(9, random.nextBoolean() ? "Yes" : "No");
+            writer.number(10, 1 + random.nextInt(3));
+            writer.string(11, "Note " + random.nextInt(100));
+            writer.string(12, CITIES[random.nextInt(CITIES.length)]);
+            writer.number(13, 10000 + random.nextInt(90000));
+            writer.number(14, 20 + random.nextInt(4000) / 100.0);
+        }
+    }
+
+    private void writeXlsx(Path path) throws IOException {
+        final Path tmpPath = Paths.get(path + ".tmp");
+        // shared strings table, as Excel saves the strings of both formats
+        final SXSSFWorkbook workbook = new SXSSFWorkbook(null, 100, false, true);
+        try (final OutputStream out = Files.newOutputStream(tmpPath)) {
+            final SXSSFSheet sheet = workbook.createSheet("Data");
+            final CellStyle dateStyle = workbook.createCellStyle();
+            dateStyle.setDataFormat(workbook.createDataFormat().getFormat("m/d/yy"));
+            final CellStyle timeStyle = workbook.createCellStyle();
+            timeStyle.setDataFormat(workbook.createDataFormat().getFormat("h:mm AM/PM"));
+            final Row[] row = new Row[1];
+            writeRows(new RowWriter() {
+                @Override
+                public void row(int rowIdx) {
+                    row[0] = sheet.createRow(rowIdx);
+                }
+
+                @Override
+                public void string(int columnIdx, String value) {
+                    row[0].createCell(columnIdx).setCellValue(value);
+                }
+
+                @Override
+                public void number(int columnIdx, double value) {
+                    row[0].createCell(columnIdx).setCellValue(value);
+                }
+
+                @Override
+                public void date(int columnIdx, double value) {
+                    row[0].createCell(columnIdx).setCellValue(value);
+                    row[0].getCell(columnIdx).setCellStyle(dateStyle);
+                }
+
+                @Override
+                public void time(int columnIdx, double value) {
+                    row[0].createCell(columnIdx).setCellValue(value);
+                    row[0].getCell(columnIdx).setCellStyle(timeStyle);
+                }
+            });
+            workbook.write(out);
+        } finally {
+            workbook.dispose();
+            workbook.close();
+        }
+        Files.move(tmpPath, path);
+    }
+
+    private void writeXlsb(Path path) throws IOException {
+        final Path tmpPath = Paths.get(path + ".tmp");
+        try (final XlsbWriter writer = new XlsbWriter(tmpPath, false)) {
+            final int dateStyle = writer.addStyle("m/d/yy", false);
+            final int timeStyle = writer.addStyle("h:mm AM/PM", false);
+            writer.startSheet("Data", false);
+            writeRows(new RowWriter() {
+                @Override
+                public void row(int rowIdx) throws IOException {
+                    writer.startRow(rowIdx, -1);
+                }
+
+                @Override
+                public void string(int columnIdx, String value) throws IOException {
+                    writer.stringCell(columnIdx, 0, value);
+                }
+
+                @Override
+                public void number(int columnIdx, double value) throws IOException {
+                    writer.numberCell(columnIdx, 0, value);
+                }
+
+                @Override
+                public void date(int columnIdx, double value) throws IOException {
+                    writer.numberCell(columnIdx, dateStyle, value);
+                }
+
+                @Override
+                public void time(int columnIdx, double value) throws IOException {
+                    writer.numberCell(columnIdx, timeStyle, value);
+                }
+            });
+        }
+        Files.move(tmpPath, path);
+    }
+
+    private static int parse(TableFileParser<ServiceRecord> parser, File srcFile) throws IOException {
+        final AtomicInteger result = new AtomicInteger();
+        parser.parse(srcFile, 0, record -> result.incrementAndGet());
+        return result.get();
+    }
+
+    @Benchmark
+    public int parseXlsx() throws IOException {
+        return parse(new ServiceRecordXlsxStreamingParser(new ServiceRecordBuilder(extractors, BigDecimal.TEN)), xlsxFile);
+    }
+
+    @Benchmark
+    public int parseXlsb() throws IOException {
+        return parse(new ServiceRecordXlsbStreamingParser(new ServiceRecordBuilder(extractors, BigDecimal.TEN)), xlsbFile);
+    }
+}
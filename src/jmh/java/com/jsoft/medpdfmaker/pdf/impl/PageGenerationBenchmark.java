@@ -0,0 +1,86 @@
+package com.jsoft.medpdfmaker.pdf.impl;
+
+import com.jsoft.medpdfmaker.AppProperties;
+import com.jsoft.medpdfmaker.domain.ServiceRecord;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how many member pages per second MemberPageGenerator fills from the Form.pdf template and saves.
+ * Every group has the rows of exactly one page, page files of the same groups are overwritten by every iteration.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class PageGenerationBenchmark {
+
+    private static final int GROUPS = 32;
+    private static final int ROWS_PER_PAGE = 6;
+
+    private Path workFolder;
+    private MemberPageGenerator pageGenerator;
+    private final List<List<ServiceRecord>> groups = new ArrayList<>();
+    private int nextGroup;
+
+    @Setup
+    public void setUp() throws IOException {
+        workFolder = Files.createTempDirectory("page-generation-benchmark");
+        final Map<String, Object> properties = new HashMap<>();
+        properties.put(AppProperties.PLACE_OF_SERVICE_PROP, "99");
+        properties.put(AppProperties.PROCEDURES_PROP, "A0100");
+        properties.put(AppProperties.CHARGES_PROP, "25.00");
+        properties.put(AppProperties.FEDERAL_TAX_ID_PROP, "12-3456789");
+        properties.put(AppProperties.PROVIDER_PROP, "Provider Inc");
+        final StandardEnvironment environment = new StandardEnvironment();
+        environment.getPropertySources().addFirst(new MapPropertySource("benchmark", properties));
+        pageGenerator = new MemberPageGenerator(new AppProperties(environment));
+        for (int group = 0; group < GROUPS; group++) {
+            final List<ServiceRecord> records = new ArrayList<>();
+            for (int row = 0; row < ROWS_PER_PAGE; row++) {
+                final ServiceRecord record = new ServiceRecord();
+                record.setRefId("T-" + group + "-" + row);
+                record.setMemberId(String.valueOf(100000 + group));
+                record.setLName("Last" + group);
+                record.setFName("First" + group);
+                record.setOrigin(group + " Main St/Apt " + row);
+                record.setCity("Town");
+                record.setState("NY");
+                record.setZipCode("10001");
+                record.setDayOfBirth(LocalDate.of(1960, 1, 1).plusDays(group));
+                record.setPickupDate(LocalDate.of(2020, 3, 1).plusDays(row));
+                record.setTripPrice(new BigDecimal("25.00"));
+                records.add(record);
+            }
+            groups.add(records);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(workFolder.toFile());
+    }
+
+    @Benchmark
+    public Path generatePage() throws IOException {
+        final List<Path> pages = new ArrayList<>(1);
+        pageGenerator.generate(workFolder, groups.get(nextGroup), pages::add);
+        nextGroup = (nextGroup + 1) % GROUPS;
+        return pages.get(0);
+    }
+}
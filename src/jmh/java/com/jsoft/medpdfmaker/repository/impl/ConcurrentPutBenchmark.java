@@ -0,0 +1,79 @@
+package com.jsoft.medpdfmaker.repository.impl;
+
+import com.jsoft.medpdfmaker.domain.MemberIdPriceKey;
+import com.jsoft.medpdfmaker.domain.ServiceRecord;
+import com.jsoft.medpdfmaker.domain.ServiceRecordGroupKey;
+import com.jsoft.medpdfmaker.repository.EntityGroupRepository;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures puts of several threads into one repository: the striped repository against the hash repository
+ * guarded by one lock, which is the simplest way to share the not thread safe repositories. Striped repository
+ * gets the row index of every record, as the producers that put the rows of one sheet concurrently do.
+ * Repository is created again for every iteration. Start with -t to change the number of the threads.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Threads(4)
+@State(Scope.Benchmark)
+public class ConcurrentPutBenchmark {
+
+    private static final int RECORDS = 1 << 16;
+
+    @Param("20000")
+    public int members;
+
+    @Param({"LOCKED_HASH", "STRIPED"})
+    public String repository;
+
+    private ServiceRecord[] records;
+    private ServiceRecordGroupKey[] keys;
+    private EntityGroupRepository<ServiceRecordGroupKey, ServiceRecord> target;
+    private StripedServiceRecordRepository striped;
+
+    @Setup
+    public void setUp() {
+        final Random random = new Random(members);
+        records = new ServiceRecord[RECORDS];
+        keys = new ServiceRecordGroupKey[RECORDS];
+        for (int i = 0; i < RECORDS; i++) {
+            records[i] = new ServiceRecord();
+            records[i].setRefId("T-" + i);
+            records[i].setMemberId(String.valueOf(100000 + random.nextInt(members)));
+            records[i].setTripPrice(BigDecimal.valueOf(2000 + random.nextInt(4) * 500, 2));
+            keys[i] = new MemberIdPriceKey(records[i]);
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void createRepository() {
+        striped = "STRIPED".equals(repository) ? new StripedServiceRecordRepository() : null;
+        target = (striped != null) ? striped : new LockedHashRepository();
+    }
+
+    @Benchmark
+    public void put() {
+        final int idx = ThreadLocalRandom.current().nextInt(RECORDS);
+        if (striped != null) {
+            striped.put(keys[idx], records[idx], idx);
+        } else {
+            target.put(keys[idx], records[idx]);
+        }
+    }
+
+    private static final class LockedHashRepository extends HashServiceRecordRepository {
+
+        @Override
+        public synchronized void put(ServiceRecordGroupKey key, ServiceRecord value) {
+            super.put(key, value);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.jsoft.medpdfmaker.repository.impl;
+
+import com.jsoft.medpdfmaker.domain.MemberIdPriceKey;
+import com.jsoft.medpdfmaker.domain.ServiceRecord;
+import com.jsoft.medpdfmaker.domain.ServiceRecordGroupKey;
+import com.jsoft.medpdfmaker.repository.EntityGroupRepository;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares grouping of the records of one sheet by the tree repository and by the hash repository, including
+ * the iteration over the sorted keys that is done by MembersBookGenerator.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GroupingBenchmark {
+
+    @Param("200000")
+    public int rows;
+
+    @Param("20000")
+    public int members;
+
+    @Param({"TREE", "HASH"})
+    public String repository;
+
+    private ServiceRecord[] records;
+
+    @Setup
+    public void setUp() {
+        final Random random = new Random(rows);
+        records = new ServiceRecord[rows];
+        for (int i = 0; i < rows; i++) {
+            records[i] = new ServiceRecord();
+            records[i].setMemberId(String.valueOf(100000 + random.nextInt(members)));
+            records[i].setTripPrice(BigDecimal.valueOf(2000 + random.nextInt(4) * 500, 2));
+        }
+    }
+
+    @Benchmark
+    public void groupAndIterate(Blackhole blackhole) {
+        final EntityGroupRepository<ServiceRecordGroupKey, ServiceRecord> result =
+                "TREE".equals(repository) ? new ServiceRecordRepository() : new HashServiceRecordRepository();
+        for (final ServiceRecord record : records) {
+            result.put(new MemberIdPriceKey(record), record);
+        }
+        for (final ServiceRecordGroupKey key : result.getKeys()) {
+            blackhole.consume(result.getGroupByKey(key));
+        }
+    }
+}
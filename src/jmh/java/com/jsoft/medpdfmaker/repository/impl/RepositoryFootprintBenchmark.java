@@ -0,0 +1,87 @@
+package com.jsoft.medpdfmaker.repository.impl;
+
+import com.jsoft.medpdfmaker.domain.MemberIdPriceKey;
+import com.jsoft.medpdfmaker.domain.ServiceRecord;
+import com.jsoft.medpdfmaker.domain.ServiceRecordGroupKey;
+import com.jsoft.medpdfmaker.repository.EntityGroupRepository;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures heap retained by the repositories per trip. Records have the attributes MemberPageGenerator uses,
+ * every record has its own strings, as the records made by the parser. Retained heap is the difference of the used
+ * heap after the full GC before and after the records are put, it is reported as retainedBytesPerTrip counter.
+ * JMH sums such counters over the iterations, so there is one measurement iteration only.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 1, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class RepositoryFootprintBenchmark {
+
+    private static final String[] CITIES = {"Springfield", "Riverside", "Franklin", "Greenville", "Bristol"};
+
+    @Param("300000")
+    public int rows;
+
+    @Param("20000")
+    public int members;
+
+    @Param({"HASH", "COLUMNAR"})
+    public String repository;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint {
+
+        public long retainedBytesPerTrip;
+    }
+
+    @Benchmark
+    public Object putRecords(Footprint footprint) {
+        final long usedBefore = usedHeapAfterGc();
+        final EntityGroupRepository<ServiceRecordGroupKey, ServiceRecord> result =
+                "HASH".equals(repository) ? new HashServiceRecordRepository() : new ColumnarServiceRecordRepository();
+        final Random random = new Random(rows);
+        for (int i = 0; i < rows; i++) {
+            final ServiceRecord record = makeRecord(i, random);
+            result.put(new MemberIdPriceKey(record), record);
+        }
+        result.getKeys();
+        footprint.retainedBytesPerTrip = (usedHeapAfterGc() - usedBefore) / rows;
+        return result;
+    }
+
+    private ServiceRecord makeRecord(int idx, Random random) {
+        final int member = random.nextInt(members);
+        final ServiceRecord result = new ServiceRecord();
+        result.setRefId(String.valueOf(70000000 + idx));
+        result.setMemberId(String.valueOf(100000 + member));
+        result.setLName("Last" + member);
+        result.setFName("First" + member);
+        result.setOrigin((member % 997) + " Main St Apt " + (member % 13));
+        result.setCity(new String(CITIES[member % CITIES.length]));
+        result.setState(new String("ST"));
+        result.setZipCode(String.valueOf(10000 + member % 500));
+        result.setAreaCode(String.valueOf(200 + member % 50));
+        result.setPhone(String.valueOf(5550000 + member));
+        result.setDayOfBirth(LocalDate.ofEpochDay(-7000 + member));
+        result.setPickupDate(LocalDate.ofEpochDay(18262 + random.nextInt(60)));
+        result.setTripPrice(BigDecimal.valueOf(2000 + random.nextInt(4) * 500, 2));
+        return result;
+    }
+
+    private static long usedHeapAfterGc() {
+        final Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -3,10 +3,12 @@ package com.jsoft.medpdfmaker;
 import com.jsoft.medpdfmaker.parser.impl.*;
 import org.apache.poi.ss.usermodel.DataFormatter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.ConfigurableBeanFactory;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.PropertySource;
+import org.springframework.context.annotation.Scope;
 import org.springframework.core.env.Environment;
 
 @Configuration
@@ -32,33 +34,43 @@ public class AppConfiguration {
         return new AppParametersParser();
     }
 
+    // Value extractors are not thread safe (DataFormatter is not), so every sheet gets its own set of extractors.
+
     @Bean
+    @Scope(ConfigurableBeanFactory.SCOPE_PROTOTYPE)
     public BooleanValueExtractor booleanValueExtractor() {
         return new BooleanValueExtractor();
     }
 
     @Bean
+    @Scope(ConfigurableBeanFactory.SCOPE_PROTOTYPE)
     public LocalDateValueExtractor localDateValueExtractor() {
         return new LocalDateValueExtractor();
     }
 
     @Bean
+    @Scope(ConfigurableBeanFactory.SCOPE_PROTOTYPE)
     public LocalTimeValueExtractor localTimeValueExtractor() {
         return new LocalTimeValueExtractor();
     }
 
     @Bean
+    @Scope(ConfigurableBeanFactory.SCOPE_PROTOTYPE)
     public IntegerValueExtractor integerValueExtractor() {
         return new IntegerValueExtractor(new DataFormatter());
     }
 
     @Bean
+    @Scope(ConfigurableBeanFactory.SCOPE_PROTOTYPE)
     public DecimalMoneyValueExtractor decimalMoneyValueExtractor() {
         return new DecimalMoneyValueExtractor(new DataFormatter());
     }
 
+    // Every extractor gets its own string pool, so every builder has its own pool that is released together with it
+    // and does not keep the strings of the sheets processed before.
     @Bean
+    @Scope(ConfigurableBeanFactory.SCOPE_PROTOTYPE)
     public StringValueExtractor stringValueExtractor() {
-        return new StringValueExtractor(new DataFormatter());
+        return new StringValueExtractor(new DataFormatter(), new StringPool());
     }
 }
@@ -3,6 +3,7 @@ package com.jsoft.medpdfmaker;
 import org.springframework.util.CollectionUtils;
 
 import java.nio.file.Path;
+import java.time.LocalDate;
 import java.util.Collections;
 import java.util.List;
 
@@ -16,6 +17,8 @@ public class AppParameters {
     private Path inputFile;
     private Path outputFolder;
     private List<Integer> sheetNumbers;
+    private LocalDate serviceDateFrom;
+    private LocalDate serviceDateTo;
 
     private AppParameters() {
         // no op
@@ -75,6 +78,29 @@ public class AppParameters {
         return sheetNumbers;
     }
 
+    /**
+     * Get first date of the service dates range. Rows with earlier DATE OF SERVICE are not processed.
+     * @return first date of the range (inclusive) or null if rows are not filtered by service date.
+     */
+    public LocalDate getServiceDateFrom() {
+        return serviceDateFrom;
+    }
+
+    /**
+     * Get last date of the service dates range. Rows with later DATE OF SERVICE are not processed.
+     * @return last date of the range (inclusive) or null if rows are not filtered by service date.
+     */
+    public LocalDate getServiceDateTo() {
+        return serviceDateTo;
+    }
+
+    /**
+     * Return true if rows must be filtered by DATE OF SERVICE.
+     */
+    public boolean isServiceDatesFilterEnabled() {
+        return serviceDateFrom != null;
+    }
+
     /**
      * Builder for AppParameters class instances.
      */
@@ -84,6 +110,8 @@ public class AppParameters {
         private Path inputFile;
         private Path outputFolder;
         private List<Integer> sheetNumbers;
+        private LocalDate serviceDateFrom;
+        private LocalDate serviceDateTo;
 
         public Builder setHelpRequested(boolean helpRequested) {
             this.helpRequested = helpRequested;
@@ -132,6 +160,20 @@ public class AppParameters {
             }
         }
 
+        public Builder setServiceDates(LocalDate serviceDateFrom, LocalDate serviceDateTo) {
+            if (helpRequested) {
+                this.serviceDateFrom = null;
+                this.serviceDateTo = null;
+            } else {
+                if (serviceDateFrom == null || serviceDateTo == null || serviceDateFrom.isAfter(serviceDateTo)) {
+                    throw new IllegalArgumentException("Service dates range must have both dates and the first one must not be after the last one");
+                }
+                this.serviceDateFrom = serviceDateFrom;
+                this.serviceDateTo = serviceDateTo;
+            }
+            return this;
+        }
+
         public AppParameters build() {
             if (!helpRequested) {
                 validateSheetNumbers(sheetNumbers);
@@ -143,6 +185,8 @@ public class AppParameters {
             result.inputFile = inputFile;
             result.outputFolder = outputFolder;
             result.sheetNumbers = sheetNumbers;
+            result.serviceDateFrom = serviceDateFrom;
+            result.serviceDateTo = serviceDateTo;
             return result;
         }
     }
@@ -6,6 +6,10 @@ import org.apache.commons.lang3.StringUtils;
 
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -20,6 +24,12 @@ public class AppParametersParser {
     private static final String INPUT_FILE_SHEETS_TO_PROCESS = "s";
     public static final String INPUT_FILE_SHEETS_TO_PROCESS_FULL = "sheet-numbers";
 
+    private static final String SERVICE_DATES_OPTION = "d";
+    public static final String SERVICE_DATES_OPTION_FULL = "service-dates";
+
+    private static final DateTimeFormatter SERVICE_DATE_FORMAT = DateTimeFormatter.ofPattern("M/d/uuuu")
+            .withResolverStyle(ResolverStyle.STRICT);
+
     private final Options cliOptions = buildOptions();
 
     private Options buildOptions() {
@@ -32,6 +42,9 @@ public class AppParametersParser {
         result.addOption(INPUT_FILE_SHEETS_TO_PROCESS, INPUT_FILE_SHEETS_TO_PROCESS_FULL, true,
                 "Comma separated list of sheet numbers that must be processed by the application. If paarmeters is not set, only the information from the 1st sheet in the input Excel book will be processed. " +
                            "Numbers are zero bases, so first sheet has index 0, second sheet has index 1 and so on.");
+        result.addOption(SERVICE_DATES_OPTION, SERVICE_DATES_OPTION_FULL, true,
+                "Range of service dates (DATE OF SERVICE column) in format mm/dd/yyyy-mm/dd/yyyy, e.g. 01/15/2013-01/16/2013. " +
+                           "Both dates are included. Single date means the only day. If parameter is not set, rows are not filtered by service date.");
         return result;
     }
 
@@ -61,6 +74,7 @@ public class AppParametersParser {
         setInputFileName(inputFileName, resultBuilder);
         setOutputFolderName(inputFileName, cmd.getOptionValue(OUTPUT_FOLDER_OPTION), resultBuilder);
         setSheetNumbers(cmd.getOptionValue(INPUT_FILE_SHEETS_TO_PROCESS), resultBuilder);
+        setServiceDates(cmd.getOptionValue(SERVICE_DATES_OPTION), resultBuilder);
         return resultBuilder.build();
     }
 
@@ -130,12 +144,41 @@ public class AppParametersParser {
                 if (intNumber < 0) {
                     throw new ParametersParsingException("All sheet numbers must be greater of equal to 0. Incorrect value: " + intNumber);
                 }
-                sheetNumbers.add(intNumber);
+                // every sheet is written to its own output folder, so the same sheet cannot be processed twice
+                if (!sheetNumbers.contains(intNumber)) {
+                    sheetNumbers.add(intNumber);
+                }
             }
         }
         resultBuilder.setSheetNumbers(sheetNumbers);
     }
 
+    private void setServiceDates(String optionValue, AppParameters.Builder resultBuilder) {
+        if (optionValue == null) {
+            // it is OK. Rows are not filtered by date
+            return;
+        }
+        final String[] strDates = optionValue.split("-", -1);
+        if (strDates.length > 2) {
+            throw new ParametersParsingException("Service dates range is invalid. Correct format: 01/15/2013-01/16/2013");
+        }
+        final LocalDate dateFrom = parseServiceDate(strDates[0]);
+        final LocalDate dateTo = (strDates.length == 1) ? dateFrom : parseServiceDate(strDates[1]);
+        if (dateFrom.isAfter(dateTo)) {
+            throw new ParametersParsingException("First date of service dates range must not be after the last one. Incorrect value: " + optionValue);
+        }
+        resultBuilder.setServiceDates(dateFrom, dateTo);
+    }
+
+    private LocalDate parseServiceDate(String strDate) {
+        final String tmpStr = StringUtils.trim(strDate);
+        try {
+            return LocalDate.parse(tmpStr, SERVICE_DATE_FORMAT);
+        } catch (DateTimeParseException e) {
+            throw new ParametersParsingException("Service dates must be in mm/dd/yyyy format. Incorrect value: " + tmpStr);
+        }
+    }
+
     public void printHelp() {
         new HelpFormatter().printHelp("medpdfmaker <input-file-name>", cliOptions, true);
     }
@@ -1,10 +1,14 @@
 package com.jsoft.medpdfmaker;
 
+import com.jsoft.medpdfmaker.parser.CsvDialect;
+import com.jsoft.medpdfmaker.repository.RepositoryType;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.core.env.Environment;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 
 public class AppProperties {
 
@@ -14,6 +18,18 @@ public class AppProperties {
     public static final String FEDERAL_TAX_ID_PROP = "FederalTaxID";
     public static final String PROVIDER_PROP = "Provider";
     public static final String MAX_PAGES_IN_PDF_FILE = "MaxPagesInPdfFile";
+    public static final String SHEET_PROCESSING_THREADS = "SheetProcessingThreads";
+    public static final String ROW_CONVERSION_THREADS = "RowConversionThreads";
+    public static final String VALUE_CACHE_SIZE = "ValueCacheSize";
+    public static final String EXCLUDE_CANCELLED_RIDES = "ExcludeCancelledRides";
+    public static final String DISK_SHARED_STRINGS_THRESHOLD = "DiskSharedStringsThreshold";
+    public static final String CSV_DIALECT = "CsvDialect";
+    public static final String CSV_CHARSET = "CsvCharset";
+    public static final String RECORD_REPOSITORY = "RecordRepository";
+    public static final String SPILL_MEMORY_BUDGET = "SpillMemoryBudget";
+    public static final String PRESORTED_INPUT = "PresortedInput";
+    public static final String PAGE_RENDERING_THREADS = "PageRenderingThreads";
+    public static final String PIPELINE_QUEUE_CAPACITY = "PipelineQueueCapacity";
 
     private final String placeOfService;
     private final String procedures;
@@ -21,6 +37,18 @@ public class AppProperties {
     private final String federalTaxID;
     private final String provider;
     private final int maxPagesInPdfFile;
+    private final int sheetProcessingThreads;
+    private final int rowConversionThreads;
+    private final int valueCacheSize;
+    private final boolean excludeCancelledRides;
+    private final int diskSharedStringsThreshold;
+    private final CsvDialect csvDialect;
+    private final Charset csvCharset;
+    private final RepositoryType recordRepository;
+    private final int spillMemoryBudget;
+    private final boolean presortedInput;
+    private final int pageRenderingThreads;
+    private final int pipelineQueueCapacity;
 
     public AppProperties(final Environment environment) {
         if (environment == null) {
@@ -34,6 +62,18 @@ public class AppProperties {
         provider = environment.getProperty(PROVIDER_PROP);
         final String strMaxPagesInPdfFile = environment.getProperty(MAX_PAGES_IN_PDF_FILE);
         maxPagesInPdfFile = fetchMaxPagesInPdfFile(strMaxPagesInPdfFile);
+        sheetProcessingThreads = fetchInt(SHEET_PROCESSING_THREADS, environment.getProperty(SHEET_PROCESSING_THREADS), 1, 1);
+        rowConversionThreads = fetchInt(ROW_CONVERSION_THREADS, environment.getProperty(ROW_CONVERSION_THREADS), 1, 1);
+        valueCacheSize = fetchInt(VALUE_CACHE_SIZE, environment.getProperty(VALUE_CACHE_SIZE), 0, 1);
+        excludeCancelledRides = fetchBoolean(EXCLUDE_CANCELLED_RIDES, environment.getProperty(EXCLUDE_CANCELLED_RIDES), true);
+        diskSharedStringsThreshold = fetchInt(DISK_SHARED_STRINGS_THRESHOLD, environment.getProperty(DISK_SHARED_STRINGS_THRESHOLD), 0, 1);
+        csvDialect = fetchCsvDialect(environment.getProperty(CSV_DIALECT));
+        csvCharset = fetchCsvCharset(environment.getProperty(CSV_CHARSET));
+        recordRepository = fetchRecordRepository(environment.getProperty(RECORD_REPOSITORY));
+        spillMemoryBudget = fetchInt(SPILL_MEMORY_BUDGET, environment.getProperty(SPILL_MEMORY_BUDGET), 64, 1);
+        presortedInput = fetchBoolean(PRESORTED_INPUT, environment.getProperty(PRESORTED_INPUT), false);
+        pageRenderingThreads = fetchInt(PAGE_RENDERING_THREADS, environment.getProperty(PAGE_RENDERING_THREADS), 0, 1);
+        pipelineQueueCapacity = fetchInt(PIPELINE_QUEUE_CAPACITY, environment.getProperty(PIPELINE_QUEUE_CAPACITY), 64, 1);
     }
 
     private BigDecimal fetchCharges(String chargesStr) {
@@ -68,6 +108,69 @@ public class AppProperties {
         return result;
     }
 
+    private CsvDialect fetchCsvDialect(String strCsvDialect) {
+        if (StringUtils.isBlank(strCsvDialect)) {
+            return CsvDialect.EXCEL;
+        }
+        try {
+            return CsvDialect.valueOf(strCsvDialect.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(CSV_DIALECT + " property value must be EXCEL or RFC_4180");
+        }
+    }
+
+    private Charset fetchCsvCharset(String strCsvCharset) {
+        if (StringUtils.isBlank(strCsvCharset)) {
+            return StandardCharsets.UTF_8;
+        }
+        try {
+            return Charset.forName(strCsvCharset.trim());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(CSV_CHARSET + " property value is not a supported charset");
+        }
+    }
+
+    private RepositoryType fetchRecordRepository(String strRecordRepository) {
+        if (StringUtils.isBlank(strRecordRepository)) {
+            return RepositoryType.TREE;
+        }
+        try {
+            return RepositoryType.valueOf(strRecordRepository.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(RECORD_REPOSITORY + " property value must be TREE, HASH, SPILL or COLUMNAR");
+        }
+    }
+
+    /**
+     * Parse the integer property.
+     * @return default value if the property is not set or its value is less than min value.
+     */
+    private int fetchInt(String name, String value, int defaultValue, int minValue) {
+        if (StringUtils.isBlank(value)) {
+            return defaultValue;
+        }
+        try {
+            final int result = Integer.parseInt(value.trim());
+            return (result >= minValue) ? result : defaultValue;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " property value is not an integer number");
+        }
+    }
+
+    private boolean fetchBoolean(String name, String value, boolean defaultValue) {
+        if (StringUtils.isBlank(value)) {
+            return defaultValue;
+        }
+        final String trimmedValue = value.trim();
+        if ("true".equalsIgnoreCase(trimmedValue)) {
+            return true;
+        }
+        if ("false".equalsIgnoreCase(trimmedValue)) {
+            return false;
+        }
+        throw new IllegalArgumentException(name + " property value must be true or false");
+    }
+
     public String getPlaceOfService() {
         return placeOfService;
     }
@@ -92,6 +195,83 @@ public class AppProperties {
         return maxPagesInPdfFile;
     }
 
+    public int getSheetProcessingThreads() {
+        return sheetProcessingThreads;
+    }
+
+    /**
+     * Get number of the threads that convert the rows of one sheet into the records while the sheet is read.
+     */
+    public int getRowConversionThreads() {
+        return rowConversionThreads;
+    }
+
+    public int getValueCacheSize() {
+        return valueCacheSize;
+    }
+
+    public boolean isValueCacheEnabled() {
+        return valueCacheSize > 0;
+    }
+
+    public boolean isExcludeCancelledRides() {
+        return excludeCancelledRides;
+    }
+
+    /**
+     * Get min size of the shared strings table in megabytes which strings are kept on disk, 0 if they are always
+     * kept in memory.
+     */
+    public int getDiskSharedStringsThreshold() {
+        return diskSharedStringsThreshold;
+    }
+
+    public CsvDialect getCsvDialect() {
+        return csvDialect;
+    }
+
+    public Charset getCsvCharset() {
+        return csvCharset;
+    }
+
+    /**
+     * Get kind of the repository that keeps the records of one sheet until the PDF file is generated.
+     */
+    public RepositoryType getRecordRepository() {
+        return recordRepository;
+    }
+
+    /**
+     * Get max size of the records of one sheet in megabytes that SPILL repository keeps in memory.
+     */
+    public int getSpillMemoryBudget() {
+        return spillMemoryBudget;
+    }
+
+    /**
+     * Check if the sheets are expected to be sorted by member ID, so the pages of every member are written as soon as
+     * its rows are parsed.
+     */
+    public boolean isPresortedInput() {
+        return presortedInput;
+    }
+
+    /**
+     * Get number of the threads that render the pages of one sheet while it is parsed and grouped,
+     * 0 means parsing, grouping and rendering are not pipelined.
+     */
+    public int getPageRenderingThreads() {
+        return pageRenderingThreads;
+    }
+
+    public boolean isPipelineEnabled() {
+        return pageRenderingThreads > 0;
+    }
+
+    public int getPipelineQueueCapacity() {
+        return pipelineQueueCapacity;
+    }
+
     public boolean isCompositePdfEnabled() {
         return maxPagesInPdfFile != 1;
     }
@@ -2,30 +2,62 @@ package com.jsoft.medpdfmaker;
 
 import com.jsoft.medpdfmaker.domain.MemberIdPriceKey;
 import com.jsoft.medpdfmaker.domain.ServiceRecord;
+import com.jsoft.medpdfmaker.domain.ServiceRecordGroupKey;
+import com.jsoft.medpdfmaker.exception.AppException;
 import com.jsoft.medpdfmaker.exception.ParametersParsingException;
 import com.jsoft.medpdfmaker.exception.ParseException;
+import com.jsoft.medpdfmaker.parser.ObjectBuilder;
+import com.jsoft.medpdfmaker.parser.ParseSession;
 import com.jsoft.medpdfmaker.parser.Result;
+import com.jsoft.medpdfmaker.parser.TableFileFormat;
 import com.jsoft.medpdfmaker.parser.TableFileParser;
 import com.jsoft.medpdfmaker.parser.ValueExtractor;
+import com.jsoft.medpdfmaker.parser.impl.CachingValueExtractor;
 import com.jsoft.medpdfmaker.parser.impl.ServiceRecordBuilder;
-import com.jsoft.medpdfmaker.parser.impl.ServiceRecordXlsParser;
+import com.jsoft.medpdfmaker.parser.impl.ServiceRecordCsvParser;
+import com.jsoft.medpdfmaker.parser.impl.ServiceRecordHssfStreamingParser;
+import com.jsoft.medpdfmaker.parser.impl.ServiceRecordXlsbStreamingParser;
+import com.jsoft.medpdfmaker.parser.impl.ServiceRecordXlsxStreamingParser;
+import com.jsoft.medpdfmaker.pdf.PageGenerator;
 import com.jsoft.medpdfmaker.pdf.impl.MemberPageGenerator;
 import com.jsoft.medpdfmaker.pdf.impl.MembersBookGenerator;
+import com.jsoft.medpdfmaker.pipeline.SheetPipeline;
+import com.jsoft.medpdfmaker.repository.EntityGroupRepository;
+import com.jsoft.medpdfmaker.repository.impl.ColumnarServiceRecordRepository;
+import com.jsoft.medpdfmaker.repository.impl.HashServiceRecordRepository;
+import com.jsoft.medpdfmaker.repository.impl.PresortedGroupEmitter;
 import com.jsoft.medpdfmaker.repository.impl.ServiceRecordRepository;
+import com.jsoft.medpdfmaker.repository.impl.SpillingServiceRecordRepository;
 import com.jsoft.medpdfmaker.util.LoggerUtil;
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 import static com.jsoft.medpdfmaker.util.AppUtil.curDateTimeAsString;
 import static com.jsoft.medpdfmaker.util.FileUtil.toOutName;
@@ -35,7 +67,19 @@ public class Application implements CommandLineRunner {
 
     private AppProperties appProperties;
     private AppParametersParser appParametersParser;
-    private List<ValueExtractor> extractors;
+    private ObjectProvider<ValueExtractor> extractorsProvider;
+
+    /**
+     * Caching extractors created for the sheets, they are used to report the cache statistics.
+     */
+    private final Queue<CachingValueExtractor<?>> valueCaches = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Attributes used to group the records before they are passed to the page generator.
+     */
+    private static final List<String> GROUPING_ATTRIBUTES = Arrays.asList("MEMBERNUMBER", "TRIP_PRICE");
+    private static final String RIDE_CANCELLATION_ATTRIBUTE = "RIDE CANCELLATION";
+    private static final String SERVICE_DATE_ATTRIBUTE = "DATE OF SERVICE";
 
     private static final Logger LOG = LoggerFactory.getLogger(Application.class);
 
@@ -50,8 +94,8 @@ public class Application implements CommandLineRunner {
     }
 
     @Autowired
-    public void setExtractors(List<ValueExtractor> extractors) {
-        this.extractors = extractors;
+    public void setExtractorsProvider(ObjectProvider<ValueExtractor> extractorsProvider) {
+        this.extractorsProvider = extractorsProvider;
     }
 
     public static void main(String... args) {
@@ -84,41 +128,312 @@ public class Application implements CommandLineRunner {
     }
 
     private void generatePdf(AppParameters appParameters) throws IOException {
-        final TableFileParser<ServiceRecord> parser = new ServiceRecordXlsParser(new ServiceRecordBuilder(extractors, appProperties.getCharges()));
-        final ServiceRecordRepository repository = new ServiceRecordRepository();
-        final MemberPageGenerator memberPageGenerator = new MemberPageGenerator(appProperties);
-        final MembersBookGenerator membersBookGenerator = new MembersBookGenerator(appProperties, memberPageGenerator);
+        final Set<String> projection = recordProjection(new MemberPageGenerator(appProperties));
+        final TableFileParser<ServiceRecord> parser = createParser(appParameters,
+                () -> createServiceRecordBuilder(projection, appParameters));
+        // the same time stamp is used for all the sheets, so output names do not depend on the sheets processing order
+        final String curDateStr = curDateTimeAsString();
         LoggerUtil.info(LOG, "Start parsing input file " + appParameters.getInputFileName());
-        for (final int sheetIdx : appParameters.getSheetNumbers()) {
-            LoggerUtil.info(LOG, String.format("Processing sheet # %d", sheetIdx));
-            try {
-                final Result result = parser.parse(appParameters.getInputFile().toFile(), sheetIdx,
-                        rowObj -> {
-                            if (!rowObj.isCancelled()) {
-                                final MemberIdPriceKey key = new MemberIdPriceKey(rowObj);
-                                repository.put(key, rowObj);
-                            }
-                        });
-                switch (result) {
-                    case WARNING:
-                        LoggerUtil.info(LOG, String.format("Data from sheet %d was processed without errors, but some warnings was reported", sheetIdx));
-                        generatePdf(repository, membersBookGenerator, appParameters, sheetIdx);
-                        break;
-                    case OK:
-                        generatePdf(repository, membersBookGenerator, appParameters, sheetIdx);
-                        break;
-                    default:
+        if (appParameters.isServiceDatesFilterEnabled()) {
+            LoggerUtil.info(LOG, String.format("Only rides with service dates from %s to %s are processed",
+                    appParameters.getServiceDateFrom(), appParameters.getServiceDateTo()));
+        }
+        try (final ParseSession<ServiceRecord> parseSession = parser.open(appParameters.getInputFile().toFile())) {
+            final int threadsCount = Math.min(appProperties.getSheetProcessingThreads(), appParameters.getSheetNumbers().size());
+            if (threadsCount > 1) {
+                processSheetsConcurrently(parseSession, appParameters, curDateStr, threadsCount);
+            } else {
+                for (final int sheetIdx : appParameters.getSheetNumbers()) {
+                    if (processSheet(parseSession, appParameters, sheetIdx, curDateStr) == Result.ERROR) {
                         throw new ParseException();
+                    }
                 }
-            } finally {
-                repository.clean();
             }
+        } finally {
+            logValueCachesStatistics();
         }
     }
 
-    private void generatePdf(ServiceRecordRepository repository, MembersBookGenerator pdfFileGenerator,
-                             AppParameters appParameters, int sheetIdx) throws IOException {
-        final String curDateStr = curDateTimeAsString();
+    private void processSheetsConcurrently(ParseSession<ServiceRecord> parseSession, AppParameters appParameters,
+                                           String curDateStr, int threadsCount) {
+        LoggerUtil.info(LOG, String.format("Processing %d sheets using %d threads", appParameters.getSheetNumbers().size(), threadsCount));
+        final ExecutorService executor = Executors.newFixedThreadPool(threadsCount);
+        try {
+            final List<Future<Result>> sheetResults = new ArrayList<>();
+            for (final int sheetIdx : appParameters.getSheetNumbers()) {
+                sheetResults.add(executor.submit(() -> processSheet(parseSession, appParameters, sheetIdx, curDateStr)));
+            }
+            final List<Integer> failedSheets = new ArrayList<>();
+            for (int i = 0; i < sheetResults.size(); i++) {
+                final int sheetIdx = appParameters.getSheetNumbers().get(i);
+                try {
+                    if (sheetResults.get(i).get() == Result.ERROR) {
+                        failedSheets.add(sheetIdx);
+                    }
+                } catch (ExecutionException e) {
+                    LoggerUtil.error(LOG, String.format("Processing of sheet %d failed", sheetIdx), e.getCause());
+                    failedSheets.add(sheetIdx);
+                }
+            }
+            if (!failedSheets.isEmpty()) {
+                throw new ParseException(String.format("Data from sheets %s cannot be processed", failedSheets));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AppException("Sheets processing was interrupted", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Parse one sheet and write its data to PDF file. Every call uses its own builder, repository and generators,
+     * so sheets can be processed concurrently.
+     */
+    private Result processSheet(ParseSession<ServiceRecord> parseSession, AppParameters appParameters,
+                                int sheetIdx, String curDateStr) throws IOException {
+        final MemberPageGenerator memberPageGenerator = new MemberPageGenerator(appProperties);
+        final MembersBookGenerator membersBookGenerator = new MembersBookGenerator(appProperties, memberPageGenerator);
+        LoggerUtil.info(LOG, String.format("Processing sheet # %d", sheetIdx));
+        if (appProperties.isPresortedInput()) {
+            final Result result = processPresortedSheet(parseSession, membersBookGenerator, appParameters, sheetIdx, curDateStr);
+            if (result != null) {
+                return result;
+            }
+        }
+        final EntityGroupRepository<ServiceRecordGroupKey, ServiceRecord> repository = createRepository(appParameters);
+        try {
+            if (appProperties.isPipelineEnabled()) {
+                return processPipelinedSheet(parseSession, repository, membersBookGenerator, appParameters, sheetIdx, curDateStr);
+            }
+            final Result result = parseSession.parse(sheetIdx,
+                    rowObj -> repository.put(new MemberIdPriceKey(rowObj), rowObj));
+            switch (result) {
+                case WARNING:
+                    LoggerUtil.info(LOG, String.format("Data from sheet %d was processed without errors, but some warnings was reported", sheetIdx));
+                    generatePdf(repository, membersBookGenerator, appParameters, sheetIdx, curDateStr);
+                    break;
+                case OK:
+                    generatePdf(repository, membersBookGenerator, appParameters, sheetIdx, curDateStr);
+                    break;
+                default:
+                    LoggerUtil.warn(LOG, String.format("Data from sheet %d contains errors, PDF file is not generated", sheetIdx));
+            }
+            return result;
+        } finally {
+            repository.clean();
+        }
+    }
+
+    /**
+     * Create parser for the format of the input file.
+     */
+    private TableFileParser<ServiceRecord> createParser(AppParameters appParameters,
+                                                        Supplier<ObjectBuilder<ServiceRecord>> builderSupplier) throws IOException {
+        final TableFileFormat format = TableFileFormat.detect(appParameters.getInputFile().toFile());
+        LoggerUtil.info(LOG, String.format("Input file %s is parsed as %s", appParameters.getInputFileName(), format));
+        switch (format) {
+            case XLSB:
+                return new ServiceRecordXlsbStreamingParser(builderSupplier, appProperties.getRowConversionThreads());
+            case XLS:
+                return new ServiceRecordHssfStreamingParser(builderSupplier, appProperties.getRowConversionThreads());
+            case CSV:
+            case TSV:
+                return new ServiceRecordCsvParser(builderSupplier, (format == TableFileFormat.TSV) ? '\t' : ',',
+                        appProperties.getCsvDialect(), appProperties.getCsvCharset(), appProperties.getRowConversionThreads());
+            default:
+                return new ServiceRecordXlsxStreamingParser(builderSupplier,
+                        (long) appProperties.getDiskSharedStringsThreshold() << 20, appProperties.getRowConversionThreads());
+        }
+    }
+
+    /**
+     * Get names of the attributes that must be loaded from the input file, values of the other attributes are skipped.
+     */
+    private static Set<String> recordProjection(PageGenerator pageGenerator) {
+        final Set<String> result = new HashSet<>(pageGenerator.getUsedAttributes());
+        result.addAll(GROUPING_ATTRIBUTES);
+        return result;
+    }
+
+    /**
+     * Create builder for one sheet. Cancelled rides and rides out of the service dates range are rejected by
+     * the builder filters, so the parser does not extract other values of such rows.
+     */
+    private ObjectBuilder<ServiceRecord> createServiceRecordBuilder(Set<String> projection, AppParameters appParameters) {
+        final List<ValueExtractor> extractors = extractorsProvider.orderedStream()
+                .map(extractor -> appProperties.isValueCacheEnabled() ? createCachingExtractor(extractor) : extractor)
+                .collect(Collectors.toList());
+        final ServiceRecordBuilder result = new ServiceRecordBuilder(extractors, appProperties.getCharges(), projection);
+        if (appProperties.isExcludeCancelledRides()) {
+            result.addFilter(RIDE_CANCELLATION_ATTRIBUTE, cancelled -> !((Boolean) cancelled));
+        }
+        if (appParameters.isServiceDatesFilterEnabled()) {
+            final LocalDate dateFrom = appParameters.getServiceDateFrom();
+            final LocalDate dateTo = appParameters.getServiceDateTo();
+            result.addFilter(SERVICE_DATE_ATTRIBUTE,
+                    serviceDate -> !((LocalDate) serviceDate).isBefore(dateFrom) && !((LocalDate) serviceDate).isAfter(dateTo));
+        }
+        return result;
+    }
+
+    private ValueExtractor<?> createCachingExtractor(ValueExtractor<?> extractor) {
+        final CachingValueExtractor<?> result = new CachingValueExtractor<>(extractor, appProperties.getValueCacheSize());
+        valueCaches.add(result);
+        return result;
+    }
+
+    private void logValueCachesStatistics() {
+        if (valueCaches.isEmpty()) {
+            return;
+        }
+        long hits = 0;
+        long misses = 0;
+        for (final CachingValueExtractor<?> valueCache : valueCaches) {
+            hits += valueCache.getHits();
+            misses += valueCache.getMisses();
+        }
+        valueCaches.clear();
+        LoggerUtil.info(LOG, String.format("Extracted values cache: %d hits, %d misses", hits, misses));
+    }
+
+    /**
+     * Parse the sheet sorted by member ID and write the pages of every member as soon as all the rows of the member
+     * are parsed, so only the rows of one member are kept in memory. Parsing stops at the first row that is out of
+     * order, so the rows parsed again by the repository are not parsed and logged twice. The pipeline is cancelled
+     * then instead of failed, so its parse stage is not interrupted and the session can parse the sheet again.
+     * @return result of the sheet or null if the sheet is not sorted, then the pages written so far are deleted
+     * and the sheet must be processed with the repository.
+     */
+    private Result processPresortedSheet(ParseSession<ServiceRecord> parseSession, MembersBookGenerator membersBookGenerator,
+                                         AppParameters appParameters, int sheetIdx, String curDateStr) throws IOException {
+        final String outFileName = makeOutFileName(appParameters, sheetIdx, curDateStr);
+        LoggerUtil.info(LOG, String.format("Writing data to PDF file %s while sorted sheet %d is parsed", outFileName, sheetIdx));
+        final Path workFolder = createWorkFolder(appParameters, sheetIdx, curDateStr);
+        final MembersBookGenerator.Book book = membersBookGenerator.open(workFolder, outFileName);
+        final PresortedGroupEmitter emitter;
+        final Result result;
+        try {
+            if (appProperties.isPipelineEnabled()) {
+                final SheetPipeline pipeline = createPipeline(workFolder, book);
+                emitter = new PresortedGroupEmitter(pipeline::submitGroup);
+                result = pipeline.run(parseSession, sheetIdx, record -> {
+                    emitter.accept(record);
+                    if (emitter.isOutOfOrder()) {
+                        pipeline.cancel();
+                    }
+                }, emitter::finish);
+            } else {
+                emitter = new PresortedGroupEmitter((key, group) -> book.addGroup(group));
+                result = parseSession.parse(sheetIdx, record -> acceptSorted(emitter, record));
+                if (result != Result.ERROR) {
+                    emitter.finish();
+                }
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } catch (SortOrderBreak e) {
+            return discardUnsortedSheet(book, workFolder, sheetIdx);
+        }
+        if (emitter.isOutOfOrder()) {
+            return discardUnsortedSheet(book, workFolder, sheetIdx);
+        }
+        if (result == Result.ERROR) {
+            book.discard();
+            Files.delete(workFolder);
+            LoggerUtil.warn(LOG, String.format("Data from sheet %d contains errors, PDF file is not generated", sheetIdx));
+            return result;
+        }
+        if (result == Result.WARNING) {
+            LoggerUtil.info(LOG, String.format("Data from sheet %d was processed without errors, but some warnings was reported", sheetIdx));
+        }
+        if (emitter.getEmittedGroups() == 0) {
+            LoggerUtil.info(LOG, "No data was provided for PDF generation");
+        }
+        book.finish();
+        return result;
+    }
+
+    private Result discardUnsortedSheet(MembersBookGenerator.Book book, Path workFolder, int sheetIdx) throws IOException {
+        book.discard();
+        FileUtils.deleteDirectory(workFolder.toFile());
+        LoggerUtil.warn(LOG, String.format("Sheet %d is not sorted by member ID, it is parsed again", sheetIdx));
+        return null;
+    }
+
+    /**
+     * Pass the record to the emitter and stop the parsing when the record is out of order.
+     */
+    private static void acceptSorted(PresortedGroupEmitter emitter, ServiceRecord record) {
+        emitter.accept(record);
+        if (emitter.isOutOfOrder()) {
+            throw new SortOrderBreak();
+        }
+    }
+
+    /**
+     * Parse the sheet, group its records and write its pages by the stages of the pipeline that run at the same time.
+     * Groups are passed to the render threads when the sheet is parsed and grouped, but rendering and merging
+     * of the pages overlap with each other and parsing overlaps with grouping.
+     */
+    private Result processPipelinedSheet(ParseSession<ServiceRecord> parseSession,
+                                         EntityGroupRepository<ServiceRecordGroupKey, ServiceRecord> repository,
+                                         MembersBookGenerator membersBookGenerator, AppParameters appParameters,
+                                         int sheetIdx, String curDateStr) throws IOException {
+        final String outFileName = makeOutFileName(appParameters, sheetIdx, curDateStr);
+        LoggerUtil.info(LOG, String.format("Writing data to PDF file %s using %d page rendering threads",
+                outFileName, appProperties.getPageRenderingThreads()));
+        final Path workFolder = createWorkFolder(appParameters, sheetIdx, curDateStr);
+        final MembersBookGenerator.Book book = membersBookGenerator.open(workFolder, outFileName);
+        final SheetPipeline pipeline = createPipeline(workFolder, book);
+        final Result result = pipeline.run(parseSession, sheetIdx,
+                rowObj -> repository.put(new MemberIdPriceKey(rowObj), rowObj), () -> {
+                    for (final ServiceRecordGroupKey key : repository.getKeys()) {
+                        pipeline.submitGroup(key, repository.getGroupByKey(key));
+                    }
+                });
+        switch (result) {
+            case WARNING:
+                LoggerUtil.info(LOG, String.format("Data from sheet %d was processed without errors, but some warnings was reported", sheetIdx));
+                break;
+            case OK:
+                break;
+            default:
+                Files.delete(workFolder);
+                LoggerUtil.warn(LOG, String.format("Data from sheet %d contains errors, PDF file is not generated", sheetIdx));
+                return result;
+        }
+        if (repository.isEmpty()) {
+            LoggerUtil.info(LOG, "No data was provided for PDF generation");
+        }
+        book.finish();
+        return result;
+    }
+
+    private SheetPipeline createPipeline(Path workFolder, MembersBookGenerator.Book book) {
+        return new SheetPipeline(workFolder, book, () -> new MemberPageGenerator(appProperties),
+                appProperties.getPageRenderingThreads(), appProperties.getPipelineQueueCapacity());
+    }
+
+    /**
+     * Create repository that groups the records of one sheet by member.
+     */
+    private EntityGroupRepository<ServiceRecordGroupKey, ServiceRecord> createRepository(AppParameters appParameters) {
+        switch (appProperties.getRecordRepository()) {
+            case HASH:
+                return new HashServiceRecordRepository();
+            case SPILL:
+                return new SpillingServiceRecordRepository(appParameters.getOutputFolder(),
+                        (long) appProperties.getSpillMemoryBudget() << 20, MemberIdPriceKey::new);
+            case COLUMNAR:
+                return new ColumnarServiceRecordRepository();
+            default:
+                return new ServiceRecordRepository();
+        }
+    }
+
+    private void generatePdf(EntityGroupRepository<ServiceRecordGroupKey, ServiceRecord> repository, MembersBookGenerator pdfFileGenerator,
+                             AppParameters appParameters, int sheetIdx, String curDateStr) throws IOException {
         final String outFileName = makeOutFileName(appParameters, sheetIdx, curDateStr);
         LoggerUtil.info(LOG, String.format("Writing data to PDF file %s", outFileName));
         final Path workFolder = createWorkFolder(appParameters, sheetIdx, curDateStr);
@@ -136,4 +451,14 @@ public class Application implements CommandLineRunner {
         final Path workDirectory = Paths.get(appParameters.getOutputFolder().toString(), toOutName(baseName, sheetIdx, curDateStr));
         return Files.createDirectory(workDirectory);
     }
+
+    /**
+     * Thrown from the row callback to stop parsing of the sheet that is not sorted.
+     */
+    private static final class SortOrderBreak extends RuntimeException {
+
+        SortOrderBreak() {
+            super("Sheet is not sorted by member ID", null, false, false);
+        }
+    }
 }
\ No newline at end of file
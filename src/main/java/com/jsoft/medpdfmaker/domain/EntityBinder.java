@@ -0,0 +1,82 @@
+package com.jsoft.medpdfmaker.domain;
+
+/**
+ * Binds values loaded from external sources to the attributes of domain entity.
+ * Implementations are generated at compile time from ExternalField annotations of the entity class
+ * (see com.jsoft.medpdfmaker.processor.EntityBinderProcessor). Generated binder is named after the entity
+ * with "Binder" suffix and placed into the same package, e.g. ServiceRecordBinder for ServiceRecord.
+ * Binders do not have any state, so one binder instance can be used by any number of threads.
+ * @param <T> type of the entity.
+ */
+public interface EntityBinder<T extends DomainEntity> {
+
+    /**
+     * Slot number returned for the attributes that are not defined in the entity.
+     */
+    int UNKNOWN_SLOT = -1;
+
+    /**
+     * Create new empty entity.
+     */
+    T newEntity();
+
+    /**
+     * Get number of the attributes marked with ExternalField annotation. Attributes are numbered (have slots)
+     * from 0 to this value - 1 in the alphabetical order of their names.
+     */
+    int attributesCount();
+
+    /**
+     * Get slot of the attribute.
+     * @param attrName attribute name, value of the ExternalField annotation.
+     * @return slot of the attribute or {@link #UNKNOWN_SLOT} if attribute is not defined.
+     */
+    int attributeSlot(String attrName);
+
+    /**
+     * Get name of the attribute.
+     * @param slot attribute slot.
+     * @return attribute name, value of the ExternalField annotation.
+     */
+    String attributeName(int slot);
+
+    /**
+     * Get type of the attribute value.
+     * @param slot attribute slot.
+     * @return value type defined in the ExternalField annotation.
+     */
+    FieldType attributeType(int slot);
+
+    /**
+     * Check if the attribute is required, i.e. it is used for entity identification.
+     * @param slot attribute slot.
+     * @return required flag defined in the ExternalField annotation.
+     */
+    boolean attributeIsRequired(int slot);
+
+    /**
+     * Set value of the attribute.
+     * @param entity entity to update.
+     * @param slot attribute slot.
+     * @param value new value of the attribute. Type of the value must match the setter argument type,
+     *              primitive attributes do not accept null values.
+     */
+    void setAttributeValue(T entity, int slot, Object value);
+
+    /**
+     * Check if all the key attributes of the entity are empty (null or blank strings). Key attributes are
+     * the required attributes and the attributes marked as the key in the ExternalField annotation.
+     */
+    boolean keyAttributesAreEmpty(T entity);
+
+    /**
+     * Check if all the attributes of the entity are empty (null or blank strings). Boolean attributes are not checked,
+     * because it is not possible to say if false value means False or no value at all.
+     */
+    boolean allAttributesAreEmpty(T entity);
+
+    /**
+     * Get comma separated names of the required attributes in the alphabetical order.
+     */
+    String getRequiredAttributesNames();
+}
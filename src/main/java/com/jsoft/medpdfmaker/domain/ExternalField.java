@@ -25,6 +25,12 @@ public @interface ExternalField {
      */
     boolean required() default false;
 
+    /**
+     * Mark attribute as a part of the entity key. Entity key is empty, when all the key attributes are empty.
+     * Required attributes are always a part of the key, so this flag is only needed for the optional attributes.
+     */
+    boolean key() default false;
+
     /**
      * Type of the field value.
      */
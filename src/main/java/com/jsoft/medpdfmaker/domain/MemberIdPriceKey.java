@@ -1,7 +1,5 @@
 package com.jsoft.medpdfmaker.domain;
 
-import org.apache.commons.lang3.builder.CompareToBuilder;
-
 import java.math.BigDecimal;
 import java.util.Objects;
 
@@ -17,9 +15,16 @@ public class MemberIdPriceKey implements ServiceRecordGroupKey {
      */
     private final BigDecimal tripPrice;
 
+    /**
+     * Hash code is computed once, keys are hashed on every put into the repository.
+     * Prices that differ only by scale (1 and 1.00) have the same hash, as such keys are equal.
+     */
+    private final int hash;
+
     public MemberIdPriceKey(ServiceRecord serviceRecord) {
         this.memberId = serviceRecord.getMemberId();
         this.tripPrice = serviceRecord.getTripPrice();
+        this.hash = Objects.hash(memberId, tripPrice == null ? null : tripPrice.stripTrailingZeros());
     }
 
     @Override
@@ -27,20 +32,35 @@ public class MemberIdPriceKey implements ServiceRecordGroupKey {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         MemberIdPriceKey that = (MemberIdPriceKey) o;
-        return Objects.equals(memberId, that.memberId) &&
-                Objects.equals(tripPrice, that.tripPrice);
+        return hash == that.hash &&
+                Objects.equals(memberId, that.memberId) &&
+                compareNullsFirst(tripPrice, that.tripPrice) == 0;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(memberId, tripPrice);
+        return hash;
     }
 
+    /**
+     * Compare keys by member ID, then by trip price. Null values go first.
+     */
     @Override
     public int compareTo(MemberIdPriceKey o) {
-        return new CompareToBuilder()
-                .append(memberId, o.memberId)
-                .append(tripPrice, o.tripPrice)
-                .toComparison();
+        final int result = compareNullsFirst(memberId, o.memberId);
+        return result != 0 ? result : compareNullsFirst(tripPrice, o.tripPrice);
+    }
+
+    private static <T extends Comparable<T>> int compareNullsFirst(T left, T right) {
+        if (left == right) {
+            return 0;
+        }
+        if (left == null) {
+            return -1;
+        }
+        if (right == null) {
+            return 1;
+        }
+        return left.compareTo(right);
     }
 }
@@ -1,6 +1,5 @@
 package com.jsoft.medpdfmaker.domain;
 
-import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.builder.CompareToBuilder;
 
 import java.math.BigDecimal;
@@ -204,7 +203,7 @@ public class ServiceRecord implements Comparable<ServiceRecord>, DomainEntity {
         return this.pickupTime;
     }
 
-    @ExternalField(value = "APPOINTMENT PICK-UP TIME", fieldType = FieldType.TIME)
+    @ExternalField(value = "APPOINTMENT PICK-UP TIME", key = true, fieldType = FieldType.TIME)
     public void setPickupTime(LocalTime pickupTime) {
         this.pickupTime = pickupTime;
     }
@@ -335,35 +334,6 @@ public class ServiceRecord implements Comparable<ServiceRecord>, DomainEntity {
         this.tripPrice = tripPrice;
     }
 
-    public boolean requiredFieldsAreEmpty() {
-        return StringUtils.isBlank(refId) &&
-               StringUtils.isBlank(lName) &&
-               StringUtils.isBlank(fName) &&
-               StringUtils.isBlank(memberId) &&
-               dayOfBirth == null &&
-               pickupDate == null &&
-               pickupTime == null;
-    }
-
-    public boolean allFieldsAreEmpty() {
-        // Boolean values are excluded because it is hard to understand, if empty cell value means
-        // False or it means tha there is no value because whole row is empty
-        return requiredFieldsAreEmpty() &&
-                apptTime == null &&
-                StringUtils.isBlank(origin) &&
-                StringUtils.isBlank(destination) &&
-                totalPassengers == null &&
-                StringUtils.isBlank(notes) &&
-                StringUtils.isBlank(telephone) &&
-                StringUtils.isBlank(coordinatorInitials) &&
-                StringUtils.isBlank(city) &&
-                StringUtils.isBlank(state) &&
-                StringUtils.isBlank(zipCode) &&
-                StringUtils.isBlank(areaCode) &&
-                StringUtils.isBlank(phone) &&
-                tripPrice == null;
-    }
-
     @Override
     public int compareTo(ServiceRecord o) {
         return new CompareToBuilder()
@@ -0,0 +1,24 @@
+package com.jsoft.medpdfmaker.excel;
+
+/**
+ * Read only access to the shared strings table of the workbook.
+ * Streaming cells keep index of the shared string and get the string from the source only when the value is needed,
+ * so values of the columns that are not processed are never materialized.
+ * Implementations must be thread safe, sheets of the same workbook can be read concurrently.
+ */
+public interface SharedStringsSource {
+
+    /**
+     * Get the string value, _xHHHH_ escape sequences are already decoded.
+     * @param index zero based index of the string in the table.
+     * @return string value.
+     */
+    String getEntryAt(int index);
+
+    /**
+     * Check if the string is blank without materializing it if possible.
+     * @param index zero based index of the string in the table.
+     * @return true if the string is empty or contains whitespace characters only.
+     */
+    boolean entryIsBlank(int index);
+}
@@ -0,0 +1,425 @@
+package com.jsoft.medpdfmaker.excel;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.poi.ss.formula.FormulaParseException;
+import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.ss.util.CellAddress;
+import org.apache.poi.ss.util.CellRangeAddress;
+
+import java.util.Calendar;
+import java.util.Date;
+
+/**
+ * Lightweight Cell implementation that is filled by streaming (event based) readers.
+ * Cell is detached from any sheet or row, so getSheet() and getRow() always return null.
+ * Streaming readers reuse the same instances for every row they read, so references to the cell
+ * must not be kept after the row has been processed.
+ */
+@SuppressWarnings("deprecation")
+public class StreamingCell implements Cell {
+
+    private int rowIndex;
+    private int columnIndex;
+    private CellType cellType = CellType.BLANK;
+    private CellType cachedFormulaResultType = CellType._NONE;
+    private String formula;
+    private String stringValue;
+    private int sharedStringIndex = -1;
+    private SharedStringsSource sharedStrings;
+    private double numericValue;
+    private boolean booleanValue;
+    private byte errorValue;
+    private CellStyle cellStyle;
+    private boolean date1904;
+
+    /**
+     * Reset the cell to the blank state and move it to the new position.
+     * @param rowIndex zero based index of the row that contains the cell.
+     * @param columnIndex zero based index of the column that contains the cell.
+     * @param cellStyle style of the cell, can be null.
+     * @param date1904 true if workbook that contains the cell uses 1904 date windowing.
+     */
+    public void reset(int rowIndex, int columnIndex, CellStyle cellStyle, boolean date1904) {
+        this.rowIndex = rowIndex;
+        this.columnIndex = columnIndex;
+        this.cellStyle = cellStyle;
+        this.date1904 = date1904;
+        cellType = CellType.BLANK;
+        cachedFormulaResultType = CellType._NONE;
+        formula = null;
+        stringValue = null;
+        sharedStringIndex = -1;
+        sharedStrings = null;
+        numericValue = 0.0;
+        booleanValue = false;
+        errorValue = 0;
+    }
+
+    /**
+     * Make the cell the copy of another one, so the value survives reuse of the source cell by its reader.
+     * Shared string is copied as the reference to the shared strings table, it is not materialized.
+     * @param source cell to copy.
+     */
+    public void copyFrom(StreamingCell source) {
+        rowIndex = source.rowIndex;
+        columnIndex = source.columnIndex;
+        cellType = source.cellType;
+        cachedFormulaResultType = source.cachedFormulaResultType;
+        formula = source.formula;
+        stringValue = source.stringValue;
+        sharedStringIndex = source.sharedStringIndex;
+        sharedStrings = source.sharedStrings;
+        numericValue = source.numericValue;
+        booleanValue = source.booleanValue;
+        errorValue = source.errorValue;
+        cellStyle = source.cellStyle;
+        date1904 = source.date1904;
+    }
+
+    /**
+     * Turn the cell to the formula cell. Value that was set to the cell before is kept as cached formula result.
+     * @param formula formula text.
+     */
+    public void markAsFormula(String formula) {
+        if (cellType != CellType.FORMULA) {
+            cachedFormulaResultType = cellType;
+        }
+        this.formula = formula;
+        cellType = CellType.FORMULA;
+    }
+
+    @Override
+    public int getColumnIndex() {
+        return columnIndex;
+    }
+
+    @Override
+    public int getRowIndex() {
+        return rowIndex;
+    }
+
+    @Override
+    public Sheet getSheet() {
+        return null;
+    }
+
+    @Override
+    public Row getRow() {
+        return null;
+    }
+
+    @Override
+    public void setCellType(CellType cellType) {
+        this.cellType = cellType;
+    }
+
+    @Override
+    public CellType getCellType() {
+        return cellType;
+    }
+
+    @Override
+    public CellType getCellTypeEnum() {
+        return getCellType();
+    }
+
+    @Override
+    public CellType getCachedFormulaResultType() {
+        if (cellType != CellType.FORMULA) {
+            throw new IllegalStateException("Only formula cells have cached results");
+        }
+        return cachedFormulaResultType;
+    }
+
+    @Override
+    public CellType getCachedFormulaResultTypeEnum() {
+        return getCachedFormulaResultType();
+    }
+
+    @Override
+    public void setCellValue(double value) {
+        numericValue = value;
+        cellType = CellType.NUMERIC;
+    }
+
+    @Override
+    public void setCellValue(Date value) {
+        setCellValue(DateUtil.getExcelDate(value, date1904));
+    }
+
+    @Override
+    public void setCellValue(Calendar value) {
+        setCellValue(DateUtil.getExcelDate(value, date1904));
+    }
+
+    @Override
+    public void setCellValue(RichTextString value) {
+        setCellValue(value == null ? null : value.getString());
+    }
+
+    @Override
+    public void setCellValue(String value) {
+        sharedStringIndex = -1;
+        sharedStrings = null;
+        if (value == null) {
+            cellType = CellType.BLANK;
+        } else {
+            stringValue = value;
+            cellType = CellType.STRING;
+        }
+    }
+
+    /**
+     * Set string value that is taken from the shared strings table of the workbook when it is requested.
+     * @param index index of the string in the shared strings table.
+     * @param sharedStrings shared strings table of the workbook.
+     */
+    public void setSharedStringValue(int index, SharedStringsSource sharedStrings) {
+        stringValue = null;
+        cellType = CellType.STRING;
+        sharedStringIndex = index;
+        this.sharedStrings = sharedStrings;
+    }
+
+    /**
+     * Check if string value of the blank or string cell is blank. Unlike {@link #getStringCellValue()} it does not
+     * need to materialize the shared string.
+     * @return true if the cell is blank or its value is empty or contains whitespace characters only.
+     */
+    public boolean stringValueIsBlank() {
+        if (valueType() == CellType.STRING && stringValue == null && sharedStrings != null) {
+            return sharedStrings.entryIsBlank(sharedStringIndex);
+        }
+        return StringUtils.isBlank(getStringCellValue());
+    }
+
+    /**
+     * Get index of the shared string that is the value of the cell.
+     * @return index in the shared strings table of the workbook or -1 if the value is not a shared string.
+     */
+    public int getSharedStringIndex() {
+        return sharedStringIndex;
+    }
+
+    @Override
+    public void setCellFormula(String formula) throws FormulaParseException {
+        markAsFormula(formula);
+    }
+
+    @Override
+    public String getCellFormula() {
+        if (cellType != CellType.FORMULA) {
+            throw typeMismatch(CellType.FORMULA);
+        }
+        return formula;
+    }
+
+    @Override
+    public double getNumericCellValue() {
+        switch (valueType()) {
+            case BLANK:
+                return 0.0;
+            case NUMERIC:
+                return numericValue;
+            default:
+                throw typeMismatch(CellType.NUMERIC);
+        }
+    }
+
+    /**
+     * Check if workbook that contains the cell uses 1904 date windowing.
+     */
+    public boolean isDate1904() {
+        return date1904;
+    }
+
+    @Override
+    public Date getDateCellValue() {
+        if (cellType == CellType.BLANK) {
+            return null;
+        }
+        return DateUtil.getJavaDate(getNumericCellValue(), date1904);
+    }
+
+    @Override
+    public RichTextString getRichStringCellValue() {
+        return new PlainRichTextString(getStringCellValue());
+    }
+
+    @Override
+    public String getStringCellValue() {
+        switch (valueType()) {
+            case BLANK:
+                return "";
+            case STRING:
+                if (stringValue == null && sharedStrings != null) {
+                    stringValue = sharedStrings.getEntryAt(sharedStringIndex);
+                }
+                return stringValue;
+            default:
+                throw typeMismatch(CellType.STRING);
+        }
+    }
+
+    @Override
+    public void setCellValue(boolean value) {
+        booleanValue = value;
+        cellType = CellType.BOOLEAN;
+    }
+
+    @Override
+    public void setCellErrorValue(byte value) {
+        errorValue = value;
+        cellType = CellType.ERROR;
+    }
+
+    @Override
+    public boolean getBooleanCellValue() {
+        switch (valueType()) {
+            case BLANK:
+                return false;
+            case BOOLEAN:
+                return booleanValue;
+            default:
+                throw typeMismatch(CellType.BOOLEAN);
+        }
+    }
+
+    @Override
+    public byte getErrorCellValue() {
+        if (valueType() != CellType.ERROR) {
+            throw typeMismatch(CellType.ERROR);
+        }
+        return errorValue;
+    }
+
+    @Override
+    public void setCellStyle(CellStyle style) {
+        this.cellStyle = style;
+    }
+
+    @Override
+    public CellStyle getCellStyle() {
+        return cellStyle;
+    }
+
+    @Override
+    public void setAsActiveCell() {
+        throw new UnsupportedOperationException("Streaming cells are read only");
+    }
+
+    @Override
+    public CellAddress getAddress() {
+        return new CellAddress(rowIndex, columnIndex);
+    }
+
+    @Override
+    public void setCellComment(Comment comment) {
+        throw new UnsupportedOperationException("Streaming cells are read only");
+    }
+
+    @Override
+    public Comment getCellComment() {
+        return null;
+    }
+
+    @Override
+    public void removeCellComment() {
+        throw new UnsupportedOperationException("Streaming cells are read only");
+    }
+
+    @Override
+    public Hyperlink getHyperlink() {
+        return null;
+    }
+
+    @Override
+    public void setHyperlink(Hyperlink link) {
+        throw new UnsupportedOperationException("Streaming cells are read only");
+    }
+
+    @Override
+    public void removeHyperlink() {
+        throw new UnsupportedOperationException("Streaming cells are read only");
+    }
+
+    @Override
+    public CellRangeAddress getArrayFormulaRange() {
+        throw new IllegalStateException("Streaming cells do not support array formulas");
+    }
+
+    @Override
+    public boolean isPartOfArrayFormulaGroup() {
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return "StreamingCell{" + getAddress() + ", " + cellType + '}';
+    }
+
+    private CellType valueType() {
+        return cellType == CellType.FORMULA ? cachedFormulaResultType : cellType;
+    }
+
+    private IllegalStateException typeMismatch(CellType expectedType) {
+        return new IllegalStateException(String.format("Cannot get a %s value from a %s cell", expectedType, cellType));
+    }
+
+    /**
+     * Rich text string without any formatting runs.
+     */
+    private static class PlainRichTextString implements RichTextString {
+
+        private final String value;
+
+        PlainRichTextString(String value) {
+            this.value = value;
+        }
+
+        @Override
+        public void applyFont(int startIndex, int endIndex, short fontIndex) {
+            throw new UnsupportedOperationException("Streaming cells are read only");
+        }
+
+        @Override
+        public void applyFont(int startIndex, int endIndex, Font font) {
+            throw new UnsupportedOperationException("Streaming cells are read only");
+        }
+
+        @Override
+        public void applyFont(Font font) {
+            throw new UnsupportedOperationException("Streaming cells are read only");
+        }
+
+        @Override
+        public void clearFormatting() {
+            // no formatting runs, nothing to clear
+        }
+
+        @Override
+        public String getString() {
+            return value;
+        }
+
+        @Override
+        public int length() {
+            return value.length();
+        }
+
+        @Override
+        public int numFormattingRuns() {
+            return 0;
+        }
+
+        @Override
+        public int getIndexOfFormattingRun(int index) {
+            return 0;
+        }
+
+        @Override
+        public void applyFont(short fontIndex) {
+            throw new UnsupportedOperationException("Streaming cells are read only");
+        }
+    }
+}
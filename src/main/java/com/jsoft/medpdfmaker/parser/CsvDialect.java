@@ -0,0 +1,20 @@
+package com.jsoft.medpdfmaker.parser;
+
+/**
+ * Rules of quoting the fields of CSV and TSV files.
+ */
+public enum CsvDialect {
+
+    /**
+     * Strict RFC 4180 rules: field is either quoted as a whole or contains no quotes, quotes inside the quoted field
+     * are doubled. Files that break these rules are rejected.
+     */
+    RFC_4180,
+
+    /**
+     * Rules Excel uses when it opens and saves CSV files. Quotes inside unquoted fields and text after the closing
+     * quote are kept as is, unterminated quoted field ends at the end of the file. "sep=X" first line sets
+     * the delimiter, ="text" fields are read as text.
+     */
+    EXCEL
+}
@@ -1,6 +1,7 @@
 package com.jsoft.medpdfmaker.parser;
 
 import com.jsoft.medpdfmaker.domain.DomainEntity;
+import com.jsoft.medpdfmaker.exception.ValueExtractException;
 import org.apache.poi.ss.usermodel.Cell;
 
 /**
@@ -10,6 +11,11 @@ import org.apache.poi.ss.usermodel.Cell;
  */
 public interface ObjectBuilder<T extends DomainEntity> {
 
+    /**
+     * Slot number returned for the attributes that are unknown to the builder.
+     */
+    int UNKNOWN_SLOT = -1;
+
     /**
      * Return true if attribute can be processed by the builder.
      * @param attrName attribute name to check if it can be processed or not.
@@ -25,6 +31,60 @@ public interface ObjectBuilder<T extends DomainEntity> {
      */
     void setAttributeValue(String attrName, Cell value);
 
+    /**
+     * Get slot of the attribute. Slot is a number that identifies the attribute in the builder. It does not change
+     * while application is running, so it can be resolved once per table header and then used for every table row.
+     * @param attrName attribute name, the same as in {@link #setAttributeValue(String, Cell)}.
+     * @return slot of the attribute or {@link #UNKNOWN_SLOT} if attribute cannot be processed by the builder.
+     */
+    int attributeSlot(String attrName);
+
+    /**
+     * Set new object's attribute value using slot of the attribute.
+     * @param slot attribute slot returned by {@link #attributeSlot(String)}.
+     * @param value poi Cell object that contains actual value of the attribute that needs to be set.
+     */
+    void setAttributeValue(int slot, Cell value);
+
+    /**
+     * Extract values of the attribute from the cells of several rows at once, without setting them.
+     * Values are set later, row by row, by {@link #setExtractedValue(int, Object)}.
+     * @param slot attribute slot returned by {@link #attributeSlot(String)}.
+     * @param cells cells of the attribute column, one cell per row.
+     * @param count number of the cells at the beginning of the array to process.
+     * @param values receives extracted values.
+     * @param errors receives extraction errors, see {@link ValueExtractor#extractValues(Cell[], int, Object[], ValueExtractException[])}.
+     * @return false if the builder does not extract values of the attribute in advance (e.g. it only checks if
+     * they are present), such values must be set by {@link #setAttributeValue(int, Cell)}.
+     */
+    boolean extractAttributeValues(int slot, Cell[] cells, int count, Object[] values, ValueExtractException[] errors);
+
+    /**
+     * Set new object's attribute value extracted by {@link #extractAttributeValues(int, Cell[], int, Object[], ValueExtractException[])}.
+     * @param slot attribute slot returned by {@link #attributeSlot(String)}.
+     * @param value extracted value.
+     */
+    void setExtractedValue(int slot, Object value);
+
+    /**
+     * Check if rows are filtered by value of the attribute. Values of such attributes must be set before values
+     * of the other attributes, so rejected rows can be discarded without processing the rest of the row.
+     * @param slot attribute slot returned by {@link #attributeSlot(String)}.
+     * @return true if there is a filter for the attribute.
+     */
+    boolean attributeIsFiltered(int slot);
+
+    /**
+     * Check if one of the filtered attribute values set so far does not pass its filter.
+     * @return true if object that is about to be built must be discarded.
+     */
+    boolean entityIsRejected();
+
+    /**
+     * Discard all the values set since the last object was built, e.g. when the object is rejected by the filters.
+     */
+    void discard();
+
     /**
      * Check if all the attributes of entity are empty. It is kind of representation of the case when empty row
      * is added in the Excel book. Row phicially exists, but there meaningful data in the row.
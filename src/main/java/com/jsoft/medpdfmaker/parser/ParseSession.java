@@ -0,0 +1,23 @@
+package com.jsoft.medpdfmaker.parser;
+
+import com.jsoft.medpdfmaker.domain.DomainEntity;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * Parsing session for one source file. Source file is opened and loaded once, when the session is created,
+ * so any number of sheets can be parsed without loading the file again.
+ * Session must be closed when all the required sheets are processed.
+ */
+public interface ParseSession<T extends DomainEntity> extends Closeable {
+
+    /**
+     * Parse one sheet of the source file.
+     * @param sheetIdx zero based index of the sheet.
+     * @param rowCallBack receives every object built from the sheet rows.
+     * @return result of the sheet parsing.
+     */
+    Result parse(int sheetIdx, Consumer<T> rowCallBack) throws IOException;
+}
@@ -0,0 +1,108 @@
+package com.jsoft.medpdfmaker.parser;
+
+import com.jsoft.medpdfmaker.exception.ParseException;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+
+/**
+ * Formats of the input files the application can parse.
+ */
+public enum TableFileFormat {
+
+    /**
+     * Office Open XML workbook.
+     */
+    XLSX("xlsx", "xlsm"),
+
+    /**
+     * Binary workbook. It is a zip package as xlsx is, but its parts are binary.
+     */
+    XLSB("xlsb"),
+
+    /**
+     * Legacy Excel 97-2003 workbook, stream of BIFF8 records in an OLE2 compound file.
+     */
+    XLS("xls"),
+
+    /**
+     * Comma separated values, plain or gzip compressed.
+     */
+    CSV("csv"),
+
+    /**
+     * Tab separated values, plain or gzip compressed.
+     */
+    TSV("tsv", "tab");
+
+    private static final String GZIP_EXTENSION = "gz";
+
+    private static final byte[] ZIP_SIGNATURE = {'P', 'K', 3, 4};
+    private static final byte[] OLE2_SIGNATURE = {(byte) 0xD0, (byte) 0xCF, 0x11, (byte) 0xE0,
+            (byte) 0xA1, (byte) 0xB1, 0x1A, (byte) 0xE1};
+    private static final String XLSB_WORKBOOK_ENTRY = "xl/workbook.bin";
+
+    private final String[] extensions;
+
+    TableFileFormat(String... extensions) {
+        this.extensions = extensions;
+    }
+
+    /**
+     * Detect format of the file. Content of the file is checked first, so the format is detected correctly even if
+     * the file has wrong extension: zip packages are told apart by their workbook part, OLE2 compound files are xls
+     * workbooks. Other files are detected by extension, so the parser of this format reports why the file cannot be read.
+     * Extension of the compressed file is taken from its name without ".gz".
+     * @param srcFile file to check.
+     * @return format of the file.
+     * @throws ParseException if the format of the file is unknown.
+     */
+    public static TableFileFormat detect(File srcFile) throws IOException {
+        final byte[] signature = readSignature(srcFile);
+        if (startsWith(signature, OLE2_SIGNATURE)) {
+            return XLS;
+        }
+        if (startsWith(signature, ZIP_SIGNATURE)) {
+            try (final ZipFile zipFile = new ZipFile(srcFile)) {
+                return (zipFile.getEntry(XLSB_WORKBOOK_ENTRY) != null) ? XLSB : XLSX;
+            } catch (ZipException e) {
+                // broken package, the parser has to report it
+                return XLSX;
+            }
+        }
+        String name = StringUtils.lowerCase(srcFile.getName());
+        if (GZIP_EXTENSION.equals(StringUtils.substringAfterLast(name, "."))) {
+            name = StringUtils.substringBeforeLast(name, ".");
+        }
+        final String extension = StringUtils.substringAfterLast(name, ".");
+        for (final TableFileFormat format : values()) {
+            if (Arrays.asList(format.extensions).contains(extension)) {
+                return format;
+            }
+        }
+        throw new ParseException(String.format("Format of file %s is not supported", srcFile));
+    }
+
+    private static byte[] readSignature(File srcFile) throws IOException {
+        final byte[] result = new byte[OLE2_SIGNATURE.length];
+        try (final InputStream in = Files.newInputStream(srcFile.toPath())) {
+            int count = 0;
+            int read;
+            while (count < result.length && (read = in.read(result, count, result.length - count)) >= 0) {
+                count += read;
+            }
+            return Arrays.copyOf(result, count);
+        }
+    }
+
+    private static boolean startsWith(byte[] signature, byte[] expected) {
+        return signature.length >= expected.length
+                && Arrays.equals(Arrays.copyOf(signature, expected.length), expected);
+    }
+}
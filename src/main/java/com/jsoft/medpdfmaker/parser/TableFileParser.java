@@ -10,4 +10,21 @@ public interface TableFileParser<T extends DomainEntity> {
 
     Result parse(File srcFile, int sheetIdx, Consumer<T> rowCallBack) throws IOException;
 
-}
\ No newline at end of file
+    /**
+     * Open parsing session for the source file. Parsers that can keep the file loaded between sheets
+     * override this method. Default session just delegates every call to {@link #parse(File, int, Consumer)}.
+     */
+    default ParseSession<T> open(File srcFile) throws IOException {
+        return new ParseSession<T>() {
+            @Override
+            public Result parse(int sheetIdx, Consumer<T> rowCallBack) throws IOException {
+                return TableFileParser.this.parse(srcFile, sheetIdx, rowCallBack);
+            }
+
+            @Override
+            public void close() {
+                // nothing is kept open
+            }
+        };
+    }
+}
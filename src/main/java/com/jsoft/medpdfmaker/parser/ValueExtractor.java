@@ -1,6 +1,7 @@
 package com.jsoft.medpdfmaker.parser;
 
 import com.jsoft.medpdfmaker.domain.FieldType;
+import com.jsoft.medpdfmaker.exception.ValueExtractException;
 import org.apache.poi.ss.usermodel.Cell;
 
 /**
@@ -21,4 +22,27 @@ public interface ValueExtractor<T> {
      * @return Extract value or null if cell is null.
      */
     T extractValue(Cell cell);
+
+    /**
+     * Extract values of required type from the chunk of one column, e.g. from the cells of the batch of rows.
+     * Failure of one cell does not stop extraction of the others: if value of cells[i] cannot be extracted,
+     * values[i] is set to null and errors[i] is set to the exception {@link #extractValue(Cell)} throws.
+     * Extractors that wrap other extractors override this method to pass the cells to the wrapped extractor
+     * in batches too.
+     * @param cells cells to extract values from, none of them is null.
+     * @param count number of the cells at the beginning of the array to process.
+     * @param values receives extracted values of type T.
+     * @param errors receives extraction errors, null for the cells which values are extracted.
+     */
+    default void extractValues(Cell[] cells, int count, Object[] values, ValueExtractException[] errors) {
+        for (int i = 0; i < count; i++) {
+            try {
+                values[i] = extractValue(cells[i]);
+                errors[i] = null;
+            } catch (final ValueExtractException e) {
+                values[i] = null;
+                errors[i] = e;
+            }
+        }
+    }
 }
@@ -0,0 +1,50 @@
+package com.jsoft.medpdfmaker.parser.impl;
+
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cell styles of the binary workbooks (xlsb, xls) which are read record by record.
+ * Only the style attributes the parsers depend on are kept: number format, that tells dates from numbers,
+ * and hidden flag, that hides the rows. They are copied to the styles of the detached StylesTable, so the cells
+ * of binary workbooks have the same XSSFCellStyle styles as the cells of xlsx sheets.
+ */
+class BinaryCellStyles {
+
+    private final StylesTable stylesTable = new StylesTable();
+    private final List<XSSFCellStyle> styles = new ArrayList<>();
+
+    /**
+     * Define number format of the workbook.
+     * @param formatIdx index of the format.
+     * @param formatString format string.
+     */
+    void putNumberFormat(int formatIdx, String formatString) {
+        stylesTable.putNumberFormat((short) formatIdx, formatString);
+    }
+
+    /**
+     * Add style with the next index.
+     * @param numberFormat index of the number format, built in or defined by {@link #putNumberFormat(int, String)}.
+     * @param hidden protection hidden flag.
+     */
+    void addStyle(int numberFormat, boolean hidden) {
+        // default style of the new table is reused for the first style
+        final XSSFCellStyle style = styles.isEmpty() ? stylesTable.getStyleAt(0) : stylesTable.createCellStyle();
+        style.setDataFormat(numberFormat);
+        style.setHidden(hidden);
+        styles.add(style);
+    }
+
+    /**
+     * Get style of the cells.
+     * @param styleIdx index of the style.
+     * @return style or null if the workbook does not define the style with such index.
+     */
+    XSSFCellStyle getStyle(int styleIdx) {
+        return (styleIdx >= 0 && styleIdx < styles.size()) ? styles.get(styleIdx) : null;
+    }
+}
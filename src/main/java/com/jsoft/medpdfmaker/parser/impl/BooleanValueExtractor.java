@@ -46,8 +46,7 @@ public class BooleanValueExtractor implements ValueExtractor<Boolean> {
                 result = Math.round(cell.getNumericCellValue()) != 0;
                 break;
             case STRING:
-                final String strVal = StringUtils.remove(cell.getStringCellValue(), " ");
-                result = StringUtils.isNotEmpty(strVal) && valueIsTrue(strVal.trim().toUpperCase());
+                result = valueIsTrue(cell.getStringCellValue());
                 break;
             default:
                 result = false;
@@ -55,7 +54,33 @@ public class BooleanValueExtractor implements ValueExtractor<Boolean> {
         return result;
     }
 
-    private boolean valueIsTrue(final String strVal) {
+    private boolean valueIsTrue(final String value) {
+        if (StringUtils.isEmpty(value)) {
+            return false;
+        }
+        // Upper case ASCII characters without spaces
+        final char[] chars = new char[value.length()];
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c >= 0x80) {
+                // Upper case of some characters is longer than one character, compare them after conversion.
+                final String strVal = StringUtils.remove(value, " ");
+                return StringUtils.isNotEmpty(strVal) && upperCaseValueIsTrue(strVal.trim().toUpperCase());
+            }
+            if (c != ' ') {
+                chars[length++] = (c >= 'a' && c <= 'z') ? (char) (c - 'a' + 'A') : c;
+            }
+        }
+        for (final String possibleTrue : possibleTrues) {
+            if (contains(chars, length, possibleTrue)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean upperCaseValueIsTrue(final String strVal) {
         boolean result = possibleTrues.contains(strVal);
         if (!result) {
             for (final String possibleTrue : possibleTrues) {
@@ -67,4 +92,18 @@ public class BooleanValueExtractor implements ValueExtractor<Boolean> {
         }
         return result;
     }
+
+    private static boolean contains(final char[] chars, final int length, final String marker) {
+        final int lastStart = length - marker.length();
+        for (int start = 0; start <= lastStart; start++) {
+            int matched = 0;
+            while (matched < marker.length() && chars[start + matched] == marker.charAt(matched)) {
+                matched++;
+            }
+            if (matched == marker.length()) {
+                return true;
+            }
+        }
+        return false;
+    }
 }
@@ -0,0 +1,212 @@
+package com.jsoft.medpdfmaker.parser.impl;
+
+import com.jsoft.medpdfmaker.domain.FieldType;
+import com.jsoft.medpdfmaker.exception.ValueExtractException;
+import com.jsoft.medpdfmaker.parser.ValueExtractor;
+import org.apache.commons.lang3.Validate;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Value extractor that remembers values extracted by another extractor.
+ * Input files repeat the same values many times (dates, times, YES/NO markers, etc.), so the cache lets
+ * to parse every distinct value once. Cache key consists of the cell type and the raw cell value:
+ * string, boolean or numeric value together with data format of the cell (formatting of numeric values
+ * depends on it). Cells of other types are passed to the extractor every time. Date windowing is not a part of
+ * the key, so one cache must not be used for the workbooks that use different windowing.
+ * Cache keeps up to maxSize recently used values. Extracted values must be immutable, errors are not cached.
+ * This class is not thread safe, like the extractors it wraps.
+ * @param <T> type of the extracted values.
+ */
+public class CachingValueExtractor<T> implements ValueExtractor<T> {
+
+    private static final Object BLANK_KEY = new Object();
+    private static final Object NULL_VALUE = new Object();
+
+    private final ValueExtractor<T> extractor;
+    private final Map<Object, Object> cache;
+    private long hits;
+    private long misses;
+
+    /**
+     * Cells of the batch which values are not in the cache, with their keys, positions in the batch
+     * and extraction results. Arrays are reused by the batches and grow with them.
+     */
+    private final Map<Object, Integer> batchMisses = new HashMap<>();
+    private Cell[] missCells = new Cell[0];
+    private Object[] missKeys = new Object[0];
+    private Object[] missValues = new Object[0];
+    private ValueExtractException[] missErrors = new ValueExtractException[0];
+    private int[] missOfCell = new int[0];
+
+    /**
+     * @param extractor extractor that extracts values that are not in the cache yet.
+     * @param maxSize max number of the values in the cache.
+     */
+    public CachingValueExtractor(final ValueExtractor<T> extractor, final int maxSize) {
+        Validate.notNull(extractor, "extractor cannot be null");
+        Validate.isTrue(maxSize > 0, "maxSize must be greater than zero");
+        this.extractor = extractor;
+        this.cache = new LinkedHashMap<Object, Object>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, Object> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    @Override
+    public FieldType canParse() {
+        return extractor.canParse();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T extractValue(Cell cell) {
+        final Object key = keyOf(cell);
+        if (key == null) {
+            return extractor.extractValue(cell);
+        }
+        final Object cached = cache.get(key);
+        if (cached != null) {
+            hits++;
+            return (cached == NULL_VALUE) ? null : (T) cached;
+        }
+        misses++;
+        final T result = extractor.extractValue(cell);
+        cache.put(key, (result == null) ? NULL_VALUE : result);
+        return result;
+    }
+
+    /**
+     * Take the values of the batch from the cache and pass all the cells missed by the cache to the wrapped
+     * extractor at once. Equal cells missed by the cache are extracted once.
+     */
+    @Override
+    public void extractValues(Cell[] cells, int count, Object[] values, ValueExtractException[] errors) {
+        ensureMissCapacity(count);
+        int missCount = 0;
+        for (int i = 0; i < count; i++) {
+            final Object key = keyOf(cells[i]);
+            if (key != null) {
+                final Object cached = cache.get(key);
+                if (cached != null) {
+                    hits++;
+                    values[i] = (cached == NULL_VALUE) ? null : cached;
+                    errors[i] = null;
+                    missOfCell[i] = -1;
+                    continue;
+                }
+                final Integer batchMiss = batchMisses.putIfAbsent(key, missCount);
+                if (batchMiss != null) {
+                    hits++;
+                    missOfCell[i] = batchMiss;
+                    continue;
+                }
+                misses++;
+            }
+            missCells[missCount] = cells[i];
+            missKeys[missCount] = key;
+            missOfCell[i] = missCount++;
+        }
+        if (missCount == 0) {
+            return;
+        }
+        extractor.extractValues(missCells, missCount, missValues, missErrors);
+        for (int i = 0; i < missCount; i++) {
+            if (missKeys[i] != null && missErrors[i] == null) {
+                cache.put(missKeys[i], (missValues[i] == null) ? NULL_VALUE : missValues[i]);
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            final int miss = missOfCell[i];
+            if (miss >= 0) {
+                values[i] = missValues[miss];
+                errors[i] = missErrors[miss];
+            }
+        }
+        // the batch must not keep the cells, keys and values
+        batchMisses.clear();
+        Arrays.fill(missCells, 0, missCount, null);
+        Arrays.fill(missKeys, 0, missCount, null);
+        Arrays.fill(missValues, 0, missCount, null);
+    }
+
+    /**
+     * Get number of the values that were taken from the cache.
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * Get number of the values that were extracted by the wrapped extractor, because there were no such values
+     * in the cache.
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    private void ensureMissCapacity(int count) {
+        if (missOfCell.length < count) {
+            missCells = new Cell[count];
+            missKeys = new Object[count];
+            missValues = new Object[count];
+            missErrors = new ValueExtractException[count];
+            missOfCell = new int[count];
+        }
+    }
+
+    /**
+     * Make the cache key. Keys of different cell types are objects of different classes, so they are never equal.
+     * @return key or null if values of the cell type are not cached.
+     */
+    private static Object keyOf(Cell cell) {
+        switch (cell.getCellType()) {
+            case STRING:
+                return cell.getStringCellValue();
+            case NUMERIC:
+                final CellStyle style = cell.getCellStyle();
+                return new NumericKey(cell.getNumericCellValue(), (style == null) ? -1 : style.getDataFormat());
+            case BOOLEAN:
+                return cell.getBooleanCellValue();
+            case BLANK:
+                return BLANK_KEY;
+            default:
+                return null;
+        }
+    }
+
+    private static final class NumericKey {
+
+        private final double value;
+        private final short dataFormat;
+
+        NumericKey(double value, short dataFormat) {
+            this.value = value;
+            this.dataFormat = dataFormat;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            final NumericKey that = (NumericKey) o;
+            return Double.compare(that.value, value) == 0 && dataFormat == that.dataFormat;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Double.hashCode(value) + dataFormat;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.jsoft.medpdfmaker.parser.impl;
+
+import com.jsoft.medpdfmaker.parser.ObjectBuilder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Table header compiled into the array of builder attribute slots indexed by column.
+ * Plan is built once per header, so rows are processed without looking up attribute names for every cell.
+ * Columns with unknown attributes are marked with {@link ObjectBuilder#UNKNOWN_SLOT} and skipped.
+ * Columns of the attributes filtered by the builder are marked too, so parsers can process them before the others.
+ */
+final class ColumnPlan {
+
+    private final int firstColumn;
+    private final int[] slots;
+    private final boolean[] filtered;
+    private final boolean hasFilteredColumns;
+    private final List<String> unknownFieldNames;
+
+    private ColumnPlan(int firstColumn, List<String> fieldNames, ObjectBuilder<?> builder) {
+        this.firstColumn = firstColumn;
+        slots = new int[fieldNames.size()];
+        filtered = new boolean[slots.length];
+        boolean anyFiltered = false;
+        final List<String> unknownNames = new ArrayList<>();
+        for (int i = 0; i < slots.length; i++) {
+            final String fieldName = fieldNames.get(i);
+            slots[i] = builder.attributeSlot(fieldName);
+            if (slots[i] == ObjectBuilder.UNKNOWN_SLOT) {
+                unknownNames.add(fieldName);
+            } else {
+                filtered[i] = builder.attributeIsFiltered(slots[i]);
+                anyFiltered = anyFiltered || filtered[i];
+            }
+        }
+        hasFilteredColumns = anyFiltered;
+        unknownFieldNames = Collections.unmodifiableList(unknownNames);
+    }
+
+    /**
+     * Get zero based absolute index of the first column of the plan.
+     */
+    int getFirstColumn() {
+        return firstColumn;
+    }
+
+    /**
+     * Get number of the columns of the plan, columns after them are skipped.
+     */
+    int columnsCount() {
+        return slots.length;
+    }
+
+    /**
+     * Get builder attribute slot for the column.
+     * @param columnIdx zero based absolute column index.
+     * @return attribute slot or {@link ObjectBuilder#UNKNOWN_SLOT} if value of the column must be skipped.
+     */
+    int slotOf(int columnIdx) {
+        final int idx = columnIdx - firstColumn;
+        return (idx >= 0 && idx < slots.length) ? slots[idx] : ObjectBuilder.UNKNOWN_SLOT;
+    }
+
+    /**
+     * Check if the builder filters rows by value of the column.
+     * @param columnIdx zero based absolute column index.
+     */
+    boolean isFiltered(int columnIdx) {
+        final int idx = columnIdx - firstColumn;
+        return idx >= 0 && idx < filtered.length && filtered[idx];
+    }
+
+    /**
+     * Check if the builder filters rows by value of any column.
+     */
+    boolean hasFilteredColumns() {
+        return hasFilteredColumns;
+    }
+
+    /**
+     * Get header names that are not known to the builder, in the column order.
+     * Columns without header are reported as empty strings.
+     */
+    List<String> getUnknownFieldNames() {
+        return unknownFieldNames;
+    }
+
+    /**
+     * Cache of compiled plans. Sheets of the same book usually share one layout, so the plan is compiled
+     * for the first sheet and reused for the others. Cache can be used by several threads at the same time,
+     * but all the builders used with one cache must be of the same type and must have the same filters.
+     */
+    static class Cache {
+
+        private final ConcurrentMap<Layout, ColumnPlan> plans = new ConcurrentHashMap<>();
+
+        /**
+         * Get compiled plan for the header.
+         * @param firstColumn zero based index of the first header column.
+         * @param fieldNames header names in the column order, including names of unknown attributes.
+         * @param builder builder that resolves attribute slots.
+         * @return plan for the header, compiled before or new one.
+         */
+        ColumnPlan get(int firstColumn, List<String> fieldNames, ObjectBuilder<?> builder) {
+            return plans.computeIfAbsent(new Layout(firstColumn, fieldNames),
+                    layout -> new ColumnPlan(layout.firstColumn, layout.fieldNames, builder));
+        }
+
+        int size() {
+            return plans.size();
+        }
+    }
+
+    private static class Layout {
+        private final int firstColumn;
+        private final List<String> fieldNames;
+
+        Layout(int firstColumn, List<String> fieldNames) {
+            this.firstColumn = firstColumn;
+            this.fieldNames = new ArrayList<>(fieldNames);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Layout that = (Layout) o;
+            return firstColumn == that.firstColumn && fieldNames.equals(that.fieldNames);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(firstColumn, fieldNames);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.jsoft.medpdfmaker.parser.impl;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Bytes of the CSV file, read chunk by chunk. The file is mapped to memory by windows of MAP_WINDOW_SIZE bytes,
+ * so its content is read by the operating system straight to the page cache, without copying it to the heap
+ * through intermediate buffers, and files larger than 2 GB can be read as well.
+ * Gzip files are detected by their magic bytes and decompressed on the fly from the same mapped windows.
+ */
+abstract class CsvInput implements Closeable {
+
+    private static final int MAP_WINDOW_SIZE = 1 << 26;
+    private static final int GZIP_MAGIC = 0x8B1F;
+    private static final int GZIP_CHUNK_SIZE = 1 << 16;
+
+    /**
+     * Open the file for reading.
+     * @param srcFile plain or gzip compressed file.
+     * @return input that must be closed when it is not needed any more.
+     */
+    static CsvInput open(File srcFile) throws IOException {
+        final FileChannel channel = FileChannel.open(srcFile.toPath(), StandardOpenOption.READ);
+        try {
+            final MappedInput result = new MappedInput(channel);
+            return result.isGzip() ? new GzipInput(result) : result;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Get next chunk of the file. Chunk is valid until the next call of this method.
+     * @return buffer positioned at the first byte of the chunk or null at the end of the file.
+     */
+    abstract ByteBuffer nextChunk() throws IOException;
+
+    private static final class MappedInput extends CsvInput {
+
+        private final FileChannel channel;
+        private final long size;
+        private long position;
+
+        MappedInput(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+        }
+
+        boolean isGzip() throws IOException {
+            final ByteBuffer magic = ByteBuffer.allocate(2);
+            while (magic.hasRemaining() && channel.read(magic, magic.position()) > 0) {
+                // positional read does not move the channel
+            }
+            return !magic.hasRemaining() && ((magic.get(0) & 0xFF) | (magic.get(1) & 0xFF) << 8) == GZIP_MAGIC;
+        }
+
+        @Override
+        ByteBuffer nextChunk() throws IOException {
+            if (position >= size) {
+                return null;
+            }
+            final long length = Math.min(MAP_WINDOW_SIZE, size - position);
+            final ByteBuffer result = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            position += length;
+            return result;
+        }
+
+        @Override
+        public void close() throws IOException {
+            // mapped windows are released when they are garbage collected
+            channel.close();
+        }
+    }
+
+    private static final class GzipInput extends CsvInput {
+
+        private final MappedInput source;
+        private final InputStream in;
+        private final byte[] chunk = new byte[GZIP_CHUNK_SIZE];
+
+        GzipInput(MappedInput source) throws IOException {
+            this.source = source;
+            this.in = new GZIPInputStream(new MappedInputStream(source), GZIP_CHUNK_SIZE);
+        }
+
+        @Override
+        ByteBuffer nextChunk() throws IOException {
+            // chunk is filled up, so the first one holds the whole first line of the file
+            int length = 0;
+            int read;
+            while (length < chunk.length && (read = in.read(chunk, length, chunk.length - length)) >= 0) {
+                length += read;
+            }
+            return (length == 0) ? null : ByteBuffer.wrap(chunk, 0, length);
+        }
+
+        @Override
+        public void close() throws IOException {
+            source.close();
+        }
+    }
+
+    /**
+     * Compressed bytes for GZIPInputStream, taken from the mapped windows.
+     */
+    private static final class MappedInputStream extends InputStream {
+
+        private final MappedInput source;
+        private ByteBuffer window;
+
+        MappedInputStream(MappedInput source) {
+            this.source = source;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return nextWindow() ? window.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!nextWindow()) {
+                return -1;
+            }
+            final int result = Math.min(len, window.remaining());
+            window.get(b, off, result);
+            return result;
+        }
+
+        private boolean nextWindow() throws IOException {
+            while (window == null || !window.hasRemaining()) {
+                window = source.nextChunk();
+                if (window == null) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package com.jsoft.medpdfmaker.parser.impl;
+
+import com.jsoft.medpdfmaker.excel.StreamingCell;
+import com.jsoft.medpdfmaker.exception.ParseException;
+import com.jsoft.medpdfmaker.parser.CsvDialect;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reader of the records of CSV or TSV file, counterpart of the sheet handlers of the Excel parsers.
+ * Every record is passed to the RowListener as a row of string cells, so the values are converted by the same
+ * extractors the same way the values of the Excel text cells are. Empty fields have no cells, as Excel does not
+ * create cells for them when it opens the file. Row index is the index of the record, rows are never hidden.
+ * Fields are split on bytes, before the text is decoded, so the charset must encode delimiters, quotes and line
+ * breaks as single ASCII bytes (UTF-8, ISO-8859-*, windows-125*). UTF-8 byte order mark is skipped.
+ */
+class CsvRowReader {
+
+    private static final byte QUOTE = '"';
+    private static final byte CR = '\r';
+    private static final byte LF = '\n';
+    private static final byte[] UTF8_BOM = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+    private static final byte[] SEPARATOR_HINT = {'s', 'e', 'p', '='};
+
+    private static final int FIELD_START = 0;
+    private static final int UNQUOTED = 1;
+    private static final int QUOTED = 2;
+    private static final int QUOTE_IN_QUOTED = 3;
+
+    private final CsvInput input;
+    private final CsvDialect dialect;
+    private final Charset charset;
+    private final String sourceName;
+    private final RowListener rowListener;
+
+    private final List<StreamingCell> cellsPool = new ArrayList<>();
+    private final List<StreamingCell> rowCells = new ArrayList<>();
+    private byte[] field = new byte[256];
+    private int fieldLength;
+
+    private byte delimiter;
+    private int state = FIELD_START;
+    private boolean skipLf;
+    private int rowIdx;
+    private int columnIdx;
+    private long lineNumber = 1;
+
+    CsvRowReader(CsvInput input, byte delimiter, CsvDialect dialect, Charset charset, String sourceName,
+                 RowListener rowListener) {
+        this.input = input;
+        this.delimiter = delimiter;
+        this.dialect = dialect;
+        this.charset = charset;
+        this.sourceName = sourceName;
+        this.rowListener = rowListener;
+    }
+
+    /**
+     * Read all the records of the input.
+     * @throws ParseException if the file breaks quoting rules of RFC 4180 dialect.
+     */
+    void read() throws IOException {
+        ByteBuffer chunk = input.nextChunk();
+        if (chunk != null) {
+            skipPreamble(chunk);
+        }
+        while (chunk != null) {
+            readChunk(chunk);
+            chunk = input.nextChunk();
+        }
+        if (state == QUOTED && dialect == CsvDialect.RFC_4180) {
+            throw invalidFile("quoted field is not closed at the end of the file");
+        }
+        if (state != FIELD_START || columnIdx > 0) {
+            endRecord();
+        }
+    }
+
+    /**
+     * Skip byte order mark and separator hint line of Excel dialect. Both are at the start of the first chunk.
+     */
+    private void skipPreamble(ByteBuffer chunk) {
+        if (startsWith(chunk, UTF8_BOM)) {
+            chunk.position(chunk.position() + UTF8_BOM.length);
+        }
+        if (dialect == CsvDialect.EXCEL && startsWith(chunk, SEPARATOR_HINT)) {
+            final int hintEnd = chunk.position() + SEPARATOR_HINT.length + 1;
+            if (hintEnd <= chunk.limit() && (hintEnd == chunk.limit() || chunk.get(hintEnd) == CR || chunk.get(hintEnd) == LF)) {
+                delimiter = chunk.get(hintEnd - 1);
+                chunk.position(hintEnd);
+                if (chunk.hasRemaining() && chunk.get(chunk.position()) == CR) {
+                    chunk.get();
+                }
+                if (chunk.hasRemaining() && chunk.get(chunk.position()) == LF) {
+                    chunk.get();
+                }
+                lineNumber++;
+            }
+        }
+    }
+
+    private void readChunk(ByteBuffer chunk) {
+        while (chunk.hasRemaining()) {
+            final byte c = chunk.get();
+            if (skipLf) {
+                skipLf = false;
+                if (c == LF) {
+                    continue;
+                }
+            }
+            switch (state) {
+                case QUOTED:
+                    if (c == QUOTE) {
+                        state = QUOTE_IN_QUOTED;
+                    } else {
+                        if (c == LF) {
+                            lineNumber++;
+                        }
+                        append(c);
+                    }
+                    break;
+                case QUOTE_IN_QUOTED:
+                    if (c == QUOTE) {
+                        // doubled quote
+                        append(c);
+                        state = QUOTED;
+                    } else if (c == delimiter || c == CR || c == LF) {
+                        endOfField(c);
+                    } else if (dialect == CsvDialect.RFC_4180) {
+                        throw invalidFile("text after closing quote");
+                    } else {
+                        append(c);
+                        state = UNQUOTED;
+                    }
+                    break;
+                case FIELD_START:
+                    if (c == QUOTE) {
+                        state = QUOTED;
+                        break;
+                    }
+                    state = UNQUOTED;
+                    // the first byte of the unquoted field
+                default:
+                    if (c == delimiter || c == CR || c == LF) {
+                        endOfField(c);
+                    } else if (c == QUOTE && dialect == CsvDialect.RFC_4180) {
+                        throw invalidFile("quote inside unquoted field");
+                    } else {
+                        append(c);
+                    }
+            }
+        }
+    }
+
+    private void endOfField(byte c) {
+        if (c == delimiter) {
+            endField();
+        } else {
+            endRecord();
+            skipLf = c == CR;
+            lineNumber++;
+        }
+    }
+
+    private void append(byte c) {
+        if (fieldLength == field.length) {
+            field = Arrays.copyOf(field, field.length * 2);
+        }
+        field[fieldLength++] = c;
+    }
+
+    private void endField() {
+        if (fieldLength > 0) {
+            String value = new String(field, 0, fieldLength, charset);
+            if (dialect == CsvDialect.EXCEL) {
+                value = unwrapTextFormula(value);
+            }
+            if (!value.isEmpty()) {
+                if (rowCells.size() == cellsPool.size()) {
+                    cellsPool.add(new StreamingCell());
+                }
+                final StreamingCell cell = cellsPool.get(rowCells.size());
+                cell.reset(rowIdx, columnIdx, null, false);
+                cell.setCellValue(value);
+                rowCells.add(cell);
+            }
+        }
+        fieldLength = 0;
+        columnIdx++;
+        state = FIELD_START;
+    }
+
+    private void endRecord() {
+        endField();
+        rowListener.onRow(rowIdx, false, rowCells);
+        rowCells.clear();
+        rowIdx++;
+        columnIdx = 0;
+    }
+
+    /**
+     * Excel keeps leading zeros of the numbers when the field is written as ="00123" formula.
+     * Such field contains the text of the formula.
+     */
+    static String unwrapTextFormula(String value) {
+        if (value.length() >= 3 && value.startsWith("=\"") && value.endsWith("\"")) {
+            return value.substring(2, value.length() - 1).replace("\"\"", "\"");
+        }
+        return value;
+    }
+
+    private ParseException invalidFile(String problem) {
+        return new ParseException(String.format("File %s is not a valid CSV file, line %d: %s", sourceName, lineNumber, problem));
+    }
+
+    private static boolean startsWith(ByteBuffer chunk, byte[] prefix) {
+        if (chunk.remaining() < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (chunk.get(chunk.position() + i) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
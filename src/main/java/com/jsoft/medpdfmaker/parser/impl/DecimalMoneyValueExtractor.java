@@ -12,6 +12,11 @@ import java.math.RoundingMode;
 
 public class DecimalMoneyValueExtractor implements ValueExtractor<BigDecimal> {
 
+    /**
+     * Exponents with more digits are checked by BigDecimal itself.
+     */
+    private static final int MAX_EXPONENT_DIGITS = 9;
+
     private final DataFormatter formatter;
 
     public DecimalMoneyValueExtractor(DataFormatter formatter) {
@@ -52,10 +57,67 @@ public class DecimalMoneyValueExtractor implements ValueExtractor<BigDecimal> {
 
     private BigDecimal getDecimalFromString(Cell cell) {
         final String strVal = formatter.formatCellValue(cell);
-        try {
-            return StringUtils.isEmpty(strVal) ? null : new BigDecimal(strVal.trim()).setScale(2, RoundingMode.UP);
-        } catch (NumberFormatException e) {
+        if (StringUtils.isEmpty(strVal)) {
+            return null;
+        }
+        final String trimmed = strVal.trim();
+        final Boolean isDecimal = isDecimal(trimmed);
+        if (isDecimal == null) {
+            try {
+                return new BigDecimal(trimmed).setScale(2, RoundingMode.UP);
+            } catch (NumberFormatException e) {
+                throw new ValueExtractException(String.format("Unable to parse string value %s to decimal money", strVal), cell);
+            }
+        }
+        if (!isDecimal) {
             throw new ValueExtractException(String.format("Unable to parse string value %s to decimal money", strVal), cell);
         }
+        return new BigDecimal(trimmed).setScale(2, RoundingMode.UP);
+    }
+
+    /**
+     * Check if the string is accepted by BigDecimal(String) constructor: optional sign, digits with optional
+     * decimal point and optional exponent.
+     * @return true or false, or null if the string cannot be checked here: it has non-ASCII characters
+     * (BigDecimal accepts all Unicode digits) or too long exponent that may not fit int.
+     */
+    private static Boolean isDecimal(String value) {
+        final int length = value.length();
+        int pos = 0;
+        if (pos < length && (value.charAt(pos) == '+' || value.charAt(pos) == '-')) {
+            pos++;
+        }
+        int digits = 0;
+        boolean point = false;
+        for (; pos < length; pos++) {
+            final char c = value.charAt(pos);
+            if (c >= '0' && c <= '9') {
+                digits++;
+            } else if (c == '.' && !point) {
+                point = true;
+            } else {
+                break;
+            }
+        }
+        if (pos < length && (value.charAt(pos) == 'e' || value.charAt(pos) == 'E')) {
+            pos++;
+            if (pos < length && (value.charAt(pos) == '+' || value.charAt(pos) == '-')) {
+                pos++;
+            }
+            final int exponentStart = pos;
+            while (pos < length && value.charAt(pos) >= '0' && value.charAt(pos) <= '9') {
+                pos++;
+            }
+            if (pos - exponentStart > MAX_EXPONENT_DIGITS) {
+                return null;
+            }
+            if (pos == exponentStart) {
+                digits = 0;
+            }
+        }
+        if (pos < length) {
+            return StringUtils.isAsciiPrintable(value) ? Boolean.FALSE : null;
+        }
+        return digits > 0;
     }
 }
@@ -0,0 +1,225 @@
+package com.jsoft.medpdfmaker.parser.impl;
+
+import com.jsoft.medpdfmaker.excel.SharedStringsSource;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Validate;
+import org.apache.poi.ooxml.util.SAXHelper;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Read only shared strings table that keeps the strings in a temporary file.
+ * The shared strings part is read once, every string is written to the file as UTF-16 characters and only its
+ * offset is kept in memory. Strings are read back when a cell value is requested, recently used strings are kept
+ * in the LRU cache. Memory usage does not depend on the total length of the strings, so the table is used for
+ * the workbooks with long text values (notes, addresses) that would not fit into the heap otherwise.
+ * Strings are read from the file under its lock, so the table can be used by several threads at the same time.
+ * File is not read by the interruptible channel: the channel is closed when the reading thread is interrupted,
+ * and the table must stay readable by the other sheets of the session after the thread of one sheet is stopped.
+ * Table must be closed to delete the file.
+ */
+class DiskSharedStringsTable implements SharedStringsSource, Closeable {
+
+    private final Path file;
+    private final RandomAccessFile input;
+    private final int count;
+
+    /**
+     * Offsets of the strings in the file in bytes, offset of the string with index i + 1 is the end of the string i.
+     */
+    private final long[] offsets;
+    private final BitSet blankEntries;
+    private final Map<Integer, String> cache;
+
+    /**
+     * Read the shared strings part and write its strings to the temporary file.
+     * @param sharedStringsPart shared strings part of the package.
+     * @param cacheSize max number of the strings kept in memory.
+     */
+    DiskSharedStringsTable(PackagePart sharedStringsPart, int cacheSize) throws IOException, SAXException {
+        Validate.isTrue(cacheSize > 0, "cacheSize must be greater than zero");
+        file = Files.createTempFile("shared-strings", ".tmp");
+        try {
+            final StringsWriter writer;
+            try (final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)));
+                 final InputStream partStream = sharedStringsPart.getInputStream()) {
+                writer = new StringsWriter(out);
+                final XMLReader xmlReader = SAXHelper.newXMLReader();
+                xmlReader.setContentHandler(writer);
+                xmlReader.parse(new InputSource(partStream));
+            } catch (ParserConfigurationException e) {
+                throw new SAXException("SAX parser cannot be created", e);
+            }
+            count = writer.count;
+            offsets = Arrays.copyOf(writer.offsets, count + 1);
+            blankEntries = writer.blankEntries;
+            input = new RandomAccessFile(file.toFile(), "r");
+        } catch (IOException | SAXException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        cache = new LinkedHashMap<Integer, String>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, String> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * Get number of the strings in the table.
+     */
+    int getUniqueCount() {
+        return count;
+    }
+
+    @Override
+    public String getEntryAt(int index) {
+        checkIndex(index);
+        synchronized (cache) {
+            final String cached = cache.get(index);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        final String result = readEntry(index);
+        synchronized (cache) {
+            cache.put(index, result);
+        }
+        return result;
+    }
+
+    @Override
+    public boolean entryIsBlank(int index) {
+        checkIndex(index);
+        return blankEntries.get(index);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            input.close();
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException(String.format("Shared string index %d is out of range [0, %d)", index, count));
+        }
+    }
+
+    private String readEntry(int index) {
+        final byte[] bytes = new byte[(int) (offsets[index + 1] - offsets[index])];
+        try {
+            synchronized (input) {
+                input.seek(offsets[index]);
+                input.readFully(bytes);
+            }
+        } catch (EOFException e) {
+            throw new UncheckedIOException(String.format("Shared string %d cannot be read, file is truncated", index), e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Shared string %d cannot be read", index), e);
+        }
+        // strings are written by DataOutputStream.writeChars, high byte first
+        return new String(bytes, StandardCharsets.UTF_16BE);
+    }
+
+    /**
+     * Writes text of the string items (si elements) to the file. Text of the phonetic runs is skipped
+     * the same way ReadOnlySharedStringsTable skips it by default.
+     */
+    private static class StringsWriter extends DefaultHandler {
+
+        private final DataOutputStream out;
+        private final StringBuilder text = new StringBuilder();
+        private final BitSet blankEntries = new BitSet();
+        private long[] offsets = new long[1024];
+        private int count;
+        private boolean inText;
+        private boolean inPhonetic;
+
+        StringsWriter(DataOutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            switch (localName) {
+                case "si":
+                    text.setLength(0);
+                    break;
+                case "t":
+                    inText = true;
+                    break;
+                case "rPh":
+                    inPhonetic = true;
+                    break;
+                default:
+                    // element is not interesting
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) throws SAXException {
+            switch (localName) {
+                case "si":
+                    writeEntry(XlsxSheetHandler.utfDecode(text.toString()));
+                    break;
+                case "t":
+                    inText = false;
+                    break;
+                case "rPh":
+                    inPhonetic = false;
+                    break;
+                default:
+                    // element is not interesting
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (inText && !inPhonetic) {
+                text.append(ch, start, length);
+            }
+        }
+
+        private void writeEntry(String value) throws SAXException {
+            if (count + 1 >= offsets.length) {
+                offsets = Arrays.copyOf(offsets, offsets.length * 2);
+            }
+            try {
+                out.writeChars(value);
+            } catch (IOException e) {
+                throw new SAXException("Shared strings file cannot be written", e);
+            }
+            if (StringUtils.isBlank(value)) {
+                blankEntries.set(count);
+            }
+            count++;
+            offsets[count] = offsets[count - 1] + 2L * value.length();
+        }
+    }
+}
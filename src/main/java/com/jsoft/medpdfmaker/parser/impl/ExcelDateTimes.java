@@ -0,0 +1,105 @@
+package com.jsoft.medpdfmaker.parser.impl;
+
+import com.jsoft.medpdfmaker.excel.StreamingCell;
+import org.apache.poi.hssf.usermodel.HSSFCell;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.xssf.usermodel.XSSFCell;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+
+import static org.apache.poi.ss.usermodel.DateUtil.isCellDateFormatted;
+
+/**
+ * Conversion of numeric cell values (Excel serial dates) to LocalDateTime.
+ * Serial date is number of days since the start of the workbook date window, fractional part is time of the day.
+ * Conversion is done arithmetically with the same rules DateUtil.getJavaDate applies (1900 leap year bug,
+ * 1904 date windowing, rounding to milliseconds), so Calendar, Date and time zone conversions are not needed.
+ * The only difference is that the wall clock time is kept as is when it falls into the daylight saving time gap
+ * of the system time zone, while Calendar moves it forward.
+ */
+final class ExcelDateTimes {
+
+    private static final int DAY_MILLISECONDS = 24 * 60 * 60 * 1000;
+
+    /**
+     * Serial number of the day after 9999-12-31, the last date Excel supports.
+     * Larger values are converted by POI to get the same result as before.
+     */
+    private static final double MAX_SERIAL = 2958466.0;
+
+    /**
+     * Serial number of the first day after nonexistent 1900-02-29, that Excel counts for compatibility with Lotus 1-2-3.
+     */
+    private static final int FIRST_DAY_AFTER_LEAP_BUG = 61;
+
+    private static final LocalDate ZERO_DAY_1900 = LocalDate.of(1899, 12, 31);
+    private static final LocalDate ZERO_DAY_1904 = LocalDate.of(1904, 1, 1);
+
+    private ExcelDateTimes() {
+    }
+
+    /**
+     * Convert value of the numeric cell to the date and time. Result is the same as conversion of
+     * cell.getDateCellValue() for date formatted cells and of DateUtil.getJavaDate(cell.getNumericCellValue())
+     * for other cells to LocalDateTime in the system time zone.
+     * @param cell numeric cell.
+     * @return date and time or null if cell value is not valid Excel date (negative).
+     */
+    static LocalDateTime toLocalDateTime(Cell cell) {
+        final Boolean date1904 = isDate1904(cell);
+        if (date1904 == null) {
+            // Date windowing of the workbook is not known, date formatted cells have to convert the value themselves.
+            return isCellDateFormatted(cell) ? toLocalDateTime(cell.getDateCellValue())
+                : toLocalDateTime(cell.getNumericCellValue(), false);
+        }
+        // Values of the cells that are not date formatted are always treated as 1900 based,
+        // so there is no need to check the format in most of the workbooks.
+        return toLocalDateTime(cell.getNumericCellValue(), date1904 && isCellDateFormatted(cell));
+    }
+
+    /**
+     * Convert Excel serial date to the date and time. Result is the same as conversion of
+     * DateUtil.getJavaDate(value, date1904) to LocalDateTime in the system time zone.
+     * @param value Excel serial date.
+     * @param date1904 true if 1904 date windowing is used.
+     * @return date and time or null if the value is not valid Excel date (negative).
+     */
+    static LocalDateTime toLocalDateTime(double value, boolean date1904) {
+        if (!DateUtil.isValidExcelDate(value)) {
+            return null;
+        }
+        if (value >= MAX_SERIAL) {
+            return toLocalDateTime(DateUtil.getJavaDate(value, date1904));
+        }
+        final int wholeDays = (int) Math.floor(value);
+        final int millisecondsInDay = (int) ((value - wholeDays) * DAY_MILLISECONDS + 0.5);
+        final LocalDate day;
+        if (date1904) {
+            day = ZERO_DAY_1904.plusDays(wholeDays);
+        } else {
+            day = ZERO_DAY_1900.plusDays(wholeDays < FIRST_DAY_AFTER_LEAP_BUG ? wholeDays : wholeDays - 1L);
+        }
+        return day.atStartOfDay().plusNanos(millisecondsInDay * 1_000_000L);
+    }
+
+    private static LocalDateTime toLocalDateTime(Date date) {
+        return (date == null) ? null : LocalDateTime.ofInstant(date.toInstant(), ZoneId.systemDefault());
+    }
+
+    private static Boolean isDate1904(Cell cell) {
+        if (cell instanceof StreamingCell) {
+            return ((StreamingCell) cell).isDate1904();
+        }
+        if (cell instanceof XSSFCell) {
+            return ((XSSFCell) cell).getSheet().getWorkbook().isDate1904();
+        }
+        if (cell instanceof HSSFCell) {
+            return ((HSSFCell) cell).getSheet().getWorkbook().getInternalWorkbook().isUsing1904DateWindowing();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,37 @@
+package com.jsoft.medpdfmaker.parser.impl;
+
+import com.jsoft.medpdfmaker.exception.ParseException;
+import org.apache.poi.UnsupportedFileFormatException;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+
+import java.io.File;
+
+/**
+ * Opens xlsx packages for the parsers.
+ * Package is opened from the file with random access (java.util.zip.ZipFile), so the parts are read from the disk
+ * only when they are requested and the archive is never copied to the heap. Opening the package from an InputStream
+ * would read and keep in memory all the parts of the archive before the first of them can be used.
+ */
+final class ExcelPackages {
+
+    private ExcelPackages() {
+        // no-op
+    }
+
+    /**
+     * Open the package in read only mode. Package must be closed with {@link OPCPackage#revert()},
+     * because {@link OPCPackage#close()} is intended to save the package.
+     * @param srcFile xlsx file.
+     * @return opened package.
+     * @throws ParseException if the file is not a valid xlsx package.
+     */
+    static OPCPackage openReadOnly(File srcFile) {
+        try {
+            return OPCPackage.open(srcFile, PackageAccess.READ);
+        } catch (OpenXML4JException | UnsupportedFileFormatException e) {
+            throw new ParseException(String.format("File %s is not a valid Excel book", srcFile), e);
+        }
+    }
+}
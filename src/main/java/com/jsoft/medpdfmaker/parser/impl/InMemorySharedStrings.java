@@ -0,0 +1,62 @@
+package com.jsoft.medpdfmaker.parser.impl;
+
+import com.jsoft.medpdfmaker.excel.SharedStringsSource;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.poi.hssf.record.SSTRecord;
+import org.apache.poi.xssf.binary.XSSFBSharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+
+import java.util.function.IntFunction;
+
+/**
+ * Shared strings table that keeps all the strings in memory. It is used for the workbooks which shared strings part
+ * is small enough, so there is no reason to write the strings to disk.
+ */
+class InMemorySharedStrings implements SharedStringsSource {
+
+    private final IntFunction<String> entries;
+
+    /**
+     * Create table of the xlsx workbook, its strings can contain _xHHHH_ escape sequences.
+     */
+    InMemorySharedStrings(ReadOnlySharedStringsTable table) {
+        this(index -> XlsxSheetHandler.utfDecode(table.getItemAt(index).getString()));
+    }
+
+    /**
+     * Create table of the xlsb workbook, its strings are stored as is. Strings are taken from the table once,
+     * so no rich text object is created per lookup.
+     */
+    InMemorySharedStrings(XSSFBSharedStringsTable table) {
+        this(stringsOf(table));
+    }
+
+    /**
+     * Create table of the xls workbook from its SST record.
+     */
+    InMemorySharedStrings(SSTRecord table) {
+        this(index -> table.getString(index).getString());
+    }
+
+    private InMemorySharedStrings(IntFunction<String> entries) {
+        this.entries = entries;
+    }
+
+    private static IntFunction<String> stringsOf(XSSFBSharedStringsTable table) {
+        final String[] strings = new String[table.getUniqueCount()];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = table.getItemAt(i).getString();
+        }
+        return index -> strings[index];
+    }
+
+    @Override
+    public String getEntryAt(int index) {
+        return entries.apply(index);
+    }
+
+    @Override
+    public boolean entryIsBlank(int index) {
+        return StringUtils.isBlank(getEntryAt(index));
+    }
+}
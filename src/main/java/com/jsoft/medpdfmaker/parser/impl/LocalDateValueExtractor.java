@@ -7,17 +7,24 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.poi.ss.usermodel.Cell;
 
 import java.time.LocalDate;
-import java.time.ZoneId;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.time.Year;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.Arrays;
-import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import static org.apache.commons.lang3.StringUtils.trim;
-import static org.apache.poi.ss.usermodel.DateUtil.getJavaDate;
-import static org.apache.poi.ss.usermodel.DateUtil.isCellDateFormatted;
 
+/**
+ * Extract date value from the cell.
+ * String values are parsed by hand in one pass when they have the shape of one of the supported formats,
+ * DateTimeFormatter objects are used only for unusual values (long numbers with leading zeros, years with more than
+ * four digits, etc.), so the result is always the same as parsing by the formats in the listed order.
+ */
 public class LocalDateValueExtractor implements ValueExtractor<LocalDate> {
 
     private static final List<DateTimeFormatter> DATE_FORMATS =
@@ -29,6 +36,23 @@ public class LocalDateValueExtractor implements ValueExtractor<LocalDate> {
                     DateTimeFormatter.ofPattern("M/d/yyyy")
             );
 
+    /**
+     * Short month names in the same locale DATE_FORMATS use.
+     */
+    private static final Map<String, Integer> MONTH_NAMES = new HashMap<>();
+
+    /**
+     * Two-digit years of "yy" pattern are in 2000-2099 range.
+     */
+    private static final int REDUCED_YEAR_BASE = 2000;
+
+    static {
+        final DateTimeFormatter monthFormat = DateTimeFormatter.ofPattern("MMM");
+        for (final Month month : Month.values()) {
+            MONTH_NAMES.put(monthFormat.format(month), month.getValue());
+        }
+    }
+
     @Override
     public FieldType canParse() {
         return FieldType.DATE;
@@ -39,8 +63,11 @@ public class LocalDateValueExtractor implements ValueExtractor<LocalDate> {
         final LocalDate result;
         switch (cell.getCellType()) {
             case NUMERIC:
-                final Date tmpD = (isCellDateFormatted(cell)) ? cell.getDateCellValue() : getJavaDate(cell.getNumericCellValue());
-                result = tmpD.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+                final LocalDateTime tmpD = ExcelDateTimes.toLocalDateTime(cell);
+                if (tmpD == null) {
+                    throw new ValueExtractException("Cannot extract date value from the cell", cell);
+                }
+                result = tmpD.toLocalDate();
                 break;
             case BLANK:
                 result = null;
@@ -59,6 +86,11 @@ public class LocalDateValueExtractor implements ValueExtractor<LocalDate> {
         if (StringUtils.isBlank(strValue)) {
             return null;
         }
+        final LocalDate result = parseDate(strValue, cell);
+        return (result == null) ? parseDateWithFormats(strValue, cell) : result;
+    }
+
+    private LocalDate parseDateWithFormats(String strValue, Cell cell) {
         for (final DateTimeFormatter format : DATE_FORMATS) {
             try {
                 return LocalDate.parse(strValue, format);
@@ -68,4 +100,98 @@ public class LocalDateValueExtractor implements ValueExtractor<LocalDate> {
         }
         throw new ValueExtractException("Cannot extract date value from the cell", cell);
     }
+
+    /**
+     * Parse the value that has shape of the supported formats: dd-MMM-yy, dd-MMM-yyyy (month name is one of
+     * MONTH_NAMES), MM/dd/yy, M/d/yyyy (one or two digit month and day, four digit year).
+     * @return parsed date or null if the value does not have one of the shapes.
+     * @throws ValueExtractException if the value has one of the shapes, but does not contain valid date.
+     */
+    private LocalDate parseDate(String value, Cell cell) {
+        final int firstEnd = digitsEnd(value, 0);
+        if (firstEnd == 0 && value.charAt(0) != '-') {
+            // All the formats start with the number, minus is the only sign it can have
+            throw new ValueExtractException("Cannot extract date value from the cell", cell);
+        }
+        if (firstEnd == 0 || firstEnd > 2 || firstEnd == value.length()) {
+            return null;
+        }
+        final char separator = value.charAt(firstEnd);
+        final int secondStart = firstEnd + 1;
+        final int secondEnd;
+        final int month;
+        final int day;
+        if (separator == '/') {
+            secondEnd = digitsEnd(value, secondStart);
+            if (secondEnd == secondStart || secondEnd - secondStart > 2) {
+                return null;
+            }
+            month = parseDigits(value, 0, firstEnd);
+            day = parseDigits(value, secondStart, secondEnd);
+        } else if (separator == '-') {
+            secondEnd = value.indexOf('-', secondStart);
+            final Integer monthByName = (secondEnd < 0) ? null : MONTH_NAMES.get(value.substring(secondStart, secondEnd));
+            if (monthByName == null) {
+                return null;
+            }
+            if (firstEnd != 2) {
+                // dd requires two digits
+                throw new ValueExtractException("Cannot extract date value from the cell", cell);
+            }
+            month = monthByName;
+            day = parseDigits(value, 0, firstEnd);
+        } else {
+            return null;
+        }
+        if (secondEnd == value.length() || value.charAt(secondEnd) != separator) {
+            return null;
+        }
+        final int yearStart = secondEnd + 1;
+        final int yearEnd = digitsEnd(value, yearStart);
+        final int yearLength = yearEnd - yearStart;
+        if (yearEnd != value.length() || yearLength > 4) {
+            return null;
+        }
+        final int year;
+        if (yearLength == 4) {
+            year = parseDigits(value, yearStart, yearEnd);
+        } else if (yearLength == 2 && (separator == '-' || (firstEnd == 2 && secondEnd - secondStart == 2))) {
+            year = REDUCED_YEAR_BASE + parseDigits(value, yearStart, yearEnd);
+        } else {
+            throw new ValueExtractException("Cannot extract date value from the cell", cell);
+        }
+        return toDate(year, month, day, cell);
+    }
+
+    /**
+     * Create the date the way DateTimeFormatter does it with SMART resolver style: day of month that is valid
+     * in some month (up to 31) is decreased to the last day of the given month.
+     */
+    private static LocalDate toDate(int year, int month, int day, Cell cell) {
+        if (year < 1 || month < 1 || month > 12 || day < 1 || day > 31) {
+            throw new ValueExtractException("Cannot extract date value from the cell", cell);
+        }
+        final Month monthOfYear = Month.of(month);
+        return LocalDate.of(year, monthOfYear, Math.min(day, monthOfYear.length(Year.isLeap(year))));
+    }
+
+    private static int digitsEnd(String value, int start) {
+        int result = start;
+        while (result < value.length() && isAsciiDigit(value.charAt(result))) {
+            result++;
+        }
+        return result;
+    }
+
+    private static int parseDigits(String value, int start, int end) {
+        int result = 0;
+        for (int i = start; i < end; i++) {
+            result = result * 10 + (value.charAt(i) - '0');
+        }
+        return result;
+    }
+
+    private static boolean isAsciiDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
 }
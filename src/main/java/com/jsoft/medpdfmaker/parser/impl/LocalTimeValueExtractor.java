@@ -6,22 +6,23 @@ import com.jsoft.medpdfmaker.parser.ValueExtractor;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.poi.ss.usermodel.Cell;
 
+import java.time.LocalDateTime;
 import java.time.LocalTime;
-import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.Arrays;
-import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
-import static org.apache.commons.lang3.StringUtils.strip;
-import static org.apache.commons.lang3.StringUtils.trim;
 import static org.apache.commons.lang3.StringUtils.upperCase;
-import static org.apache.poi.ss.usermodel.DateUtil.getJavaDate;
-import static org.apache.poi.ss.usermodel.DateUtil.isCellDateFormatted;
 
+/**
+ * Extract time value from the cell.
+ * String values are cleaned and parsed by hand in one pass, DateTimeFormatter objects are used only for
+ * unusual values (numbers with more than MAX_FAST_DIGITS digits), so the result is always the same as
+ * parsing by the formats in the listed order.
+ */
 public class LocalTimeValueExtractor implements ValueExtractor<LocalTime> {
 
     private static final List<DateTimeFormatter> TIME_FORMATS =
@@ -30,14 +31,21 @@ public class LocalTimeValueExtractor implements ValueExtractor<LocalTime> {
                     DateTimeFormatter.ofPattern("H:m")
             );
 
-    private static final Set<Character> ALLOWED_CHARS_IN_TIME = new HashSet<>(Arrays.asList(
-            '1','2','3','4','5','6','7','8','9','0','A','P','M',':'
-    ));
-
     private static final Set<String> EMPTY_VALUES = new HashSet<>(
             Arrays.asList("W/C", "N/A")
     );
 
+    /**
+     * AM and PM markers in the same locale TIME_FORMATS use.
+     */
+    private static final String AM_TEXT = DateTimeFormatter.ofPattern("a").format(LocalTime.MIDNIGHT);
+    private static final String PM_TEXT = DateTimeFormatter.ofPattern("a").format(LocalTime.NOON);
+
+    /**
+     * Hours and minutes with more digits (e.g. leading zeros) are passed to the formatters.
+     */
+    private static final int MAX_FAST_DIGITS = 9;
+
     @Override
     public FieldType canParse() {
         return FieldType.TIME;
@@ -48,8 +56,11 @@ public class LocalTimeValueExtractor implements ValueExtractor<LocalTime> {
         final LocalTime result;
         switch (cell.getCellType()) {
             case NUMERIC:
-                final Date tmpD = (isCellDateFormatted(cell)) ? cell.getDateCellValue() : getJavaDate(cell.getNumericCellValue());
-                result = tmpD.toInstant().atZone(ZoneId.systemDefault()).toLocalTime();
+                final LocalDateTime tmpD = ExcelDateTimes.toLocalDateTime(cell);
+                if (tmpD == null) {
+                    throw new ValueExtractException("Cannot extract time value from the cell", cell);
+                }
+                result = tmpD.toLocalTime();
                 break;
             case BLANK:
                 result = null;
@@ -64,10 +75,16 @@ public class LocalTimeValueExtractor implements ValueExtractor<LocalTime> {
     }
 
     private LocalTime parseTimeFromString(Cell cell) {
-        final String strValue = cleanTimeString(trim(upperCase(cell.getStringCellValue())));
+        // Trimming is not needed, whitespaces are removed by the cleaning.
+        final String strValue = cleanTimeString(upperCase(cell.getStringCellValue()));
         if (StringUtils.isBlank(strValue)) {
             return null;
         }
+        final LocalTime result = parseTime(strValue, cell);
+        return (result == null) ? parseTimeWithFormats(strValue, cell) : result;
+    }
+
+    private LocalTime parseTimeWithFormats(String strValue, Cell cell) {
         for (final DateTimeFormatter format : TIME_FORMATS) {
             try {
                 return LocalTime.parse(strValue, format);
@@ -78,15 +95,56 @@ public class LocalTimeValueExtractor implements ValueExtractor<LocalTime> {
         throw new ValueExtractException("Cannot extract time value from the cell", cell);
     }
 
+    /**
+     * Parse cleaned value in h:ma or H:m format.
+     * @return parsed time or null if hours or minutes have too many digits to be parsed here.
+     * @throws ValueExtractException if the value does not contain valid time.
+     */
+    private LocalTime parseTime(String value, Cell cell) {
+        final int colon = value.indexOf(':');
+        final int minutesEnd = digitsEnd(value, colon + 1);
+        if (colon <= 0 || digitsEnd(value, 0) != colon || minutesEnd == colon + 1) {
+            throw new ValueExtractException("Cannot extract time value from the cell", cell);
+        }
+        if (colon > MAX_FAST_DIGITS || minutesEnd - colon - 1 > MAX_FAST_DIGITS) {
+            return null;
+        }
+        final int hours = parseDigits(value, 0, colon);
+        final int minutes = parseDigits(value, colon + 1, minutesEnd);
+        if (minutes > 59) {
+            throw new ValueExtractException("Cannot extract time value from the cell", cell);
+        }
+        final String marker = value.substring(minutesEnd);
+        if (marker.isEmpty()) {
+            if (hours < 24) {
+                return LocalTime.of(hours, minutes);
+            }
+            // 24:00 is the end of the day
+            if (hours == 24 && minutes == 0) {
+                return LocalTime.MIDNIGHT;
+            }
+        } else if (hours <= 12 && (marker.equals(AM_TEXT) || marker.equals(PM_TEXT))) {
+            // 12 is the first hour of the half of the day, 0 is accepted too
+            final int hourOfAmPm = (hours == 12) ? 0 : hours;
+            return LocalTime.of(marker.equals(PM_TEXT) ? hourOfAmPm + 12 : hourOfAmPm, minutes);
+        }
+        throw new ValueExtractException("Cannot extract time value from the cell", cell);
+    }
+
+    /**
+     * Delete empty value markers and all the characters that cannot be a part of time.
+     * Semicolons are replaced with colons.
+     */
     private String cleanTimeString(String src) {
         if (src == null) {
             return null;
         }
-        String workSrc = deleteEmptyValues(src);
-        final StringBuilder result = new StringBuilder();
+        // All the empty value markers contain slash.
+        final String workSrc = (src.indexOf('/') < 0) ? src : deleteEmptyValues(src);
+        final StringBuilder result = new StringBuilder(workSrc.length());
         for (int i=0;i<workSrc.length();i++) {
             char c = workSrc.charAt(i);
-            if (ALLOWED_CHARS_IN_TIME.contains(c)) {
+            if (isAllowedInTime(c)) {
                 result.append(c);
             } else {
                 if (c == ';') {
@@ -100,9 +158,32 @@ public class LocalTimeValueExtractor implements ValueExtractor<LocalTime> {
     private String deleteEmptyValues(String src) {
         String result = src;
         for (String emptyValue : EMPTY_VALUES) {
-            result = result.replaceAll(emptyValue, "");
+            result = result.replace(emptyValue, "");
         }
         return result;
     }
 
+    private static boolean isAllowedInTime(char c) {
+        return isAsciiDigit(c) || c == 'A' || c == 'P' || c == 'M' || c == ':';
+    }
+
+    private static int digitsEnd(String value, int start) {
+        int result = start;
+        while (result < value.length() && isAsciiDigit(value.charAt(result))) {
+            result++;
+        }
+        return result;
+    }
+
+    private static int parseDigits(String value, int start, int end) {
+        int result = 0;
+        for (int i = start; i < end; i++) {
+            result = result * 10 + (value.charAt(i) - '0');
+        }
+        return result;
+    }
+
+    private static boolean isAsciiDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
 }
@@ -0,0 +1,160 @@
+package com.jsoft.medpdfmaker.parser.impl;
+
+import com.jsoft.medpdfmaker.domain.ServiceRecord;
+import com.jsoft.medpdfmaker.excel.StreamingCell;
+import com.jsoft.medpdfmaker.exception.ParseException;
+import com.jsoft.medpdfmaker.parser.ObjectBuilder;
+import com.jsoft.medpdfmaker.parser.Result;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import static com.jsoft.medpdfmaker.parser.Result.*;
+
+/**
+ * Rows processor that splits the sheet processing into two stages. Thread of the sheet handler only decodes the rows:
+ * it copies the cells of the data rows into the batches of the bounded ring. Batches are converted to the records
+ * by the conversion workers, each worker takes its own builder from the pool of the processor. Workers convert
+ * the batches column by column (see {@link RowConverter#convert(ColumnPlan, RowBatch, Consumer)}).
+ * Batches are retired in the order they were filled, so the records are passed to the callback in the order of the
+ * rows, by the thread of the sheet handler. When all the batches of the ring are in use, the handler waits for
+ * the oldest one, so memory used by the decoded rows is bounded.
+ * Errors are logged by the workers, so the messages of different rows can be interleaved.
+ * With the executor that runs the tasks in the calling thread and one worker the processor only batches the rows.
+ */
+class PipelinedRowsProcessor extends SheetRowsProcessor {
+
+    /**
+     * Number of batches per worker, so the workers are not idle while the handler decodes the next batch.
+     */
+    private static final int BATCHES_PER_WORKER = 4;
+
+    private final Executor executor;
+    private final BlockingQueue<RowConverter> converters;
+    private final RowBatch[] ring;
+    private final Future<?>[] pending;
+    private long submitted;
+    private long retired;
+    private RowBatch filling;
+
+    /**
+     * @param builderSupplier supplier of the builders, one builder is requested for the header and one for every worker.
+     * @param executor executor of the conversion tasks.
+     * @param workers max number of the batches of the sheet that are converted at the same time.
+     */
+    PipelinedRowsProcessor(String sheetName, Supplier<ObjectBuilder<ServiceRecord>> builderSupplier,
+                           ColumnPlan.Cache columnPlans, Consumer<ServiceRecord> rowCallBack,
+                           Executor executor, int workers) {
+        super(sheetName, builderSupplier.get(), columnPlans, rowCallBack);
+        this.executor = executor;
+        converters = new ArrayBlockingQueue<>(workers);
+        for (int i = 0; i < workers; i++) {
+            converters.add(new RowConverter(sheetName, builderSupplier.get()));
+        }
+        ring = new RowBatch[workers * BATCHES_PER_WORKER];
+        pending = new Future<?>[ring.length];
+    }
+
+    @Override
+    Result processRow(int rowIdx, List<StreamingCell> cells) {
+        if (filling == null) {
+            filling = batchAt(submitted);
+        }
+        filling.add(rowIdx, cells);
+        return filling.isFull() ? submit() : OK;
+    }
+
+    @Override
+    Result completeRows() {
+        Result result = OK;
+        if (filling != null && !filling.isEmpty()) {
+            result = submit();
+        }
+        while (retired < submitted) {
+            result = moreImportant(result, retireOldest());
+        }
+        return result;
+    }
+
+    /**
+     * Pass the filled batch to the workers and take the next free one.
+     * @return result of the batch that had to be retired to free the slot of the ring.
+     */
+    private Result submit() {
+        final RowBatch batch = filling;
+        final ColumnPlan columnPlan = getColumnPlan();
+        final FutureTask<Void> task = new FutureTask<>(() -> convert(batch, columnPlan), null);
+        pending[slotOf(submitted)] = task;
+        submitted++;
+        executor.execute(task);
+        Result result = OK;
+        if (submitted - retired == ring.length) {
+            result = retireOldest();
+        }
+        filling = batchAt(submitted);
+        return result;
+    }
+
+    private Result retireOldest() {
+        final int slot = slotOf(retired);
+        try {
+            pending[slot].get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ParseException(String.format("Processing of sheet %s was interrupted", getSheetName()), e);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+        pending[slot] = null;
+        retired++;
+        final RowBatch batch = ring[slot];
+        batch.getRecords().forEach(getRowCallBack());
+        final Result result = batch.getResult();
+        batch.clear();
+        return result;
+    }
+
+    private void convert(RowBatch batch, ColumnPlan columnPlan) {
+        final RowConverter converter = takeConverter();
+        try {
+            batch.setResult(converter.convert(columnPlan, batch, batch.getRecords()::add));
+        } finally {
+            converters.add(converter);
+        }
+    }
+
+    private RowConverter takeConverter() {
+        try {
+            return converters.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ParseException(String.format("Processing of sheet %s was interrupted", getSheetName()), e);
+        }
+    }
+
+    private RowBatch batchAt(long sequence) {
+        final int slot = slotOf(sequence);
+        if (ring[slot] == null) {
+            ring[slot] = new RowBatch();
+        }
+        return ring[slot];
+    }
+
+    private int slotOf(long sequence) {
+        return (int) (sequence % ring.length);
+    }
+}
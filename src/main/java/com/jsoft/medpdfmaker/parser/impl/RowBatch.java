@@ -0,0 +1,86 @@
+package com.jsoft.medpdfmaker.parser.impl;
+
+import com.jsoft.medpdfmaker.domain.ServiceRecord;
+import com.jsoft.medpdfmaker.excel.StreamingCell;
+import com.jsoft.medpdfmaker.parser.Result;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decoded data rows of the sheet that are converted together, with the records converted from them.
+ * Cells are copied from the cells of the sheet handler, which are reused for the next row, and they are reused
+ * by the batch itself when it gets the next rows.
+ */
+final class RowBatch {
+
+    /**
+     * Max number of the rows in one batch.
+     */
+    static final int MAX_ROWS = 256;
+
+    private final List<StreamingCell> cellsPool = new ArrayList<>();
+    private final List<StreamingCell> cells = new ArrayList<>();
+    private final int[] rowIndexes = new int[MAX_ROWS];
+    private final int[] rowStarts = new int[MAX_ROWS + 1];
+    private final List<ServiceRecord> records = new ArrayList<>(MAX_ROWS);
+    private int rowsCount;
+    private Result result = Result.OK;
+
+    void add(int rowIdx, List<StreamingCell> rowCells) {
+        for (final StreamingCell cell : rowCells) {
+            if (cells.size() == cellsPool.size()) {
+                cellsPool.add(new StreamingCell());
+            }
+            final StreamingCell copy = cellsPool.get(cells.size());
+            copy.copyFrom(cell);
+            cells.add(copy);
+        }
+        rowIndexes[rowsCount] = rowIdx;
+        rowsCount++;
+        rowStarts[rowsCount] = cells.size();
+    }
+
+    int rowsCount() {
+        return rowsCount;
+    }
+
+    int rowIndex(int row) {
+        return rowIndexes[row];
+    }
+
+    /**
+     * Get cells of the row in the column order.
+     * @param row position of the row in the batch.
+     */
+    List<StreamingCell> rowCells(int row) {
+        return cells.subList(rowStarts[row], rowStarts[row + 1]);
+    }
+
+    boolean isFull() {
+        return rowsCount == MAX_ROWS;
+    }
+
+    boolean isEmpty() {
+        return rowsCount == 0;
+    }
+
+    List<ServiceRecord> getRecords() {
+        return records;
+    }
+
+    Result getResult() {
+        return result;
+    }
+
+    void setResult(Result result) {
+        this.result = result;
+    }
+
+    void clear() {
+        cells.clear();
+        records.clear();
+        rowsCount = 0;
+        result = Result.OK;
+    }
+}
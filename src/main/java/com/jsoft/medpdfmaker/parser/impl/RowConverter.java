@@ -0,0 +1,265 @@
+package com.jsoft.medpdfmaker.parser.impl;
+
+import com.jsoft.medpdfmaker.domain.ServiceRecord;
+import com.jsoft.medpdfmaker.excel.StreamingCell;
+import com.jsoft.medpdfmaker.exception.ValueExtractException;
+import com.jsoft.medpdfmaker.parser.ObjectBuilder;
+import com.jsoft.medpdfmaker.parser.Result;
+import com.jsoft.medpdfmaker.util.LoggerUtil;
+import org.apache.poi.ss.usermodel.Cell;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+import static com.jsoft.medpdfmaker.parser.Result.*;
+
+/**
+ * Turns batches of the data rows of one sheet into service records by its own builder.
+ * Converter is not thread safe, but several converters of the same sheet can work at the same time,
+ * as the column plan is only read.
+ */
+class RowConverter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RowConverter.class);
+
+    private final String sheetName;
+    private final ObjectBuilder<ServiceRecord> serviceRecordBuilder;
+    private final Result[] rowResults = new Result[RowBatch.MAX_ROWS];
+    private final boolean[] rejectedRows = new boolean[RowBatch.MAX_ROWS];
+    private ColumnChunk[] chunks = new ColumnChunk[0];
+
+    RowConverter(String sheetName, ObjectBuilder<ServiceRecord> serviceRecordBuilder) {
+        this.sheetName = sheetName;
+        this.serviceRecordBuilder = serviceRecordBuilder;
+    }
+
+    /**
+     * Convert the rows of the batch column by column: values of every column are extracted by one call of the
+     * extractor, then the records are built row by row from the extracted values. Filtered columns are extracted
+     * first and other values of the rejected rows are not extracted at all. Records are passed to the callback
+     * in the order of the rows.
+     * @param columnPlan plan of the sheet header.
+     * @param batch rows to convert.
+     * @param rowCallBack receiver of the records.
+     * @return result of the batch, errors are logged.
+     */
+    Result convert(ColumnPlan columnPlan, RowBatch batch, Consumer<ServiceRecord> rowCallBack) {
+        final int rowsCount = batch.rowsCount();
+        final int columnsCount = columnPlan.columnsCount();
+        splitToColumns(columnPlan, batch);
+        final boolean filterRows = columnPlan.hasFilteredColumns();
+        final int firstColumn = columnPlan.getFirstColumn();
+        if (filterRows) {
+            for (int column = 0; column < columnsCount; column++) {
+                if (columnPlan.isFiltered(firstColumn + column)) {
+                    extract(chunks[column], columnPlan.slotOf(firstColumn + column));
+                }
+            }
+            resetCursors(columnsCount);
+            for (int row = 0; row < rowsCount; row++) {
+                for (int column = 0; column < columnsCount; column++) {
+                    if (columnPlan.isFiltered(firstColumn + column)) {
+                        setFilteredValue(chunks[column], row, columnPlan.slotOf(firstColumn + column));
+                    }
+                }
+                rejectedRows[row] = serviceRecordBuilder.entityIsRejected();
+                // values are set again when the record is built
+                serviceRecordBuilder.discard();
+            }
+        }
+        for (int column = 0; column < columnsCount; column++) {
+            if (!(filterRows && columnPlan.isFiltered(firstColumn + column))) {
+                chunks[column].removeRows(rejectedRows);
+                extract(chunks[column], columnPlan.slotOf(firstColumn + column));
+            }
+        }
+        resetCursors(columnsCount);
+        Result result = OK;
+        for (int row = 0; row < rowsCount; row++) {
+            Result rowResult = rowResults[row];
+            if (!rejectedRows[row]) {
+                for (int column = 0; column < columnsCount; column++) {
+                    if (filterRows && columnPlan.isFiltered(firstColumn + column)) {
+                        setFilteredValue(chunks[column], row, columnPlan.slotOf(firstColumn + column));
+                    }
+                }
+                for (int column = 0; column < columnsCount; column++) {
+                    if (!(filterRows && columnPlan.isFiltered(firstColumn + column))) {
+                        rowResult = setValue(rowResult, chunks[column], row, columnPlan.slotOf(firstColumn + column));
+                    }
+                }
+                rowResult = completeRow(batch.rowIndex(row), rowResult, rowCallBack);
+            }
+            result = moreImportant(result, rowResult);
+        }
+        return result;
+    }
+
+    private Result completeRow(int rowIdx, Result rowResult, Consumer<ServiceRecord> rowCallBack) {
+        if (rowResult == OK && !serviceRecordBuilder.entityIsEmpty()) {
+            if (serviceRecordBuilder.entityKeyIsEmpty()) {
+                LoggerUtil.logRowParsingError(LOG, String.format("One or more required values %s are not set",
+                        serviceRecordBuilder.getRequiredAttributesNames()), sheetName, rowIdx);
+                rowResult = ERROR;
+            } else {
+                rowCallBack.accept(serviceRecordBuilder.build());
+            }
+        }
+        if (rowResult != OK) {
+            // values of the failed row must not leak into the next row this converter gets
+            serviceRecordBuilder.discard();
+        }
+        return rowResult;
+    }
+
+    /**
+     * Distribute the cells of the known attributes among the column chunks and reset results of the rows.
+     */
+    private void splitToColumns(ColumnPlan columnPlan, RowBatch batch) {
+        final int columnsCount = columnPlan.columnsCount();
+        if (chunks.length < columnsCount) {
+            chunks = Arrays.copyOf(chunks, columnsCount);
+        }
+        for (int column = 0; column < columnsCount; column++) {
+            if (chunks[column] == null) {
+                chunks[column] = new ColumnChunk();
+            }
+            chunks[column].clear();
+        }
+        final int firstColumn = columnPlan.getFirstColumn();
+        for (int row = 0; row < batch.rowsCount(); row++) {
+            rowResults[row] = OK;
+            rejectedRows[row] = false;
+            for (final StreamingCell cell : batch.rowCells(row)) {
+                if (columnPlan.slotOf(cell.getColumnIndex()) != ObjectBuilder.UNKNOWN_SLOT) {
+                    chunks[cell.getColumnIndex() - firstColumn].add(row, cell);
+                }
+            }
+        }
+    }
+
+    private void extract(ColumnChunk chunk, int slot) {
+        if (chunk.count == 0 || slot == ObjectBuilder.UNKNOWN_SLOT) {
+            return;
+        }
+        chunk.extracted = serviceRecordBuilder.extractAttributeValues(slot, chunk.cells, chunk.count, chunk.values, chunk.errors);
+        if (chunk.extracted) {
+            for (int i = 0; i < chunk.count; i++) {
+                if (chunk.errors[i] != null) {
+                    logCellError(chunk.errors[i], chunk.cells[i]);
+                    rowResults[chunk.rows[i]] = ERROR;
+                }
+            }
+        }
+    }
+
+    private void setFilteredValue(ColumnChunk chunk, int row, int slot) {
+        final int idx = chunk.positionOf(row);
+        if (idx < 0) {
+            return;
+        }
+        if (chunk.extracted) {
+            if (chunk.errors[idx] == null) {
+                serviceRecordBuilder.setExtractedValue(slot, chunk.values[idx]);
+            }
+        } else {
+            try {
+                serviceRecordBuilder.setAttributeValue(slot, chunk.cells[idx]);
+            } catch (final ValueExtractException e) {
+                // the error is logged when the column is extracted
+            }
+        }
+    }
+
+    private Result setValue(Result rowResult, ColumnChunk chunk, int row, int slot) {
+        final int idx = chunk.positionOf(row);
+        if (idx < 0) {
+            return rowResult;
+        }
+        if (!chunk.extracted) {
+            return getDataFromCell(rowResult, slot, chunk.cells[idx]);
+        }
+        if (chunk.errors[idx] == null) {
+            serviceRecordBuilder.setExtractedValue(slot, chunk.values[idx]);
+        }
+        return rowResult;
+    }
+
+    private void resetCursors(int columnsCount) {
+        for (int column = 0; column < columnsCount; column++) {
+            chunks[column].cursor = 0;
+        }
+    }
+
+    private Result getDataFromCell(Result rowResult, int slot, Cell curCell) {
+        try {
+            serviceRecordBuilder.setAttributeValue(slot, curCell);
+        } catch (final ValueExtractException e) {
+            logCellError(e, curCell);
+            rowResult = ERROR;
+        }
+        return rowResult;
+    }
+
+    private void logCellError(ValueExtractException e, Cell curCell) {
+        LoggerUtil.logCellParsingError(LOG, String.format("Cell value cannot be processed: %s", e.getMessage()), sheetName, curCell);
+    }
+
+    /**
+     * Cells of one column of the batch, in the order of the rows, together with the values extracted from them.
+     * Rows without the cell of the column are not in the chunk.
+     */
+    private static final class ColumnChunk {
+
+        private final Cell[] cells = new Cell[RowBatch.MAX_ROWS];
+        private final int[] rows = new int[RowBatch.MAX_ROWS];
+        private final Object[] values = new Object[RowBatch.MAX_ROWS];
+        private final ValueExtractException[] errors = new ValueExtractException[RowBatch.MAX_ROWS];
+        private int count;
+        private boolean extracted;
+        private int cursor;
+
+        void add(int row, Cell cell) {
+            cells[count] = cell;
+            rows[count] = row;
+            count++;
+        }
+
+        /**
+         * Remove the cells of the rejected rows, so their values are not extracted.
+         */
+        void removeRows(boolean[] rejectedRows) {
+            int kept = 0;
+            for (int i = 0; i < count; i++) {
+                if (!rejectedRows[rows[i]]) {
+                    cells[kept] = cells[i];
+                    rows[kept] = rows[i];
+                    kept++;
+                }
+            }
+            Arrays.fill(cells, kept, count, null);
+            count = kept;
+        }
+
+        /**
+         * Get position of the row cell in the chunk. Rows must be requested in ascending order after the cursor reset.
+         * @return position or -1 if the row does not have the cell of the column.
+         */
+        int positionOf(int row) {
+            while (cursor < count && rows[cursor] < row) {
+                cursor++;
+            }
+            return (cursor < count && rows[cursor] == row) ? cursor : -1;
+        }
+
+        void clear() {
+            Arrays.fill(cells, 0, count, null);
+            Arrays.fill(values, 0, count, null);
+            count = 0;
+            extracted = false;
+            cursor = 0;
+        }
+    }
+}
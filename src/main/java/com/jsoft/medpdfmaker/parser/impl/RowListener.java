@@ -0,0 +1,20 @@
+package com.jsoft.medpdfmaker.parser.impl;
+
+import com.jsoft.medpdfmaker.excel.StreamingCell;
+
+import java.util.List;
+
+/**
+ * Receives rows of the sheet in the order they are defined in the sheet.
+ */
+interface RowListener {
+
+    /**
+     * Process one row of the sheet.
+     * @param rowIdx zero based row index.
+     * @param hidden true if row style marks the row as hidden.
+     * @param cells cells defined in the row. List and cells are reused for the next row,
+     *              so they must not be referenced after this method returns.
+     */
+    void onRow(int rowIdx, boolean hidden, List<StreamingCell> cells);
+}
@@ -0,0 +1,65 @@
+package com.jsoft.medpdfmaker.parser.impl;
+
+import com.jsoft.medpdfmaker.domain.ServiceRecord;
+import com.jsoft.medpdfmaker.parser.ObjectBuilder;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Creates the rows processors of the sheets for the streaming parsers. Column plans are shared by all the sheets
+ * of the parser. Rows are always converted by batches, column by column. If the parser has more than one conversion
+ * thread, the batches are converted by the pool of the conversion threads that is shared by all the sheets,
+ * otherwise they are converted by the thread that reads the sheet. Threads of the pool are daemons that are stopped
+ * when they are idle, so the pool does not need to be shut down.
+ */
+class RowsProcessorFactory {
+
+    private static final long IDLE_THREAD_KEEP_ALIVE_SECONDS = 30;
+    private static final AtomicInteger POOL_NUMBER = new AtomicInteger();
+
+    private final Supplier<ObjectBuilder<ServiceRecord>> builderSupplier;
+    private final int conversionThreads;
+    private final ColumnPlan.Cache columnPlans = new ColumnPlan.Cache();
+    private ExecutorService conversionExecutor;
+
+    /**
+     * @param builderSupplier supplier of the builders.
+     * @param conversionThreads number of the threads that convert the rows of one sheet into the records;
+     *                          values less than 2 mean the rows are converted by the thread that reads the sheet.
+     */
+    RowsProcessorFactory(Supplier<ObjectBuilder<ServiceRecord>> builderSupplier, int conversionThreads) {
+        this.builderSupplier = builderSupplier;
+        this.conversionThreads = conversionThreads;
+    }
+
+    SheetRowsProcessor create(String sheetName, Consumer<ServiceRecord> rowCallBack) {
+        if (conversionThreads < 2) {
+            return new PipelinedRowsProcessor(sheetName, builderSupplier, columnPlans, rowCallBack, Runnable::run, 1);
+        }
+        return new PipelinedRowsProcessor(sheetName, builderSupplier, columnPlans, rowCallBack,
+                conversionExecutor(), conversionThreads);
+    }
+
+    private synchronized ExecutorService conversionExecutor() {
+        if (conversionExecutor == null) {
+            final int poolNumber = POOL_NUMBER.incrementAndGet();
+            final AtomicInteger threadNumber = new AtomicInteger();
+            final ThreadPoolExecutor executor = new ThreadPoolExecutor(conversionThreads, conversionThreads,
+                    IDLE_THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+                        final Thread thread = new Thread(runnable,
+                                String.format("row-conversion-%d-%d", poolNumber, threadNumber.incrementAndGet()));
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            executor.allowCoreThreadTimeOut(true);
+            conversionExecutor = executor;
+        }
+        return conversionExecutor;
+    }
+}
@@ -1,120 +1,284 @@
 package com.jsoft.medpdfmaker.parser.impl;
 
-import com.jsoft.medpdfmaker.domain.ExternalField;
+import com.jsoft.medpdfmaker.domain.EntityBinder;
 import com.jsoft.medpdfmaker.domain.FieldType;
 import com.jsoft.medpdfmaker.domain.ServiceRecord;
+import com.jsoft.medpdfmaker.domain.ServiceRecordBinder;
+import com.jsoft.medpdfmaker.excel.StreamingCell;
 import com.jsoft.medpdfmaker.exception.AppException;
 import com.jsoft.medpdfmaker.exception.UnknownAttributeException;
+import com.jsoft.medpdfmaker.exception.ValueExtractException;
 import com.jsoft.medpdfmaker.parser.ObjectBuilder;
 import com.jsoft.medpdfmaker.parser.ValueExtractor;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
 import org.apache.poi.ss.usermodel.Cell;
 
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.math.BigDecimal;
-import java.util.*;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
 
 /**
  * Builder implementation for ServiceRecord.
+ * Attribute values are set through ServiceRecordBinder that is generated at compile time from ExternalField
+ * annotations, so no reflection is used to build records.
+ * Builder can be limited to the attributes that are actually used by the application (projection). Values of
+ * the other attributes are not extracted, builder only checks if they are present to tell empty rows from the rows
+ * with empty key. Required attributes are always extracted, so key validation does not depend on the projection.
+ * Rows can be filtered by attribute values. Values of the filtered attributes are kept aside until the first value
+ * of other attribute is set, so the record is not created for the rows rejected by the filters.
  */
 public class ServiceRecordBuilder implements ObjectBuilder<ServiceRecord> {
 
-    private static final Set<String> REQUIRED_FIELDS = new TreeSet<>();
+    private static final EntityBinder<ServiceRecord> BINDER = new ServiceRecordBinder();
 
-    private static final Map<String, FieldMetaData> METADATA = buildMetaData();
+    /**
+     * Record that is being built, it is created when the first attribute value that is not filtered is set.
+     */
+    private ServiceRecord resultRecord;
 
-    private ServiceRecord resultRecord = new ServiceRecord();
+    /**
+     * Value extractors indexed by attribute slot. Element is null if there is no extractor for the attribute type.
+     */
+    private final ValueExtractor[] slotExtractors;
 
-    private final Map<FieldType, ValueExtractor> valueExtractors;
+    /**
+     * Flags of the attributes that are out of projection, indexed by attribute slot.
+     */
+    private final boolean[] skippedSlots;
+
+    /**
+     * True if one of the skipped attributes of the current record has non empty value.
+     */
+    private boolean skippedValuePresent;
+
+    /**
+     * Filters of the attribute values indexed by attribute slot. Element is null if attribute is not filtered.
+     */
+    private final Predicate<Object>[] slotFilters;
+
+    /**
+     * Values of the filtered attributes set before the record is created, indexed by attribute slot.
+     */
+    private final Object[] filteredValues;
+
+    private boolean rejected;
 
     private final BigDecimal defaultTripPrice;
 
     public ServiceRecordBuilder(List<ValueExtractor> extractors, BigDecimal defaultTripPrice) {
+        this(extractors, defaultTripPrice, null);
+    }
+
+    /**
+     * @param extractors value extractors for the attribute types.
+     * @param defaultTripPrice trip price used when the record does not have it.
+     * @param projection names of the attributes which values must be extracted or null to extract all of them.
+     *                   Required attributes are extracted even if they are not in the projection.
+     */
+    @SuppressWarnings("unchecked")
+    public ServiceRecordBuilder(List<ValueExtractor> extractors, BigDecimal defaultTripPrice, Set<String> projection) {
         Validate.notNull(defaultTripPrice, "defaultTripPrice cannot be null");
-        valueExtractors = new EnumMap<>(FieldType.class);
+        final Map<FieldType, ValueExtractor> valueExtractors = new EnumMap<>(FieldType.class);
         for (ValueExtractor extractor : extractors) {
             valueExtractors.put(extractor.canParse(), extractor);
         }
+        slotExtractors = new ValueExtractor[BINDER.attributesCount()];
+        for (int slot = 0; slot < slotExtractors.length; slot++) {
+            slotExtractors[slot] = valueExtractors.get(BINDER.attributeType(slot));
+        }
+        skippedSlots = new boolean[slotExtractors.length];
+        if (projection != null) {
+            for (final String attrName : projection) {
+                if (!attributeIsKnown(attrName)) {
+                    throw new UnknownAttributeException(String.format("Projected attribute %s is unknown", attrName));
+                }
+            }
+            for (int slot = 0; slot < skippedSlots.length; slot++) {
+                skippedSlots[slot] = !BINDER.attributeIsRequired(slot) && !projection.contains(BINDER.attributeName(slot));
+            }
+        }
+        slotFilters = new Predicate[slotExtractors.length];
+        filteredValues = new Object[slotExtractors.length];
         this.defaultTripPrice = defaultTripPrice;
     }
 
-    private static Map<String, FieldMetaData> buildMetaData() {
-        Map<String, FieldMetaData> result = new HashMap<>();
-        for (Method method: ServiceRecord.class.getDeclaredMethods()) {
-            if (method.isAnnotationPresent(ExternalField.class)) {
-                final ExternalField ann = method.getAnnotation(ExternalField.class);
-                final String fieldName = ann.value();
-                final FieldType fieldType = ann.fieldType();
-                if (ann.required()) {
-                    REQUIRED_FIELDS.add(fieldName);
-                }
-                result.put(fieldName, new FieldMetaData(method, fieldType));
-            }
-        }        
-        return result;
+    /**
+     * Add filter of the attribute values. Records with attribute values that do not pass the filter are rejected.
+     * Filter is not applied when the attribute value is null, so such records are validated as usual.
+     * Filtered attributes are extracted even if they are not in the projection.
+     * @param attrName attribute name.
+     * @param filter filter that accepts the extracted values of the attribute type.
+     */
+    public void addFilter(String attrName, Predicate<Object> filter) {
+        Validate.notNull(filter, "filter cannot be null");
+        final int slot = attributeSlot(attrName);
+        if (slot == UNKNOWN_SLOT) {
+            throw new UnknownAttributeException(String.format("Filtered attribute %s is unknown", attrName));
+        }
+        slotFilters[slot] = (slotFilters[slot] == null) ? filter : slotFilters[slot].and(filter);
+        skippedSlots[slot] = false;
     }
 
     @Override
     public boolean attributeIsKnown(String attrName) {
-        return attrName != null && METADATA.containsKey(attrName);
+        return BINDER.attributeSlot(attrName) != EntityBinder.UNKNOWN_SLOT;
+    }
+
+    @Override
+    public int attributeSlot(String attrName) {
+        final int result = BINDER.attributeSlot(attrName);
+        return (result == EntityBinder.UNKNOWN_SLOT) ? UNKNOWN_SLOT : result;
     }
 
     @Override
     public void setAttributeValue(String attrName, Cell valueCell) {
-        final FieldMetaData fieldMetaData = METADATA.get(attrName);
-        if (fieldMetaData == null) {
+        final int slot = attributeSlot(attrName);
+        if (slot == UNKNOWN_SLOT) {
             throw new UnknownAttributeException(String.format("Attribute %s is unknown", attrName));
         }
-        final Method methodToCall = fieldMetaData.method;
+        setAttributeValue(slot, valueCell);
+    }
+
+    @Override
+    public void setAttributeValue(int slot, Cell valueCell) {
+        checkSlot(slot);
+        if (skippedSlots[slot]) {
+            skippedValuePresent = skippedValuePresent || valueIsPresent(slot, valueCell);
+            return;
+        }
+        setExtractedValue(slot, extractorOf(slot).extractValue(valueCell));
+    }
+
+    @Override
+    public boolean extractAttributeValues(int slot, Cell[] cells, int count, Object[] values, ValueExtractException[] errors) {
+        checkSlot(slot);
+        if (skippedSlots[slot]) {
+            return false;
+        }
+        extractorOf(slot).extractValues(cells, count, values, errors);
+        return true;
+    }
+
+    @Override
+    public void setExtractedValue(int slot, Object value) {
+        checkSlot(slot);
         try {
-            if (fieldMetaData.fieldType == null || !valueExtractors.containsKey(fieldMetaData.fieldType)) {
-                throw new IllegalStateException(fieldMetaData.fieldType + " fieldType is not defined or unknown");
+            final Predicate<Object> filter = slotFilters[slot];
+            if (filter != null) {
+                if (value != null && !filter.test(value)) {
+                    rejected = true;
+                }
+                if (resultRecord == null) {
+                    filteredValues[slot] = value;
+                    return;
+                }
             }
-            final ValueExtractor valueExtractor = valueExtractors.get(fieldMetaData.fieldType);
-            methodToCall.invoke(resultRecord, valueExtractor.extractValue(valueCell));
-        } catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
-            // This is unlikely situation. Annotation is used only for public fields, so no IllegalAccessException possible
-            // IllegalArgumentException is possible during application testing, but not very possible in production
+            BINDER.setAttributeValue(currentRecord(), slot, value);
+        } catch (ClassCastException | NullPointerException e) {
+            // This is unlikely situation. Extractors are selected by the attribute type, so value type always matches
+            // setter argument type, and extractors of primitive attributes do not return null.
+            // Both are possible during application testing, but not very possible in production
             // when new building logic is debugged and tested.
-            // InvocationTargetException is also not possible because all the methods that are called here are simple
-            // setters and do not have any complex logic that can throw an exception.
-            throw new AppException("Error setting value for attribute " + attrName, e);
+            throw new AppException("Error setting value for attribute " + BINDER.attributeName(slot), e);
+        }
+    }
+
+    private void checkSlot(int slot) {
+        if (slot < 0 || slot >= slotExtractors.length) {
+            throw new UnknownAttributeException(String.format("Attribute slot %d is unknown", slot));
+        }
+    }
+
+    private ValueExtractor extractorOf(int slot) {
+        final ValueExtractor result = slotExtractors[slot];
+        if (result == null) {
+            throw new IllegalStateException(BINDER.attributeType(slot) + " fieldType is not defined or unknown");
+        }
+        return result;
+    }
+
+    /**
+     * Get record that is being built, create it and set the filtered values kept aside if it does not exist yet.
+     */
+    private ServiceRecord currentRecord() {
+        if (resultRecord == null) {
+            resultRecord = BINDER.newEntity();
+            for (int slot = 0; slot < filteredValues.length; slot++) {
+                if (filteredValues[slot] != null) {
+                    BINDER.setAttributeValue(resultRecord, slot, filteredValues[slot]);
+                    filteredValues[slot] = null;
+                }
+            }
+        }
+        return resultRecord;
+    }
+
+    /**
+     * Check if the cell of skipped attribute contains a value, the same way as {@link #entityIsEmpty()} checks
+     * extracted values. Boolean attributes are not checked, other cells are present unless they are blank.
+     */
+    private static boolean valueIsPresent(int slot, Cell valueCell) {
+        if (valueCell == null || BINDER.attributeType(slot) == FieldType.BOOLEAN) {
+            return false;
+        }
+        switch (valueCell.getCellType()) {
+            case BLANK:
+                return false;
+            case STRING:
+                // shared strings of the streaming cells are not materialized for the skipped attributes
+                return (valueCell instanceof StreamingCell)
+                        ? !((StreamingCell) valueCell).stringValueIsBlank()
+                        : StringUtils.isNotBlank(valueCell.getStringCellValue());
+            default:
+                return true;
         }
     }
 
+    @Override
+    public boolean attributeIsFiltered(int slot) {
+        return slot >= 0 && slot < slotFilters.length && slotFilters[slot] != null;
+    }
+
+    @Override
+    public boolean entityIsRejected() {
+        return rejected;
+    }
+
+    @Override
+    public void discard() {
+        resultRecord = null;
+        Arrays.fill(filteredValues, null);
+        skippedValuePresent = false;
+        rejected = false;
+    }
+
     @Override
     public boolean entityIsEmpty() {
-        return resultRecord.allFieldsAreEmpty();
+        return !skippedValuePresent && BINDER.allAttributesAreEmpty(currentRecord());
     }
 
     @Override
     public boolean entityKeyIsEmpty() {
-        return resultRecord.requiredFieldsAreEmpty();
+        return BINDER.keyAttributesAreEmpty(currentRecord());
     }
 
     @Override
     public String getRequiredAttributesNames() {
-        return String.join(",", REQUIRED_FIELDS);
+        return BINDER.getRequiredAttributesNames();
     }
 
     @Override
     public ServiceRecord build() {
-        final ServiceRecord result = resultRecord;
+        final ServiceRecord result = currentRecord();
         if (result.getTripPrice() == null) {
             result.setTripPrice(defaultTripPrice);
         }
-        resultRecord = new ServiceRecord();
+        discard();
         return result;
 	}
-
-    private static class FieldMetaData {
-        private final Method method;
-        private final FieldType fieldType;
-
-        FieldMetaData(Method method, FieldType fieldType) {
-            this.method = method;
-            this.fieldType = fieldType;
-        }
-    }
-}
\ No newline at end of file
+}
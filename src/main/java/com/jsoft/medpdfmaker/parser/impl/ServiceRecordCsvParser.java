@@ -0,0 +1,88 @@
+package com.jsoft.medpdfmaker.parser.impl;
+
+import com.jsoft.medpdfmaker.domain.ServiceRecord;
+import com.jsoft.medpdfmaker.parser.CsvDialect;
+import com.jsoft.medpdfmaker.parser.ObjectBuilder;
+import com.jsoft.medpdfmaker.parser.Result;
+import com.jsoft.medpdfmaker.parser.TableFileParser;
+import com.jsoft.medpdfmaker.util.LoggerUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import static com.jsoft.medpdfmaker.parser.Result.*;
+
+/**
+ * Parser of CSV and TSV files, plain or gzip compressed. File is read through memory mapped windows
+ * by CsvRowReader, its records are turned to the service records by the same SheetRowsProcessor the Excel streaming
+ * parsers use, so the first record with values is the header and values are converted as the values of the text
+ * cells of Excel sheets are.
+ * File is treated as a workbook with one visible sheet, all other sheet numbers are reported as out of range.
+ */
+public class ServiceRecordCsvParser implements TableFileParser<ServiceRecord> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ServiceRecordCsvParser.class);
+
+    private final RowsProcessorFactory rowsProcessors;
+    private final byte delimiter;
+    private final CsvDialect dialect;
+    private final Charset charset;
+
+    /**
+     * @param builderSupplier supplier of the builders, a new builder is requested for every parsed file.
+     * @param delimiter field delimiter, ',' for CSV and '\t' for TSV files. It must be an ASCII character.
+     * @param dialect quoting rules of the files.
+     * @param charset charset of the files.
+     */
+    public ServiceRecordCsvParser(final Supplier<ObjectBuilder<ServiceRecord>> builderSupplier, final char delimiter,
+                                  final CsvDialect dialect, final Charset charset) {
+        this(builderSupplier, delimiter, dialect, charset, 1);
+    }
+
+    /**
+     * @param builderSupplier supplier of the builders, new builders are requested for every parsed file.
+     * @param delimiter field delimiter, ',' for CSV and '\t' for TSV files. It must be an ASCII character.
+     * @param dialect quoting rules of the files.
+     * @param charset charset of the files.
+     * @param conversionThreads number of the threads that convert the records of the file into the service records;
+     *                          values less than 2 mean the records are converted by the thread that reads the file.
+     */
+    public ServiceRecordCsvParser(final Supplier<ObjectBuilder<ServiceRecord>> builderSupplier, final char delimiter,
+                                  final CsvDialect dialect, final Charset charset, final int conversionThreads) {
+        if (delimiter >= 0x80) {
+            throw new IllegalArgumentException("delimiter must be an ASCII character");
+        }
+        this.rowsProcessors = new RowsProcessorFactory(builderSupplier, conversionThreads);
+        this.delimiter = (byte) delimiter;
+        this.dialect = dialect;
+        this.charset = charset;
+    }
+
+    @Override
+    public Result parse(final File srcFile, final int sheetIdx, final Consumer<ServiceRecord> rowCallBack)
+            throws IOException {
+        Result result = OK;
+        if (sheetIdx == 0) {
+            final SheetRowsProcessor rowsProcessor = rowsProcessors.create(srcFile.getName(), rowCallBack);
+            try (final CsvInput input = CsvInput.open(srcFile)) {
+                new CsvRowReader(input, delimiter, dialect, charset, srcFile.getName(), rowsProcessor).read();
+            }
+            rowsProcessor.finish();
+            result = moreImportant(result, rowsProcessor.getResult());
+            if (!rowsProcessor.fieldNamesFound()) {
+                result = moreImportant(result, WARNING);
+                LoggerUtil.warn(LOG, String.format("Sheet number %d does not contain any data", sheetIdx));
+            }
+        } else {
+            result = moreImportant(result, WARNING);
+            LoggerUtil.warn(LOG, String.format("Sheet number %d is hidden or out of valid range [%d, %d] for the being processed Excel book",
+                    sheetIdx, 0, 1));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,163 @@
+package com.jsoft.medpdfmaker.parser.impl;
+
+import com.jsoft.medpdfmaker.domain.ServiceRecord;
+import com.jsoft.medpdfmaker.excel.SharedStringsSource;
+import com.jsoft.medpdfmaker.exception.ParseException;
+import com.jsoft.medpdfmaker.parser.ObjectBuilder;
+import com.jsoft.medpdfmaker.parser.ParseSession;
+import com.jsoft.medpdfmaker.parser.Result;
+import com.jsoft.medpdfmaker.parser.TableFileParser;
+import com.jsoft.medpdfmaker.util.LoggerUtil;
+import org.apache.poi.EncryptedDocumentException;
+import org.apache.poi.UnsupportedFileFormatException;
+import org.apache.poi.hssf.eventusermodel.HSSFEventFactory;
+import org.apache.poi.hssf.eventusermodel.HSSFRequest;
+import org.apache.poi.hssf.eventusermodel.HSSFUserException;
+import org.apache.poi.hssf.record.BoundSheetRecord;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.poifs.filesystem.DocumentInputStream;
+import org.apache.poi.poifs.filesystem.NotOLE2FileException;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+import org.apache.poi.util.RecordFormatException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import static com.jsoft.medpdfmaker.parser.Result.*;
+
+/**
+ * Parser of the legacy xls files based on the HSSF event API. Records of the workbook stream are read one by one,
+ * HSSFWorkbook is never built, so memory the parser uses does not depend on the size of the sheets.
+ * Sheets are read row by row, the rows are turned to the records by the same SheetRowsProcessor the xlsx and xlsb
+ * streaming parsers use, so all of them produce the same records for the same data, skip the same hidden rows and
+ * sheets and report the same errors.
+ * Shared strings are always kept in memory, as the event API reads the whole SST record at once.
+ */
+public class ServiceRecordHssfStreamingParser implements TableFileParser<ServiceRecord> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ServiceRecordHssfStreamingParser.class);
+
+    private final RowsProcessorFactory rowsProcessors;
+
+    /**
+     * Create parser that uses the same builder for all the sheets. Sheets of such parser must not be parsed concurrently.
+     */
+    public ServiceRecordHssfStreamingParser(final ObjectBuilder<ServiceRecord> serviceRecordBuilder) {
+        this(() -> serviceRecordBuilder);
+    }
+
+    /**
+     * Create parser that requests a new builder for every parsed sheet.
+     * Sheets of one parsing session can be parsed concurrently if the supplier creates independent builders.
+     */
+    public ServiceRecordHssfStreamingParser(final Supplier<ObjectBuilder<ServiceRecord>> builderSupplier) {
+        this(builderSupplier, 1);
+    }
+
+    /**
+     * Create parser that requests new builders for every parsed sheet and converts the rows by several threads.
+     * @param builderSupplier supplier of the builders.
+     * @param conversionThreads number of the threads that convert the rows of one sheet into the records;
+     *                          values less than 2 mean the rows are converted by the thread that reads the sheet.
+     */
+    public ServiceRecordHssfStreamingParser(final Supplier<ObjectBuilder<ServiceRecord>> builderSupplier,
+                                            final int conversionThreads) {
+        this.rowsProcessors = new RowsProcessorFactory(builderSupplier, conversionThreads);
+    }
+
+    @Override
+    public Result parse(final File srcFile, final int sheetIdx, final Consumer<ServiceRecord> rowCallBack)
+            throws IOException {
+        try (final ParseSession<ServiceRecord> session = open(srcFile)) {
+            return session.parse(sheetIdx, rowCallBack);
+        }
+    }
+
+    @Override
+    public ParseSession<ServiceRecord> open(final File srcFile) throws IOException {
+        return new XlsParseSession(srcFile);
+    }
+
+    private boolean sheetNumberIsValid(List<BoundSheetRecord> sheets, int sheetIdx) {
+        return sheetIdx >= 0 && sheetIdx < sheets.size() && !sheets.get(sheetIdx).isHidden();
+    }
+
+    /**
+     * Opens the workbook stream of the file and passes its records to the request. Reading starts from the given
+     * offset, which must be the offset of the BOF record of either workbook globals or some sheet.
+     */
+    private static void processRecords(File srcFile, long offset, HSSFRequest request) throws IOException {
+        try (final POIFSFileSystem fs = new POIFSFileSystem(srcFile, true);
+             final DocumentInputStream in = fs.createDocumentInputStream(HSSFWorkbook.getWorkbookDirEntryName(fs.getRoot()))) {
+            if (in.skip(offset) != offset) {
+                throw new ParseException(String.format("Excel book %s is truncated", srcFile));
+            }
+            new HSSFEventFactory().abortableProcessEvents(request, in);
+        } catch (NotOLE2FileException | UnsupportedFileFormatException e) {
+            throw new ParseException(String.format("File %s is not a valid Excel book", srcFile), e);
+        } catch (HSSFUserException | RecordFormatException | EncryptedDocumentException e) {
+            throw new ParseException(String.format("Excel book %s cannot be read", srcFile), e);
+        }
+    }
+
+    /**
+     * Session keeps the records of the workbook globals that are shared by all the sheets: list of sheets,
+     * shared strings and styles. Every sheet is read by its own stream, that starts at the sheet's offset,
+     * so several sheets can be parsed by different threads at the same time, and each of them only reads
+     * the records of its own sheet.
+     */
+    private class XlsParseSession implements ParseSession<ServiceRecord> {
+
+        private final File srcFile;
+        private final List<BoundSheetRecord> sheets;
+        private final boolean date1904;
+        private final SharedStringsSource sharedStrings;
+        private final BinaryCellStyles styles;
+
+        XlsParseSession(File srcFile) throws IOException {
+            this.srcFile = srcFile;
+            final XlsWorkbookListener workbook = new XlsWorkbookListener();
+            processRecords(srcFile, 0, workbook.createRequest());
+            if (workbook.isEncrypted()) {
+                // sheets of the encrypted workbook cannot be read from their offsets
+                throw new ParseException(String.format("Excel book %s is encrypted", srcFile));
+            }
+            sheets = workbook.getSheets();
+            date1904 = workbook.isDate1904();
+            styles = workbook.getStyles();
+            sharedStrings = new InMemorySharedStrings(workbook.getSharedStrings());
+        }
+
+        @Override
+        public Result parse(int sheetIdx, Consumer<ServiceRecord> rowCallBack) throws IOException {
+            Result result = OK;
+            if (sheetNumberIsValid(sheets, sheetIdx)) {
+                final BoundSheetRecord sheetRef = sheets.get(sheetIdx);
+                final SheetRowsProcessor rowsProcessor = rowsProcessors.create(sheetRef.getSheetname(), rowCallBack);
+                processRecords(srcFile, sheetRef.getPositionOfBof(),
+                        new XlsSheetListener(sharedStrings, styles, date1904, rowsProcessor).createRequest());
+                rowsProcessor.finish();
+                result = moreImportant(result, rowsProcessor.getResult());
+                if (!rowsProcessor.fieldNamesFound()) {
+                    result = moreImportant(result, WARNING);
+                    LoggerUtil.warn(LOG, String.format("Sheet number %d does not contain any data", sheetIdx));
+                }
+            } else {
+                result = moreImportant(result, WARNING);
+                LoggerUtil.warn(LOG, String.format("Sheet number %d is hidden or out of valid range [%d, %d] for the being processed Excel book",
+                        sheetIdx, 0, sheets.size()));
+            }
+            return result;
+        }
+
+        @Override
+        public void close() {
+            // file is only opened while its records are read
+        }
+    }
+}
@@ -7,6 +7,7 @@ import com.jsoft.medpdfmaker.parser.Result;
 import com.jsoft.medpdfmaker.parser.TableFileParser;
 import com.jsoft.medpdfmaker.util.LoggerUtil;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.poi.openxml4j.opc.OPCPackage;
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.DataFormatter;
 import org.apache.poi.ss.usermodel.Row;
@@ -16,21 +17,25 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.function.Consumer;
 
 import static com.jsoft.medpdfmaker.parser.Result.*;
 
+/**
+ * Parser of the xlsx files that builds the whole workbook in memory using POI user model.
+ * Package is opened from the file in read only mode, so the archive itself is not buffered on the heap.
+ */
 public class ServiceRecordXlsParser implements TableFileParser<ServiceRecord> {
 
     private static final Logger LOG = LoggerFactory.getLogger(ServiceRecordXlsParser.class);
 
     private final ObjectBuilder<ServiceRecord> serviceRecordBuilder;
 
+    private final ColumnPlan.Cache columnPlans = new ColumnPlan.Cache();
+
     public ServiceRecordXlsParser(final ObjectBuilder<ServiceRecord> serviceRecordBuilder) {
         this.serviceRecordBuilder = serviceRecordBuilder;
     }
@@ -39,20 +44,23 @@ public class ServiceRecordXlsParser implements TableFileParser<ServiceRecord> {
 	public Result parse(final File srcFile, final int sheetIdx, final Consumer<ServiceRecord> rowCallBack)
             throws IOException {
         Result result = OK;
-        final List<String> fieldNames = new ArrayList<>();
-        try (final InputStream excelFile = new FileInputStream(srcFile);
-             final Workbook workbook = new XSSFWorkbook(excelFile)) {
+        ColumnPlan columnPlan = null;
+        // workbook is not closed, because closing saves read only package; package is reverted instead
+        final OPCPackage pkg = ExcelPackages.openReadOnly(srcFile);
+        try {
+            final Workbook workbook = new XSSFWorkbook(pkg);
             if (sheetNumberIsValid(workbook, sheetIdx)) {
                 for (final Row currentRow : workbook.getSheetAt(sheetIdx)) {
                     if (rowIsVisible(currentRow)) {
-                        if (fieldNames.isEmpty()) {
-                            result = moreImportant(result, tryToInitFieldNames(fieldNames, currentRow));
+                        if (columnPlan == null) {
+                            columnPlan = tryToInitColumnPlan(currentRow);
+                            result = moreImportant(result, unknownFieldsResult(columnPlan));
                         } else {
-                            result = moreImportant(result, processRow(fieldNames, currentRow, rowCallBack));
+                            result = moreImportant(result, processRow(columnPlan, currentRow, rowCallBack));
                         }
                     }
                 }
-                if (fieldNames.isEmpty()) {
+                if (columnPlan == null) {
                     result = moreImportant(result, WARNING);
                     LoggerUtil.warn(LOG, String.format("Sheet number %d does not contain any data", sheetIdx));
                 }
@@ -61,6 +69,8 @@ public class ServiceRecordXlsParser implements TableFileParser<ServiceRecord> {
                 LoggerUtil.warn(LOG, String.format("Sheet number %d is hidden or out of valid range [%d, %d] for the being processed Excel book",
                         sheetIdx, 0, workbook.getNumberOfSheets()));
             }
+        } finally {
+            pkg.revert();
         }
         return result;
 	}
@@ -76,35 +86,54 @@ public class ServiceRecordXlsParser implements TableFileParser<ServiceRecord> {
         return sheetIdx >= 0 && sheetIdx < workbook.getNumberOfSheets() && !workbook.isSheetHidden(sheetIdx);
     }
 
-    private Result tryToInitFieldNames(List<String> fieldNames, final Row currentRow) {
-        Result result = OK;
+    private ColumnPlan tryToInitColumnPlan(final Row currentRow) {
+        final short minColIx = currentRow.getFirstCellNum();
+        if (minColIx < 0) {
+            // row does not contain cells
+            return null;
+        }
+        final List<String> fieldNames = new ArrayList<>();
         final DataFormatter formatter = new DataFormatter();
-        short minColIx = currentRow.getFirstCellNum();
-        short maxColIx = currentRow.getLastCellNum();
+        final short maxColIx = currentRow.getLastCellNum();
         for(short colIx=minColIx; colIx<maxColIx; colIx++) {
             final Cell cell = currentRow.getCell(colIx);
-            final String fieldName = (cell == null) ? "" : StringUtils.upperCase(formatter.formatCellValue(cell));
-            if (!serviceRecordBuilder.attributeIsKnown(fieldName)) {
+            // We have to store both known and unknown attributes to simplify synchronizing header and actual values
+            fieldNames.add((cell == null) ? "" : StringUtils.upperCase(formatter.formatCellValue(cell)));
+        }
+        return columnPlans.get(minColIx, fieldNames, serviceRecordBuilder);
+    }
+
+    private Result unknownFieldsResult(ColumnPlan columnPlan) {
+        Result result = OK;
+        if (columnPlan != null) {
+            for (final String fieldName : columnPlan.getUnknownFieldNames()) {
                 LoggerUtil.warn(LOG, String.format("Attribute %s is unknown. Value of this attribute will be ignored", fieldName));
                 result = WARNING;
             }
-            // We have to store both known and unknown attributes to simplify synchronizing header and actual values
-            fieldNames.add(fieldName);
         }
         return result;
     }
 
-    private Result processRow(List<String> fieldNames, Row currentRow, Consumer<ServiceRecord> rowCallBack) {
+    private Result processRow(ColumnPlan columnPlan, Row currentRow, Consumer<ServiceRecord> rowCallBack) {
         Result result = OK;
-        short colIx = currentRow.getFirstCellNum();
-        final short maxColIx = currentRow.getLastCellNum();
-        for (String fieldName : fieldNames) {
-            if (colIx <= maxColIx) {
-                final Cell curCell = currentRow.getCell(colIx++);
-                if (curCell != null) {
-                    result = getDataFromCell(result, fieldName, curCell);
+        final boolean filterRows = columnPlan.hasFilteredColumns();
+        if (filterRows) {
+            // filtered values first, so other values of rejected rows are not extracted at all
+            for (final Cell curCell : currentRow) {
+                if (columnPlan.isFiltered(curCell.getColumnIndex())) {
+                    result = getDataFromCell(result, columnPlan.slotOf(curCell.getColumnIndex()), curCell);
                 }
             }
+            if (serviceRecordBuilder.entityIsRejected()) {
+                serviceRecordBuilder.discard();
+                return result;
+            }
+        }
+        for (final Cell curCell : currentRow) {
+            final int slot = columnPlan.slotOf(curCell.getColumnIndex());
+            if (slot != ObjectBuilder.UNKNOWN_SLOT && !(filterRows && columnPlan.isFiltered(curCell.getColumnIndex()))) {
+                result = getDataFromCell(result, slot, curCell);
+            }
         }
         if (result == OK && !serviceRecordBuilder.entityIsEmpty()) {
             if (serviceRecordBuilder.entityKeyIsEmpty()) {
@@ -117,15 +146,13 @@ public class ServiceRecordXlsParser implements TableFileParser<ServiceRecord> {
         return result;
     }
 
-    private Result getDataFromCell(Result result, String fieldName, Cell curCell) {
+    private Result getDataFromCell(Result result, int slot, Cell curCell) {
         try {
-            if (serviceRecordBuilder.attributeIsKnown(fieldName)) {
-                serviceRecordBuilder.setAttributeValue(fieldName, curCell);
-            }
+            serviceRecordBuilder.setAttributeValue(slot, curCell);
         } catch (final ValueExtractException e) {
             LoggerUtil.logCellParsingError(LOG, String.format("Cell value cannot be processed: %s", e.getMessage()), curCell);
             result = ERROR;
         }
         return result;
     }
-}
\ No newline at end of file
+}
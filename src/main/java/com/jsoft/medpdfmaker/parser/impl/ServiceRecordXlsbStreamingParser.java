@@ -0,0 +1,172 @@
+package com.jsoft.medpdfmaker.parser.impl;
+
+import com.jsoft.medpdfmaker.domain.ServiceRecord;
+import com.jsoft.medpdfmaker.excel.SharedStringsSource;
+import com.jsoft.medpdfmaker.exception.ParseException;
+import com.jsoft.medpdfmaker.parser.ObjectBuilder;
+import com.jsoft.medpdfmaker.parser.ParseSession;
+import com.jsoft.medpdfmaker.parser.Result;
+import com.jsoft.medpdfmaker.parser.TableFileParser;
+import com.jsoft.medpdfmaker.util.LoggerUtil;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.xssf.binary.XSSFBParseException;
+import org.apache.poi.xssf.binary.XSSFBRelation;
+import org.apache.poi.xssf.binary.XSSFBSharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xml.sax.SAXException;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import static com.jsoft.medpdfmaker.parser.Result.*;
+
+/**
+ * Parser of the binary xlsb files. It works the same way as ServiceRecordXlsxStreamingParser does, but reads
+ * the records of the binary parts instead of XML, which is several times smaller and faster to decode.
+ * Sheets are read row by row, the rows are turned to the records by the same SheetRowsProcessor, so both parsers
+ * produce the same records for the same data, skip the same hidden rows and sheets and report the same errors.
+ * Shared strings are always kept in memory.
+ */
+public class ServiceRecordXlsbStreamingParser implements TableFileParser<ServiceRecord> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ServiceRecordXlsbStreamingParser.class);
+
+    private final RowsProcessorFactory rowsProcessors;
+
+    /**
+     * Create parser that uses the same builder for all the sheets. Sheets of such parser must not be parsed concurrently.
+     */
+    public ServiceRecordXlsbStreamingParser(final ObjectBuilder<ServiceRecord> serviceRecordBuilder) {
+        this(() -> serviceRecordBuilder);
+    }
+
+    /**
+     * Create parser that requests a new builder for every parsed sheet.
+     * Sheets of one parsing session can be parsed concurrently if the supplier creates independent builders.
+     */
+    public ServiceRecordXlsbStreamingParser(final Supplier<ObjectBuilder<ServiceRecord>> builderSupplier) {
+        this(builderSupplier, 1);
+    }
+
+    /**
+     * Create parser that requests new builders for every parsed sheet and converts the rows by several threads.
+     * @param builderSupplier supplier of the builders.
+     * @param conversionThreads number of the threads that convert the rows of one sheet into the records;
+     *                          values less than 2 mean the rows are converted by the thread that reads the sheet.
+     */
+    public ServiceRecordXlsbStreamingParser(final Supplier<ObjectBuilder<ServiceRecord>> builderSupplier,
+                                            final int conversionThreads) {
+        this.rowsProcessors = new RowsProcessorFactory(builderSupplier, conversionThreads);
+    }
+
+    @Override
+    public Result parse(final File srcFile, final int sheetIdx, final Consumer<ServiceRecord> rowCallBack)
+            throws IOException {
+        try (final ParseSession<ServiceRecord> session = open(srcFile)) {
+            return session.parse(sheetIdx, rowCallBack);
+        }
+    }
+
+    @Override
+    public ParseSession<ServiceRecord> open(final File srcFile) throws IOException {
+        return new XlsbParseSession(srcFile);
+    }
+
+    private boolean sheetNumberIsValid(List<XlsxWorkbookHandler.SheetRef> sheets, int sheetIdx) {
+        return sheetIdx >= 0 && sheetIdx < sheets.size() && !sheets.get(sheetIdx).isHidden();
+    }
+
+    /**
+     * Session keeps the package open together with the parts that are shared by all the sheets:
+     * list of sheets, shared strings and styles. Shared parts are only read after the session is created,
+     * so several sheets can be parsed by different threads at the same time.
+     */
+    private class XlsbParseSession implements ParseSession<ServiceRecord> {
+
+        private final File srcFile;
+        private final OPCPackage pkg;
+        private final XSSFReader reader;
+        private final List<XlsxWorkbookHandler.SheetRef> sheets;
+        private final boolean date1904;
+        private final SharedStringsSource sharedStrings;
+        private final BinaryCellStyles styles;
+
+        XlsbParseSession(File srcFile) throws IOException {
+            this.srcFile = srcFile;
+            pkg = ExcelPackages.openReadOnly(srcFile);
+            try {
+                reader = new XSSFReader(pkg);
+                final XlsbWorkbookHandler workbook;
+                try (final InputStream workbookStream = reader.getWorkbookData()) {
+                    workbook = new XlsbWorkbookHandler(workbookStream);
+                    workbook.parse();
+                }
+                sheets = workbook.getSheets();
+                date1904 = workbook.isDate1904();
+                styles = readStyles();
+                sharedStrings = new InMemorySharedStrings(new XSSFBSharedStringsTable(pkg));
+            } catch (OpenXML4JException | SAXException | XSSFBParseException e) {
+                pkg.revert();
+                throw new ParseException(String.format("Excel book %s cannot be read", srcFile), e);
+            } catch (IOException | RuntimeException e) {
+                pkg.revert();
+                throw e;
+            }
+        }
+
+        @Override
+        public Result parse(int sheetIdx, Consumer<ServiceRecord> rowCallBack) throws IOException {
+            Result result = OK;
+            if (sheetNumberIsValid(sheets, sheetIdx)) {
+                final XlsxWorkbookHandler.SheetRef sheetRef = sheets.get(sheetIdx);
+                final SheetRowsProcessor rowsProcessor = rowsProcessors.create(sheetRef.getName(), rowCallBack);
+                try (final InputStream sheetStream = openSheet(sheetRef)) {
+                    new XlsbSheetHandler(sheetStream, sharedStrings, styles, date1904, rowsProcessor).parse();
+                } catch (OpenXML4JException | XSSFBParseException e) {
+                    throw new ParseException(String.format("Sheet %d of Excel book %s cannot be read", sheetIdx, srcFile), e);
+                }
+                rowsProcessor.finish();
+                result = moreImportant(result, rowsProcessor.getResult());
+                if (!rowsProcessor.fieldNamesFound()) {
+                    result = moreImportant(result, WARNING);
+                    LoggerUtil.warn(LOG, String.format("Sheet number %d does not contain any data", sheetIdx));
+                }
+            } else {
+                result = moreImportant(result, WARNING);
+                LoggerUtil.warn(LOG, String.format("Sheet number %d is hidden or out of valid range [%d, %d] for the being processed Excel book",
+                        sheetIdx, 0, sheets.size()));
+            }
+            return result;
+        }
+
+        private BinaryCellStyles readStyles() throws IOException {
+            final List<PackagePart> parts = pkg.getPartsByContentType(XSSFBRelation.STYLES_BINARY.getContentType());
+            // workbook without styles part has no formats, so all the cells get null style
+            final XlsbStylesHandler result;
+            try (final InputStream stylesStream = parts.isEmpty() ? new ByteArrayInputStream(new byte[0]) : parts.get(0).getInputStream()) {
+                result = new XlsbStylesHandler(stylesStream);
+                result.parse();
+            }
+            return result.getStyles();
+        }
+
+        private synchronized InputStream openSheet(XlsxWorkbookHandler.SheetRef sheetRef) throws IOException, OpenXML4JException {
+            return reader.getSheet(sheetRef.getRelationId());
+        }
+
+        @Override
+        public void close() {
+            // package is opened read only, so there is nothing to save
+            pkg.revert();
+        }
+    }
+}
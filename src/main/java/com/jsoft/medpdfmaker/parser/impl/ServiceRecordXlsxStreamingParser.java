@@ -0,0 +1,215 @@
+package com.jsoft.medpdfmaker.parser.impl;
+
+import com.jsoft.medpdfmaker.domain.ServiceRecord;
+import com.jsoft.medpdfmaker.excel.SharedStringsSource;
+import com.jsoft.medpdfmaker.exception.ParseException;
+import com.jsoft.medpdfmaker.parser.ObjectBuilder;
+import com.jsoft.medpdfmaker.parser.ParseSession;
+import com.jsoft.medpdfmaker.parser.Result;
+import com.jsoft.medpdfmaker.parser.TableFileParser;
+import com.jsoft.medpdfmaker.util.LoggerUtil;
+import org.apache.poi.ooxml.util.SAXHelper;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFRelation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import static com.jsoft.medpdfmaker.parser.Result.*;
+
+/**
+ * Parser of the xlsx files that is based on the POI event model. Unlike ServiceRecordXlsParser it does not build
+ * the workbook in memory. Sheet XML is read row by row, so memory usage stays the same regardless of the number
+ * of rows in the sheet. Parsing session keeps the package open, so several sheets of the same book are parsed
+ * without loading the book again.
+ * Shared strings are kept in memory unless the shared strings part is bigger than the threshold, in this case
+ * they are moved to the temporary file (see DiskSharedStringsTable).
+ */
+public class ServiceRecordXlsxStreamingParser implements TableFileParser<ServiceRecord> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ServiceRecordXlsxStreamingParser.class);
+
+    private final RowsProcessorFactory rowsProcessors;
+
+    /**
+     * Number of the shared strings DiskSharedStringsTable keeps in memory.
+     */
+    private static final int SHARED_STRINGS_CACHE_SIZE = 4096;
+
+    private final long diskSharedStringsThreshold;
+
+    /**
+     * Create parser that uses the same builder for all the sheets. Sheets of such parser must not be parsed concurrently.
+     */
+    public ServiceRecordXlsxStreamingParser(final ObjectBuilder<ServiceRecord> serviceRecordBuilder) {
+        this(() -> serviceRecordBuilder);
+    }
+
+    /**
+     * Create parser that requests a new builder for every parsed sheet.
+     * Sheets of one parsing session can be parsed concurrently if the supplier creates independent builders.
+     */
+    public ServiceRecordXlsxStreamingParser(final Supplier<ObjectBuilder<ServiceRecord>> builderSupplier) {
+        this(builderSupplier, 0);
+    }
+
+    /**
+     * Create parser that requests a new builder for every parsed sheet and moves big shared strings tables to disk.
+     * @param builderSupplier supplier of the builders.
+     * @param diskSharedStringsThreshold min size of the shared strings part (uncompressed, in bytes) which strings
+     *                                   are kept in the temporary file instead of memory; 0 to keep them in memory always.
+     */
+    public ServiceRecordXlsxStreamingParser(final Supplier<ObjectBuilder<ServiceRecord>> builderSupplier,
+                                            final long diskSharedStringsThreshold) {
+        this(builderSupplier, diskSharedStringsThreshold, 1);
+    }
+
+    /**
+     * Create parser that requests new builders for every parsed sheet, moves big shared strings tables to disk
+     * and converts the rows by several threads.
+     * @param builderSupplier supplier of the builders.
+     * @param diskSharedStringsThreshold min size of the shared strings part (uncompressed, in bytes) which strings
+     *                                   are kept in the temporary file instead of memory; 0 to keep them in memory always.
+     * @param conversionThreads number of the threads that convert the rows of one sheet into the records;
+     *                          values less than 2 mean the rows are converted by the thread that reads the sheet.
+     */
+    public ServiceRecordXlsxStreamingParser(final Supplier<ObjectBuilder<ServiceRecord>> builderSupplier,
+                                            final long diskSharedStringsThreshold, final int conversionThreads) {
+        this.rowsProcessors = new RowsProcessorFactory(builderSupplier, conversionThreads);
+        this.diskSharedStringsThreshold = diskSharedStringsThreshold;
+    }
+
+    @Override
+    public Result parse(final File srcFile, final int sheetIdx, final Consumer<ServiceRecord> rowCallBack)
+            throws IOException {
+        try (final ParseSession<ServiceRecord> session = open(srcFile)) {
+            return session.parse(sheetIdx, rowCallBack);
+        }
+    }
+
+    @Override
+    public ParseSession<ServiceRecord> open(final File srcFile) throws IOException {
+        return new XlsxParseSession(srcFile);
+    }
+
+    private void parseXml(InputStream xmlStream, ContentHandler handler) throws IOException, SAXException {
+        try {
+            final XMLReader xmlReader = SAXHelper.newXMLReader();
+            xmlReader.setContentHandler(handler);
+            xmlReader.parse(new InputSource(xmlStream));
+        } catch (ParserConfigurationException e) {
+            throw new SAXException("SAX parser cannot be created", e);
+        }
+    }
+
+    private boolean sheetNumberIsValid(List<XlsxWorkbookHandler.SheetRef> sheets, int sheetIdx) {
+        return sheetIdx >= 0 && sheetIdx < sheets.size() && !sheets.get(sheetIdx).isHidden();
+    }
+
+    /**
+     * Session keeps the package open together with the parts that are shared by all the sheets:
+     * list of sheets, shared strings and styles. Shared parts are only read after the session is created,
+     * so several sheets can be parsed by different threads at the same time.
+     */
+    private class XlsxParseSession implements ParseSession<ServiceRecord> {
+
+        private final File srcFile;
+        private final OPCPackage pkg;
+        private final XSSFReader reader;
+        private final List<XlsxWorkbookHandler.SheetRef> sheets;
+        private final boolean date1904;
+        private final SharedStringsSource sharedStrings;
+        private final StylesTable stylesTable;
+
+        XlsxParseSession(File srcFile) throws IOException {
+            this.srcFile = srcFile;
+            pkg = ExcelPackages.openReadOnly(srcFile);
+            try {
+                reader = new XSSFReader(pkg);
+                final XlsxWorkbookHandler workbook = new XlsxWorkbookHandler();
+                try (final InputStream workbookStream = reader.getWorkbookData()) {
+                    parseXml(workbookStream, workbook);
+                }
+                sheets = workbook.getSheets();
+                date1904 = workbook.isDate1904();
+                stylesTable = reader.getStylesTable();
+                // the last one, temporary file of the shared strings must be deleted if the session is not created
+                sharedStrings = readSharedStrings();
+            } catch (OpenXML4JException | SAXException e) {
+                pkg.revert();
+                throw new ParseException(String.format("Excel book %s cannot be read", srcFile), e);
+            } catch (IOException | RuntimeException e) {
+                pkg.revert();
+                throw e;
+            }
+        }
+
+        @Override
+        public Result parse(int sheetIdx, Consumer<ServiceRecord> rowCallBack) throws IOException {
+            Result result = OK;
+            if (sheetNumberIsValid(sheets, sheetIdx)) {
+                final XlsxWorkbookHandler.SheetRef sheetRef = sheets.get(sheetIdx);
+                final SheetRowsProcessor rowsProcessor = rowsProcessors.create(sheetRef.getName(), rowCallBack);
+                final XlsxSheetHandler sheetHandler = new XlsxSheetHandler(sharedStrings, stylesTable, date1904, rowsProcessor);
+                try (final InputStream sheetStream = openSheet(sheetRef)) {
+                    parseXml(sheetStream, sheetHandler);
+                } catch (OpenXML4JException | SAXException e) {
+                    throw new ParseException(String.format("Sheet %d of Excel book %s cannot be read", sheetIdx, srcFile), e);
+                }
+                rowsProcessor.finish();
+                result = moreImportant(result, rowsProcessor.getResult());
+                if (!rowsProcessor.fieldNamesFound()) {
+                    result = moreImportant(result, WARNING);
+                    LoggerUtil.warn(LOG, String.format("Sheet number %d does not contain any data", sheetIdx));
+                }
+            } else {
+                result = moreImportant(result, WARNING);
+                LoggerUtil.warn(LOG, String.format("Sheet number %d is hidden or out of valid range [%d, %d] for the being processed Excel book",
+                        sheetIdx, 0, sheets.size()));
+            }
+            return result;
+        }
+
+        private SharedStringsSource readSharedStrings() throws IOException, SAXException {
+            final List<PackagePart> parts = pkg.getPartsByContentType(XSSFRelation.SHARED_STRINGS.getContentType());
+            if (diskSharedStringsThreshold > 0 && !parts.isEmpty() && parts.get(0).getSize() >= diskSharedStringsThreshold) {
+                LoggerUtil.info(LOG, String.format("Shared strings of %s (%d bytes) are kept in temporary file",
+                        srcFile, parts.get(0).getSize()));
+                return new DiskSharedStringsTable(parts.get(0), SHARED_STRINGS_CACHE_SIZE);
+            }
+            return new InMemorySharedStrings(new ReadOnlySharedStringsTable(pkg, false));
+        }
+
+        private synchronized InputStream openSheet(XlsxWorkbookHandler.SheetRef sheetRef) throws IOException, OpenXML4JException {
+            return reader.getSheet(sheetRef.getRelationId());
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                if (sharedStrings instanceof DiskSharedStringsTable) {
+                    ((DiskSharedStringsTable) sharedStrings).close();
+                }
+            } finally {
+                // package is opened read only, so there is nothing to save
+                pkg.revert();
+            }
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.jsoft.medpdfmaker.parser.impl;
+
+import com.jsoft.medpdfmaker.domain.ServiceRecord;
+import com.jsoft.medpdfmaker.excel.StreamingCell;
+import com.jsoft.medpdfmaker.parser.ObjectBuilder;
+import com.jsoft.medpdfmaker.parser.Result;
+import com.jsoft.medpdfmaker.util.LoggerUtil;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static com.jsoft.medpdfmaker.parser.Result.*;
+
+/**
+ * Turns rows received from the sheet handler of the streaming parsers into service records.
+ * The first visible row that has cells is treated as a header, the data rows are passed to the subclass,
+ * which converts them by RowConverter. {@link #finish()} must be called after the last row of the sheet.
+ */
+abstract class SheetRowsProcessor implements RowListener {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SheetRowsProcessor.class);
+
+    private final String sheetName;
+    private final ObjectBuilder<ServiceRecord> headerBuilder;
+    private final ColumnPlan.Cache columnPlans;
+    private final Consumer<ServiceRecord> rowCallBack;
+    private final DataFormatter formatter = new DataFormatter();
+    private ColumnPlan columnPlan;
+    private Result result = OK;
+
+    /**
+     * @param headerBuilder builder the column plan of the header is made for.
+     */
+    SheetRowsProcessor(String sheetName, ObjectBuilder<ServiceRecord> headerBuilder,
+                       ColumnPlan.Cache columnPlans, Consumer<ServiceRecord> rowCallBack) {
+        this.sheetName = sheetName;
+        this.headerBuilder = headerBuilder;
+        this.columnPlans = columnPlans;
+        this.rowCallBack = rowCallBack;
+    }
+
+    @Override
+    public void onRow(int rowIdx, boolean hidden, List<StreamingCell> cells) {
+        if (hidden) {
+            return;
+        }
+        if (columnPlan == null) {
+            result = moreImportant(result, tryToInitColumnPlan(cells));
+        } else {
+            result = moreImportant(result, processRow(rowIdx, cells));
+        }
+    }
+
+    /**
+     * Complete processing of the sheet rows, all the records are passed to the callback when this method returns.
+     */
+    void finish() {
+        result = moreImportant(result, completeRows());
+    }
+
+    Result getResult() {
+        return result;
+    }
+
+    boolean fieldNamesFound() {
+        return columnPlan != null;
+    }
+
+    String getSheetName() {
+        return sheetName;
+    }
+
+    ColumnPlan getColumnPlan() {
+        return columnPlan;
+    }
+
+    Consumer<ServiceRecord> getRowCallBack() {
+        return rowCallBack;
+    }
+
+    /**
+     * Process data row that follows the header.
+     * @return result of the row or of the rows processed before it, if their results become known only now.
+     */
+    abstract Result processRow(int rowIdx, List<StreamingCell> cells);
+
+    /**
+     * Complete processing of the rows that were passed to {@link #processRow(int, List)}.
+     * @return result of the rows which results were not returned yet.
+     */
+    abstract Result completeRows();
+
+    private Result tryToInitColumnPlan(List<StreamingCell> cells) {
+        Result rowResult = OK;
+        if (cells.isEmpty()) {
+            return rowResult;
+        }
+        final List<String> fieldNames = new ArrayList<>();
+        final int firstFieldColumn = cells.get(0).getColumnIndex();
+        int expectedColumn = firstFieldColumn;
+        for (final StreamingCell cell : cells) {
+            // columns without cells still have to be stored to keep header and values synchronized
+            while (expectedColumn <= cell.getColumnIndex()) {
+                fieldNames.add((expectedColumn == cell.getColumnIndex()) ?
+                        StringUtils.upperCase(formatter.formatCellValue(cell)) : "");
+                expectedColumn++;
+            }
+        }
+        columnPlan = columnPlans.get(firstFieldColumn, fieldNames, headerBuilder);
+        for (final String fieldName : columnPlan.getUnknownFieldNames()) {
+            LoggerUtil.warn(LOG, String.format("Attribute %s is unknown. Value of this attribute will be ignored", fieldName));
+            rowResult = WARNING;
+        }
+        return rowResult;
+    }
+}
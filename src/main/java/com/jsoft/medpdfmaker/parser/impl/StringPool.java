@@ -0,0 +1,72 @@
+package com.jsoft.medpdfmaker.parser.impl;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Pool of canonical string instances.
+ * Input files repeat the same values in many rows (cities, states, zip codes, member numbers, etc.),
+ * the pool lets all the parsed records to share one instance of every distinct value.
+ * Strings taken from the shared strings table of the workbook are looked up by their index, other strings
+ * (formatted numbers, inline strings) are looked up by their content.
+ * Shared string indexes are valid only inside one workbook, so one pool must be used for one input file only.
+ * Pool is never cleared and has no size limit, it keeps every distinct value it has seen, so it must not live
+ * longer than the records parsed with it: application creates a pool for every string value extractor, so every
+ * record builder has its own pool that is released together with it.
+ * Pool is not thread safe, it must be used by one thread at a time as the builder that owns it.
+ */
+public class StringPool {
+
+    private final Map<String, String> strings = new HashMap<>();
+
+    /**
+     * Canonical strings indexed by their shared string index. Array is replaced when it grows.
+     */
+    private String[] sharedStrings = new String[0];
+
+    /**
+     * Get canonical instance of the string.
+     * @param value string value, can be null.
+     * @return instance equal to the value that the pool returns for all the equal values.
+     */
+    public String canonical(String value) {
+        if (value == null) {
+            return null;
+        }
+        final String result = strings.putIfAbsent(value, value);
+        return (result == null) ? value : result;
+    }
+
+    /**
+     * Get canonical instance of the shared string.
+     * @param sharedStringIndex index of the string in the shared strings table.
+     * @param value string value.
+     * @return instance equal to the value that the pool returns for all the equal values.
+     */
+    public String canonical(int sharedStringIndex, String value) {
+        if (sharedStringIndex < 0) {
+            return canonical(value);
+        }
+        if (sharedStringIndex < sharedStrings.length && sharedStrings[sharedStringIndex] != null) {
+            return sharedStrings[sharedStringIndex];
+        }
+        final String result = canonical(value);
+        storeSharedString(sharedStringIndex, result);
+        return result;
+    }
+
+    /**
+     * Get number of the distinct strings in the pool.
+     */
+    public int size() {
+        return strings.size();
+    }
+
+    private void storeSharedString(int sharedStringIndex, String value) {
+        if (sharedStringIndex >= sharedStrings.length) {
+            sharedStrings = Arrays.copyOf(sharedStrings, Math.max(sharedStringIndex + 1, sharedStrings.length * 2));
+        }
+        sharedStrings[sharedStringIndex] = value;
+    }
+}
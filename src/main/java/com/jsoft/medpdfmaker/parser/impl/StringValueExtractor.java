@@ -1,6 +1,7 @@
 package com.jsoft.medpdfmaker.parser.impl;
 
 import com.jsoft.medpdfmaker.domain.FieldType;
+import com.jsoft.medpdfmaker.excel.StreamingCell;
 import com.jsoft.medpdfmaker.parser.ValueExtractor;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.poi.ss.usermodel.Cell;
@@ -8,16 +9,28 @@ import org.apache.poi.ss.usermodel.DataFormatter;
 
 /**
  * Extract string value from the cell.
+ * If the string pool is set, extracted values are replaced with their canonical instances from the pool,
+ * so records that have equal values share one string instance.
  */
 public class StringValueExtractor implements ValueExtractor<String> {
 
     private final DataFormatter formatter;
+    private final StringPool stringPool;
 
     public StringValueExtractor(final DataFormatter formatter) {
+        this(formatter, null);
+    }
+
+    /**
+     * @param formatter formatter of the cell values.
+     * @param stringPool pool of canonical string instances, can be null.
+     */
+    public StringValueExtractor(final DataFormatter formatter, final StringPool stringPool) {
         if (formatter == null) {
             throw new IllegalArgumentException("formatter cannot be null");
         }
         this.formatter = formatter;
+        this.stringPool = stringPool;
     }
 
     @Override
@@ -28,6 +41,14 @@ public class StringValueExtractor implements ValueExtractor<String> {
     @Override
     public String extractValue(Cell cell) {
         final String result = formatter.formatCellValue(cell);
-        return StringUtils.isEmpty(result) ? null : result;
+        if (StringUtils.isEmpty(result)) {
+            return null;
+        }
+        if (stringPool == null) {
+            return result;
+        }
+        return (cell instanceof StreamingCell)
+            ? stringPool.canonical(((StreamingCell) cell).getSharedStringIndex(), result)
+            : stringPool.canonical(result);
     }
 }
@@ -0,0 +1,214 @@
+package com.jsoft.medpdfmaker.parser.impl;
+
+import com.jsoft.medpdfmaker.excel.SharedStringsSource;
+import com.jsoft.medpdfmaker.excel.StreamingCell;
+import org.apache.poi.hssf.eventusermodel.AbortableHSSFListener;
+import org.apache.poi.hssf.eventusermodel.HSSFRequest;
+import org.apache.poi.hssf.record.BOFRecord;
+import org.apache.poi.hssf.record.BlankRecord;
+import org.apache.poi.hssf.record.BoolErrRecord;
+import org.apache.poi.hssf.record.EOFRecord;
+import org.apache.poi.hssf.record.FormulaRecord;
+import org.apache.poi.hssf.record.LabelRecord;
+import org.apache.poi.hssf.record.LabelSSTRecord;
+import org.apache.poi.hssf.record.MulBlankRecord;
+import org.apache.poi.hssf.record.MulRKRecord;
+import org.apache.poi.hssf.record.NumberRecord;
+import org.apache.poi.hssf.record.RKRecord;
+import org.apache.poi.hssf.record.Record;
+import org.apache.poi.hssf.record.RowRecord;
+import org.apache.poi.hssf.record.StringRecord;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Reader of one worksheet substream of the xls workbook, counterpart of XlsxSheetHandler and XlsbSheetHandler.
+ * Listener collects cells of one row at a time and passes them to the RowListener when the next row starts.
+ * Row records of the block of rows come before the cells of these rows, so only the hidden flags of the rows are kept
+ * until the cells arrive, and memory the listener uses does not depend on the size of the sheet.
+ * Formula cells are passed as plain cells with the cached result of the formula, the same way xlsb reader does.
+ * Reading is aborted at the end of the worksheet substream, so the next sheets are not read.
+ */
+class XlsSheetListener extends AbortableHSSFListener {
+
+    private static final short ABORT = 1;
+
+    // Types of the cached formula results returned by FormulaRecord.getCachedResultType, they are the codes
+    // of the CellType values. POI 4.0 has no method that returns the type as CellType without deprecated calls.
+    private static final int NUMERIC_RESULT = 0;
+    private static final int STRING_RESULT = 1;
+    private static final int BOOLEAN_RESULT = 4;
+    private static final int ERROR_RESULT = 5;
+
+    private final SharedStringsSource sharedStrings;
+    private final BinaryCellStyles styles;
+    private final boolean date1904;
+    private final RowListener rowListener;
+
+    private final BitSet hiddenRows = new BitSet();
+    private final List<StreamingCell> cellsPool = new ArrayList<>();
+    private final List<StreamingCell> rowCells = new ArrayList<>();
+
+    private int depth;
+    private int rowIdx = -1;
+    private StreamingCell formulaStringCell;
+
+    XlsSheetListener(SharedStringsSource sharedStrings, BinaryCellStyles styles, boolean date1904,
+                     RowListener rowListener) {
+        this.sharedStrings = sharedStrings;
+        this.styles = styles;
+        this.date1904 = date1904;
+        this.rowListener = rowListener;
+    }
+
+    /**
+     * Create request that passes to this listener only the records it reads.
+     */
+    HSSFRequest createRequest() {
+        final HSSFRequest result = new HSSFRequest();
+        for (final short sid : new short[]{BOFRecord.sid, EOFRecord.sid, RowRecord.sid, NumberRecord.sid,
+                RKRecord.sid, MulRKRecord.sid, LabelSSTRecord.sid, LabelRecord.sid, BoolErrRecord.sid,
+                FormulaRecord.sid, StringRecord.sid, BlankRecord.sid, MulBlankRecord.sid}) {
+            result.addListener(this, sid);
+        }
+        return result;
+    }
+
+    @Override
+    public short abortableProcessRecord(Record record) {
+        switch (record.getSid()) {
+            case BOFRecord.sid:
+                // charts embedded to the sheet are nested substreams
+                depth++;
+                break;
+            case EOFRecord.sid:
+                depth--;
+                if (depth == 0) {
+                    endRow();
+                    return ABORT;
+                }
+                break;
+            default:
+                if (depth == 1) {
+                    readRecord(record);
+                }
+        }
+        return 0;
+    }
+
+    private void readRecord(Record record) {
+        switch (record.getSid()) {
+            case RowRecord.sid:
+                final RowRecord row = (RowRecord) record;
+                // The same rule HSSFRow uses: row is formatted if it has a style, and it is hidden if this style is hidden
+                final XSSFCellStyle rowStyle = row.getFormatted() ? styles.getStyle(row.getXFIndex()) : null;
+                hiddenRows.set(row.getRowNumber(), rowStyle != null && rowStyle.getHidden());
+                break;
+            case NumberRecord.sid:
+                final NumberRecord number = (NumberRecord) record;
+                nextCell(number.getRow(), number.getColumn(), number.getXFIndex()).setCellValue(number.getValue());
+                break;
+            case RKRecord.sid:
+                final RKRecord rk = (RKRecord) record;
+                nextCell(rk.getRow(), rk.getColumn(), rk.getXFIndex()).setCellValue(rk.getRKNumber());
+                break;
+            case MulRKRecord.sid:
+                final MulRKRecord mulRk = (MulRKRecord) record;
+                for (int i = 0; i < mulRk.getNumColumns(); i++) {
+                    nextCell(mulRk.getRow(), mulRk.getFirstColumn() + i, mulRk.getXFAt(i))
+                            .setCellValue(mulRk.getRKNumberAt(i));
+                }
+                break;
+            case LabelSSTRecord.sid:
+                final LabelSSTRecord label = (LabelSSTRecord) record;
+                // string is taken from the table only if the value of the cell is requested
+                nextCell(label.getRow(), label.getColumn(), label.getXFIndex())
+                        .setSharedStringValue(label.getSSTIndex(), sharedStrings);
+                break;
+            case LabelRecord.sid:
+                final LabelRecord inlineLabel = (LabelRecord) record;
+                nextCell(inlineLabel.getRow(), inlineLabel.getColumn(), inlineLabel.getXFIndex())
+                        .setCellValue(inlineLabel.getValue());
+                break;
+            case BoolErrRecord.sid:
+                final BoolErrRecord boolErr = (BoolErrRecord) record;
+                final StreamingCell boolErrCell = nextCell(boolErr.getRow(), boolErr.getColumn(), boolErr.getXFIndex());
+                if (boolErr.isBoolean()) {
+                    boolErrCell.setCellValue(boolErr.getBooleanValue());
+                } else {
+                    boolErrCell.setCellErrorValue(boolErr.getErrorValue());
+                }
+                break;
+            case FormulaRecord.sid:
+                readFormula((FormulaRecord) record);
+                break;
+            case StringRecord.sid:
+                if (formulaStringCell != null) {
+                    formulaStringCell.setCellValue(((StringRecord) record).getString());
+                    formulaStringCell = null;
+                }
+                break;
+            case BlankRecord.sid:
+                final BlankRecord blank = (BlankRecord) record;
+                nextCell(blank.getRow(), blank.getColumn(), blank.getXFIndex());
+                break;
+            case MulBlankRecord.sid:
+                final MulBlankRecord mulBlank = (MulBlankRecord) record;
+                for (int i = 0; i < mulBlank.getNumColumns(); i++) {
+                    nextCell(mulBlank.getRow(), mulBlank.getFirstColumn() + i, mulBlank.getXFAt(i));
+                }
+                break;
+            default:
+                // record is not interesting
+        }
+    }
+
+    private void readFormula(FormulaRecord formula) {
+        final StreamingCell cell = nextCell(formula.getRow(), formula.getColumn(), formula.getXFIndex());
+        switch (formula.getCachedResultType()) {
+            case NUMERIC_RESULT:
+                cell.setCellValue(formula.getValue());
+                break;
+            case STRING_RESULT:
+                cell.setCellValue("");
+                // non empty string result is stored in the String record that follows the formula
+                if (formula.hasCachedResultString()) {
+                    formulaStringCell = cell;
+                }
+                break;
+            case BOOLEAN_RESULT:
+                cell.setCellValue(formula.getCachedBooleanValue());
+                break;
+            case ERROR_RESULT:
+                cell.setCellErrorValue((byte) formula.getCachedErrorValue());
+                break;
+            default:
+                // blank cell
+        }
+    }
+
+    private StreamingCell nextCell(int cellRowIdx, int columnIdx, int styleIdx) {
+        if (cellRowIdx != rowIdx) {
+            endRow();
+            rowIdx = cellRowIdx;
+        }
+        if (rowCells.size() == cellsPool.size()) {
+            cellsPool.add(new StreamingCell());
+        }
+        final StreamingCell result = cellsPool.get(rowCells.size());
+        result.reset(cellRowIdx, columnIdx, styles.getStyle(styleIdx), date1904);
+        rowCells.add(result);
+        return result;
+    }
+
+    private void endRow() {
+        if (rowIdx >= 0) {
+            rowListener.onRow(rowIdx, hiddenRows.get(rowIdx), rowCells);
+            rowCells.clear();
+            rowIdx = -1;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.jsoft.medpdfmaker.parser.impl;
+
+import org.apache.poi.hssf.eventusermodel.AbortableHSSFListener;
+import org.apache.poi.hssf.eventusermodel.HSSFRequest;
+import org.apache.poi.hssf.record.BoundSheetRecord;
+import org.apache.poi.hssf.record.DateWindow1904Record;
+import org.apache.poi.hssf.record.EOFRecord;
+import org.apache.poi.hssf.record.ExtendedFormatRecord;
+import org.apache.poi.hssf.record.FilePassRecord;
+import org.apache.poi.hssf.record.FormatRecord;
+import org.apache.poi.hssf.record.Record;
+import org.apache.poi.hssf.record.SSTRecord;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reader of the workbook globals substream of the xls workbook, counterpart of XlsxWorkbookHandler.
+ * It collects the records shared by all the sheets: list of sheets, 1904 date system flag, number formats,
+ * cell formats and shared strings. Reading is aborted at the end of the globals, so sheets are not read at all.
+ */
+class XlsWorkbookListener extends AbortableHSSFListener {
+
+    private static final short ABORT = 1;
+
+    private final List<BoundSheetRecord> sheets = new ArrayList<>();
+    private final BinaryCellStyles styles = new BinaryCellStyles();
+    private SSTRecord sharedStrings = new SSTRecord();
+    private boolean date1904;
+    private boolean encrypted;
+
+    /**
+     * Create request that passes to this listener only the records it reads.
+     */
+    HSSFRequest createRequest() {
+        final HSSFRequest result = new HSSFRequest();
+        for (final short sid : new short[]{BoundSheetRecord.sid, DateWindow1904Record.sid, FormatRecord.sid,
+                ExtendedFormatRecord.sid, SSTRecord.sid, FilePassRecord.sid, EOFRecord.sid}) {
+            result.addListener(this, sid);
+        }
+        return result;
+    }
+
+    @Override
+    public short abortableProcessRecord(Record record) {
+        switch (record.getSid()) {
+            case BoundSheetRecord.sid:
+                sheets.add((BoundSheetRecord) record);
+                break;
+            case DateWindow1904Record.sid:
+                date1904 = ((DateWindow1904Record) record).getWindowing() == 1;
+                break;
+            case FormatRecord.sid:
+                final FormatRecord format = (FormatRecord) record;
+                styles.putNumberFormat(format.getIndexCode(), format.getFormatString());
+                break;
+            case ExtendedFormatRecord.sid:
+                // cells refer to the formats by the index among all XF records, both cell and style ones
+                final ExtendedFormatRecord xf = (ExtendedFormatRecord) record;
+                styles.addStyle(xf.getFormatIndex(), xf.isHidden());
+                break;
+            case SSTRecord.sid:
+                sharedStrings = (SSTRecord) record;
+                break;
+            case FilePassRecord.sid:
+                encrypted = true;
+                break;
+            case EOFRecord.sid:
+                return ABORT;
+            default:
+                // record is not interesting
+        }
+        return 0;
+    }
+
+    /**
+     * @return BoundSheet records of the sheets in the order of the sheets in the workbook.
+     */
+    List<BoundSheetRecord> getSheets() {
+        return sheets;
+    }
+
+    BinaryCellStyles getStyles() {
+        return styles;
+    }
+
+    SSTRecord getSharedStrings() {
+        return sharedStrings;
+    }
+
+    boolean isDate1904() {
+        return date1904;
+    }
+
+    boolean isEncrypted() {
+        return encrypted;
+    }
+}
@@ -0,0 +1,158 @@
+package com.jsoft.medpdfmaker.parser.impl;
+
+import com.jsoft.medpdfmaker.excel.SharedStringsSource;
+import com.jsoft.medpdfmaker.excel.StreamingCell;
+import org.apache.poi.util.LittleEndian;
+import org.apache.poi.xssf.binary.XSSFBParseException;
+import org.apache.poi.xssf.binary.XSSFBParser;
+import org.apache.poi.xssf.binary.XSSFBRecordType;
+import org.apache.poi.xssf.binary.XSSFBUtils;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Reader of the sheet part of the xlsb package, binary counterpart of XlsxSheetHandler.
+ * Handler collects cells of one row at a time and passes them to the RowListener when the row ends.
+ * Cell values are decoded from the records directly to the reused cells, so numbers and dates are not formatted
+ * to strings and back, and the listener gets the same cells as it gets from XlsxSheetHandler.
+ * The only difference is formula cells. Formulas are stored in the parsed form in xlsb, so such cells are passed
+ * as plain cells with the cached result of the formula.
+ */
+class XlsbSheetHandler extends XSSFBParser {
+
+    private static final int ROW_FLAGS_OFFSET = 10;
+    private static final int ROW_FORMATTED_FLAG = 1 << 14;
+    private static final int CELL_VALUE_OFFSET = 8;
+
+    private final SharedStringsSource sharedStrings;
+    private final BinaryCellStyles styles;
+    private final boolean date1904;
+    private final RowListener rowListener;
+
+    private final List<StreamingCell> cellsPool = new ArrayList<>();
+    private final List<StreamingCell> rowCells = new ArrayList<>();
+    private final StringBuilder stringBuffer = new StringBuilder();
+
+    private boolean rowStarted;
+    private int rowIdx;
+    private boolean rowHidden;
+
+    XlsbSheetHandler(InputStream sheetStream, SharedStringsSource sharedStrings, BinaryCellStyles styles,
+                     boolean date1904, RowListener rowListener) {
+        super(sheetStream, interestingRecords());
+        this.sharedStrings = sharedStrings;
+        this.styles = styles;
+        this.date1904 = date1904;
+        this.rowListener = rowListener;
+    }
+
+    private static BitSet interestingRecords() {
+        final BitSet result = new BitSet();
+        for (final XSSFBRecordType recordType : new XSSFBRecordType[]{XSSFBRecordType.BrtRowHdr,
+                XSSFBRecordType.BrtCellBlank, XSSFBRecordType.BrtCellRk, XSSFBRecordType.BrtCellError,
+                XSSFBRecordType.BrtCellBool, XSSFBRecordType.BrtCellReal, XSSFBRecordType.BrtCellSt,
+                XSSFBRecordType.BrtCellIsst, XSSFBRecordType.BrtCellRString, XSSFBRecordType.BrtFmlaString,
+                XSSFBRecordType.BrtFmlaNum, XSSFBRecordType.BrtFmlaBool, XSSFBRecordType.BrtFmlaError,
+                XSSFBRecordType.BrtEndSheetData}) {
+            result.set(recordType.getId());
+        }
+        return result;
+    }
+
+    @Override
+    public void handleRecord(int recordType, byte[] data) throws XSSFBParseException {
+        final XSSFBRecordType type = XSSFBRecordType.lookup(recordType);
+        switch (type) {
+            case BrtRowHdr:
+                endRow();
+                startRow(data);
+                break;
+            case BrtEndSheetData:
+                endRow();
+                break;
+            default:
+                if (!rowStarted) {
+                    throw new XSSFBParseException("Cell record is found outside of the row");
+                }
+                readCell(type, data);
+        }
+    }
+
+    private void startRow(byte[] data) {
+        rowIdx = LittleEndian.getInt(data, 0);
+        // The same rule XSSFRow uses: row is formatted if it has a style, and it is hidden if this style is hidden
+        final boolean formatted = (LittleEndian.getUShort(data, ROW_FLAGS_OFFSET) & ROW_FORMATTED_FLAG) != 0;
+        final XSSFCellStyle rowStyle = formatted ? styles.getStyle(LittleEndian.getInt(data, 4)) : null;
+        rowHidden = rowStyle != null && rowStyle.getHidden();
+        rowCells.clear();
+        rowStarted = true;
+    }
+
+    private void endRow() {
+        if (rowStarted) {
+            rowListener.onRow(rowIdx, rowHidden, rowCells);
+            rowStarted = false;
+        }
+    }
+
+    private void readCell(XSSFBRecordType type, byte[] data) {
+        if (rowCells.size() == cellsPool.size()) {
+            cellsPool.add(new StreamingCell());
+        }
+        final StreamingCell cell = cellsPool.get(rowCells.size());
+        final int styleIdx = (data[4] & 0xFF) | (data[5] & 0xFF) << 8 | (data[6] & 0xFF) << 16;
+        cell.reset(rowIdx, LittleEndian.getInt(data, 0), styles.getStyle(styleIdx), date1904);
+        switch (type) {
+            case BrtCellRk:
+                cell.setCellValue(rkNumber(LittleEndian.getInt(data, CELL_VALUE_OFFSET)));
+                break;
+            case BrtCellReal:
+            case BrtFmlaNum:
+                cell.setCellValue(LittleEndian.getDouble(data, CELL_VALUE_OFFSET));
+                break;
+            case BrtCellIsst:
+                // string is taken from the table only if the value of the cell is requested
+                cell.setSharedStringValue(LittleEndian.getInt(data, CELL_VALUE_OFFSET), sharedStrings);
+                break;
+            case BrtCellSt:
+            case BrtFmlaString:
+                cell.setCellValue(readString(data, CELL_VALUE_OFFSET));
+                break;
+            case BrtCellRString:
+                // the string follows the byte of the rich string flags
+                cell.setCellValue(readString(data, CELL_VALUE_OFFSET + 1));
+                break;
+            case BrtCellBool:
+            case BrtFmlaBool:
+                cell.setCellValue(data[CELL_VALUE_OFFSET] != 0);
+                break;
+            case BrtCellError:
+            case BrtFmlaError:
+                cell.setCellErrorValue(data[CELL_VALUE_OFFSET]);
+                break;
+            default:
+                // blank cell
+        }
+        rowCells.add(cell);
+    }
+
+    private String readString(byte[] data, int offset) {
+        stringBuffer.setLength(0);
+        XSSFBUtils.readXLWideString(data, offset, stringBuffer);
+        return stringBuffer.toString();
+    }
+
+    /**
+     * Decode RkNumber: 30 most significant bits of either a signed integer or a double, optionally multiplied by 100.
+     */
+    static double rkNumber(int rk) {
+        final double value = ((rk & 0x02) != 0)
+                ? (double) (rk >> 2)
+                : Double.longBitsToDouble(((long) (rk & 0xFFFFFFFC)) << 32);
+        return ((rk & 0x01) != 0) ? value / 100 : value;
+    }
+}
@@ -0,0 +1,65 @@
+package com.jsoft.medpdfmaker.parser.impl;
+
+import org.apache.poi.util.LittleEndian;
+import org.apache.poi.xssf.binary.XSSFBParseException;
+import org.apache.poi.xssf.binary.XSSFBParser;
+import org.apache.poi.xssf.binary.XSSFBRecordType;
+import org.apache.poi.xssf.binary.XSSFBUtils;
+
+import java.io.InputStream;
+import java.util.BitSet;
+
+/**
+ * Reader of the styles part of the xlsb package. Number formats and cell formats are read to BinaryCellStyles.
+ */
+class XlsbStylesHandler extends XSSFBParser {
+
+    private static final int XF_FLAGS_OFFSET = 12;
+    private static final int XF_HIDDEN_FLAG = 1 << 13;
+
+    private final BinaryCellStyles styles = new BinaryCellStyles();
+    private boolean inCellXfs;
+
+    XlsbStylesHandler(InputStream stylesStream) {
+        super(stylesStream, interestingRecords());
+    }
+
+    private static BitSet interestingRecords() {
+        final BitSet result = new BitSet();
+        for (final XSSFBRecordType recordType : new XSSFBRecordType[]{XSSFBRecordType.BrtFmt, XSSFBRecordType.BrtXf,
+                XSSFBRecordType.BrtBeginCellXFs, XSSFBRecordType.BrtEndCellXFs}) {
+            result.set(recordType.getId());
+        }
+        return result;
+    }
+
+    @Override
+    public void handleRecord(int recordType, byte[] data) throws XSSFBParseException {
+        switch (XSSFBRecordType.lookup(recordType)) {
+            case BrtFmt:
+                final StringBuilder formatCode = new StringBuilder();
+                XSSFBUtils.readXLWideString(data, 2, formatCode);
+                styles.putNumberFormat(LittleEndian.getUShort(data, 0), formatCode.toString());
+                break;
+            case BrtBeginCellXFs:
+                inCellXfs = true;
+                break;
+            case BrtEndCellXFs:
+                inCellXfs = false;
+                break;
+            case BrtXf:
+                // cell style formats only, BrtXf records of the cell styles are not referenced by the cells
+                if (inCellXfs) {
+                    styles.addStyle(LittleEndian.getUShort(data, 2),
+                            (LittleEndian.getUShort(data, XF_FLAGS_OFFSET) & XF_HIDDEN_FLAG) != 0);
+                }
+                break;
+            default:
+                // record is not interesting
+        }
+    }
+
+    BinaryCellStyles getStyles() {
+        return styles;
+    }
+}
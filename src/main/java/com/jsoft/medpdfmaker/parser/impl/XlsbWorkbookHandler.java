@@ -0,0 +1,70 @@
+package com.jsoft.medpdfmaker.parser.impl;
+
+import org.apache.poi.util.LittleEndian;
+import org.apache.poi.xssf.binary.XSSFBParseException;
+import org.apache.poi.xssf.binary.XSSFBParser;
+import org.apache.poi.xssf.binary.XSSFBRecordType;
+import org.apache.poi.xssf.binary.XSSFBUtils;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reader of the workbook part of the xlsb package. Collects the same data as XlsxWorkbookHandler does:
+ * the list of sheets in the workbook order and the date windowing flag. Records of other types are skipped
+ * without reading their data.
+ */
+class XlsbWorkbookHandler extends XSSFBParser {
+
+    /**
+     * BrtWbProp record, it is not defined by XSSFBRecordType.
+     */
+    private static final int BRT_WB_PROP = 153;
+
+    private static final long SHEET_STATE_HIDDEN = 1;
+    private static final long NULL_STRING_LENGTH = 0xFFFFFFFFL;
+
+    private final List<XlsxWorkbookHandler.SheetRef> sheets = new ArrayList<>();
+    private boolean date1904;
+
+    XlsbWorkbookHandler(InputStream workbookStream) {
+        super(workbookStream, interestingRecords());
+    }
+
+    private static BitSet interestingRecords() {
+        final BitSet result = new BitSet();
+        result.set(XSSFBRecordType.BrtBundleSh.getId());
+        result.set(BRT_WB_PROP);
+        return result;
+    }
+
+    @Override
+    public void handleRecord(int recordType, byte[] data) throws XSSFBParseException {
+        if (recordType == XSSFBRecordType.BrtBundleSh.getId()) {
+            // hsState, iTabID, strRelID, strName
+            final long state = LittleEndian.getUInt(data, 0);
+            int offset = 8;
+            final StringBuilder relationId = new StringBuilder();
+            final boolean relationIdIsNull = LittleEndian.getUInt(data, offset) == NULL_STRING_LENGTH;
+            offset += relationIdIsNull ? 4 : XSSFBUtils.readXLWideString(data, offset, relationId);
+            final StringBuilder name = new StringBuilder();
+            XSSFBUtils.readXLWideString(data, offset, name);
+            // Only "hidden" state makes the sheet hidden, the same rule XlsxWorkbookHandler follows.
+            sheets.add(new XlsxWorkbookHandler.SheetRef(name.toString(), relationIdIsNull ? null : relationId.toString(),
+                    state == SHEET_STATE_HIDDEN));
+        } else if (recordType == BRT_WB_PROP) {
+            date1904 = (data[0] & 1) != 0;
+        }
+    }
+
+    List<XlsxWorkbookHandler.SheetRef> getSheets() {
+        return Collections.unmodifiableList(sheets);
+    }
+
+    boolean isDate1904() {
+        return date1904;
+    }
+}
@@ -0,0 +1,242 @@
+package com.jsoft.medpdfmaker.parser.impl;
+
+import com.jsoft.medpdfmaker.excel.SharedStringsSource;
+import com.jsoft.medpdfmaker.excel.StreamingCell;
+import org.apache.poi.ss.usermodel.FormulaError;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.xml.sax.Attributes;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * SAX handler for the sheet part of the xlsx package.
+ * Handler collects cells of one row at a time and passes them to the RowListener when the row ends.
+ * Cell objects are reused from row to row, so memory usage does not depend on the number of rows in the sheet.
+ */
+class XlsxSheetHandler extends DefaultHandler {
+
+    private static final Pattern UTF_PATTERN = Pattern.compile("_x([0-9A-Fa-f]{4})_");
+
+    private final SharedStringsSource sharedStrings;
+    private final StylesTable stylesTable;
+    private final boolean date1904;
+    private final RowListener rowListener;
+
+    private final List<StreamingCell> cellsPool = new ArrayList<>();
+    private final List<StreamingCell> rowCells = new ArrayList<>();
+    private final List<XSSFCellStyle> stylesCache = new ArrayList<>();
+    private final StringBuilder valueBuffer = new StringBuilder();
+    private final StringBuilder formulaBuffer = new StringBuilder();
+    private final StringBuilder inlineBuffer = new StringBuilder();
+
+    private int rowIdx = -1;
+    private boolean rowHidden;
+    private int columnIdx;
+    private StreamingCell curCell;
+    private String curCellType;
+    private boolean valueSet;
+    private boolean inlineSet;
+    private boolean formulaSet;
+    private boolean inValue;
+    private boolean inFormula;
+    private boolean inInlineString;
+    private boolean inPhonetic;
+
+    XlsxSheetHandler(SharedStringsSource sharedStrings, StylesTable stylesTable, boolean date1904, RowListener rowListener) {
+        this.sharedStrings = sharedStrings;
+        this.stylesTable = stylesTable;
+        this.date1904 = date1904;
+        this.rowListener = rowListener;
+    }
+
+    @Override
+    public void startElement(String uri, String localName, String qName, Attributes attributes) {
+        switch (localName) {
+            case "row":
+                startRow(attributes);
+                break;
+            case "c":
+                startCell(attributes);
+                break;
+            case "v":
+                inValue = true;
+                valueSet = true;
+                valueBuffer.setLength(0);
+                break;
+            case "f":
+                // data table formulas are not treated as formulas by XSSFCell, so do the same here
+                if (!"dataTable".equals(attributes.getValue("t"))) {
+                    inFormula = true;
+                    formulaSet = true;
+                    formulaBuffer.setLength(0);
+                }
+                break;
+            case "is":
+                inInlineString = true;
+                inlineSet = true;
+                inlineBuffer.setLength(0);
+                break;
+            case "rPh":
+                inPhonetic = true;
+                break;
+            default:
+                // element is not interesting
+        }
+    }
+
+    @Override
+    public void endElement(String uri, String localName, String qName) {
+        switch (localName) {
+            case "row":
+                rowListener.onRow(rowIdx, rowHidden, rowCells);
+                break;
+            case "c":
+                endCell();
+                break;
+            case "v":
+                inValue = false;
+                break;
+            case "f":
+                inFormula = false;
+                break;
+            case "is":
+                inInlineString = false;
+                break;
+            case "rPh":
+                inPhonetic = false;
+                break;
+            default:
+                // element is not interesting
+        }
+    }
+
+    @Override
+    public void characters(char[] ch, int start, int length) {
+        if (inValue) {
+            valueBuffer.append(ch, start, length);
+        } else if (inFormula) {
+            formulaBuffer.append(ch, start, length);
+        } else if (inInlineString && !inPhonetic) {
+            inlineBuffer.append(ch, start, length);
+        }
+    }
+
+    private void startRow(Attributes attributes) {
+        final String rowNum = attributes.getValue("r");
+        rowIdx = (rowNum == null) ? rowIdx + 1 : Integer.parseInt(rowNum) - 1;
+        final String style = attributes.getValue("s");
+        // The same rule XSSFRow uses: row is formatted if it has a style, and it is hidden if this style is hidden
+        final XSSFCellStyle rowStyle = (style == null) ? null : getStyle(Integer.parseInt(style));
+        rowHidden = rowStyle != null && rowStyle.getHidden();
+        rowCells.clear();
+        columnIdx = -1;
+    }
+
+    private void startCell(Attributes attributes) {
+        final String ref = attributes.getValue("r");
+        columnIdx = (ref == null) ? columnIdx + 1 : columnIndexOf(ref);
+        final String style = attributes.getValue("s");
+        if (rowCells.size() == cellsPool.size()) {
+            cellsPool.add(new StreamingCell());
+        }
+        curCell = cellsPool.get(rowCells.size());
+        curCell.reset(rowIdx, columnIdx, getStyle(style == null ? 0 : Integer.parseInt(style)), date1904);
+        curCellType = attributes.getValue("t");
+        valueSet = false;
+        inlineSet = false;
+        formulaSet = false;
+    }
+
+    private void endCell() {
+        final String value = valueBuffer.toString();
+        if (curCellType == null || "n".equals(curCellType)) {
+            if (valueSet) {
+                curCell.setCellValue(value.isEmpty() ? 0.0 : Double.parseDouble(value));
+            }
+        } else {
+            switch (curCellType) {
+                case "s":
+                    if (valueSet) {
+                        final int sharedStringIdx = Integer.parseInt(value.trim());
+                        // string is taken from the table only if the value of the cell is requested
+                        curCell.setSharedStringValue(sharedStringIdx, sharedStrings);
+                    } else {
+                        curCell.setCellValue("");
+                    }
+                    break;
+                case "inlineStr":
+                    curCell.setCellValue(utfDecode(inlineSet ? inlineBuffer.toString() : (valueSet ? value : "")));
+                    break;
+                case "b":
+                    curCell.setCellValue(valueSet && "1".equals(value));
+                    break;
+                case "e":
+                    if (valueSet) {
+                        curCell.setCellErrorValue(FormulaError.forString(value).getCode());
+                    }
+                    break;
+                default:
+                    curCell.setCellValue(utfDecode(valueSet ? value : ""));
+            }
+        }
+        if (formulaSet) {
+            curCell.markAsFormula(formulaBuffer.toString());
+        }
+        rowCells.add(curCell);
+        curCell = null;
+    }
+
+    private XSSFCellStyle getStyle(int styleIdx) {
+        if (stylesTable == null || stylesTable.getNumCellStyles() == 0) {
+            return null;
+        }
+        while (stylesCache.size() <= styleIdx) {
+            stylesCache.add(null);
+        }
+        XSSFCellStyle result = stylesCache.get(styleIdx);
+        if (result == null) {
+            result = stylesTable.getStyleAt(styleIdx);
+            stylesCache.set(styleIdx, result);
+        }
+        return result;
+    }
+
+    private static int columnIndexOf(String cellRef) {
+        int result = 0;
+        for (int i = 0; i < cellRef.length(); i++) {
+            final char c = cellRef.charAt(i);
+            if (c < 'A' || c > 'Z') {
+                break;
+            }
+            result = result * 26 + (c - 'A' + 1);
+        }
+        return result - 1;
+    }
+
+    /**
+     * Decode _xHHHH_ escape sequences the same way XSSFRichTextString does it.
+     */
+    static String utfDecode(String value) {
+        if (value == null || !value.contains("_x")) {
+            return value;
+        }
+        final StringBuilder result = new StringBuilder();
+        final Matcher matcher = UTF_PATTERN.matcher(value);
+        int idx = 0;
+        while (matcher.find()) {
+            result.append(value, idx, matcher.start());
+            result.append((char) Integer.parseInt(matcher.group(1), 16));
+            idx = matcher.end();
+        }
+        if (idx == 0) {
+            return value;
+        }
+        result.append(value, idx, value.length());
+        return result.toString();
+    }
+}
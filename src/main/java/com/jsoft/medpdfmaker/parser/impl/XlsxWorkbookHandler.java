@@ -0,0 +1,67 @@
+package com.jsoft.medpdfmaker.parser.impl;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * SAX handler for the workbook part of the xlsx package. Collects the list of sheets in the workbook order
+ * and the date windowing flag. Nothing else is read, so handler is cheap even for big workbooks.
+ */
+class XlsxWorkbookHandler extends DefaultHandler {
+
+    private static final String RELATIONSHIPS_NS = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+
+    private final List<SheetRef> sheets = new ArrayList<>();
+    private boolean date1904;
+
+    @Override
+    public void startElement(String uri, String localName, String qName, Attributes attributes) {
+        if ("sheet".equals(localName)) {
+            // Only "hidden" state makes the sheet hidden. It is the same rule that XSSFWorkbook.isSheetHidden follows.
+            sheets.add(new SheetRef(attributes.getValue("name"), attributes.getValue(RELATIONSHIPS_NS, "id"),
+                    "hidden".equals(attributes.getValue("state"))));
+        } else if ("workbookPr".equals(localName)) {
+            final String value = attributes.getValue("date1904");
+            date1904 = "1".equals(value) || "true".equals(value);
+        }
+    }
+
+    List<SheetRef> getSheets() {
+        return Collections.unmodifiableList(sheets);
+    }
+
+    boolean isDate1904() {
+        return date1904;
+    }
+
+    /**
+     * Reference to the sheet part defined in the workbook.
+     */
+    static class SheetRef {
+        private final String name;
+        private final String relationId;
+        private final boolean hidden;
+
+        SheetRef(String name, String relationId, boolean hidden) {
+            this.name = name;
+            this.relationId = relationId;
+            this.hidden = hidden;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        String getRelationId() {
+            return relationId;
+        }
+
+        boolean isHidden() {
+            return hidden;
+        }
+    }
+}
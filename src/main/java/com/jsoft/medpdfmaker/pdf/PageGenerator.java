@@ -5,8 +5,15 @@ import com.jsoft.medpdfmaker.domain.ServiceRecord;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.Set;
 
 public interface PageGenerator {
 
     void generate(final Path workFolder, final List<ServiceRecord> memberServiceRecords, PageHandler pageHandler) throws IOException;
+
+    /**
+     * Get names of the ServiceRecord attributes (values of ExternalField annotations) the generator reads.
+     * Values of the other attributes do not need to be loaded from the input file.
+     */
+    Set<String> getUsedAttributes();
 }
@@ -13,15 +13,18 @@ import org.apache.pdfbox.pdmodel.interactive.form.PDField;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
 import java.math.BigDecimal;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.text.DecimalFormat;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 
 import static com.jsoft.medpdfmaker.util.FileUtil.stripLastSlashIfNeeded;
 
@@ -30,8 +33,12 @@ public class MemberPageGenerator implements PageGenerator {
 
     private static final int ROWS_COUNT = 6;
     private static final String N_A = "";
+    private static final Set<String> USED_ATTRIBUTES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            "MEMBERNUMBER", "LASTNAME", "FIRSTNAME", "PICK UP LOCATION", "CITY", "STATE", "ZIPCODE", "AREACODE",
+            "PHONE", "DATE OF BIRTH", "DATE OF SERVICE", "TRIP_PRICE", "TRACKINGNUMBER")));
 
     private final AppProperties appProperties;
+    private final PdfTemplate template = new PdfTemplate(Constants.PDF_TEMPLATE_RESOURCE_PATH);
 
     private final DateTimeFormatter formatYearCentury = DateTimeFormatter.ofPattern("yy");
     private final DateTimeFormatter formatDay = DateTimeFormatter.ofPattern("dd");
@@ -60,11 +67,15 @@ public class MemberPageGenerator implements PageGenerator {
         }
     }
 
+    @Override
+    public Set<String> getUsedAttributes() {
+        return USED_ATTRIBUTES;
+    }
+
     private Path generatePage(PageInfo pageInfo, ServiceRecord headerRecord,
                               List<ServiceRecord> pageRecords, Path workFolder) throws IOException {
         final String pageFileName = makePageFileName(headerRecord, pageInfo.pageNum, workFolder);
-        try (InputStream templateStream = getTemplateStream();
-             PDDocument pdDocument = PDDocument.load(templateStream);) {
+        try (PDDocument pdDocument = template.newDocument()) {
             fillPageHeader(pdDocument, headerRecord, pageInfo);
             fillPageTable(pdDocument, pageRecords);
             fillPageFooter(pdDocument, pageInfo, headerRecord);
@@ -146,15 +157,6 @@ public class MemberPageGenerator implements PageGenerator {
                 String.format("%s_%03d.pdf", normalizedMemberId, pageNum);
     }
 
-    private InputStream getTemplateStream() {
-        final InputStream result = this.getClass().getClassLoader().getResourceAsStream(Constants.PDF_TEMPLATE_RESOURCE_PATH);
-        if (result == null) {
-            throw new IllegalStateException(String.format("Template resource %s is not found", Constants.PDF_TEMPLATE_RESOURCE_PATH));
-        } else {
-            return result;
-        }
-    }
-
     private static void setField(final PDDocument pdDocument, final String fName, final String fValue) throws IOException {
         final PDDocumentCatalog pdDocumentCatalog = pdDocument.getDocumentCatalog();
         final PDAcroForm pdAcroForm = pdDocumentCatalog.getAcroForm();
@@ -5,14 +5,17 @@ import com.jsoft.medpdfmaker.Constants;
 import com.jsoft.medpdfmaker.domain.ServiceRecord;
 import com.jsoft.medpdfmaker.domain.ServiceRecordGroupKey;
 import com.jsoft.medpdfmaker.pdf.PageGenerator;
-import com.jsoft.medpdfmaker.repository.impl.ServiceRecordRepository;
+import com.jsoft.medpdfmaker.pdf.PageHandler;
+import com.jsoft.medpdfmaker.repository.EntityGroupRepository;
 import com.jsoft.medpdfmaker.util.LoggerUtil;
 import org.apache.pdfbox.multipdf.PDFMergerUtility;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -31,39 +34,106 @@ public class MembersBookGenerator {
     }
 
     public void generate(final Path workFolder, final String outFileName,
-                         final ServiceRecordRepository repository) throws IOException {
+                         final EntityGroupRepository<ServiceRecordGroupKey, ServiceRecord> repository) throws IOException {
         if (repository.isEmpty()) {
             LoggerUtil.info(LOG, "No data was provided for PDF generation");
             return;
         }
-        final List<Path> buffer = new ArrayList<>();
-        int[] mergeCount = new int[]{0};
+        final Book book = open(workFolder, outFileName);
         for (final ServiceRecordGroupKey key : repository.getKeys()) {
-            final List<ServiceRecord> serviceRecords = repository.getGroupByKey(key);
-            pageGenerator.generate(workFolder, serviceRecords, pagePath -> {
-                    buffer.add(pagePath);
-                    if (buffer.size() >= appProperties.getMaxPagesInPdfFile()) {
-                        mergeBatchIfNeeded(buffer, outFileName, mergeCount[0]);
-                        buffer.clear();
-                        mergeCount[0]++;
-                    }
-            });
-        }
-        if (appProperties.isCompositePdfEnabled()) {
-            mergeBatchIfNeeded(buffer, outFileName, mergeCount[0]);
+            book.addGroup(repository.getGroupByKey(key));
         }
+        book.finish();
+    }
+
+    /**
+     * Start the book which groups are added one by one, in the order of their keys.
+     * @param workFolder folder of the pages.
+     * @param outFileName name of the PDF files without the number and extension.
+     */
+    public Book open(final Path workFolder, final String outFileName) {
+        return new Book(workFolder, outFileName);
     }
 
-    private void mergeBatchIfNeeded(List<Path> pathsForMerge, String outFileName, int mergeCount) throws IOException {
+    private void mergeBatchIfNeeded(List<Path> pathsForMerge, String fullOutFileName) throws IOException {
         if (pathsForMerge.size() <= 0) {
             return;
         }
         final PDFMergerUtility pdfMerger = new PDFMergerUtility();
-        final String fullOutFileName = String.format("%s_%03d%s", outFileName, mergeCount, Constants.PDF_EXT);
         pdfMerger.setDestinationFileName(fullOutFileName);
         for (final Path pathToMerge : pathsForMerge) {
             pdfMerger.addSource(pathToMerge.toFile());
         }
         pdfMerger.mergeDocuments(setupTempFileOnly());
     }
+
+    /**
+     * Book that is written while its groups are added: pages of every group are generated at once, they are merged
+     * into the next PDF file when there are enough pages. Pages generated elsewhere can be added one by one
+     * as the page handler. Book is not thread safe.
+     */
+    public class Book implements PageHandler {
+
+        private final Path workFolder;
+        private final String outFileName;
+        private final List<Path> buffer = new ArrayList<>();
+        private final List<Path> writtenFiles = new ArrayList<>();
+        private int mergeCount;
+
+        private Book(Path workFolder, String outFileName) {
+            this.workFolder = workFolder;
+            this.outFileName = outFileName;
+        }
+
+        /**
+         * Generate the pages of the group.
+         * @param serviceRecords records of the group, not empty.
+         */
+        public void addGroup(List<ServiceRecord> serviceRecords) throws IOException {
+            pageGenerator.generate(workFolder, serviceRecords, this);
+        }
+
+        /**
+         * Add the page generated in the work folder of the book.
+         */
+        @Override
+        public void onPage(Path pagePath) throws IOException {
+            buffer.add(pagePath);
+            writtenFiles.add(pagePath);
+            if (buffer.size() >= appProperties.getMaxPagesInPdfFile()) {
+                mergeBuffer();
+            }
+        }
+
+        /**
+         * Merge the rest of the pages.
+         */
+        public void finish() throws IOException {
+            if (appProperties.isCompositePdfEnabled()) {
+                mergeBuffer();
+            }
+        }
+
+        /**
+         * Delete the pages and the PDF files written so far.
+         */
+        public void discard() throws IOException {
+            for (final Path writtenFile : writtenFiles) {
+                Files.deleteIfExists(writtenFile);
+            }
+            writtenFiles.clear();
+            buffer.clear();
+            mergeCount = 0;
+        }
+
+        private void mergeBuffer() throws IOException {
+            if (!buffer.isEmpty()) {
+                final String fullOutFileName = String.format("%s_%03d%s", outFileName, mergeCount, Constants.PDF_EXT);
+                mergeBatchIfNeeded(buffer, fullOutFileName);
+                writtenFiles.add(Paths.get(fullOutFileName));
+                buffer.clear();
+            }
+            mergeCount++;
+        }
+    }
 }
@@ -0,0 +1,149 @@
+package com.jsoft.medpdfmaker.pdf.impl;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.pdmodel.DefaultResourceCache;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.ResourceCache;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * PDF template that is parsed once and copied for every page. Copy gets its own dictionaries, arrays and streams,
+ * so its fields and their appearances can be changed without changing the template; streams are copied as they
+ * are encoded, without parsing. Fonts are only read when the fields are filled, so they are not copied: all the
+ * copies refer to the fonts of the template and share the cache of the parsed fonts, every font is parsed once
+ * per template instead of once per field of every page. Bytes of the template resources are read from
+ * the classpath once and shared by all the templates.
+ * <p>
+ * Copies read the fonts of the template when they are saved, so the template is never closed. Template is not
+ * thread safe, as the template objects are parsed lazily, so every page generator uses its own template.
+ */
+final class PdfTemplate {
+
+    private static final Map<String, byte[]> RESOURCES = new ConcurrentHashMap<>();
+
+    private final String resourcePath;
+    private final ResourceCache fontCache = new DefaultResourceCache();
+    private PDDocument template;
+
+    PdfTemplate(String resourcePath) {
+        this.resourcePath = resourcePath;
+    }
+
+    /**
+     * Create the copy of the template, the copy must be closed by the caller.
+     */
+    PDDocument newDocument() throws IOException {
+        if (template == null) {
+            template = PDDocument.load(resourceBytes(resourcePath));
+            // parsed template is kept in memory as long as the generator, it has nothing to release but the memory
+            template.getDocument().setWarnMissingClose(false);
+        }
+        final PDDocument result = new PDDocument();
+        try {
+            final Map<COSBase, COSBase> copies = new IdentityHashMap<>();
+            final COSDictionary templateTrailer = template.getDocument().getTrailer();
+            final COSDictionary trailer = result.getDocument().getTrailer();
+            trailer.setItem(COSName.ROOT, copy(result, templateTrailer.getItem(COSName.ROOT), copies));
+            if (templateTrailer.containsKey(COSName.INFO)) {
+                trailer.setItem(COSName.INFO, copy(result, templateTrailer.getItem(COSName.INFO), copies));
+            }
+            result.setVersion(template.getVersion());
+            result.getDocument().setIsXRefStream(template.getDocument().isXRefStream());
+            result.setResourceCache(fontCache);
+        } catch (IOException | RuntimeException e) {
+            result.close();
+            throw e;
+        }
+        return result;
+    }
+
+    /**
+     * Copy the object of the template with all the objects it refers to, except the fonts.
+     * @param copies copies of the indirect objects, dictionaries and arrays made so far, so the objects shared
+     *               in the template stay shared in the copy.
+     */
+    private static COSBase copy(PDDocument document, COSBase base, Map<COSBase, COSBase> copies) throws IOException {
+        if (!(base instanceof COSObject || base instanceof COSDictionary || base instanceof COSArray)) {
+            // names, numbers, strings, booleans and null are replaced, not changed, when the fields are filled
+            return base;
+        }
+        final COSBase result = copies.get(base);
+        if (result != null) {
+            return result;
+        }
+        if (base instanceof COSObject) {
+            final COSBase object = ((COSObject) base).getObject();
+            if (isFontPart(object)) {
+                // fonts of the template are used as they are, only the indirect fonts are cached
+                return base;
+            }
+            // copy stays indirect, so the objects shared in the template are written once
+            final COSObject objectCopy = new COSObject(null);
+            copies.put(base, objectCopy);
+            objectCopy.setObject(copy(document, object, copies));
+            return objectCopy;
+        }
+        if (base instanceof COSArray) {
+            final COSArray array = (COSArray) base;
+            final COSArray arrayCopy = new COSArray();
+            arrayCopy.setDirect(array.isDirect());
+            copies.put(base, arrayCopy);
+            for (int i = 0; i < array.size(); i++) {
+                arrayCopy.add(copy(document, array.get(i), copies));
+            }
+            return arrayCopy;
+        }
+        final COSDictionary dictionaryCopy = (base instanceof COSStream)
+                ? document.getDocument().createCOSStream() : new COSDictionary();
+        // direct objects of the template are written inline, the same way as in the template
+        dictionaryCopy.setDirect(base.isDirect());
+        copies.put(base, dictionaryCopy);
+        for (final Map.Entry<COSName, COSBase> entry : ((COSDictionary) base).entrySet()) {
+            dictionaryCopy.setItem(entry.getKey(), copy(document, entry.getValue(), copies));
+        }
+        if (base instanceof COSStream) {
+            try (InputStream in = ((COSStream) base).createRawInputStream();
+                 OutputStream out = ((COSStream) dictionaryCopy).createRawOutputStream()) {
+                IOUtils.copy(in, out);
+            }
+        }
+        return dictionaryCopy;
+    }
+
+    /**
+     * Check if the object is the font or the encoding, which is shared by the fonts and the default resources.
+     */
+    private static boolean isFontPart(COSBase object) {
+        if (!(object instanceof COSDictionary)) {
+            return false;
+        }
+        final COSName type = ((COSDictionary) object).getCOSName(COSName.TYPE);
+        return COSName.FONT.equals(type) || COSName.ENCODING.equals(type);
+    }
+
+    private static byte[] resourceBytes(String resourcePath) throws IOException {
+        byte[] result = RESOURCES.get(resourcePath);
+        if (result == null) {
+            try (InputStream resourceStream = PdfTemplate.class.getClassLoader().getResourceAsStream(resourcePath)) {
+                if (resourceStream == null) {
+                    throw new IllegalStateException(String.format("Template resource %s is not found", resourcePath));
+                }
+                result = IOUtils.toByteArray(resourceStream);
+            }
+            RESOURCES.putIfAbsent(resourcePath, result);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,352 @@
+package com.jsoft.medpdfmaker.pipeline;
+
+import com.jsoft.medpdfmaker.domain.ServiceRecord;
+import com.jsoft.medpdfmaker.domain.ServiceRecordGroupKey;
+import com.jsoft.medpdfmaker.exception.AppException;
+import com.jsoft.medpdfmaker.parser.ParseSession;
+import com.jsoft.medpdfmaker.parser.Result;
+import com.jsoft.medpdfmaker.pdf.PageGenerator;
+import com.jsoft.medpdfmaker.pdf.PageHandler;
+import org.apache.commons.lang3.Validate;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Processes one sheet by the stages that run at the same time: the parse stage passes batches of the records to
+ * the group stage, the group stage passes the finished groups to the render threads, they generate the pages of
+ * the groups in the work folder, and the thread that runs the pipeline passes the pages to the page writer in the
+ * order the groups were finished. Stages are connected by bounded queues, the number of the groups that are rendered
+ * or wait to be written is limited too, so the fast stages wait for the slow ones instead of keeping the data
+ * in memory.
+ * <p>
+ * When any stage fails, the other stages are interrupted, the pipeline waits until all of them stop and throws
+ * the error of the failed stage. Pages rendered but not written yet are left in the work folder.
+ * Pipeline can also be cancelled by the record consumer, when the rest of the sheet is not needed: parse stage
+ * stops at the next parsed record and the other stages finish the groups submitted so far. Stages are not
+ * interrupted then, so the parse session can be used again for the same sheet.
+ * Pipeline processes one sheet only.
+ */
+public class SheetPipeline {
+
+    /**
+     * Called by the group stage when all the records of the sheet are received.
+     */
+    @FunctionalInterface
+    public interface GroupStageEnd {
+
+        void finish() throws IOException;
+    }
+
+    private static final int RECORDS_BATCH_SIZE = 256;
+    private static final List<ServiceRecord> END_OF_RECORDS = Collections.emptyList();
+    private static final Group END_OF_GROUPS = new Group(-1, Collections.emptyList());
+    private static final RenderedGroup RENDERER_DONE = new RenderedGroup(-1, Collections.emptyList());
+    private static final RenderedGroup STAGE_FAILED = new RenderedGroup(-1, Collections.emptyList());
+    private static final AtomicInteger PIPELINE_NUMBER = new AtomicInteger();
+
+    private final Path workFolder;
+    private final PageHandler pageWriter;
+    private final Supplier<PageGenerator> pageGeneratorSupplier;
+    private final int renderThreads;
+    private final BlockingQueue<List<ServiceRecord>> recordBatches;
+    private final BlockingQueue<Group> groups;
+    private final BlockingQueue<RenderedGroup> renderedGroups = new LinkedBlockingQueue<>();
+    private final Semaphore groupPermits;
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private final ExecutorService executor;
+    private volatile Result parseResult;
+    private volatile boolean cancelled;
+    private List<ServiceRecord> parsedRecords;
+    private int submittedGroups;
+
+    /**
+     * @param workFolder folder of the pages.
+     * @param pageWriter receives the pages in the order of the groups.
+     * @param pageGeneratorSupplier supplier of the page generators, every render thread uses its own generator.
+     * @param renderThreads number of the threads that render the pages.
+     * @param queueCapacity max number of the record batches waiting for the group stage and max number
+     *                      of the groups that are rendered or wait to be written.
+     */
+    public SheetPipeline(Path workFolder, PageHandler pageWriter, Supplier<PageGenerator> pageGeneratorSupplier,
+                         int renderThreads, int queueCapacity) {
+        Validate.isTrue(renderThreads > 0, "Number of the render threads must be positive");
+        Validate.isTrue(queueCapacity > 0, "Queue capacity must be positive");
+        this.workFolder = workFolder;
+        this.pageWriter = pageWriter;
+        this.pageGeneratorSupplier = pageGeneratorSupplier;
+        this.renderThreads = renderThreads;
+        this.recordBatches = new ArrayBlockingQueue<>(queueCapacity);
+        this.groups = new ArrayBlockingQueue<>(queueCapacity + renderThreads);
+        this.groupPermits = new Semaphore(queueCapacity);
+        final int pipelineNumber = PIPELINE_NUMBER.incrementAndGet();
+        final AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(renderThreads + 2, runnable -> new Thread(runnable,
+                String.format("sheet-pipeline-%d-%d", pipelineNumber, threadNumber.incrementAndGet())));
+    }
+
+    /**
+     * Run the pipeline. Groups are passed to the pipeline by {@link #submitGroup} from the record consumer and from
+     * the group stage end, both are called by the thread of the group stage.
+     * @param parseSession session of the input file.
+     * @param sheetIdx zero based index of the sheet.
+     * @param recordConsumer receives the records of the sheet.
+     * @param groupStageEnd called when all the records are received, if the sheet has no errors
+     *                      and the pipeline is not cancelled.
+     * @return result of the sheet parsing or null if the pipeline was cancelled.
+     * @throws IOException if the sheet cannot be parsed or the pages cannot be rendered or written.
+     */
+    public Result run(ParseSession<ServiceRecord> parseSession, int sheetIdx, Consumer<ServiceRecord> recordConsumer,
+                      GroupStageEnd groupStageEnd) throws IOException {
+        startStage(() -> parse(parseSession, sheetIdx));
+        startStage(() -> group(recordConsumer, groupStageEnd));
+        for (int i = 0; i < renderThreads; i++) {
+            startStage(this::render);
+        }
+        try {
+            write();
+        } catch (InterruptedException e) {
+            fail(new AppException("Sheet processing was interrupted", e));
+        } catch (Throwable e) {
+            fail(e);
+        }
+        executor.shutdown();
+        awaitStages();
+        rethrowFailure();
+        return cancelled ? null : parseResult;
+    }
+
+    /**
+     * Stop parsing of the sheet. Called by the record consumer, the records parsed afterwards are not passed to it.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Pass the finished group to the render threads. Waits while too many groups are not written yet.
+     * @param key key of the group.
+     * @param group records of the group, not empty; the list must not be changed afterwards.
+     */
+    public void submitGroup(ServiceRecordGroupKey key, List<ServiceRecord> group) throws IOException {
+        try {
+            groupPermits.acquire();
+            groups.put(new Group(submittedGroups, group));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Group of " + key + " was not rendered");
+        }
+        submittedGroups++;
+    }
+
+    private void parse(ParseSession<ServiceRecord> parseSession, int sheetIdx) throws Exception {
+        parsedRecords = new ArrayList<>(RECORDS_BATCH_SIZE);
+        try {
+            final Result result = parseSession.parse(sheetIdx, record -> {
+                if (cancelled) {
+                    throw new ParseCancelled();
+                }
+                parsedRecords.add(record);
+                if (parsedRecords.size() == RECORDS_BATCH_SIZE) {
+                    putParsedRecords();
+                }
+            });
+            if (!parsedRecords.isEmpty()) {
+                putParsedRecords();
+            }
+            parseResult = result;
+        } catch (ParseCancelled e) {
+            // the rest of the sheet is not needed
+        }
+        recordBatches.put(END_OF_RECORDS);
+    }
+
+    /**
+     * Pass the batch of the parsed records to the group stage and start the next batch.
+     */
+    private void putParsedRecords() {
+        try {
+            recordBatches.put(parsedRecords);
+            parsedRecords = new ArrayList<>(RECORDS_BATCH_SIZE);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UncheckedIOException(new InterruptedIOException("Records were not grouped"));
+        }
+    }
+
+    private void group(Consumer<ServiceRecord> recordConsumer, GroupStageEnd groupStageEnd) throws Exception {
+        List<ServiceRecord> records;
+        while ((records = recordBatches.take()) != END_OF_RECORDS) {
+            // batches put before the parse stage has seen the cancellation are skipped, so the parse stage never waits
+            for (int i = 0; i < records.size() && !cancelled; i++) {
+                recordConsumer.accept(records.get(i));
+            }
+        }
+        if (!cancelled && parseResult != Result.ERROR) {
+            groupStageEnd.finish();
+        }
+        for (int i = 0; i < renderThreads; i++) {
+            groups.put(END_OF_GROUPS);
+        }
+    }
+
+    private void render() throws Exception {
+        final PageGenerator pageGenerator = pageGeneratorSupplier.get();
+        Group group;
+        while ((group = groups.take()) != END_OF_GROUPS) {
+            final List<Path> pages = new ArrayList<>();
+            pageGenerator.generate(workFolder, group.records, pages::add);
+            renderedGroups.put(new RenderedGroup(group.number, pages));
+        }
+        renderedGroups.put(RENDERER_DONE);
+    }
+
+    /**
+     * Pass the rendered pages to the page writer in the order of the groups, until all the render threads are done.
+     */
+    private void write() throws IOException, InterruptedException {
+        final Map<Integer, List<Path>> pendingGroups = new HashMap<>();
+        int nextGroup = 0;
+        int doneRenderers = 0;
+        while (doneRenderers < renderThreads) {
+            final RenderedGroup renderedGroup = renderedGroups.take();
+            if (renderedGroup == STAGE_FAILED) {
+                return;
+            }
+            if (renderedGroup == RENDERER_DONE) {
+                doneRenderers++;
+                continue;
+            }
+            pendingGroups.put(renderedGroup.number, renderedGroup.pages);
+            List<Path> pages;
+            while ((pages = pendingGroups.remove(nextGroup)) != null) {
+                for (final Path page : pages) {
+                    pageWriter.onPage(page);
+                }
+                nextGroup++;
+                groupPermits.release();
+            }
+        }
+    }
+
+    private void startStage(Stage stage) {
+        try {
+            executor.execute(() -> {
+                try {
+                    stage.run();
+                } catch (Throwable e) {
+                    fail(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // the stage started earlier has already failed and stopped the executor
+            if (failure.get() == null) {
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Remember the first failure and stop all the stages. Errors of the stages interrupted afterwards are ignored.
+     */
+    private void fail(Throwable e) {
+        if (failure.compareAndSet(null, e)) {
+            renderedGroups.add(STAGE_FAILED);
+            executor.shutdownNow();
+        }
+    }
+
+    private void awaitStages() {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                if (executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                    break;
+                }
+            } catch (InterruptedException e) {
+                interrupted = true;
+                fail(new AppException("Sheet processing was interrupted", e));
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void rethrowFailure() throws IOException {
+        final Throwable e = failure.get();
+        if (e == null) {
+            return;
+        }
+        if (e instanceof UncheckedIOException) {
+            throw ((UncheckedIOException) e).getCause();
+        }
+        if (e instanceof IOException) {
+            throw (IOException) e;
+        }
+        if (e instanceof RuntimeException) {
+            throw (RuntimeException) e;
+        }
+        if (e instanceof Error) {
+            throw (Error) e;
+        }
+        throw new AppException("Sheet processing failed", e);
+    }
+
+    @FunctionalInterface
+    private interface Stage {
+
+        void run() throws Exception;
+    }
+
+    /**
+     * Thrown from the record callback to stop the parse stage of the cancelled pipeline.
+     */
+    private static final class ParseCancelled extends RuntimeException {
+
+        ParseCancelled() {
+            super("Sheet parsing is cancelled", null, false, false);
+        }
+    }
+
+    private static final class Group {
+
+        final int number;
+        final List<ServiceRecord> records;
+
+        Group(int number, List<ServiceRecord> records) {
+            this.number = number;
+            this.records = records;
+        }
+    }
+
+    private static final class RenderedGroup {
+
+        final int number;
+        final List<Path> pages;
+
+        RenderedGroup(int number, List<Path> pages) {
+            this.number = number;
+            this.pages = pages;
+        }
+    }
+}
@@ -0,0 +1,390 @@
+package com.jsoft.medpdfmaker.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.*;
+
+/**
+ * Annotation processor that generates EntityBinder implementation for every domain entity that has setters marked
+ * with ExternalField annotation. Binder is generated into the package of the entity and named after the entity
+ * with "Binder" suffix. Generated code calls entity setters and getters directly, so no reflection is used at runtime.
+ * <p>
+ * Processor is compiled before the rest of the application and must not depend on the application classes,
+ * so annotation and other application types are referenced by their names.
+ */
+@SupportedAnnotationTypes(EntityBinderProcessor.EXTERNAL_FIELD)
+public class EntityBinderProcessor extends AbstractProcessor {
+
+    static final String EXTERNAL_FIELD = "com.jsoft.medpdfmaker.domain.ExternalField";
+    private static final String DOMAIN_ENTITY = "com.jsoft.medpdfmaker.domain.DomainEntity";
+    private static final String ENTITY_BINDER = "com.jsoft.medpdfmaker.domain.EntityBinder";
+    private static final String FIELD_TYPE = "com.jsoft.medpdfmaker.domain.FieldType";
+    private static final String BOOLEAN_FIELD_TYPE = "BOOLEAN";
+    private static final String STRING_FIELD_TYPE = "STRING";
+    private static final String BINDER_SUFFIX = "Binder";
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        final Map<TypeElement, List<ExecutableElement>> settersByEntity = new LinkedHashMap<>();
+        for (final TypeElement annotation : annotations) {
+            for (final Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                final ExecutableElement setter = (ExecutableElement) element;
+                settersByEntity.computeIfAbsent((TypeElement) setter.getEnclosingElement(), e -> new ArrayList<>()).add(setter);
+            }
+        }
+        for (final Map.Entry<TypeElement, List<ExecutableElement>> entry : settersByEntity.entrySet()) {
+            final List<Attribute> attributes = collectAttributes(entry.getKey(), entry.getValue());
+            if (attributes != null) {
+                writeBinder(entry.getKey(), attributes);
+            }
+        }
+        return true;
+    }
+
+    private List<Attribute> collectAttributes(TypeElement entity, List<ExecutableElement> setters) {
+        boolean valid = isDomainEntity(entity);
+        final Map<String, Attribute> result = new TreeMap<>();
+        for (final ExecutableElement setter : setters) {
+            final Attribute attribute = toAttribute(entity, setter);
+            if (attribute == null) {
+                valid = false;
+            } else if (result.put(attribute.name, attribute) != null) {
+                error(setter, "Attribute " + attribute.name + " is defined more than once in " + entity.getSimpleName());
+                valid = false;
+            }
+        }
+        return valid ? new ArrayList<>(result.values()) : null;
+    }
+
+    private boolean isDomainEntity(TypeElement entity) {
+        final TypeMirror domainEntity = processingEnv.getElementUtils().getTypeElement(DOMAIN_ENTITY).asType();
+        if (!processingEnv.getTypeUtils().isAssignable(entity.asType(), domainEntity)) {
+            error(entity, entity.getSimpleName() + " has ExternalField attributes, but it does not implement DomainEntity");
+            return false;
+        }
+        if (!entity.getModifiers().contains(Modifier.PUBLIC) || entity.getModifiers().contains(Modifier.ABSTRACT)) {
+            error(entity, entity.getSimpleName() + " must be public not abstract class to be bound to external fields");
+            return false;
+        }
+        return true;
+    }
+
+    private Attribute toAttribute(TypeElement entity, ExecutableElement setter) {
+        final String setterName = setter.getSimpleName().toString();
+        if (!setter.getModifiers().contains(Modifier.PUBLIC) || setter.getModifiers().contains(Modifier.STATIC)
+                || setter.getParameters().size() != 1 || !setterName.startsWith("set")) {
+            error(setter, "ExternalField annotation can be used only for public setters");
+            return null;
+        }
+        final AnnotationMirror annotation = findExternalField(setter);
+        final String name = (String) annotationValue(annotation, "value");
+        if (name == null || name.isEmpty()) {
+            error(setter, "ExternalField annotation value cannot be empty");
+            return null;
+        }
+        final Object fieldType = annotationValue(annotation, "fieldType");
+        final String fieldTypeName = (fieldType == null) ? STRING_FIELD_TYPE : fieldType.toString();
+        final Boolean required = (Boolean) annotationValue(annotation, "required");
+        final Boolean key = (Boolean) annotationValue(annotation, "key");
+        final TypeMirror valueType = setter.getParameters().get(0).asType();
+        final ExecutableElement getter = findGetter(entity, setterName.substring(3));
+        if (getter == null && !BOOLEAN_FIELD_TYPE.equals(fieldTypeName)) {
+            error(setter, "Getter cannot be found for the setter " + setterName + ". Getter is used for emptiness checks");
+            return null;
+        }
+        return new Attribute(name, setterName, (getter == null) ? null : getter.getSimpleName().toString(),
+                valueType, fieldTypeName, Boolean.TRUE.equals(required), Boolean.TRUE.equals(key));
+    }
+
+    private AnnotationMirror findExternalField(Element element) {
+        for (final AnnotationMirror annotation : element.getAnnotationMirrors()) {
+            if (((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName().contentEquals(EXTERNAL_FIELD)) {
+                return annotation;
+            }
+        }
+        throw new IllegalStateException("Element " + element + " is not annotated with " + EXTERNAL_FIELD);
+    }
+
+    private Object annotationValue(AnnotationMirror annotation, String name) {
+        final Map<? extends ExecutableElement, ? extends AnnotationValue> values =
+                processingEnv.getElementUtils().getElementValuesWithDefaults(annotation);
+        for (final Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : values.entrySet()) {
+            if (entry.getKey().getSimpleName().contentEquals(name)) {
+                return entry.getValue().getValue();
+            }
+        }
+        return null;
+    }
+
+    private ExecutableElement findGetter(TypeElement entity, String propertyName) {
+        for (final ExecutableElement method : ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(entity))) {
+            final String methodName = method.getSimpleName().toString();
+            if (method.getParameters().isEmpty() && method.getModifiers().contains(Modifier.PUBLIC)
+                    && (methodName.equals("get" + propertyName) || methodName.equals("is" + propertyName))) {
+                return method;
+            }
+        }
+        return null;
+    }
+
+    private void writeBinder(TypeElement entity, List<Attribute> attributes) {
+        final String packageName = processingEnv.getElementUtils().getPackageOf(entity).getQualifiedName().toString();
+        final String entityName = entity.getQualifiedName().toString();
+        final String binderName = entity.getSimpleName() + BINDER_SUFFIX;
+        try {
+            final JavaFileObject sourceFile = processingEnv.getFiler().createSourceFile(
+                    packageName.isEmpty() ? binderName : packageName + "." + binderName, entity);
+            try (final Writer writer = sourceFile.openWriter(); final PrintWriter out = new PrintWriter(writer)) {
+                new BinderWriter(out, packageName, entityName, binderName, attributes).write();
+            }
+        } catch (IOException e) {
+            error(entity, "Binder cannot be generated: " + e.getMessage());
+        }
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+    /**
+     * Attribute of the domain entity defined by ExternalField annotation.
+     */
+    private static class Attribute {
+        private final String name;
+        private final String setterName;
+        private final String getterName;
+        private final TypeMirror valueType;
+        private final String fieldType;
+        private final boolean required;
+        private final boolean key;
+
+        Attribute(String name, String setterName, String getterName, TypeMirror valueType, String fieldType,
+                  boolean required, boolean key) {
+            this.name = name;
+            this.setterName = setterName;
+            this.getterName = getterName;
+            this.valueType = valueType;
+            this.fieldType = fieldType;
+            this.required = required;
+            // required attributes always identify the entity
+            this.key = required || key;
+        }
+    }
+
+    /**
+     * Writes source code of the binder.
+     */
+    private class BinderWriter {
+        private final PrintWriter out;
+        private final String packageName;
+        private final String entityName;
+        private final String binderName;
+        private final List<Attribute> attributes;
+
+        BinderWriter(PrintWriter out, String packageName, String entityName, String binderName, List<Attribute> attributes) {
+            this.out = out;
+            this.packageName = packageName;
+            this.entityName = entityName;
+            this.binderName = binderName;
+            this.attributes = attributes;
+        }
+
+        void write() {
+            if (!packageName.isEmpty()) {
+                out.println("package " + packageName + ";");
+                out.println();
+            }
+            out.println("/**");
+            out.println(" * Binder for " + entityName + " generated by " + EntityBinderProcessor.class.getSimpleName()
+                    + " from ExternalField annotations. Do not edit.");
+            out.println(" */");
+            out.println("public final class " + binderName + " implements " + ENTITY_BINDER + "<" + entityName + "> {");
+            out.println();
+            writeNames();
+            writeTypes();
+            writeRequired();
+            out.println("    private static final String REQUIRED_ATTRIBUTES_NAMES = " + literal(requiredNames()) + ";");
+            out.println();
+            writeSimpleMethods();
+            writeAttributeSlot();
+            writeSetAttributeValue();
+            writeEmptinessCheck("keyAttributesAreEmpty", true);
+            writeEmptinessCheck("allAttributesAreEmpty", false);
+            out.println("}");
+        }
+
+        private void writeNames() {
+            out.println("    private static final String[] NAMES = {");
+            for (final Attribute attribute : attributes) {
+                out.println("            " + literal(attribute.name) + ",");
+            }
+            out.println("    };");
+            out.println();
+        }
+
+        private void writeTypes() {
+            out.println("    private static final " + FIELD_TYPE + "[] TYPES = {");
+            for (final Attribute attribute : attributes) {
+                out.println("            " + FIELD_TYPE + "." + attribute.fieldType + ",");
+            }
+            out.println("    };");
+            out.println();
+        }
+
+        private void writeRequired() {
+            out.println("    private static final boolean[] REQUIRED = {");
+            for (final Attribute attribute : attributes) {
+                out.println("            " + attribute.required + ",");
+            }
+            out.println("    };");
+            out.println();
+        }
+
+        private String requiredNames() {
+            final StringJoiner result = new StringJoiner(",");
+            for (final Attribute attribute : attributes) {
+                if (attribute.required) {
+                    result.add(attribute.name);
+                }
+            }
+            return result.toString();
+        }
+
+        private void writeSimpleMethods() {
+            out.println("    @Override");
+            out.println("    public " + entityName + " newEntity() {");
+            out.println("        return new " + entityName + "();");
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public int attributesCount() {");
+            out.println("        return NAMES.length;");
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public String attributeName(int slot) {");
+            out.println("        return NAMES[slot];");
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public " + FIELD_TYPE + " attributeType(int slot) {");
+            out.println("        return TYPES[slot];");
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public boolean attributeIsRequired(int slot) {");
+            out.println("        return REQUIRED[slot];");
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public String getRequiredAttributesNames() {");
+            out.println("        return REQUIRED_ATTRIBUTES_NAMES;");
+            out.println("    }");
+            out.println();
+        }
+
+        private void writeAttributeSlot() {
+            out.println("    @Override");
+            out.println("    public int attributeSlot(String attrName) {");
+            out.println("        if (attrName == null) {");
+            out.println("            return UNKNOWN_SLOT;");
+            out.println("        }");
+            out.println("        switch (attrName) {");
+            for (int slot = 0; slot < attributes.size(); slot++) {
+                out.println("            case " + literal(attributes.get(slot).name) + ":");
+                out.println("                return " + slot + ";");
+            }
+            out.println("            default:");
+            out.println("                return UNKNOWN_SLOT;");
+            out.println("        }");
+            out.println("    }");
+            out.println();
+        }
+
+        private void writeSetAttributeValue() {
+            out.println("    @Override");
+            out.println("    public void setAttributeValue(" + entityName + " entity, int slot, Object value) {");
+            out.println("        switch (slot) {");
+            for (int slot = 0; slot < attributes.size(); slot++) {
+                final Attribute attribute = attributes.get(slot);
+                out.println("            case " + slot + ":");
+                out.println("                entity." + attribute.setterName + "((" + boxedTypeName(attribute.valueType) + ") value);");
+                out.println("                break;");
+            }
+            out.println("            default:");
+            out.println("                throw new IllegalArgumentException(\"Attribute slot \" + slot + \" is unknown\");");
+            out.println("        }");
+            out.println("    }");
+            out.println();
+        }
+
+        private void writeEmptinessCheck(String methodName, boolean keyOnly) {
+            out.println("    @Override");
+            out.println("    public boolean " + methodName + "(" + entityName + " entity) {");
+            final List<String> checks = new ArrayList<>();
+            for (final Attribute attribute : attributes) {
+                if ((keyOnly && !attribute.key) || BOOLEAN_FIELD_TYPE.equals(attribute.fieldType)) {
+                    continue;
+                }
+                if (attribute.valueType.getKind().isPrimitive()) {
+                    // primitive values always exist
+                    checks.add("false");
+                } else if (isString(attribute.valueType)) {
+                    checks.add("org.apache.commons.lang3.StringUtils.isBlank(entity." + attribute.getterName + "())");
+                } else {
+                    checks.add("entity." + attribute.getterName + "() == null");
+                }
+            }
+            out.println("        return " + (checks.isEmpty() ? "true" : String.join(" &&\n                ", checks)) + ";");
+            out.println("    }");
+            out.println();
+        }
+
+        private boolean isString(TypeMirror type) {
+            return type.getKind() == TypeKind.DECLARED && type.toString().equals(String.class.getName());
+        }
+
+        private String boxedTypeName(TypeMirror type) {
+            if (type.getKind().isPrimitive()) {
+                return processingEnv.getTypeUtils().boxedClass((javax.lang.model.type.PrimitiveType) type).getQualifiedName().toString();
+            }
+            return processingEnv.getTypeUtils().erasure(type).toString();
+        }
+
+        private String literal(String value) {
+            final StringBuilder result = new StringBuilder("\"");
+            for (final char c : value.toCharArray()) {
+                switch (c) {
+                    case '"':
+                        result.append("\\\"");
+                        break;
+                    case '\\':
+                        result.append("\\\\");
+                        break;
+                    case '\n':
+                        result.append("\\n");
+                        break;
+                    default:
+                        result.append(c);
+                }
+            }
+            return result.append('"').toString();
+        }
+    }
+}
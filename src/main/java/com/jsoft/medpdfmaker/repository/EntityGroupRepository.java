@@ -7,10 +7,18 @@ public interface EntityGroupRepository<K, V> {
     
     void put(K key, V value);
 
+    /**
+     * Get the group of the key. Repositories that do not keep the groups in memory return only the group
+     * of the key their keys iterator returned last, so the groups must be read while the keys are iterated.
+     * @throws IllegalStateException if the repository cannot return the group of the key at this moment.
+     */
     List<V> getGroupByKey(K key);
 
     boolean isEmpty();
 
+    /**
+     * Get keys of the groups in the order the groups must be processed.
+     */
     Set<K> getKeys();
 
     void clean();
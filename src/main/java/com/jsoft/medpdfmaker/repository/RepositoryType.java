@@ -0,0 +1,23 @@
+package com.jsoft.medpdfmaker.repository;
+
+/**
+ * Kinds of the repositories that keep the records of one sheet grouped until the PDF file is generated.
+ */
+public enum RepositoryType {
+    /**
+     * Groups are kept in a sorted tree, every put searches the tree.
+     */
+    TREE,
+    /**
+     * Groups are kept in a hash map, keys are sorted once before the PDF file is generated.
+     */
+    HASH,
+    /**
+     * Records are kept in memory up to the memory budget, then they are sorted and written to the temporary files.
+     */
+    SPILL,
+    /**
+     * Attributes of the records are kept in the primitive columns, strings are kept in the dictionary.
+     */
+    COLUMNAR
+}
@@ -0,0 +1,388 @@
+package com.jsoft.medpdfmaker.repository.impl;
+
+import com.jsoft.medpdfmaker.domain.ServiceRecord;
+import com.jsoft.medpdfmaker.domain.ServiceRecordGroupKey;
+import com.jsoft.medpdfmaker.repository.EntityGroupRepository;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+
+/**
+ * Repository that keeps the attributes of the records in the primitive columns instead of the record objects:
+ * strings as the codes of {@link StringDictionary}, dates as epoch days, times as seconds of day, prices
+ * as cents, numbers as ints. Groups keep the numbers of their rows only. Records are made from the columns when
+ * they are read, so every call of the getter of the group list returns a new record.
+ * <p>
+ * Columns are split into the chunks of rows, chunks are allocated when the first non null value gets into them,
+ * so the attributes that are not loaded from the input file take no memory. Values that do not fit
+ * the column (times with nanos, prices with other scale than cents, etc.) are kept as objects in the map.
+ * Keys are sorted once, as in {@link HashServiceRecordRepository}. Repository is not thread safe.
+ */
+public class ColumnarServiceRecordRepository implements EntityGroupRepository<ServiceRecordGroupKey, ServiceRecord> {
+
+    private static final int REF_ID = 0;
+    private static final int L_NAME = 1;
+    private static final int F_NAME = 2;
+    private static final int MEMBER_ID = 3;
+    private static final int ORIGIN = 4;
+    private static final int DESTINATION = 5;
+    private static final int NOTES = 6;
+    private static final int TELEPHONE = 7;
+    private static final int COORDINATOR_INITIALS = 8;
+    private static final int CITY = 9;
+    private static final int STATE = 10;
+    private static final int ZIP_CODE = 11;
+    private static final int AREA_CODE = 12;
+    private static final int PHONE = 13;
+    private static final int STRING_COLUMNS = 14;
+
+    private static final int DAY_OF_BIRTH = STRING_COLUMNS;
+    private static final int PICKUP_DATE = STRING_COLUMNS + 1;
+    private static final int PICKUP_TIME = STRING_COLUMNS + 2;
+    private static final int APPT_TIME = STRING_COLUMNS + 3;
+    private static final int TOTAL_PASSENGERS = STRING_COLUMNS + 4;
+    private static final int INT_COLUMNS = STRING_COLUMNS + 5;
+    private static final int TRIP_PRICE = INT_COLUMNS;
+    private static final int COLUMNS = INT_COLUMNS + 1;
+
+    private static final int CANCELLED = 1;
+    private static final int WHEEL_CHAIR = 2;
+
+    private static final int CHUNK_BITS = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int CENTS_SCALE = 2;
+
+    private StringDictionary dictionary = new StringDictionary();
+    private final IntColumn[] intColumns = new IntColumn[INT_COLUMNS];
+    private final LongColumn priceColumn = new LongColumn();
+    private final ByteColumn flagsColumn = new ByteColumn();
+    private final Map<Long, Object> outOfColumnValues = new HashMap<>();
+    private final Map<ServiceRecordGroupKey, Rows> groups = new HashMap<>();
+    private int rowsCount;
+    private SortedKeySet sortedKeys;
+
+    public ColumnarServiceRecordRepository() {
+        for (int column = 0; column < INT_COLUMNS; column++) {
+            intColumns[column] = new IntColumn();
+        }
+    }
+
+    @Override
+    public void put(ServiceRecordGroupKey key, ServiceRecord value) {
+        if (key == null || value == null) {
+            throw new IllegalArgumentException("Both key and value cannot be null");
+        }
+        final int row = rowsCount++;
+        setString(row, REF_ID, value.getRefId());
+        setString(row, L_NAME, value.getLName());
+        setString(row, F_NAME, value.getFName());
+        setString(row, MEMBER_ID, value.getMemberId());
+        setString(row, ORIGIN, value.getOrigin());
+        setString(row, DESTINATION, value.getDestination());
+        setString(row, NOTES, value.getNotes());
+        setString(row, TELEPHONE, value.getTelephone());
+        setString(row, COORDINATOR_INITIALS, value.getCoordinatorInitials());
+        setString(row, CITY, value.getCity());
+        setString(row, STATE, value.getState());
+        setString(row, ZIP_CODE, value.getZipCode());
+        setString(row, AREA_CODE, value.getAreaCode());
+        setString(row, PHONE, value.getPhone());
+        setDate(row, DAY_OF_BIRTH, value.getDayOfBirth());
+        setDate(row, PICKUP_DATE, value.getPickupDate());
+        setTime(row, PICKUP_TIME, value.getPickupTime());
+        setTime(row, APPT_TIME, value.getApptTime());
+        if (value.getTotalPassengers() != null && !setInt(row, TOTAL_PASSENGERS, value.getTotalPassengers())) {
+            outOfColumnValues.put(valueKey(row, TOTAL_PASSENGERS), value.getTotalPassengers());
+        }
+        setPrice(row, value.getTripPrice());
+        final int flags = (value.isCancelled() ? CANCELLED : 0) | (value.isWheelChairYesNo() ? WHEEL_CHAIR : 0);
+        if (flags != 0) {
+            flagsColumn.set(row, (byte) flags);
+        }
+        Rows rows = groups.get(key);
+        if (rows == null) {
+            rows = new Rows();
+            groups.put(key, rows);
+            sortedKeys = null;
+        }
+        rows.add(row);
+    }
+
+    @Override
+    public List<ServiceRecord> getGroupByKey(ServiceRecordGroupKey key) {
+        final Rows rows = groups.get(key);
+        return rows == null ? null : new GroupView(rows);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return groups.isEmpty();
+    }
+
+    @Override
+    public Set<ServiceRecordGroupKey> getKeys() {
+        if (sortedKeys == null) {
+            sortedKeys = new SortedKeySet(groups);
+        }
+        return sortedKeys;
+    }
+
+    @Override
+    public void clean() {
+        dictionary = new StringDictionary();
+        for (final IntColumn column : intColumns) {
+            column.clear();
+        }
+        priceColumn.clear();
+        flagsColumn.clear();
+        outOfColumnValues.clear();
+        groups.clear();
+        rowsCount = 0;
+        sortedKeys = null;
+    }
+
+    private ServiceRecord readRecord(int row) {
+        final ServiceRecord result = new ServiceRecord();
+        result.setRefId(getString(row, REF_ID));
+        result.setLName(getString(row, L_NAME));
+        result.setFName(getString(row, F_NAME));
+        result.setMemberId(getString(row, MEMBER_ID));
+        result.setOrigin(getString(row, ORIGIN));
+        result.setDestination(getString(row, DESTINATION));
+        result.setNotes(getString(row, NOTES));
+        result.setTelephone(getString(row, TELEPHONE));
+        result.setCoordinatorInitials(getString(row, COORDINATOR_INITIALS));
+        result.setCity(getString(row, CITY));
+        result.setState(getString(row, STATE));
+        result.setZipCode(getString(row, ZIP_CODE));
+        result.setAreaCode(getString(row, AREA_CODE));
+        result.setPhone(getString(row, PHONE));
+        result.setDayOfBirth(getDate(row, DAY_OF_BIRTH));
+        result.setPickupDate(getDate(row, PICKUP_DATE));
+        result.setPickupTime(getTime(row, PICKUP_TIME));
+        result.setApptTime(getTime(row, APPT_TIME));
+        result.setTotalPassengers(getInt(row, TOTAL_PASSENGERS));
+        result.setTripPrice(getPrice(row));
+        final byte flags = flagsColumn.get(row);
+        result.setCancelled((flags & CANCELLED) != 0);
+        result.setWheelChairYesNo((flags & WHEEL_CHAIR) != 0);
+        return result;
+    }
+
+    private void setString(int row, int column, String value) {
+        if (value != null) {
+            // code 0 is null, so empty chunks need no filling
+            intColumns[column].set(row, dictionary.encode(value) + 1);
+        }
+    }
+
+    private String getString(int row, int column) {
+        final int code = intColumns[column].get(row);
+        return code == 0 ? null : dictionary.decode(code - 1);
+    }
+
+    private void setDate(int row, int column, LocalDate value) {
+        if (value != null) {
+            final long epochDay = value.toEpochDay();
+            if (epochDay < Integer.MIN_VALUE || epochDay >= Integer.MAX_VALUE || !setInt(row, column, (int) epochDay)) {
+                outOfColumnValues.put(valueKey(row, column), value);
+            }
+        }
+    }
+
+    private LocalDate getDate(int row, int column) {
+        final int value = intColumns[column].get(row);
+        return value == 0 ? (LocalDate) getOutOfColumnValue(row, column) : LocalDate.ofEpochDay(fromStored(value));
+    }
+
+    private void setTime(int row, int column, LocalTime value) {
+        if (value != null) {
+            if (value.getNano() != 0 || !setInt(row, column, value.toSecondOfDay())) {
+                outOfColumnValues.put(valueKey(row, column), value);
+            }
+        }
+    }
+
+    private LocalTime getTime(int row, int column) {
+        final int value = intColumns[column].get(row);
+        return value == 0 ? (LocalTime) getOutOfColumnValue(row, column) : LocalTime.ofSecondOfDay(fromStored(value));
+    }
+
+    private void setPrice(int row, BigDecimal value) {
+        if (value == null) {
+            return;
+        }
+        final BigInteger unscaled = value.unscaledValue();
+        if (value.scale() == CENTS_SCALE && unscaled.bitLength() < Long.SIZE) {
+            final long cents = unscaled.longValue();
+            if (cents != Long.MAX_VALUE) {
+                priceColumn.set(row, cents >= 0 ? cents + 1 : cents);
+                return;
+            }
+        }
+        outOfColumnValues.put(valueKey(row, TRIP_PRICE), value);
+    }
+
+    private BigDecimal getPrice(int row) {
+        final long value = priceColumn.get(row);
+        if (value == 0) {
+            return (BigDecimal) getOutOfColumnValue(row, TRIP_PRICE);
+        }
+        return BigDecimal.valueOf(value > 0 ? value - 1 : value, CENTS_SCALE);
+    }
+
+    /**
+     * Store the value shifted, so 0 marks null and the chunks need no filling.
+     * @return false if the value cannot be stored.
+     */
+    private boolean setInt(int row, int column, int value) {
+        if (value == Integer.MAX_VALUE) {
+            return false;
+        }
+        intColumns[column].set(row, value >= 0 ? value + 1 : value);
+        return true;
+    }
+
+    private Integer getInt(int row, int column) {
+        final int value = intColumns[column].get(row);
+        return value == 0 ? (Integer) getOutOfColumnValue(row, column) : Integer.valueOf(fromStored(value));
+    }
+
+    private static int fromStored(int value) {
+        return value > 0 ? value - 1 : value;
+    }
+
+    private Object getOutOfColumnValue(int row, int column) {
+        return outOfColumnValues.isEmpty() ? null : outOfColumnValues.get(valueKey(row, column));
+    }
+
+    private static long valueKey(int row, int column) {
+        return (long) row * COLUMNS + column;
+    }
+
+    /**
+     * Column of int values split into chunks, missing chunk means zeros.
+     */
+    private static final class IntColumn {
+
+        private int[][] chunks = new int[0][];
+
+        int get(int row) {
+            final int chunk = row >>> CHUNK_BITS;
+            return chunk < chunks.length && chunks[chunk] != null ? chunks[chunk][row & CHUNK_MASK] : 0;
+        }
+
+        void set(int row, int value) {
+            final int chunk = row >>> CHUNK_BITS;
+            if (chunk >= chunks.length) {
+                chunks = Arrays.copyOf(chunks, Math.max(chunk + 1, chunks.length * 2));
+            }
+            if (chunks[chunk] == null) {
+                chunks[chunk] = new int[CHUNK_SIZE];
+            }
+            chunks[chunk][row & CHUNK_MASK] = value;
+        }
+
+        void clear() {
+            chunks = new int[0][];
+        }
+    }
+
+    private static final class LongColumn {
+
+        private long[][] chunks = new long[0][];
+
+        long get(int row) {
+            final int chunk = row >>> CHUNK_BITS;
+            return chunk < chunks.length && chunks[chunk] != null ? chunks[chunk][row & CHUNK_MASK] : 0;
+        }
+
+        void set(int row, long value) {
+            final int chunk = row >>> CHUNK_BITS;
+            if (chunk >= chunks.length) {
+                chunks = Arrays.copyOf(chunks, Math.max(chunk + 1, chunks.length * 2));
+            }
+            if (chunks[chunk] == null) {
+                chunks[chunk] = new long[CHUNK_SIZE];
+            }
+            chunks[chunk][row & CHUNK_MASK] = value;
+        }
+
+        void clear() {
+            chunks = new long[0][];
+        }
+    }
+
+    private static final class ByteColumn {
+
+        private byte[][] chunks = new byte[0][];
+
+        byte get(int row) {
+            final int chunk = row >>> CHUNK_BITS;
+            return chunk < chunks.length && chunks[chunk] != null ? chunks[chunk][row & CHUNK_MASK] : 0;
+        }
+
+        void set(int row, byte value) {
+            final int chunk = row >>> CHUNK_BITS;
+            if (chunk >= chunks.length) {
+                chunks = Arrays.copyOf(chunks, Math.max(chunk + 1, chunks.length * 2));
+            }
+            if (chunks[chunk] == null) {
+                chunks[chunk] = new byte[CHUNK_SIZE];
+            }
+            chunks[chunk][row & CHUNK_MASK] = value;
+        }
+
+        void clear() {
+            chunks = new byte[0][];
+        }
+    }
+
+    /**
+     * Numbers of the rows of one group in the order they were put.
+     */
+    private static final class Rows {
+
+        private int[] rows = new int[2];
+        private int size;
+
+        void add(int row) {
+            if (size == rows.length) {
+                rows = Arrays.copyOf(rows, size + (size >> 1) + 1);
+            }
+            rows[size++] = row;
+        }
+    }
+
+    private final class GroupView extends AbstractList<ServiceRecord> implements RandomAccess {
+
+        private final Rows rows;
+
+        GroupView(Rows rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public ServiceRecord get(int index) {
+            if (index < 0 || index >= rows.size) {
+                throw new IndexOutOfBoundsException(String.format("Index %d is out of range [0, %d)", index, rows.size));
+            }
+            return readRecord(rows.rows[index]);
+        }
+
+        @Override
+        public int size() {
+            return rows.size;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.jsoft.medpdfmaker.repository.impl;
+
+import com.jsoft.medpdfmaker.domain.ServiceRecord;
+import com.jsoft.medpdfmaker.domain.ServiceRecordGroupKey;
+import com.jsoft.medpdfmaker.repository.EntityGroupRepository;
+
+import java.util.*;
+
+/**
+ * Repository that groups the records in a hash map, so every put takes constant time, and sorts the distinct keys
+ * only once, when they are requested. Keys are returned in the same order as by {@link ServiceRecordRepository}.
+ * Sorted keys are kept until a new key is put or the repository is cleaned.
+ */
+public class HashServiceRecordRepository implements EntityGroupRepository<ServiceRecordGroupKey, ServiceRecord> {
+
+    private final Map<ServiceRecordGroupKey, List<ServiceRecord>> repository = new HashMap<>();
+    private SortedKeySet sortedKeys;
+
+    @Override
+    public void put(ServiceRecordGroupKey key, ServiceRecord value) {
+        if (key == null || value == null) {
+            throw new IllegalArgumentException("Both key and value cannot be null");
+        }
+        List<ServiceRecord> group = repository.get(key);
+        if (group == null) {
+            group = new ArrayList<>();
+            repository.put(key, group);
+            sortedKeys = null;
+        }
+        group.add(value);
+    }
+
+    @Override
+    public List<ServiceRecord> getGroupByKey(ServiceRecordGroupKey key) {
+        return repository.get(key);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return repository.isEmpty();
+    }
+
+    @Override
+    public Set<ServiceRecordGroupKey> getKeys() {
+        if (sortedKeys == null) {
+            sortedKeys = new SortedKeySet(repository);
+        }
+        return sortedKeys;
+    }
+
+    @Override
+    public void clean() {
+        repository.clear();
+        sortedKeys = null;
+    }
+}
@@ -0,0 +1,105 @@
+package com.jsoft.medpdfmaker.repository.impl;
+
+import com.jsoft.medpdfmaker.domain.MemberIdPriceKey;
+import com.jsoft.medpdfmaker.domain.ServiceRecord;
+import com.jsoft.medpdfmaker.domain.ServiceRecordGroupKey;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * Groups the records of the input sorted by member ID without keeping the whole input. Records of the current member
+ * are grouped by their keys, when the member ID changes the groups of the member are passed to the handler in the
+ * order of the keys, the same order {@link ServiceRecordRepository} returns them in. Records of one member may
+ * come in any order of the prices, but the members must not.
+ * <p>
+ * When the member ID is less than the ID of the current member, the input is not sorted and the groups cannot
+ * be emitted in the right order any more: emitter stops, it ignores the rest of the records and reports that the
+ * input is out of order, so the caller can discard the emitted groups and group the input in the repository.
+ * Emitter is not thread safe.
+ */
+public class PresortedGroupEmitter {
+
+    /**
+     * Receiver of the finished groups.
+     */
+    @FunctionalInterface
+    public interface GroupHandler {
+
+        void onGroup(ServiceRecordGroupKey key, List<ServiceRecord> group) throws IOException;
+    }
+
+    private final GroupHandler groupHandler;
+    private final Map<ServiceRecordGroupKey, List<ServiceRecord>> memberGroups = new TreeMap<>();
+    private String memberId;
+    private boolean started;
+    private boolean outOfOrder;
+    private int emittedGroups;
+
+    public PresortedGroupEmitter(GroupHandler groupHandler) {
+        this.groupHandler = groupHandler;
+    }
+
+    /**
+     * Add the next record of the input.
+     * @throws UncheckedIOException if the handler fails, so the emitter can be used as the row callback of the parser.
+     */
+    public void accept(ServiceRecord record) {
+        if (outOfOrder) {
+            return;
+        }
+        final String recordMemberId = record.getMemberId();
+        if (!started || !Objects.equals(memberId, recordMemberId)) {
+            // null IDs go first, as in the order of the keys
+            if (started && (recordMemberId == null || (memberId != null && recordMemberId.compareTo(memberId) < 0))) {
+                outOfOrder = true;
+                memberGroups.clear();
+                return;
+            }
+            emitMember();
+            memberId = recordMemberId;
+            started = true;
+        }
+        memberGroups.computeIfAbsent(new MemberIdPriceKey(record), k -> new ArrayList<>()).add(record);
+    }
+
+    /**
+     * Emit the groups of the last member, unless the input is out of order.
+     */
+    public void finish() {
+        if (!outOfOrder) {
+            emitMember();
+            memberId = null;
+            started = false;
+        }
+    }
+
+    /**
+     * Check if the member IDs of the input were found not sorted.
+     */
+    public boolean isOutOfOrder() {
+        return outOfOrder;
+    }
+
+    public int getEmittedGroups() {
+        return emittedGroups;
+    }
+
+    private void emitMember() {
+        try {
+            for (final Map.Entry<ServiceRecordGroupKey, List<ServiceRecord>> group : memberGroups.entrySet()) {
+                groupHandler.onGroup(group.getKey(), group.getValue());
+                emittedGroups++;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Group of member " + memberId + " cannot be processed", e);
+        } finally {
+            memberGroups.clear();
+        }
+    }
+}
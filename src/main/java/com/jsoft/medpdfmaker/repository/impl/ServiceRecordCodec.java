@@ -0,0 +1,251 @@
+package com.jsoft.medpdfmaker.repository.impl;
+
+import com.jsoft.medpdfmaker.domain.ServiceRecord;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Compact binary encoding of the service records. Record starts with the bit mask of its non null attributes
+ * (boolean attributes are kept in the mask itself), then values of the non null attributes follow: strings as
+ * UTF-8 bytes with the length, dates as epoch days, times as second of day and nanos, numbers as variable length
+ * integers. Codec keeps the buffer for the strings, so it is not thread safe.
+ */
+final class ServiceRecordCodec {
+
+    private static final int REF_ID = 0;
+    private static final int L_NAME = 1;
+    private static final int F_NAME = 2;
+    private static final int MEMBER_ID = 3;
+    private static final int DAY_OF_BIRTH = 4;
+    private static final int PICKUP_DATE = 5;
+    private static final int PICKUP_TIME = 6;
+    private static final int APPT_TIME = 7;
+    private static final int ORIGIN = 8;
+    private static final int DESTINATION = 9;
+    private static final int TOTAL_PASSENGERS = 10;
+    private static final int NOTES = 11;
+    private static final int TELEPHONE = 12;
+    private static final int COORDINATOR_INITIALS = 13;
+    private static final int CITY = 14;
+    private static final int STATE = 15;
+    private static final int ZIP_CODE = 16;
+    private static final int AREA_CODE = 17;
+    private static final int PHONE = 18;
+    private static final int TRIP_PRICE = 19;
+    private static final int CANCELLED = 20;
+    private static final int WHEEL_CHAIR = 21;
+
+    /**
+     * Unscaled price values with more bits are written as bytes of BigInteger.
+     */
+    private static final int MAX_LONG_BITS = 63;
+
+    private byte[] stringBuffer = new byte[256];
+
+    void write(DataOutput out, ServiceRecord record) throws IOException {
+        int mask = 0;
+        mask |= bit(REF_ID, record.getRefId());
+        mask |= bit(L_NAME, record.getLName());
+        mask |= bit(F_NAME, record.getFName());
+        mask |= bit(MEMBER_ID, record.getMemberId());
+        mask |= bit(DAY_OF_BIRTH, record.getDayOfBirth());
+        mask |= bit(PICKUP_DATE, record.getPickupDate());
+        mask |= bit(PICKUP_TIME, record.getPickupTime());
+        mask |= bit(APPT_TIME, record.getApptTime());
+        mask |= bit(ORIGIN, record.getOrigin());
+        mask |= bit(DESTINATION, record.getDestination());
+        mask |= bit(TOTAL_PASSENGERS, record.getTotalPassengers());
+        mask |= bit(NOTES, record.getNotes());
+        mask |= bit(TELEPHONE, record.getTelephone());
+        mask |= bit(COORDINATOR_INITIALS, record.getCoordinatorInitials());
+        mask |= bit(CITY, record.getCity());
+        mask |= bit(STATE, record.getState());
+        mask |= bit(ZIP_CODE, record.getZipCode());
+        mask |= bit(AREA_CODE, record.getAreaCode());
+        mask |= bit(PHONE, record.getPhone());
+        mask |= bit(TRIP_PRICE, record.getTripPrice());
+        mask |= record.isCancelled() ? 1 << CANCELLED : 0;
+        mask |= record.isWheelChairYesNo() ? 1 << WHEEL_CHAIR : 0;
+        writeVarInt(out, mask);
+        writeString(out, record.getRefId());
+        writeString(out, record.getLName());
+        writeString(out, record.getFName());
+        writeString(out, record.getMemberId());
+        writeDate(out, record.getDayOfBirth());
+        writeDate(out, record.getPickupDate());
+        writeTime(out, record.getPickupTime());
+        writeTime(out, record.getApptTime());
+        writeString(out, record.getOrigin());
+        writeString(out, record.getDestination());
+        if (record.getTotalPassengers() != null) {
+            writeVarLong(out, zigZag(record.getTotalPassengers()));
+        }
+        writeString(out, record.getNotes());
+        writeString(out, record.getTelephone());
+        writeString(out, record.getCoordinatorInitials());
+        writeString(out, record.getCity());
+        writeString(out, record.getState());
+        writeString(out, record.getZipCode());
+        writeString(out, record.getAreaCode());
+        writeString(out, record.getPhone());
+        writeDecimal(out, record.getTripPrice());
+    }
+
+    ServiceRecord read(DataInput in) throws IOException {
+        final int mask = readVarInt(in);
+        final ServiceRecord result = new ServiceRecord();
+        result.setRefId(readString(in, mask, REF_ID));
+        result.setLName(readString(in, mask, L_NAME));
+        result.setFName(readString(in, mask, F_NAME));
+        result.setMemberId(readString(in, mask, MEMBER_ID));
+        result.setDayOfBirth(readDate(in, mask, DAY_OF_BIRTH));
+        result.setPickupDate(readDate(in, mask, PICKUP_DATE));
+        result.setPickupTime(readTime(in, mask, PICKUP_TIME));
+        result.setApptTime(readTime(in, mask, APPT_TIME));
+        result.setOrigin(readString(in, mask, ORIGIN));
+        result.setDestination(readString(in, mask, DESTINATION));
+        if (isSet(mask, TOTAL_PASSENGERS)) {
+            result.setTotalPassengers((int) unZigZag(readVarLong(in)));
+        }
+        result.setNotes(readString(in, mask, NOTES));
+        result.setTelephone(readString(in, mask, TELEPHONE));
+        result.setCoordinatorInitials(readString(in, mask, COORDINATOR_INITIALS));
+        result.setCity(readString(in, mask, CITY));
+        result.setState(readString(in, mask, STATE));
+        result.setZipCode(readString(in, mask, ZIP_CODE));
+        result.setAreaCode(readString(in, mask, AREA_CODE));
+        result.setPhone(readString(in, mask, PHONE));
+        if (isSet(mask, TRIP_PRICE)) {
+            result.setTripPrice(readDecimal(in));
+        }
+        result.setCancelled(isSet(mask, CANCELLED));
+        result.setWheelChairYesNo(isSet(mask, WHEEL_CHAIR));
+        return result;
+    }
+
+    private static int bit(int attribute, Object value) {
+        return value == null ? 0 : 1 << attribute;
+    }
+
+    private static boolean isSet(int mask, int attribute) {
+        return (mask & (1 << attribute)) != 0;
+    }
+
+    private static void writeString(DataOutput out, String value) throws IOException {
+        if (value != null) {
+            final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(out, bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private String readString(DataInput in, int mask, int attribute) throws IOException {
+        if (!isSet(mask, attribute)) {
+            return null;
+        }
+        final int length = readVarInt(in);
+        if (stringBuffer.length < length) {
+            stringBuffer = new byte[Math.max(length, stringBuffer.length * 2)];
+        }
+        in.readFully(stringBuffer, 0, length);
+        return new String(stringBuffer, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private static void writeDate(DataOutput out, LocalDate value) throws IOException {
+        if (value != null) {
+            writeVarLong(out, zigZag(value.toEpochDay()));
+        }
+    }
+
+    private static LocalDate readDate(DataInput in, int mask, int attribute) throws IOException {
+        return isSet(mask, attribute) ? LocalDate.ofEpochDay(unZigZag(readVarLong(in))) : null;
+    }
+
+    private static void writeTime(DataOutput out, LocalTime value) throws IOException {
+        if (value != null) {
+            writeVarInt(out, value.toSecondOfDay());
+            writeVarInt(out, value.getNano());
+        }
+    }
+
+    private static LocalTime readTime(DataInput in, int mask, int attribute) throws IOException {
+        if (!isSet(mask, attribute)) {
+            return null;
+        }
+        final int secondOfDay = readVarInt(in);
+        return LocalTime.ofSecondOfDay(secondOfDay).withNano(readVarInt(in));
+    }
+
+    /**
+     * Write scale of the value shifted left by one bit, low bit is set if the unscaled value is written as BigInteger.
+     */
+    private static void writeDecimal(DataOutput out, BigDecimal value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        final BigInteger unscaled = value.unscaledValue();
+        final boolean big = unscaled.bitLength() > MAX_LONG_BITS;
+        writeVarLong(out, zigZag(((long) value.scale() << 1) | (big ? 1 : 0)));
+        if (big) {
+            final byte[] bytes = unscaled.toByteArray();
+            writeVarInt(out, bytes.length);
+            out.write(bytes);
+        } else {
+            writeVarLong(out, zigZag(unscaled.longValue()));
+        }
+    }
+
+    private static BigDecimal readDecimal(DataInput in) throws IOException {
+        final long scaleAndFlag = unZigZag(readVarLong(in));
+        final int scale = (int) (scaleAndFlag >> 1);
+        if ((scaleAndFlag & 1) == 0) {
+            return BigDecimal.valueOf(unZigZag(readVarLong(in)), scale);
+        }
+        final byte[] bytes = new byte[readVarInt(in)];
+        in.readFully(bytes);
+        return new BigDecimal(new BigInteger(bytes), scale);
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarInt(DataOutput out, int value) throws IOException {
+        writeVarLong(out, value & 0xFFFFFFFFL);
+    }
+
+    private static int readVarInt(DataInput in) throws IOException {
+        return (int) readVarLong(in);
+    }
+
+    private static void writeVarLong(DataOutput out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInput in) throws IOException {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            final byte b = in.readByte();
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IOException("Malformed variable length number");
+    }
+}
@@ -0,0 +1,56 @@
+package com.jsoft.medpdfmaker.repository.impl;
+
+import com.jsoft.medpdfmaker.domain.ServiceRecordGroupKey;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Read only set of the keys of the hash map of the groups in the natural order of the keys.
+ * Keys are sorted once when the set is created, membership is checked by the map.
+ */
+final class SortedKeySet extends AbstractSet<ServiceRecordGroupKey> {
+
+    private final Object[] keys;
+    private final Map<ServiceRecordGroupKey, ?> groups;
+
+    SortedKeySet(Map<ServiceRecordGroupKey, ?> groups) {
+        this.groups = groups;
+        this.keys = groups.keySet().toArray();
+        Arrays.sort(keys);
+    }
+
+    @Override
+    public Iterator<ServiceRecordGroupKey> iterator() {
+        return new Iterator<ServiceRecordGroupKey>() {
+
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < keys.length;
+            }
+
+            @Override
+            public ServiceRecordGroupKey next() {
+                if (next >= keys.length) {
+                    throw new NoSuchElementException();
+                }
+                return (ServiceRecordGroupKey) keys[next++];
+            }
+        };
+    }
+
+    @Override
+    public int size() {
+        return keys.length;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return groups.containsKey(o);
+    }
+}
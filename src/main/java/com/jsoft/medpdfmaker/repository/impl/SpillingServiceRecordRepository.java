@@ -0,0 +1,484 @@
+package com.jsoft.medpdfmaker.repository.impl;
+
+import com.jsoft.medpdfmaker.domain.ServiceRecord;
+import com.jsoft.medpdfmaker.domain.ServiceRecordGroupKey;
+import com.jsoft.medpdfmaker.repository.EntityGroupRepository;
+import com.jsoft.medpdfmaker.util.LoggerUtil;
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Repository for the sheets that do not fit into the heap. Records are encoded by {@link ServiceRecordCodec}
+ * into the memory buffer as they are put. When the buffer reaches the memory budget, its records are sorted by
+ * the group key and written to the run file in the temporary folder, created in the given folder on the first spill.
+ * Keys are k-way merged from the runs and the buffer while they are iterated, so only one group at a time is kept
+ * in memory. Records of the group are returned in the order they were put.
+ * <p>
+ * Groups are read in the key order only: {@link #getGroupByKey} returns the group of the key the keys iterator
+ * returned last, and throws IllegalStateException for other keys. Keys of the records are made again by the key function when the records
+ * are read back, so the key passed to {@link #put} must be the key the function makes for the record.
+ * Repository is not thread safe. It must be cleaned to delete the run files.
+ */
+public class SpillingServiceRecordRepository implements EntityGroupRepository<ServiceRecordGroupKey, ServiceRecord> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SpillingServiceRecordRepository.class);
+
+    /**
+     * Estimated heap size of one buffered entry besides the encoded record: the entry itself, the key with its
+     * member ID and price, and the reference in the entries list.
+     */
+    private static final int ENTRY_OVERHEAD = 160;
+    private static final int MAX_BUFFER_SIZE = Integer.MAX_VALUE - 8;
+    private static final int IO_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Max number of the runs that are merged at the same time. When there are more runs, they are merged
+     * into one run first, so the number of the open files stays limited.
+     */
+    private static final int MAX_MERGED_RUNS = 64;
+
+    @SuppressWarnings("unchecked")
+    private static final Comparator<ServiceRecordGroupKey> KEY_ORDER = (left, right) -> ((Comparable) left).compareTo(right);
+
+    private final Path parentFolder;
+    private final long memoryBudget;
+    private final Function<ServiceRecord, ServiceRecordGroupKey> keyFunction;
+    private final ServiceRecordCodec codec = new ServiceRecordCodec();
+    private final Buffer buffer = new Buffer();
+    private final DataOutputStream bufferOut = new DataOutputStream(buffer);
+    private final List<Entry> entries = new ArrayList<>();
+    private boolean entriesSorted = true;
+    private final List<Path> runs = new ArrayList<>();
+    private final List<Source> openSources = new ArrayList<>();
+    private Path spillFolder;
+    private int runsCreated;
+    private ServiceRecordGroupKey currentKey;
+    private List<ServiceRecord> currentGroup;
+
+    /**
+     * Number of the keys counted by the last complete iteration, or -1 if records were put after it.
+     */
+    private int keysCount = -1;
+
+    /**
+     * @param parentFolder folder where the temporary folder of the runs is created.
+     * @param memoryBudget max heap size of the buffered records in bytes, estimated.
+     * @param keyFunction makes the group key of the record.
+     */
+    public SpillingServiceRecordRepository(Path parentFolder, long memoryBudget,
+                                           Function<ServiceRecord, ServiceRecordGroupKey> keyFunction) {
+        Validate.notNull(parentFolder, "parentFolder must not be null");
+        Validate.isTrue(memoryBudget > 0, "memoryBudget must be greater than zero");
+        Validate.notNull(keyFunction, "keyFunction must not be null");
+        this.parentFolder = parentFolder;
+        this.memoryBudget = memoryBudget;
+        this.keyFunction = keyFunction;
+    }
+
+    @Override
+    public void put(ServiceRecordGroupKey key, ServiceRecord value) {
+        if (key == null || value == null) {
+            throw new IllegalArgumentException("Both key and value cannot be null");
+        }
+        try {
+            final int offset = buffer.size();
+            codec.write(bufferOut, value);
+            entries.add(new Entry(key, offset, buffer.size() - offset));
+            entriesSorted = false;
+            keysCount = -1;
+            if (buffer.size() + (long) entries.size() * ENTRY_OVERHEAD >= memoryBudget
+                    || buffer.size() >= MAX_BUFFER_SIZE / 2) {
+                spill();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Records cannot be written to the run file", e);
+        }
+    }
+
+    @Override
+    public List<ServiceRecord> getGroupByKey(ServiceRecordGroupKey key) {
+        if (currentKey == null || !currentKey.equals(key)) {
+            throw new IllegalStateException("Group of " + key + " is not the group the keys iterator returned last");
+        }
+        return currentGroup;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return entries.isEmpty() && runs.isEmpty();
+    }
+
+    /**
+     * Get sorted keys of the groups. Every iteration merges the runs again. Size of the set is counted
+     * by the iteration too, unless a complete iteration has counted it after the last record was put.
+     */
+    @Override
+    public Set<ServiceRecordGroupKey> getKeys() {
+        return new AbstractSet<ServiceRecordGroupKey>() {
+            @Override
+            public Iterator<ServiceRecordGroupKey> iterator() {
+                return new GroupsIterator(openSources(runs, true));
+            }
+
+            @Override
+            public int size() {
+                if (keysCount >= 0) {
+                    return keysCount;
+                }
+                int result = 0;
+                for (final Iterator<ServiceRecordGroupKey> keys = iterator(); keys.hasNext(); keys.next()) {
+                    result++;
+                }
+                return result;
+            }
+        };
+    }
+
+    @Override
+    public void clean() {
+        closeSources(openSources);
+        currentKey = null;
+        currentGroup = null;
+        keysCount = -1;
+        entries.clear();
+        entriesSorted = true;
+        buffer.release();
+        try {
+            for (final Path run : runs) {
+                Files.deleteIfExists(run);
+            }
+            runs.clear();
+            if (spillFolder != null) {
+                Files.deleteIfExists(spillFolder);
+                spillFolder = null;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Run files cannot be deleted", e);
+        }
+    }
+
+    /**
+     * Write the buffered records to the new run file, sorted by the key.
+     */
+    private void spill() throws IOException {
+        sortEntries();
+        final Path run = newRunFile();
+        try (final BufferedOutputStream out = new BufferedOutputStream(Files.newOutputStream(run), IO_BUFFER_SIZE)) {
+            for (final Entry entry : entries) {
+                out.write(buffer.bytes(), entry.offset, entry.length);
+            }
+        }
+        runs.add(run);
+        entries.clear();
+        buffer.reset();
+        if (runs.size() >= MAX_MERGED_RUNS) {
+            mergeRuns();
+        }
+    }
+
+    /**
+     * Merge all the runs into one, so their records stay before the records of the next runs.
+     */
+    private void mergeRuns() throws IOException {
+        final Path run = newRunFile();
+        final List<Source> sources = openSources(runs, false);
+        try (final DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(run), IO_BUFFER_SIZE))) {
+            final PriorityQueue<Source> queue = makeQueue(sources);
+            while (!queue.isEmpty()) {
+                final Source source = queue.poll();
+                codec.write(out, source.record);
+                if (source.advance()) {
+                    queue.add(source);
+                }
+            }
+        } finally {
+            closeSources(sources);
+        }
+        for (final Path merged : runs) {
+            Files.delete(merged);
+        }
+        runs.clear();
+        runs.add(run);
+    }
+
+    private Path newRunFile() throws IOException {
+        if (spillFolder == null) {
+            spillFolder = Files.createTempDirectory(parentFolder, "records-");
+            LoggerUtil.info(LOG, String.format("Records do not fit into %d bytes, they are written to %s",
+                    memoryBudget, spillFolder));
+        }
+        runsCreated++;
+        return spillFolder.resolve(String.format("run-%05d.bin", runsCreated));
+    }
+
+    private void sortEntries() {
+        if (!entriesSorted) {
+            // sort is stable, so the records of one group keep the order they were put in
+            entries.sort((left, right) -> KEY_ORDER.compare(left.key, right.key));
+            entriesSorted = true;
+        }
+    }
+
+    /**
+     * Open readers of the runs, in the order of the runs, and optionally the reader of the buffered records after them.
+     */
+    private List<Source> openSources(List<Path> runFiles, boolean withBuffer) {
+        final List<Source> result = new ArrayList<>();
+        try {
+            for (final Path run : runFiles) {
+                result.add(new RunSource(result.size(), run));
+            }
+            if (withBuffer && !entries.isEmpty()) {
+                sortEntries();
+                result.add(new BufferSource(result.size()));
+            }
+        } catch (IOException | RuntimeException e) {
+            closeSources(result);
+            if (e instanceof IOException) {
+                throw new UncheckedIOException("Run file cannot be opened", (IOException) e);
+            }
+            throw (RuntimeException) e;
+        }
+        return result;
+    }
+
+    private PriorityQueue<Source> makeQueue(List<Source> sources) throws IOException {
+        final PriorityQueue<Source> result = new PriorityQueue<>(Math.max(1, sources.size()),
+                (left, right) -> {
+                    final int keyOrder = KEY_ORDER.compare(left.key, right.key);
+                    // records of the earlier runs go first within the group
+                    return keyOrder != 0 ? keyOrder : Integer.compare(left.number, right.number);
+                });
+        for (final Source source : sources) {
+            if (source.advance()) {
+                result.add(source);
+            }
+        }
+        return result;
+    }
+
+    private void closeSources(List<Source> sources) {
+        for (final Source source : sources) {
+            try {
+                source.close();
+            } catch (IOException e) {
+                LoggerUtil.warn(LOG, "Run file cannot be closed: " + e.getMessage());
+            }
+        }
+        sources.clear();
+    }
+
+    /**
+     * Iterates the keys of the merged runs and keeps the records of the last returned key.
+     */
+    private final class GroupsIterator implements Iterator<ServiceRecordGroupKey> {
+
+        private final List<Source> sources;
+        private final PriorityQueue<Source> queue;
+        private int returnedKeys;
+
+        GroupsIterator(List<Source> sources) {
+            this.sources = sources;
+            openSources.addAll(sources);
+            try {
+                queue = makeQueue(sources);
+            } catch (IOException e) {
+                closeSources(sources);
+                throw new UncheckedIOException("Run file cannot be read", e);
+            }
+            closeIfDone();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !queue.isEmpty();
+        }
+
+        @Override
+        public ServiceRecordGroupKey next() {
+            if (queue.isEmpty()) {
+                throw new NoSuchElementException();
+            }
+            final ServiceRecordGroupKey key = queue.peek().key;
+            final List<ServiceRecord> group = new ArrayList<>();
+            try {
+                while (!queue.isEmpty() && KEY_ORDER.compare(queue.peek().key, key) == 0) {
+                    final Source source = queue.poll();
+                    group.add(source.record);
+                    if (source.advance()) {
+                        queue.add(source);
+                    }
+                }
+            } catch (IOException e) {
+                closeSources(sources);
+                queue.clear();
+                throw new UncheckedIOException("Run file cannot be read", e);
+            }
+            returnedKeys++;
+            closeIfDone();
+            currentKey = key;
+            currentGroup = group;
+            return key;
+        }
+
+        private void closeIfDone() {
+            if (queue.isEmpty()) {
+                openSources.removeAll(sources);
+                closeSources(sources);
+                keysCount = returnedKeys;
+            }
+        }
+    }
+
+    /**
+     * Sorted sequence of the records with their keys.
+     */
+    private abstract class Source implements Closeable {
+
+        final int number;
+        ServiceRecordGroupKey key;
+        ServiceRecord record;
+
+        Source(int number) {
+            this.number = number;
+        }
+
+        /**
+         * Read the next record.
+         * @return false if there are no more records.
+         */
+        abstract boolean advance() throws IOException;
+
+        void setRecord(ServiceRecord record) {
+            this.record = record;
+            this.key = keyFunction.apply(record);
+        }
+    }
+
+    private final class RunSource extends Source {
+
+        private final DataInputStream in;
+        private final ServiceRecordCodec runCodec = new ServiceRecordCodec();
+
+        RunSource(int number, Path run) throws IOException {
+            super(number);
+            in = new DataInputStream(new BufferedInputStream(Files.newInputStream(run), IO_BUFFER_SIZE));
+        }
+
+        @Override
+        boolean advance() throws IOException {
+            in.mark(1);
+            if (in.read() < 0) {
+                return false;
+            }
+            in.reset();
+            setRecord(runCodec.read(in));
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    private final class BufferSource extends Source {
+
+        private final Buffer.Input in = buffer.newInput();
+        private final DataInputStream dataIn = new DataInputStream(in);
+        private final ServiceRecordCodec bufferCodec = new ServiceRecordCodec();
+        private int next;
+
+        BufferSource(int number) {
+            super(number);
+        }
+
+        @Override
+        boolean advance() throws IOException {
+            if (next >= entries.size()) {
+                return false;
+            }
+            in.seek(entries.get(next++).offset);
+            setRecord(bufferCodec.read(dataIn));
+            return true;
+        }
+
+        @Override
+        public void close() {
+            // nothing to close, buffer stays in memory
+        }
+    }
+
+    private static final class Entry {
+
+        private final ServiceRecordGroupKey key;
+        private final int offset;
+        private final int length;
+
+        Entry(ServiceRecordGroupKey key, int offset, int length) {
+            this.key = key;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    /**
+     * Memory buffer of the encoded records that gives access to its bytes.
+     */
+    private static final class Buffer extends ByteArrayOutputStream {
+
+        Buffer() {
+            super(IO_BUFFER_SIZE);
+        }
+
+        byte[] bytes() {
+            return buf;
+        }
+
+        Input newInput() {
+            return new Input(buf, count);
+        }
+
+        /**
+         * Reset the buffer and free its memory.
+         */
+        void release() {
+            reset();
+            buf = new byte[IO_BUFFER_SIZE];
+        }
+
+        static final class Input extends ByteArrayInputStream {
+
+            Input(byte[] bytes, int length) {
+                super(bytes, 0, length);
+            }
+
+            void seek(int position) {
+                pos = position;
+            }
+        }
+    }
+}
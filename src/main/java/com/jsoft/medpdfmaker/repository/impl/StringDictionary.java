@@ -0,0 +1,113 @@
+package com.jsoft.medpdfmaker.repository.impl;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Dictionary that gives every distinct string the int code, codes go from 0 in the order strings are added.
+ * Strings are kept as UTF-8 bytes in one array, the hash table of the codes is open addressed,
+ * so a distinct string costs its bytes and a few ints and no objects at all. Strings are made again when they
+ * are requested. Dictionary is not thread safe.
+ */
+final class StringDictionary {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private byte[] bytes = new byte[INITIAL_CAPACITY * 8];
+    private int bytesSize;
+
+    /**
+     * Offsets of the strings in the bytes array, offset of the code i + 1 is the end of the string i.
+     */
+    private int[] offsets = new int[INITIAL_CAPACITY + 1];
+    private int[] hashes = new int[INITIAL_CAPACITY];
+    private int count;
+
+    /**
+     * Codes + 1 by the hash of the string, 0 marks the free slot. Table is at most half full.
+     */
+    private int[] table = new int[INITIAL_CAPACITY * 2];
+
+    /**
+     * Get code of the string, the string is added if it is not in the dictionary yet.
+     */
+    int encode(String value) {
+        final byte[] valueBytes = value.getBytes(StandardCharsets.UTF_8);
+        final int hash = hash(valueBytes);
+        final int mask = table.length - 1;
+        int slot = hash & mask;
+        while (table[slot] != 0) {
+            final int code = table[slot] - 1;
+            if (hashes[code] == hash && bytesEqual(code, valueBytes)) {
+                return code;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return add(valueBytes, hash, slot);
+    }
+
+    String decode(int code) {
+        if (code < 0 || code >= count) {
+            throw new IndexOutOfBoundsException(String.format("String code %d is out of range [0, %d)", code, count));
+        }
+        return new String(bytes, offsets[code], offsets[code + 1] - offsets[code], StandardCharsets.UTF_8);
+    }
+
+    int size() {
+        return count;
+    }
+
+    private int add(byte[] valueBytes, int hash, int slot) {
+        if (count + 1 == offsets.length) {
+            offsets = Arrays.copyOf(offsets, count * 2 + 1);
+            hashes = Arrays.copyOf(hashes, count * 2);
+        }
+        if (bytes.length - bytesSize < valueBytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, bytesSize + valueBytes.length));
+        }
+        System.arraycopy(valueBytes, 0, bytes, bytesSize, valueBytes.length);
+        bytesSize += valueBytes.length;
+        final int code = count++;
+        hashes[code] = hash;
+        offsets[count] = bytesSize;
+        table[slot] = code + 1;
+        if (count * 2 > table.length) {
+            rehash();
+        }
+        return code;
+    }
+
+    private void rehash() {
+        table = new int[table.length * 2];
+        final int mask = table.length - 1;
+        for (int code = 0; code < count; code++) {
+            int slot = hashes[code] & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = code + 1;
+        }
+    }
+
+    private boolean bytesEqual(int code, byte[] valueBytes) {
+        final int offset = offsets[code];
+        if (offsets[code + 1] - offset != valueBytes.length) {
+            return false;
+        }
+        for (int i = 0; i < valueBytes.length; i++) {
+            if (bytes[offset + i] != valueBytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int hash(byte[] valueBytes) {
+        int result = 1;
+        for (final byte b : valueBytes) {
+            result = 31 * result + b;
+        }
+        // spread the high bits, as the table index is taken from the low ones
+        return result ^ (result >>> 16);
+    }
+}
@@ -0,0 +1,196 @@
+package com.jsoft.medpdfmaker.repository.impl;
+
+import com.jsoft.medpdfmaker.domain.ServiceRecord;
+import com.jsoft.medpdfmaker.domain.ServiceRecordGroupKey;
+import com.jsoft.medpdfmaker.repository.EntityGroupRepository;
+import org.apache.commons.lang3.Validate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread safe repository for the records that are put by several threads at the same time. Groups are spread over
+ * the stripes by the hash of the key, every stripe is a hash map guarded by its own lock, so threads that put
+ * the records of different stripes do not wait for each other.
+ * <p>
+ * The order the threads put the records in is not defined, so every record is put with the index of its row and
+ * the records of the group are sorted by the row indexes when the group is read: the group is read in the order
+ * of the rows, as from the other repositories, whatever threads put it. Records put without the row index get
+ * the next number of the repository's put sequence, so the records put by one thread keep the order of the puts;
+ * the two ways of the put must not be mixed in one repository. Keys are sorted once, as in
+ * {@link HashServiceRecordRepository}. Groups must not be changed by the readers.
+ */
+public class StripedServiceRecordRepository implements EntityGroupRepository<ServiceRecordGroupKey, ServiceRecord> {
+
+    private static final Comparator<Entry> ROW_ORDER = Comparator.comparingLong(entry -> entry.rowIdx);
+
+    private final Stripe[] stripes;
+    private final AtomicLong putSequence = new AtomicLong();
+    /**
+     * Incremented when the new group is added, so the sorted keys made before are not used.
+     */
+    private final AtomicInteger keysVersion = new AtomicInteger();
+    private volatile SortedKeys sortedKeys;
+
+    /**
+     * Create repository with the stripes for the available processors.
+     */
+    public StripedServiceRecordRepository() {
+        this(4 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param stripesCount min number of the stripes, it is rounded up to the power of two.
+     */
+    public StripedServiceRecordRepository(int stripesCount) {
+        Validate.isTrue(stripesCount > 0, "stripesCount must be greater than zero");
+        final int size = Integer.highestOneBit(stripesCount - 1) << 1;
+        stripes = new Stripe[Math.max(1, size)];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    @Override
+    public void put(ServiceRecordGroupKey key, ServiceRecord value) {
+        put(key, value, putSequence.getAndIncrement());
+    }
+
+    /**
+     * Put the record of the row.
+     * @param rowIdx index of the row of the record, records of the group are read in the order of the indexes.
+     */
+    public void put(ServiceRecordGroupKey key, ServiceRecord value, long rowIdx) {
+        if (key == null || value == null) {
+            throw new IllegalArgumentException("Both key and value cannot be null");
+        }
+        final Stripe stripe = stripeOf(key);
+        synchronized (stripe) {
+            Group group = stripe.groups.get(key);
+            if (group == null) {
+                group = new Group();
+                stripe.groups.put(key, group);
+                keysVersion.incrementAndGet();
+            }
+            if (!group.entries.isEmpty() && group.entries.get(group.entries.size() - 1).rowIdx > rowIdx) {
+                group.sorted = false;
+            }
+            group.entries.add(new Entry(rowIdx, value));
+        }
+    }
+
+    @Override
+    public List<ServiceRecord> getGroupByKey(ServiceRecordGroupKey key) {
+        final Stripe stripe = stripeOf(key);
+        synchronized (stripe) {
+            final Group group = stripe.groups.get(key);
+            if (group == null) {
+                return null;
+            }
+            if (!group.sorted) {
+                group.entries.sort(ROW_ORDER);
+                group.sorted = true;
+            }
+            // copy, as the group can get more records while the reader works with it
+            final List<ServiceRecord> result = new ArrayList<>(group.entries.size());
+            for (final Entry entry : group.entries) {
+                result.add(entry.record);
+            }
+            return Collections.unmodifiableList(result);
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        for (final Stripe stripe : stripes) {
+            synchronized (stripe) {
+                if (!stripe.groups.isEmpty()) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public Set<ServiceRecordGroupKey> getKeys() {
+        final SortedKeys cached = sortedKeys;
+        final int version = keysVersion.get();
+        if (cached != null && cached.version == version) {
+            return cached.keys;
+        }
+        final List<ServiceRecordGroupKey> keys = new ArrayList<>();
+        for (final Stripe stripe : stripes) {
+            synchronized (stripe) {
+                keys.addAll(stripe.groups.keySet());
+            }
+        }
+        final Object[] keysArray = keys.toArray();
+        Arrays.sort(keysArray);
+        final Set<ServiceRecordGroupKey> sorted = new LinkedHashSet<>(keysArray.length * 4 / 3 + 1);
+        for (final Object key : keysArray) {
+            sorted.add((ServiceRecordGroupKey) key);
+        }
+        final Set<ServiceRecordGroupKey> result = Collections.unmodifiableSet(sorted);
+        // groups added while the keys were collected change the version, so the set is made again next time
+        sortedKeys = new SortedKeys(version, result);
+        return result;
+    }
+
+    @Override
+    public void clean() {
+        for (final Stripe stripe : stripes) {
+            synchronized (stripe) {
+                stripe.groups.clear();
+            }
+        }
+        keysVersion.incrementAndGet();
+    }
+
+    private Stripe stripeOf(ServiceRecordGroupKey key) {
+        final int hash = key.hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & (stripes.length - 1)];
+    }
+
+    private static final class Stripe {
+
+        private final Map<ServiceRecordGroupKey, Group> groups = new HashMap<>();
+    }
+
+    private static final class SortedKeys {
+
+        private final int version;
+        private final Set<ServiceRecordGroupKey> keys;
+
+        SortedKeys(int version, Set<ServiceRecordGroupKey> keys) {
+            this.version = version;
+            this.keys = keys;
+        }
+    }
+
+    private static final class Group {
+
+        private final List<Entry> entries = new ArrayList<>();
+        private boolean sorted = true;
+    }
+
+    private static final class Entry {
+
+        private final long rowIdx;
+        private final ServiceRecord record;
+
+        Entry(long rowIdx, ServiceRecord record) {
+            this.rowIdx = rowIdx;
+            this.record = record;
+        }
+    }
+}
@@ -24,6 +24,18 @@ public final class LoggerUtil {
         }
     }
 
+    /**
+     * Add error to the log together with the exception that caused it.
+     * @param log Logger instance to use.
+     * @param message actual log message.
+     * @param e exception that caused the error.
+     */
+    public static void error(Logger log, String message, Throwable e) {
+        if (log.isErrorEnabled()) {
+            log.error(message, e);
+        }
+    }
+
     public static void info(Logger log, String message) {
         if (log.isInfoEnabled()) {
             log.info(message);
@@ -49,6 +61,27 @@ public final class LoggerUtil {
         }
     }
 
+    /**
+     * Print data parsing detailed error for the cell that is not attached to a POI sheet (e.g. cells created by
+     * streaming readers).
+     * @param log Logger instance to use
+     * @param description short description of the problem.
+     * @param sheetName name of the sheet that contains the cell.
+     * @param cell Cell reference that contains data that cannot be parsed. If this value is null, function just ignores it.
+     */
+    public static void logCellParsingError(Logger log, String description, String sheetName, Cell cell) {
+        if (log.isErrorEnabled()) {
+            final String message;
+            if (cell == null) {
+                message = String.format("Data parsing error: %s", description);
+            } else {
+                message = String.format("Data parsing error on sheet: [%s], row: [%d], cell: [%d]: %s",
+                        sheetName, cell.getRowIndex()+1, cell.getColumnIndex()+1, description);
+            }
+            log.error(message);
+        }
+    }
+
     public static void logRowParsingError(Logger log, String description, Row row) {
         if (log.isErrorEnabled()) {
             final String message;
@@ -61,4 +94,10 @@ public final class LoggerUtil {
             log.error(message);
         }
     }
+
+    public static void logRowParsingError(Logger log, String description, String sheetName, int rowNum) {
+        if (log.isErrorEnabled()) {
+            log.error(String.format("Data parsing error on sheet: [%s], row: [%d]: %s", sheetName, rowNum, description));
+        }
+    }
 }
@@ -6,7 +6,11 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 
+import java.io.IOException;
 import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -40,6 +44,33 @@ class AppParametersParserTest {
         assertThrows(ParametersParsingException.class, () -> appParametersParser.parse("/some/junk/file"));
     }
 
+    @Test
+    void parseServiceDates() throws IOException {
+        final Path inputFile = Files.createTempFile("parameters-parser-test", ".xlsx");
+        try {
+            final String fileName = inputFile.toString();
+            AppParameters parameters = appParametersParser.parse(fileName);
+            assertFalse(parameters.isServiceDatesFilterEnabled());
+
+            parameters = appParametersParser.parse("-d", "01/15/2013-2/1/2013", fileName);
+            assertTrue(parameters.isServiceDatesFilterEnabled());
+            assertEquals(LocalDate.of(2013, 1, 15), parameters.getServiceDateFrom());
+            assertEquals(LocalDate.of(2013, 2, 1), parameters.getServiceDateTo());
+
+            parameters = appParametersParser.parse("--service-dates", "01/15/2013", fileName);
+            assertEquals(LocalDate.of(2013, 1, 15), parameters.getServiceDateFrom());
+            assertEquals(LocalDate.of(2013, 1, 15), parameters.getServiceDateTo());
+
+            for (final String invalidDates : new String[]{"", "01/15/2013-", "02/30/2013", "01/16/2013-01/15/2013",
+                    "01/15/2013-01/16/2013-01/17/2013", "2013-01-15"}) {
+                assertThrows(ParametersParsingException.class, () -> appParametersParser.parse("-d", invalidDates, fileName),
+                        invalidDates);
+            }
+        } finally {
+            Files.delete(inputFile);
+        }
+    }
+
     @Test
     void printHelp() {
         appParametersParser.printHelp();
@@ -50,7 +81,8 @@ class AppParametersParserTest {
         final String[] expectedElements = new String[]{
                 AppParametersParser.HELP_OPTION_FULL,
                 AppParametersParser.OUTPUT_FOLDER_OPTION_FULL,
-                AppParametersParser.INPUT_FILE_SHEETS_TO_PROCESS_FULL
+                AppParametersParser.INPUT_FILE_SHEETS_TO_PROCESS_FULL,
+                AppParametersParser.SERVICE_DATES_OPTION_FULL
         };
         for (String expectedElement : expectedElements) {
             assertTrue(printed.contains("--" + expectedElement));
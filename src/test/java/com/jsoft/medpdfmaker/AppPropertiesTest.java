@@ -1,18 +1,43 @@
 package com.jsoft.medpdfmaker;
 
+import com.jsoft.medpdfmaker.parser.CsvDialect;
+import com.jsoft.medpdfmaker.repository.RepositoryType;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
 import org.springframework.core.env.Environment;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 class AppPropertiesTest {
 
+    private static final Map<String, Function<AppProperties, Object>> GETTERS = new HashMap<>();
+
+    static {
+        GETTERS.put(AppProperties.SHEET_PROCESSING_THREADS, AppProperties::getSheetProcessingThreads);
+        GETTERS.put(AppProperties.ROW_CONVERSION_THREADS, AppProperties::getRowConversionThreads);
+        GETTERS.put(AppProperties.VALUE_CACHE_SIZE, AppProperties::getValueCacheSize);
+        GETTERS.put(AppProperties.DISK_SHARED_STRINGS_THRESHOLD, AppProperties::getDiskSharedStringsThreshold);
+        GETTERS.put(AppProperties.SPILL_MEMORY_BUDGET, AppProperties::getSpillMemoryBudget);
+        GETTERS.put(AppProperties.PAGE_RENDERING_THREADS, AppProperties::getPageRenderingThreads);
+        GETTERS.put(AppProperties.PIPELINE_QUEUE_CAPACITY, AppProperties::getPipelineQueueCapacity);
+        GETTERS.put(AppProperties.EXCLUDE_CANCELLED_RIDES, AppProperties::isExcludeCancelledRides);
+        GETTERS.put(AppProperties.PRESORTED_INPUT, AppProperties::isPresortedInput);
+    }
+
     @Test
     void createValidation() {
         assertThrows(IllegalArgumentException.class, () -> new AppProperties(null));
@@ -56,6 +81,100 @@ class AppPropertiesTest {
         assertEquals(new BigDecimal("57.10"), appProperties.getCharges());
     }
 
+    /**
+     * @param expected expected value of the property, null if the property value must be rejected.
+     */
+    @ParameterizedTest
+    @CsvSource({
+            "SheetProcessingThreads, , 1",
+            "SheetProcessingThreads, 0, 1",
+            "SheetProcessingThreads, 4, 4",
+            "SheetProcessingThreads, not a number, ",
+            "RowConversionThreads, , 1",
+            "RowConversionThreads, ' 8 ', 8",
+            "RowConversionThreads, not a number, ",
+            "ValueCacheSize, , 0",
+            "ValueCacheSize, -1, 0",
+            "ValueCacheSize, 1024, 1024",
+            "ValueCacheSize, not a number, ",
+            "DiskSharedStringsThreshold, , 0",
+            "DiskSharedStringsThreshold, ' 32 ', 32",
+            "DiskSharedStringsThreshold, 32MB, ",
+            "SpillMemoryBudget, , 64",
+            "SpillMemoryBudget, 0, 64",
+            "SpillMemoryBudget, ' 16 ', 16",
+            "SpillMemoryBudget, 16MB, ",
+            "PageRenderingThreads, , 0",
+            "PageRenderingThreads, ' 3 ', 3",
+            "PageRenderingThreads, -1, 0",
+            "PageRenderingThreads, many, ",
+            "PipelineQueueCapacity, , 64",
+            "PipelineQueueCapacity, 0, 64",
+            "PipelineQueueCapacity, 8, 8",
+            "ExcludeCancelledRides, , true",
+            "ExcludeCancelledRides, ' FALSE ', false",
+            "ExcludeCancelledRides, true, true",
+            "ExcludeCancelledRides, no, ",
+            "PresortedInput, , false",
+            "PresortedInput, ' TRUE ', true",
+            "PresortedInput, false, false",
+            "PresortedInput, yes, "
+    })
+    void getIntAndBooleanProperties(String name, String value, String expected) {
+        final Environment environmentMock = mock(Environment.class);
+        when(environmentMock.getProperty(AppProperties.CHARGES_PROP)).thenReturn("50.0");
+        when(environmentMock.getProperty(name)).thenReturn(value);
+        if (expected == null) {
+            assertThrows(IllegalArgumentException.class, () -> new AppProperties(environmentMock));
+        } else {
+            assertEquals(expected, String.valueOf(GETTERS.get(name).apply(new AppProperties(environmentMock))));
+        }
+    }
+
+    @Test
+    void isValueCacheAndPipelineEnabled() {
+        final Environment environmentMock = mock(Environment.class);
+        when(environmentMock.getProperty(AppProperties.CHARGES_PROP)).thenReturn("50.0");
+        when(environmentMock.getProperty(AppProperties.VALUE_CACHE_SIZE)).thenReturn(null, "1024");
+        when(environmentMock.getProperty(AppProperties.PAGE_RENDERING_THREADS)).thenReturn(null, "3");
+        AppProperties appProperties = new AppProperties(environmentMock);
+        assertFalse(appProperties.isValueCacheEnabled());
+        assertFalse(appProperties.isPipelineEnabled());
+        appProperties = new AppProperties(environmentMock);
+        assertTrue(appProperties.isValueCacheEnabled());
+        assertTrue(appProperties.isPipelineEnabled());
+    }
+
+    @Test
+    void getCsvSettings() {
+        final Environment environmentMock = mock(Environment.class);
+        when(environmentMock.getProperty(AppProperties.CHARGES_PROP)).thenReturn("50.0");
+        when(environmentMock.getProperty(AppProperties.CSV_DIALECT)).thenReturn(null, " rfc_4180 ", "TSV");
+        when(environmentMock.getProperty(AppProperties.CSV_CHARSET)).thenReturn(null, "windows-1252", "no-such-charset");
+        AppProperties appProperties = new AppProperties(environmentMock);
+        assertEquals(CsvDialect.EXCEL, appProperties.getCsvDialect());
+        assertEquals(StandardCharsets.UTF_8, appProperties.getCsvCharset());
+        appProperties = new AppProperties(environmentMock);
+        assertEquals(CsvDialect.RFC_4180, appProperties.getCsvDialect());
+        assertEquals(Charset.forName("windows-1252"), appProperties.getCsvCharset());
+        assertThrows(IllegalArgumentException.class, () -> new AppProperties(environmentMock));
+        when(environmentMock.getProperty(AppProperties.CSV_DIALECT)).thenReturn("EXCEL");
+        assertThrows(IllegalArgumentException.class, () -> new AppProperties(environmentMock));
+    }
+
+    @Test
+    void getRecordRepository() {
+        final Environment environmentMock = mock(Environment.class);
+        when(environmentMock.getProperty(AppProperties.CHARGES_PROP)).thenReturn("50.0");
+        when(environmentMock.getProperty(AppProperties.RECORD_REPOSITORY)).thenReturn(null, " tree ", "Hash", "spill", "Columnar", "LIST");
+        assertEquals(RepositoryType.TREE, new AppProperties(environmentMock).getRecordRepository());
+        assertEquals(RepositoryType.TREE, new AppProperties(environmentMock).getRecordRepository());
+        assertEquals(RepositoryType.HASH, new AppProperties(environmentMock).getRecordRepository());
+        assertEquals(RepositoryType.SPILL, new AppProperties(environmentMock).getRecordRepository());
+        assertEquals(RepositoryType.COLUMNAR, new AppProperties(environmentMock).getRecordRepository());
+        assertThrows(IllegalArgumentException.class, () -> new AppProperties(environmentMock));
+    }
+
     @Test
     void name() {
         System.out.println(new BigDecimal("12.333").setScale(2, RoundingMode.UP));
@@ -0,0 +1,85 @@
+package com.jsoft.medpdfmaker.domain;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ServiceRecordBinderTest {
+
+    private ServiceRecordBinder binder;
+
+    @BeforeEach
+    void setUp() {
+        binder = new ServiceRecordBinder();
+    }
+
+    @Test
+    void attributeSlot() {
+        assertEquals(22, binder.attributesCount());
+        for (int slot = 0; slot < binder.attributesCount(); slot++) {
+            assertEquals(slot, binder.attributeSlot(binder.attributeName(slot)));
+        }
+        assertEquals(EntityBinder.UNKNOWN_SLOT, binder.attributeSlot("UNKNOWN"));
+        assertEquals(FieldType.DATE, binder.attributeType(binder.attributeSlot("DATE OF SERVICE")));
+        assertEquals(FieldType.STRING, binder.attributeType(binder.attributeSlot("NOTES")));
+        assertTrue(binder.attributeIsRequired(binder.attributeSlot("MEMBERNUMBER")));
+        assertFalse(binder.attributeIsRequired(binder.attributeSlot("NOTES")));
+    }
+
+    @Test
+    void setAttributeValue() {
+        final ServiceRecord record = binder.newEntity();
+        binder.setAttributeValue(record, binder.attributeSlot("TRACKINGNUMBER"), "123");
+        binder.setAttributeValue(record, binder.attributeSlot("RIDE CANCELLATION"), Boolean.TRUE);
+        binder.setAttributeValue(record, binder.attributeSlot("DATE OF SERVICE"), LocalDate.of(2020, 1, 3));
+        binder.setAttributeValue(record, binder.attributeSlot("APPOINTMENT PICK-UP TIME"), LocalTime.of(10, 30));
+        binder.setAttributeValue(record, binder.attributeSlot("NUMBER OF PASSENGERS"), 2);
+        binder.setAttributeValue(record, binder.attributeSlot("TRIP_PRICE"), new BigDecimal("35.01"));
+        assertEquals("123", record.getRefId());
+        assertTrue(record.isCancelled());
+        assertEquals(LocalDate.of(2020, 1, 3), record.getPickupDate());
+        assertEquals(LocalTime.of(10, 30), record.getPickupTime());
+        assertEquals(Integer.valueOf(2), record.getTotalPassengers());
+        assertEquals(new BigDecimal("35.01"), record.getTripPrice());
+    }
+
+    @Test
+    void setAttributeValueWithWrongType() {
+        final ServiceRecord record = binder.newEntity();
+        final int slot = binder.attributeSlot("DATE OF SERVICE");
+        assertThrows(ClassCastException.class, () -> binder.setAttributeValue(record, slot, "2020-01-03"));
+    }
+
+    @Test
+    void attributesAreEmpty() {
+        final ServiceRecord record = binder.newEntity();
+        assertTrue(binder.keyAttributesAreEmpty(record));
+        assertTrue(binder.allAttributesAreEmpty(record));
+        record.setNotes("note");
+        assertTrue(binder.keyAttributesAreEmpty(record));
+        assertFalse(binder.allAttributesAreEmpty(record));
+        record.setLName(" ");
+        assertTrue(binder.keyAttributesAreEmpty(record));
+        record.setLName("lname");
+        assertFalse(binder.keyAttributesAreEmpty(record));
+    }
+
+    @Test
+    void pickupTimeIsKeyAttribute() {
+        final ServiceRecord record = binder.newEntity();
+        record.setPickupTime(LocalTime.of(10, 30));
+        assertFalse(binder.keyAttributesAreEmpty(record));
+        assertFalse(binder.attributeIsRequired(binder.attributeSlot("APPOINTMENT PICK-UP TIME")));
+    }
+
+    @Test
+    void getRequiredAttributesNames() {
+        assertEquals("DATE OF BIRTH,DATE OF SERVICE,FIRSTNAME,LASTNAME,MEMBERNUMBER,TRACKINGNUMBER",
+            binder.getRequiredAttributesNames());
+    }
+}
@@ -0,0 +1,95 @@
+package com.jsoft.medpdfmaker.parser;
+
+import com.jsoft.medpdfmaker.exception.ParseException;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TableFileFormatTest {
+
+    private final List<Path> files = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() throws IOException {
+        for (final Path file : files) {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void detectByContent() throws IOException {
+        assertEquals(TableFileFormat.XLSX, TableFileFormat.detect(zipFile(".xlsx", "xl/workbook.xml")));
+        assertEquals(TableFileFormat.XLSB, TableFileFormat.detect(zipFile(".xlsb", "xl/workbook.bin")));
+        // content wins over extension
+        assertEquals(TableFileFormat.XLSB, TableFileFormat.detect(zipFile(".xlsx", "xl/workbook.bin")));
+        assertEquals(TableFileFormat.XLSX, TableFileFormat.detect(zipFile(".dat", "xl/workbook.xml")));
+        assertEquals(TableFileFormat.XLS, TableFileFormat.detect(xlsFile(".xls")));
+        assertEquals(TableFileFormat.XLS, TableFileFormat.detect(xlsFile(".xlsx")));
+    }
+
+    @Test
+    void detectByExtension() throws IOException {
+        assertEquals(TableFileFormat.XLSX, TableFileFormat.detect(textFile(".XLSX")));
+        assertEquals(TableFileFormat.XLSX, TableFileFormat.detect(textFile(".xlsm")));
+        assertEquals(TableFileFormat.XLSB, TableFileFormat.detect(textFile(".xlsb")));
+        assertEquals(TableFileFormat.XLS, TableFileFormat.detect(textFile(".xls")));
+        assertEquals(TableFileFormat.CSV, TableFileFormat.detect(textFile(".csv")));
+        assertEquals(TableFileFormat.CSV, TableFileFormat.detect(textFile(".CSV.gz")));
+        assertEquals(TableFileFormat.TSV, TableFileFormat.detect(textFile(".tsv")));
+        assertEquals(TableFileFormat.TSV, TableFileFormat.detect(textFile(".tab.gz")));
+    }
+
+    @Test
+    void detectUnknownFormat() throws IOException {
+        final File srcFile = textFile(".txt");
+        assertThrows(ParseException.class, () -> TableFileFormat.detect(srcFile));
+        final File gzipFile = textFile(".gz");
+        assertThrows(ParseException.class, () -> TableFileFormat.detect(gzipFile));
+        final File emptyFile = createFile("");
+        assertThrows(ParseException.class, () -> TableFileFormat.detect(emptyFile));
+    }
+
+    private File zipFile(String suffix, String entryName) throws IOException {
+        final File result = createFile(suffix);
+        try (final ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(result.toPath()))) {
+            zip.putNextEntry(new ZipEntry(entryName));
+            zip.write(new byte[]{1, 2, 3});
+            zip.closeEntry();
+        }
+        return result;
+    }
+
+    private File xlsFile(String suffix) throws IOException {
+        final File result = createFile(suffix);
+        try (final HSSFWorkbook workbook = new HSSFWorkbook();
+             final OutputStream out = Files.newOutputStream(result.toPath())) {
+            workbook.createSheet("Data");
+            workbook.write(out);
+        }
+        return result;
+    }
+
+    private File textFile(String suffix) throws IOException {
+        final File result = createFile(suffix);
+        Files.write(result.toPath(), "not an excel book".getBytes());
+        return result;
+    }
+
+    private File createFile(String suffix) throws IOException {
+        final Path result = Files.createTempFile("table-file-format-test", suffix);
+        files.add(result);
+        return result.toFile();
+    }
+}
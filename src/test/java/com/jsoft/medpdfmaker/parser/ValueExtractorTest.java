@@ -0,0 +1,36 @@
+package com.jsoft.medpdfmaker.parser;
+
+import com.jsoft.medpdfmaker.excel.StreamingCell;
+import com.jsoft.medpdfmaker.exception.ValueExtractException;
+import com.jsoft.medpdfmaker.parser.impl.LocalDateValueExtractor;
+import org.apache.poi.ss.usermodel.Cell;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ValueExtractorTest {
+
+    private static Cell text(String value) {
+        final StreamingCell result = new StreamingCell();
+        if (!value.isEmpty()) {
+            result.setCellValue(value);
+        }
+        return result;
+    }
+
+    @Test
+    void extractValues() {
+        final Cell[] cells = {text("01/03/2020"), text("soon"), text(""), text("02/04/2020"), text("ignored")};
+        final Object[] values = new Object[cells.length];
+        final ValueExtractException[] errors = new ValueExtractException[cells.length];
+        values[1] = LocalDate.MIN;
+        new LocalDateValueExtractor().extractValues(cells, 4, values, errors);
+        assertArrayEquals(new Object[]{LocalDate.of(2020, 1, 3), null, null, LocalDate.of(2020, 2, 4), null}, values);
+        assertNull(errors[0]);
+        assertNotNull(errors[1]);
+        assertNull(errors[2]);
+        assertNull(errors[4]);
+    }
+}
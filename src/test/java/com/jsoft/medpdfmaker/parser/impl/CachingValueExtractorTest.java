@@ -0,0 +1,157 @@
+package com.jsoft.medpdfmaker.parser.impl;
+
+import com.jsoft.medpdfmaker.domain.FieldType;
+import com.jsoft.medpdfmaker.excel.StreamingCell;
+import com.jsoft.medpdfmaker.exception.ValueExtractException;
+import com.jsoft.medpdfmaker.parser.ValueExtractor;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CachingValueExtractorTest {
+
+    private StreamingCell cell;
+
+    @BeforeEach
+    void setUp() {
+        cell = new StreamingCell();
+        cell.reset(0, 0, null, false);
+    }
+
+    @Test
+    void invalidConstructorArgs() {
+        assertThrows(NullPointerException.class, () -> new CachingValueExtractor<>(null, 1));
+        assertThrows(IllegalArgumentException.class, () -> new CachingValueExtractor<>(new LocalDateValueExtractor(), 0));
+    }
+
+    @Test
+    void canParse() {
+        assertEquals(FieldType.DATE, new CachingValueExtractor<>(new LocalDateValueExtractor(), 1).canParse());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void extractValueRepeated() {
+        final ValueExtractor<LocalDate> extractorMock = mock(ValueExtractor.class);
+        final LocalDate date = LocalDate.of(2020, 12, 3);
+        when(extractorMock.extractValue(cell)).thenReturn(date, (LocalDate) null);
+        final CachingValueExtractor<LocalDate> extractor = new CachingValueExtractor<>(extractorMock, 10);
+        cell.setCellValue("12/03/2020");
+        for (int i = 0; i < 3; i++) {
+            assertEquals(date, extractor.extractValue(cell));
+        }
+        cell.reset(0, 1, null, false);
+        assertNull(extractor.extractValue(cell));
+        assertNull(extractor.extractValue(cell));
+        verify(extractorMock, times(2)).extractValue(cell);
+        assertEquals(3, extractor.getHits());
+        assertEquals(2, extractor.getMisses());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void extractValueKeyIncludesCellType() {
+        final ValueExtractor<Boolean> extractorMock = mock(ValueExtractor.class);
+        when(extractorMock.extractValue(cell)).thenReturn(true, true, false);
+        final CachingValueExtractor<Boolean> extractor = new CachingValueExtractor<>(extractorMock, 10);
+        cell.setCellValue("1.0");
+        extractor.extractValue(cell);
+        cell.setCellValue(1.0);
+        extractor.extractValue(cell);
+        cell.setCellValue(true);
+        extractor.extractValue(cell);
+        assertEquals(0, extractor.getHits());
+        assertEquals(3, extractor.getMisses());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void extractValueNumericKeyIncludesFormat() {
+        final ValueExtractor<String> extractorMock = mock(ValueExtractor.class);
+        when(extractorMock.extractValue(cell)).thenReturn("1", "01/01/1900");
+        final CachingValueExtractor<String> extractor = new CachingValueExtractor<>(extractorMock, 10);
+        cell.setCellValue(1.0);
+        assertEquals("1", extractor.extractValue(cell));
+        final CellStyle dateStyle = mock(CellStyle.class);
+        when(dateStyle.getDataFormat()).thenReturn((short) 14);
+        cell.setCellStyle(dateStyle);
+        assertEquals("01/01/1900", extractor.extractValue(cell));
+        assertEquals("01/01/1900", extractor.extractValue(cell));
+        assertEquals(1, extractor.getHits());
+        assertEquals(2, extractor.getMisses());
+    }
+
+    @Test
+    void extractValueEviction() {
+        final CachingValueExtractor<LocalDate> extractor = new CachingValueExtractor<>(new LocalDateValueExtractor(), 2);
+        for (final String value : new String[]{"01/01/2020", "01/02/2020", "01/01/2020", "01/03/2020", "01/01/2020",
+            "01/02/2020"}) {
+            cell.setCellValue(value);
+            extractor.extractValue(cell);
+        }
+        // 01/02/2020 is evicted as the least recently used value when 01/03/2020 is added
+        assertEquals(2, extractor.getHits());
+        assertEquals(4, extractor.getMisses());
+    }
+
+    @Test
+    void extractValueErrorIsNotCached() {
+        final CachingValueExtractor<LocalDate> extractor = new CachingValueExtractor<>(new LocalDateValueExtractor(), 2);
+        cell.setCellValue("N/A");
+        assertThrows(ValueExtractException.class, () -> extractor.extractValue(cell));
+        assertThrows(ValueExtractException.class, () -> extractor.extractValue(cell));
+        assertEquals(0, extractor.getHits());
+        assertEquals(2, extractor.getMisses());
+    }
+
+    @Test
+    void extractValuesMissesAreExtractedOnce() {
+        final int[] extracted = new int[1];
+        final ValueExtractor<LocalDate> countingExtractor = new ValueExtractor<LocalDate>() {
+            private final LocalDateValueExtractor extractor = new LocalDateValueExtractor();
+
+            @Override
+            public FieldType canParse() {
+                return extractor.canParse();
+            }
+
+            @Override
+            public LocalDate extractValue(Cell cell) {
+                extracted[0]++;
+                return extractor.extractValue(cell);
+            }
+        };
+        final CachingValueExtractor<LocalDate> extractor = new CachingValueExtractor<>(countingExtractor, 10);
+        final Cell[] cells = new Cell[5];
+        final String[] texts = {"01/01/2020", "01/02/2020", "01/01/2020", "N/A", "01/02/2020"};
+        for (int i = 0; i < cells.length; i++) {
+            final StreamingCell textCell = new StreamingCell();
+            textCell.setCellValue(texts[i]);
+            cells[i] = textCell;
+        }
+        final Object[] values = new Object[cells.length];
+        final ValueExtractException[] errors = new ValueExtractException[cells.length];
+        extractor.extractValues(cells, cells.length, values, errors);
+        final LocalDate first = LocalDate.of(2020, 1, 1);
+        final LocalDate second = LocalDate.of(2020, 1, 2);
+        assertArrayEquals(new Object[]{first, second, first, null, second}, values);
+        assertNotNull(errors[3]);
+        assertEquals(3, extracted[0]);
+        assertEquals(2, extractor.getHits());
+        assertEquals(3, extractor.getMisses());
+        // valid values are cached, the error is not
+        extractor.extractValues(cells, cells.length, values, errors);
+        assertArrayEquals(new Object[]{first, second, first, null, second}, values);
+        assertNull(errors[0]);
+        assertNotNull(errors[3]);
+        assertEquals(4, extracted[0]);
+        assertEquals(6, extractor.getHits());
+        assertEquals(4, extractor.getMisses());
+    }
+}
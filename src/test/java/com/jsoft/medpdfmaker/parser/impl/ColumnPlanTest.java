@@ -0,0 +1,61 @@
+package com.jsoft.medpdfmaker.parser.impl;
+
+import com.jsoft.medpdfmaker.parser.ObjectBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColumnPlanTest {
+
+    private ServiceRecordBuilder builder;
+    private ColumnPlan.Cache cache;
+
+    @BeforeEach
+    void setUp() {
+        builder = new ServiceRecordBuilder(Collections.emptyList(), BigDecimal.TEN);
+        cache = new ColumnPlan.Cache();
+    }
+
+    @Test
+    void slotOf() {
+        final List<String> fieldNames = Arrays.asList("TRACKINGNUMBER", "", "LASTNAME", "UNKNOWN");
+        final ColumnPlan plan = cache.get(2, fieldNames, builder);
+        assertEquals(ObjectBuilder.UNKNOWN_SLOT, plan.slotOf(0));
+        assertEquals(ObjectBuilder.UNKNOWN_SLOT, plan.slotOf(1));
+        assertEquals(builder.attributeSlot("TRACKINGNUMBER"), plan.slotOf(2));
+        assertEquals(ObjectBuilder.UNKNOWN_SLOT, plan.slotOf(3));
+        assertEquals(builder.attributeSlot("LASTNAME"), plan.slotOf(4));
+        assertEquals(ObjectBuilder.UNKNOWN_SLOT, plan.slotOf(5));
+        assertEquals(ObjectBuilder.UNKNOWN_SLOT, plan.slotOf(6));
+        assertEquals(Arrays.asList("", "UNKNOWN"), plan.getUnknownFieldNames());
+    }
+
+    @Test
+    void planIsReusedForTheSameLayout() {
+        final ColumnPlan plan = cache.get(0, Arrays.asList("TRACKINGNUMBER", "LASTNAME"), builder);
+        assertSame(plan, cache.get(0, Arrays.asList("TRACKINGNUMBER", "LASTNAME"), builder));
+        assertNotSame(plan, cache.get(1, Arrays.asList("TRACKINGNUMBER", "LASTNAME"), builder));
+        assertNotSame(plan, cache.get(0, Arrays.asList("LASTNAME", "TRACKINGNUMBER"), builder));
+        assertEquals(3, cache.size());
+    }
+
+    @Test
+    void filteredColumns() {
+        final List<String> fieldNames = Arrays.asList("TRACKINGNUMBER", "UNKNOWN", "DATE OF SERVICE");
+        assertFalse(cache.get(0, fieldNames, builder).hasFilteredColumns());
+        final ServiceRecordBuilder filteringBuilder = new ServiceRecordBuilder(Collections.emptyList(), BigDecimal.TEN);
+        filteringBuilder.addFilter("DATE OF SERVICE", value -> true);
+        final ColumnPlan plan = new ColumnPlan.Cache().get(0, fieldNames, filteringBuilder);
+        assertTrue(plan.hasFilteredColumns());
+        assertFalse(plan.isFiltered(0));
+        assertFalse(plan.isFiltered(1));
+        assertTrue(plan.isFiltered(2));
+        assertFalse(plan.isFiltered(3));
+    }
+}
@@ -0,0 +1,104 @@
+package com.jsoft.medpdfmaker.parser.impl;
+
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.usermodel.XSSFFont;
+import org.apache.poi.xssf.usermodel.XSSFRelation;
+import org.apache.poi.xssf.usermodel.XSSFRichTextString;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xml.sax.SAXException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DiskSharedStringsTableTest {
+
+    private static final String[] VALUES = {"Smith", "", "   ", "Line_x000D_break", "🚑 ambulance",
+            "Notes " + new String(new char[5000]).replace('\0', 'n'), "Smith"};
+
+    private Path excelFile;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        excelFile = Files.createTempFile("disk-shared-strings-test", ".xlsx");
+        try (final XSSFWorkbook workbook = new XSSFWorkbook()) {
+            final Row row = workbook.createSheet("Data").createRow(0);
+            for (int i = 0; i < VALUES.length; i++) {
+                row.createCell(i).setCellValue(VALUES[i]);
+            }
+            final XSSFFont boldFont = workbook.createFont();
+            boldFont.setBold(true);
+            final XSSFRichTextString richText = new XSSFRichTextString("Rich text");
+            richText.applyFont(0, 4, boldFont);
+            row.createCell(VALUES.length).setCellValue(richText);
+            try (final OutputStream out = Files.newOutputStream(excelFile)) {
+                workbook.write(out);
+            }
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Files.deleteIfExists(excelFile);
+    }
+
+    @Test
+    void sameEntriesAsInMemoryTable() throws IOException, SAXException {
+        final OPCPackage pkg = ExcelPackages.openReadOnly(excelFile.toFile());
+        try {
+            final PackagePart part = pkg.getPartsByContentType(XSSFRelation.SHARED_STRINGS.getContentType()).get(0);
+            final ReadOnlySharedStringsTable readOnlyTable = new ReadOnlySharedStringsTable(pkg, false);
+            final InMemorySharedStrings inMemory = new InMemorySharedStrings(readOnlyTable);
+            try (final DiskSharedStringsTable onDisk = new DiskSharedStringsTable(part, 2)) {
+                assertEquals(readOnlyTable.getUniqueCount(), onDisk.getUniqueCount());
+                // repeated value is stored once
+                assertEquals(VALUES.length, onDisk.getUniqueCount());
+                // twice to read both the file and the cache
+                for (int pass = 0; pass < 2; pass++) {
+                    for (int i = 0; i < onDisk.getUniqueCount(); i++) {
+                        assertEquals(inMemory.getEntryAt(i), onDisk.getEntryAt(i));
+                        assertEquals(inMemory.entryIsBlank(i), onDisk.entryIsBlank(i));
+                    }
+                }
+                assertEquals("Line\rbreak", onDisk.getEntryAt(3));
+                assertEquals("Rich text", onDisk.getEntryAt(VALUES.length - 1));
+                assertTrue(onDisk.entryIsBlank(2));
+                assertFalse(onDisk.entryIsBlank(0));
+                assertThrows(IndexOutOfBoundsException.class, () -> onDisk.getEntryAt(onDisk.getUniqueCount()));
+                assertThrows(IndexOutOfBoundsException.class, () -> onDisk.entryIsBlank(-1));
+            }
+        } finally {
+            pkg.revert();
+        }
+    }
+
+    @Test
+    void entriesAreReadByInterruptedThread() throws IOException, SAXException {
+        final OPCPackage pkg = ExcelPackages.openReadOnly(excelFile.toFile());
+        try {
+            final PackagePart part = pkg.getPartsByContentType(XSSFRelation.SHARED_STRINGS.getContentType()).get(0);
+            try (final DiskSharedStringsTable onDisk = new DiskSharedStringsTable(part, 1)) {
+                Thread.currentThread().interrupt();
+                try {
+                    assertEquals("Smith", onDisk.getEntryAt(0));
+                } finally {
+                    assertTrue(Thread.interrupted());
+                }
+                // the thread that reads the table later must not find it closed
+                assertEquals("🚑 ambulance", onDisk.getEntryAt(4));
+                assertEquals("Smith", onDisk.getEntryAt(0));
+            }
+        } finally {
+            pkg.revert();
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.jsoft.medpdfmaker.parser.impl;
+
+import com.jsoft.medpdfmaker.domain.ServiceRecord;
+import com.jsoft.medpdfmaker.excel.StreamingCell;
+import com.jsoft.medpdfmaker.parser.ObjectBuilder;
+import com.jsoft.medpdfmaker.parser.Result;
+import com.jsoft.medpdfmaker.parser.ValueExtractor;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PipelinedRowsProcessorTest {
+
+    private static final String[] HEADER = {"TrackingNumber", "LastName", "MemberNumber", "Date of Service",
+            "Trip_Price", "Ride Cancellation"};
+
+    private Supplier<ObjectBuilder<ServiceRecord>> builderSupplier;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        final List<ValueExtractor> extractors = Arrays.asList(new BooleanValueExtractor(), new LocalDateValueExtractor(),
+                new LocalTimeValueExtractor(), new IntegerValueExtractor(new DataFormatter()),
+                new DecimalMoneyValueExtractor(new DataFormatter()),
+                new StringValueExtractor(new DataFormatter()));
+        builderSupplier = () -> {
+            final ServiceRecordBuilder result = new ServiceRecordBuilder(extractors, new BigDecimal("10.00"));
+            result.addFilter("RIDE CANCELLATION", cancelled -> !((Boolean) cancelled));
+            return result;
+        };
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void processRecordsInOrderOfRows() {
+        final int rowsCount = 20 * RowBatch.MAX_ROWS + 17;
+        final List<ServiceRecord> actual = new ArrayList<>();
+        final SheetRowsProcessor pipelined = new PipelinedRowsProcessor("Sheet1", builderSupplier,
+                new ColumnPlan.Cache(), actual::add, executor, 4);
+        feedRows(pipelined, rowsCount);
+
+        assertEquals(Result.ERROR, pipelined.getResult());
+        assertTrue(pipelined.fieldNamesFound());
+        assertRecordsOfRows(rowsCount, actual);
+    }
+
+    @Test
+    void processBatchesInCallingThread() {
+        final int rowsCount = 3 * RowBatch.MAX_ROWS + 5;
+        final List<ServiceRecord> actual = new ArrayList<>();
+        final SheetRowsProcessor batched = new PipelinedRowsProcessor("Sheet1", builderSupplier,
+                new ColumnPlan.Cache(), actual::add, Runnable::run, 1);
+        feedRows(batched, rowsCount);
+        assertEquals(Result.ERROR, batched.getResult());
+        assertRecordsOfRows(rowsCount, actual);
+    }
+
+    @Test
+    void processSheetWithoutDataRows() {
+        final List<ServiceRecord> records = new ArrayList<>();
+        final SheetRowsProcessor pipelined = new PipelinedRowsProcessor("Sheet1", builderSupplier,
+                new ColumnPlan.Cache(), records::add, executor, 2);
+        feedRows(pipelined, 0);
+        assertEquals(Result.OK, pipelined.getResult());
+        assertTrue(pipelined.fieldNamesFound());
+        assertTrue(records.isEmpty());
+    }
+
+    private void feedRows(SheetRowsProcessor processor, int rowsCount) {
+        // cells are reused for every row, as the sheet handlers do it
+        final List<StreamingCell> cells = new ArrayList<>();
+        for (int i = 0; i < HEADER.length; i++) {
+            cells.add(new StreamingCell());
+        }
+        final List<StreamingCell> rowCells = new ArrayList<>();
+        for (int i = 0; i < HEADER.length; i++) {
+            cells.get(i).reset(0, i, null, false);
+            cells.get(i).setCellValue(HEADER[i]);
+        }
+        processor.onRow(0, false, cells);
+        for (int row = 1; row <= rowsCount; row++) {
+            rowCells.clear();
+            addCell(rowCells, cells, row, 0, "T-" + row);
+            addCell(rowCells, cells, row, 1, "Name" + row);
+            // every 101st row misses the member number
+            if (row % 101 != 0) {
+                addCell(rowCells, cells, row, 2, String.valueOf(1000 + row));
+            }
+            addCell(rowCells, cells, row, 3, (row % 97 == 0) ? "not a date" : "01/03/2020");
+            cells.get(4).reset(row, 4, null, false);
+            cells.get(4).setCellValue(20.01 + row % 3);
+            rowCells.add(cells.get(4));
+            addCell(rowCells, cells, row, 5, (row % 7 == 0) ? "Yes" : "No");
+            processor.onRow(row, row % 13 == 0, rowCells);
+        }
+        processor.finish();
+    }
+
+    /**
+     * Check the records against the rows written by {@link #feedRows}: hidden rows, cancelled rides and the rows
+     * with errors are skipped, the rest are passed in the order of the rows.
+     */
+    private static void assertRecordsOfRows(int rowsCount, List<ServiceRecord> records) {
+        final List<String> expectedRefIds = new ArrayList<>();
+        for (int row = 1; row <= rowsCount; row++) {
+            if (row % 13 != 0 && row % 7 != 0 && row % 97 != 0) {
+                expectedRefIds.add("T-" + row);
+            }
+        }
+        assertEquals(expectedRefIds, refIds(records));
+        for (final ServiceRecord record : records) {
+            final int row = Integer.parseInt(record.getRefId().substring(2));
+            assertEquals("Name" + row, record.getLName());
+            assertEquals((row % 101 == 0) ? null : String.valueOf(1000 + row), record.getMemberId());
+            assertEquals(LocalDate.of(2020, 1, 3), record.getPickupDate());
+            assertEquals(BigDecimal.valueOf(2001 + (row % 3) * 100, 2), record.getTripPrice());
+        }
+    }
+
+    private static void addCell(List<StreamingCell> rowCells, List<StreamingCell> cells, int row, int column, String value) {
+        final StreamingCell cell = cells.get(column);
+        cell.reset(row, column, null, false);
+        cell.setCellValue(value);
+        rowCells.add(cell);
+    }
+
+    private static List<String> refIds(List<ServiceRecord> records) {
+        return records.stream().map(ServiceRecord::getRefId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,280 @@
+package com.jsoft.medpdfmaker.parser.impl;
+
+import com.jsoft.medpdfmaker.domain.FieldType;
+import com.jsoft.medpdfmaker.exception.ValueExtractException;
+import com.jsoft.medpdfmaker.parser.ValueExtractor;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.DataFormatter;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.apache.commons.lang3.StringUtils.trim;
+import static org.apache.commons.lang3.StringUtils.upperCase;
+import static org.apache.poi.ss.usermodel.DateUtil.getJavaDate;
+import static org.apache.poi.ss.usermodel.DateUtil.isCellDateFormatted;
+
+/**
+ * Value extractors as they were before the hand-written parsers were introduced.
+ * They are kept as the reference for the differential tests and benchmarks.
+ */
+final class ReferenceValueExtractors {
+
+    private ReferenceValueExtractors() {
+    }
+
+    static class DateExtractor implements ValueExtractor<LocalDate> {
+
+        private static final List<DateTimeFormatter> DATE_FORMATS =
+                Arrays.asList(
+                        DateTimeFormatter.ofPattern("dd-MMM-yy"),
+                        DateTimeFormatter.ofPattern("dd-MMM-yyyy"),
+                        DateTimeFormatter.ofPattern("MM/dd/yy"),
+                        DateTimeFormatter.ofPattern("MM/dd/yyyy"),
+                        DateTimeFormatter.ofPattern("M/d/yyyy")
+                );
+
+        @Override
+        public FieldType canParse() {
+            return FieldType.DATE;
+        }
+
+        @Override
+        public LocalDate extractValue(Cell cell) {
+            final LocalDate result;
+            switch (cell.getCellType()) {
+                case NUMERIC:
+                    final Date tmpD = (isCellDateFormatted(cell)) ? cell.getDateCellValue() : getJavaDate(cell.getNumericCellValue());
+                    result = tmpD.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+                    break;
+                case BLANK:
+                    result = null;
+                    break;
+                case STRING:
+                    result = parseDateFromString(cell);
+                    break;
+                default:
+                    throw new ValueExtractException("Cannot extract date value from the cell", cell);
+            }
+            return result;
+        }
+
+        private LocalDate parseDateFromString(Cell cell) {
+            final String strValue = trim(cell.getStringCellValue());
+            if (StringUtils.isBlank(strValue)) {
+                return null;
+            }
+            for (final DateTimeFormatter format : DATE_FORMATS) {
+                try {
+                    return LocalDate.parse(strValue, format);
+                } catch (DateTimeParseException e) {
+                    // did not work, try next
+                }
+            }
+            throw new ValueExtractException("Cannot extract date value from the cell", cell);
+        }
+    }
+
+    static class TimeExtractor implements ValueExtractor<LocalTime> {
+
+        private static final List<DateTimeFormatter> TIME_FORMATS =
+                Arrays.asList(
+                        DateTimeFormatter.ofPattern("h:ma"),
+                        DateTimeFormatter.ofPattern("H:m")
+                );
+
+        private static final Set<Character> ALLOWED_CHARS_IN_TIME = new HashSet<>(Arrays.asList(
+                '1','2','3','4','5','6','7','8','9','0','A','P','M',':'
+        ));
+
+        private static final Set<String> EMPTY_VALUES = new HashSet<>(
+                Arrays.asList("W/C", "N/A")
+        );
+
+        @Override
+        public FieldType canParse() {
+            return FieldType.TIME;
+        }
+
+        @Override
+        public LocalTime extractValue(Cell cell) {
+            final LocalTime result;
+            switch (cell.getCellType()) {
+                case NUMERIC:
+                    final Date tmpD = (isCellDateFormatted(cell)) ? cell.getDateCellValue() : getJavaDate(cell.getNumericCellValue());
+                    result = tmpD.toInstant().atZone(ZoneId.systemDefault()).toLocalTime();
+                    break;
+                case BLANK:
+                    result = null;
+                    break;
+                case STRING:
+                    result = parseTimeFromString(cell);
+                    break;
+                default:
+                    throw new ValueExtractException(String.format("Cannot extract time value from the cell, cell type %s is not supported", cell.getCellType()), cell);
+            }
+            return result;
+        }
+
+        private LocalTime parseTimeFromString(Cell cell) {
+            final String strValue = cleanTimeString(trim(upperCase(cell.getStringCellValue())));
+            if (StringUtils.isBlank(strValue)) {
+                return null;
+            }
+            for (final DateTimeFormatter format : TIME_FORMATS) {
+                try {
+                    return LocalTime.parse(strValue, format);
+                } catch (DateTimeParseException e) {
+                    // did not work, try next
+                }
+            }
+            throw new ValueExtractException("Cannot extract time value from the cell", cell);
+        }
+
+        private String cleanTimeString(String src) {
+            if (src == null) {
+                return null;
+            }
+            String workSrc = deleteEmptyValues(src);
+            final StringBuilder result = new StringBuilder();
+            for (int i=0;i<workSrc.length();i++) {
+                char c = workSrc.charAt(i);
+                if (ALLOWED_CHARS_IN_TIME.contains(c)) {
+                    result.append(c);
+                } else {
+                    if (c == ';') {
+                        result.append(':');
+                    }
+                }
+            }
+            return result.length() == 0 ? null : result.toString();
+        }
+
+        private String deleteEmptyValues(String src) {
+            String result = src;
+            for (String emptyValue : EMPTY_VALUES) {
+                result = result.replaceAll(emptyValue, "");
+            }
+            return result;
+        }
+
+    }
+
+    static class BooleanExtractor implements ValueExtractor<Boolean> {
+
+        private final Set<String> possibleTrues = new HashSet<>(
+                Arrays.asList("YES", "CANCELLED", "YES(MUST)", "1")
+        );
+
+        @Override
+        public FieldType canParse() {
+            return FieldType.BOOLEAN;
+        }
+
+        /**
+         * Extract boolean value from the cell.
+         * Basic extraction rules:
+         * - If cell's value type is boolean, return boolean value stored in cell.
+         * - if cell's value type is numeric, return true if value is greater than zero, false otherwise.
+         * - if cell's value is string, return true of value of the cell equals or contains some predefined True values marekrs.
+         * @param cell Cell object tht holds value to extract.
+         * @return boolean value extracted from the cell.
+         */
+        @Override
+        public Boolean extractValue(Cell cell) {
+            boolean result;
+            switch (cell.getCellType()) {
+                case BLANK:
+                    result = false;
+                    break;
+                case BOOLEAN:
+                    result = cell.getBooleanCellValue();
+                    break;
+                case NUMERIC:
+                    result = Math.round(cell.getNumericCellValue()) != 0;
+                    break;
+                case STRING:
+                    final String strVal = StringUtils.remove(cell.getStringCellValue(), " ");
+                    result = StringUtils.isNotEmpty(strVal) && valueIsTrue(strVal.trim().toUpperCase());
+                    break;
+                default:
+                    result = false;
+            }
+            return result;
+        }
+
+        private boolean valueIsTrue(final String strVal) {
+            boolean result = possibleTrues.contains(strVal);
+            if (!result) {
+                for (final String possibleTrue : possibleTrues) {
+                    result = strVal.contains(possibleTrue);
+                    if (result) {
+                        break;
+                    }
+                }
+            }
+            return result;
+        }
+    }
+
+    static class DecimalMoneyExtractor implements ValueExtractor<BigDecimal> {
+
+        private final DataFormatter formatter;
+
+        DecimalMoneyExtractor(DataFormatter formatter) {
+            if (formatter == null) {
+                throw new IllegalArgumentException("formatter cannot be null");
+            }
+            this.formatter = formatter;
+        }
+
+        @Override
+        public FieldType canParse() {
+            return FieldType.DECIMAL_MONEY;
+        }
+
+        @Override
+        public BigDecimal extractValue(Cell cell) {
+            BigDecimal result;
+            switch (cell.getCellType()) {
+                case NUMERIC:
+                    result = fetchDecimal(cell.getNumericCellValue());
+                    break;
+                case BOOLEAN:
+                    result = cell.getBooleanCellValue() ? BigDecimal.ONE : BigDecimal.ZERO;
+                    break;
+                case STRING:
+                    result = getDecimalFromString(cell);
+                    break;
+                default:
+                    result = null;
+            }
+            return result;
+        }
+
+        private BigDecimal fetchDecimal(double cellValue) {
+            long tmpCellValue = Math.round(cellValue * 100);
+            return BigDecimal.valueOf(tmpCellValue).movePointLeft(2);
+        }
+
+        private BigDecimal getDecimalFromString(Cell cell) {
+            final String strVal = formatter.formatCellValue(cell);
+            try {
+                return StringUtils.isEmpty(strVal) ? null : new BigDecimal(strVal.trim()).setScale(2, RoundingMode.UP);
+            } catch (NumberFormatException e) {
+                throw new ValueExtractException(String.format("Unable to parse string value %s to decimal money", strVal), cell);
+            }
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.jsoft.medpdfmaker.parser.impl;
+
+import com.jsoft.medpdfmaker.domain.ServiceRecord;
+import com.jsoft.medpdfmaker.exception.ParseException;
+import com.jsoft.medpdfmaker.parser.CsvDialect;
+import com.jsoft.medpdfmaker.parser.Result;
+import com.jsoft.medpdfmaker.parser.ValueExtractor;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ServiceRecordCsvParserTest {
+
+    private static final String HEADER = "TrackingNumber,LastName,FirstName,MemberNumber,Date of Birth,"
+            + "Date of Service,Appointment Pick-up Time,Pick Up Location,Wheelchair,Trip_Price,ZipCode\r\n";
+
+    private Path csvFile;
+    private List<ValueExtractor> extractors;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        csvFile = Files.createTempFile("csv-parser-test", ".csv");
+        extractors = Arrays.asList(new BooleanValueExtractor(), new LocalDateValueExtractor(),
+                new LocalTimeValueExtractor(), new IntegerValueExtractor(new DataFormatter()),
+                new DecimalMoneyValueExtractor(new DataFormatter()),
+                new StringValueExtractor(new DataFormatter()));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Files.deleteIfExists(csvFile);
+    }
+
+    @Test
+    void parseRfc4180() throws IOException {
+        Files.write(csvFile, (HEADER
+                + "T-1,Smith,John,1234567,02/03/1950,01/03/2020,9:30 AM,\"10 Main St, Apt \"\"B\"\"\",Yes,25.5,01234\r\n"
+                + "\r\n"
+                + "T-2,\"O'Neil\",Mary,7654321,02/03/1960,01/04/2020,13:15,\"Line 1\r\nLine 2\",No,30,12345").getBytes(StandardCharsets.UTF_8));
+        final List<ServiceRecord> records = parse(CsvDialect.RFC_4180, ',');
+        assertEquals(2, records.size());
+        final ServiceRecord first = records.get(0);
+        assertEquals("T-1", first.getRefId());
+        assertEquals("Smith", first.getLName());
+        assertEquals("1234567", first.getMemberId());
+        assertEquals(LocalDate.of(2020, 1, 3), first.getPickupDate());
+        assertEquals(LocalTime.of(9, 30), first.getPickupTime());
+        assertEquals("10 Main St, Apt \"B\"", first.getOrigin());
+        assertTrue(first.isWheelChairYesNo());
+        assertEquals(new BigDecimal("25.50"), first.getTripPrice());
+        // text is never turned to number, so leading zeros are kept
+        assertEquals("01234", first.getZipCode());
+        final ServiceRecord second = records.get(1);
+        assertEquals("O'Neil", second.getLName());
+        assertEquals("Line 1\r\nLine 2", second.getOrigin());
+        assertEquals(LocalTime.of(13, 15), second.getPickupTime());
+    }
+
+    @Test
+    void parseExcelDialect() throws IOException {
+        Files.write(csvFile, ("\uFEFFsep=;\n" + HEADER.replace(',', ';')
+                + "T-1;Sm\"ith;John;1234567;02/03/1950;01/03/2020;9:30 AM;\"10 Main\"St;Yes;25.5;=\"01234\"\n"
+                + "T-2;Doe;Jane;7654321;02/03/1960;01/04/2020;10:00;\"unterminated").getBytes(StandardCharsets.UTF_8));
+        final List<ServiceRecord> records = parse(CsvDialect.EXCEL, ',');
+        assertEquals(2, records.size());
+        assertEquals("T-1", records.get(0).getRefId());
+        assertEquals("Sm\"ith", records.get(0).getLName());
+        assertEquals("10 MainSt", records.get(0).getOrigin());
+        assertEquals("01234", records.get(0).getZipCode());
+        assertEquals("unterminated", records.get(1).getOrigin());
+    }
+
+    @Test
+    void rejectInvalidRfc4180() throws IOException {
+        final File srcFile = csvFile.toFile();
+        for (final String content : new String[]{"a,b\"c\n", "a,\"b\"c\n", "a,\"b\n"}) {
+            Files.write(csvFile, (HEADER + content).getBytes(StandardCharsets.UTF_8));
+            assertThrows(ParseException.class, () -> newParser(CsvDialect.RFC_4180, ',', StandardCharsets.UTF_8)
+                    .parse(srcFile, 0, r -> {}));
+        }
+    }
+
+    @Test
+    void parseGzipTsv() throws IOException {
+        Files.delete(csvFile);
+        csvFile = Files.createTempFile("csv-parser-test", ".tsv.gz");
+        final Charset charset = Charset.forName("windows-1252");
+        try (final OutputStream out = new GZIPOutputStream(Files.newOutputStream(csvFile))) {
+            out.write(HEADER.replace(',', '\t').getBytes(charset));
+            for (int i = 0; i < 20000; i++) {
+                out.write(String.format("T-%d\tMüller\tJohn\t%d\t02/03/1950\t01/03/2020\t9:30 AM\tMain St\tNo\t25.5\t12345\n",
+                        i, 1000 + i).getBytes(charset));
+            }
+        }
+        final List<ServiceRecord> records = new ArrayList<>();
+        assertEquals(Result.OK, newParser(CsvDialect.EXCEL, '\t', charset).parse(csvFile.toFile(), 0, records::add));
+        assertEquals(20000, records.size());
+        assertEquals("Müller", records.get(0).getLName());
+        assertEquals("T-19999", records.get(19999).getRefId());
+    }
+
+    @Test
+    void parseMissingSheet() throws IOException {
+        Files.write(csvFile, HEADER.getBytes(StandardCharsets.UTF_8));
+        final ServiceRecordCsvParser parser = newParser(CsvDialect.EXCEL, ',', StandardCharsets.UTF_8);
+        assertEquals(Result.WARNING, parser.parse(csvFile.toFile(), 1, r -> {}));
+        Files.write(csvFile, new byte[0]);
+        assertEquals(Result.WARNING, parser.parse(csvFile.toFile(), 0, r -> {}));
+    }
+
+    @Test
+    void unwrapTextFormula() {
+        assertEquals("00123", CsvRowReader.unwrapTextFormula("=\"00123\""));
+        assertEquals("a\"b", CsvRowReader.unwrapTextFormula("=\"a\"\"b\""));
+        assertEquals("=\"", CsvRowReader.unwrapTextFormula("=\""));
+        assertEquals("=A1", CsvRowReader.unwrapTextFormula("=A1"));
+    }
+
+    private List<ServiceRecord> parse(CsvDialect dialect, char delimiter) throws IOException {
+        final List<ServiceRecord> result = new ArrayList<>();
+        assertEquals(Result.OK, newParser(dialect, delimiter, StandardCharsets.UTF_8).parse(csvFile.toFile(), 0, result::add));
+        return result;
+    }
+
+    private ServiceRecordCsvParser newParser(CsvDialect dialect, char delimiter, Charset charset) {
+        return new ServiceRecordCsvParser(() -> new ServiceRecordBuilder(extractors, new BigDecimal("10.00")),
+                delimiter, dialect, charset);
+    }
+}
@@ -0,0 +1,240 @@
+package com.jsoft.medpdfmaker.parser.impl;
+
+import com.jsoft.medpdfmaker.domain.ServiceRecord;
+import com.jsoft.medpdfmaker.exception.ParseException;
+import com.jsoft.medpdfmaker.parser.ParseSession;
+import com.jsoft.medpdfmaker.parser.Result;
+import com.jsoft.medpdfmaker.parser.ValueExtractor;
+import org.apache.poi.hssf.record.DateWindow1904Record;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ServiceRecordHssfStreamingParserTest {
+
+    private static final String[] HEADER = {"TrackingNumber", "LastName", "FirstName", "MemberNumber",
+            "Date of Birth", "Date of Service", "Appointment Pick-up Time", "Wheelchair", "Number of Passengers",
+            "Trip_Price", "ZipCode", "Ride Cancellation"};
+
+    private Path xlsxFile;
+    private Path xlsFile;
+    private List<ValueExtractor> extractors;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        xlsxFile = Files.createTempFile("hssf-parser-test", ".xlsx");
+        xlsFile = Files.createTempFile("hssf-parser-test", ".xls");
+        extractors = Arrays.asList(new BooleanValueExtractor(), new LocalDateValueExtractor(),
+                new LocalTimeValueExtractor(), new IntegerValueExtractor(new DataFormatter()),
+                new DecimalMoneyValueExtractor(new DataFormatter()),
+                new StringValueExtractor(new DataFormatter()));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Files.deleteIfExists(xlsxFile);
+        Files.deleteIfExists(xlsFile);
+    }
+
+    @Test
+    void parseSameRecordsAsXlsx() throws IOException {
+        writeWorkbooks(false);
+        final List<ServiceRecord> records = assertSameRecords(0);
+        assertEquals(3, records.size());
+        final ServiceRecord first = records.get(0);
+        assertEquals("T-1", first.getRefId());
+        assertEquals(LocalDate.of(2020, 1, 3), first.getPickupDate());
+        assertEquals(LocalTime.of(9, 30), first.getPickupTime());
+        assertEquals(new BigDecimal("25.50"), first.getTripPrice());
+        assertEquals("12345", first.getZipCode());
+        // row between first and the next one was hidden
+        assertEquals("T-3", records.get(1).getRefId());
+        assertTrue(records.get(2).isCancelled());
+    }
+
+    @Test
+    void parseSameRecordsAsXlsxWithDate1904() throws IOException {
+        writeWorkbooks(true);
+        final List<ServiceRecord> records = assertSameRecords(0);
+        assertEquals(LocalDate.of(2020, 1, 3), records.get(0).getPickupDate());
+    }
+
+    @Test
+    void parseSheetAfterOtherSheets() throws IOException {
+        writeWorkbooks(false);
+        final List<ServiceRecord> records = assertSameRecords(2);
+        assertEquals(1, records.size());
+        assertEquals("S-1", records.get(0).getRefId());
+    }
+
+    @Test
+    void parseHiddenOrMissingSheet() throws IOException {
+        writeWorkbooks(false);
+        final List<ServiceRecord> records = new ArrayList<>();
+        try (final ParseSession<ServiceRecord> session = newParser().open(xlsFile.toFile())) {
+            assertEquals(Result.WARNING, session.parse(1, records::add));
+            assertEquals(Result.WARNING, session.parse(5, records::add));
+            assertEquals(Result.OK, session.parse(0, records::add));
+        }
+        assertEquals(3, records.size());
+    }
+
+    @Test
+    void parseFormulaResults() throws IOException {
+        try (final HSSFWorkbook workbook = new HSSFWorkbook()) {
+            final Sheet sheet = workbook.createSheet("Data");
+            writeHeader(sheet.createRow(0));
+            final Row row = sheet.createRow(1);
+            row.createCell(0).setCellValue("T-1");
+            row.createCell(1).setCellFormula("\"Sm\"&\"ith\"");
+            row.getCell(1).setCellValue("Smith");
+            row.createCell(2).setCellFormula("\"\"");
+            row.getCell(2).setCellValue("");
+            row.createCell(3).setCellFormula("12300+45");
+            row.getCell(3).setCellValue(12345);
+            row.createCell(5).setCellValue("01/03/2020");
+            row.createCell(7).setCellFormula("TRUE()");
+            row.getCell(7).setCellValue(true);
+            try (final OutputStream out = Files.newOutputStream(xlsFile)) {
+                workbook.write(out);
+            }
+        }
+        final List<ServiceRecord> records = new ArrayList<>();
+        assertEquals(Result.OK, newParser().parse(xlsFile.toFile(), 0, records::add));
+        assertEquals(1, records.size());
+        assertEquals("Smith", records.get(0).getLName());
+        assertEquals("12345", records.get(0).getMemberId());
+        assertTrue(records.get(0).isWheelChairYesNo());
+    }
+
+    @Test
+    void parseInvalidFile() throws IOException {
+        Files.write(xlsFile, "not an excel book".getBytes());
+        final File srcFile = xlsFile.toFile();
+        assertThrows(ParseException.class, () -> newParser().parse(srcFile, 0, r -> {}));
+    }
+
+    private ServiceRecordHssfStreamingParser newParser() {
+        return new ServiceRecordHssfStreamingParser(new ServiceRecordBuilder(extractors, new BigDecimal("10.00")));
+    }
+
+    private List<ServiceRecord> assertSameRecords(int sheetIdx) throws IOException {
+        final List<ServiceRecord> expected = new ArrayList<>();
+        final Result expectedResult = new ServiceRecordXlsxStreamingParser(
+                new ServiceRecordBuilder(extractors, new BigDecimal("10.00"))).parse(xlsxFile.toFile(), sheetIdx, expected::add);
+        final List<ServiceRecord> actual = new ArrayList<>();
+        assertEquals(expectedResult, newParser().parse(xlsFile.toFile(), sheetIdx, actual::add));
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            final ServiceRecord expectedRecord = expected.get(i);
+            final ServiceRecord actualRecord = actual.get(i);
+            assertEquals(expectedRecord, actualRecord);
+            assertEquals(expectedRecord.isCancelled(), actualRecord.isCancelled());
+            assertEquals(expectedRecord.isWheelChairYesNo(), actualRecord.isWheelChairYesNo());
+            assertEquals(expectedRecord.getTotalPassengers(), actualRecord.getTotalPassengers());
+            assertEquals(expectedRecord.getTripPrice(), actualRecord.getTripPrice());
+            assertEquals(expectedRecord.getZipCode(), actualRecord.getZipCode());
+        }
+        return actual;
+    }
+
+    private void writeWorkbooks(boolean date1904) throws IOException {
+        try (final XSSFWorkbook workbook = new XSSFWorkbook()) {
+            workbook.getCTWorkbook().getWorkbookPr().setDate1904(date1904);
+            writeSheets(workbook, date1904);
+            try (final OutputStream out = Files.newOutputStream(xlsxFile)) {
+                workbook.write(out);
+            }
+        }
+        try (final HSSFWorkbook workbook = new HSSFWorkbook()) {
+            ((DateWindow1904Record) workbook.getInternalWorkbook().findFirstRecordBySid(DateWindow1904Record.sid))
+                    .setWindowing((short) (date1904 ? 1 : 0));
+            writeSheets(workbook, date1904);
+            try (final OutputStream out = Files.newOutputStream(xlsFile)) {
+                workbook.write(out);
+            }
+        }
+    }
+
+    private static void writeSheets(Workbook workbook, boolean date1904) {
+        final CellStyle hiddenStyle = workbook.createCellStyle();
+        hiddenStyle.setHidden(true);
+        final CellStyle dateStyle = workbook.createCellStyle();
+        dateStyle.setDataFormat(workbook.getCreationHelper().createDataFormat().getFormat("m/d/yy"));
+        final CellStyle timeStyle = workbook.createCellStyle();
+        timeStyle.setDataFormat(workbook.getCreationHelper().createDataFormat().getFormat("h:mm AM/PM"));
+        final CellStyle moneyStyle = workbook.createCellStyle();
+        moneyStyle.setDataFormat(workbook.getCreationHelper().createDataFormat().getFormat("\"$\"#,##0.00"));
+
+        final Sheet sheet = workbook.createSheet("Data");
+        writeHeader(sheet.createRow(0));
+        writeRecord(sheet.createRow(1), dateStyle, timeStyle, moneyStyle, "T-1", false, date1904);
+        final Row hiddenRow = sheet.createRow(2);
+        writeRecord(hiddenRow, dateStyle, timeStyle, moneyStyle, "T-2", false, date1904);
+        hiddenRow.setRowStyle(hiddenStyle);
+        writeRecord(sheet.createRow(4), dateStyle, timeStyle, moneyStyle, "T-3", false, date1904);
+        writeRecord(sheet.createRow(5), dateStyle, timeStyle, moneyStyle, "T-4", true, date1904);
+
+        final Sheet hiddenSheet = workbook.createSheet("Hidden");
+        hiddenSheet.createRow(0).createCell(0).setCellValue(HEADER[0]);
+        hiddenSheet.createRow(1).createCell(0).setCellValue("H-1");
+        workbook.setSheetHidden(1, true);
+
+        final Sheet lastSheet = workbook.createSheet("Last");
+        writeHeader(lastSheet.createRow(0));
+        writeRecord(lastSheet.createRow(1), dateStyle, timeStyle, moneyStyle, "S-1", false, date1904);
+    }
+
+    private static void writeHeader(Row row) {
+        for (int i = 0; i < HEADER.length; i++) {
+            row.createCell(i).setCellValue(HEADER[i]);
+        }
+    }
+
+    private static void writeRecord(Row row, CellStyle dateStyle, CellStyle timeStyle, CellStyle moneyStyle,
+                                    String refId, boolean cancelled, boolean date1904) {
+        row.createCell(0).setCellValue(refId);
+        row.createCell(1).setCellValue("Smith");
+        row.createCell(2).setCellValue("John");
+        row.createCell(3).setCellValue(1234567);
+        row.createCell(4).setCellValue("02/03/1950");
+        // HSSFWorkbook does not notice the date system changed after it is created, so the date is converted here
+        row.createCell(5).setCellValue(DateUtil.getExcelDate(
+                Date.from(LocalDate.of(2020, 1, 3).atStartOfDay(ZoneId.systemDefault()).toInstant()), date1904));
+        row.getCell(5).setCellStyle(dateStyle);
+        row.createCell(6).setCellValue(9.5 / 24);
+        row.getCell(6).setCellStyle(timeStyle);
+        row.createCell(7).setCellValue(true);
+        row.createCell(8).setCellValue(2);
+        row.createCell(9).setCellValue(25.5);
+        row.getCell(9).setCellStyle(moneyStyle);
+        row.createCell(10).setCellValue(12345);
+        row.createCell(11).setCellValue(cancelled ? "Yes" : "No");
+        // blank cell in the middle of the row
+        row.createCell(12);
+    }
+}
@@ -0,0 +1,87 @@
+package com.jsoft.medpdfmaker.parser.impl;
+
+import com.jsoft.medpdfmaker.domain.ServiceRecord;
+import com.jsoft.medpdfmaker.exception.ParseException;
+import com.jsoft.medpdfmaker.parser.Result;
+import com.jsoft.medpdfmaker.parser.ValueExtractor;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ServiceRecordXlsParserTest {
+
+    private static final String[] HEADER = {"TrackingNumber", "LastName", "FirstName", "MemberNumber",
+            "Date of Birth", "Date of Service"};
+
+    private Path excelFile;
+    private ServiceRecordXlsParser parser;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        excelFile = Files.createTempFile("xls-parser-test", ".xlsx");
+        final List<ValueExtractor> extractors = Arrays.asList(new LocalDateValueExtractor(),
+                new StringValueExtractor(new DataFormatter()));
+        parser = new ServiceRecordXlsParser(new ServiceRecordBuilder(extractors, new BigDecimal("10.00")));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Files.deleteIfExists(excelFile);
+    }
+
+    @Test
+    void parseDoesNotModifyFile() throws IOException {
+        try (final XSSFWorkbook workbook = new XSSFWorkbook()) {
+            final Sheet sheet = workbook.createSheet("Data");
+            final Row header = sheet.createRow(0);
+            for (int i = 0; i < HEADER.length; i++) {
+                header.createCell(i).setCellValue(HEADER[i]);
+            }
+            final String[] values = {"T-1", "Smith", "John", "M-1", "02/03/1950", "01/03/2020"};
+            final Row row = sheet.createRow(1);
+            for (int i = 0; i < values.length; i++) {
+                row.createCell(i).setCellValue(values[i]);
+            }
+            try (final OutputStream out = Files.newOutputStream(excelFile)) {
+                workbook.write(out);
+            }
+        }
+        final byte[] content = Files.readAllBytes(excelFile);
+        final FileTime modified = FileTime.fromMillis(0);
+        Files.setLastModifiedTime(excelFile, modified);
+
+        final List<ServiceRecord> records = new ArrayList<>();
+        assertEquals(Result.OK, parser.parse(excelFile.toFile(), 0, records::add));
+        assertEquals(1, records.size());
+        assertEquals("T-1", records.get(0).getRefId());
+        assertEquals(LocalDate.of(2020, 1, 3), records.get(0).getPickupDate());
+        // package is opened read only
+        assertArrayEquals(content, Files.readAllBytes(excelFile));
+        assertEquals(modified, Files.getLastModifiedTime(excelFile));
+    }
+
+    @Test
+    void parseInvalidFile() throws IOException {
+        Files.write(excelFile, "not an excel book".getBytes());
+        final File srcFile = excelFile.toFile();
+        assertThrows(ParseException.class, () -> parser.parse(srcFile, 0, r -> {}));
+    }
+}
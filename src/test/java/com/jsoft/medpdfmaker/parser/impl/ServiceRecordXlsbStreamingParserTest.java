@@ -0,0 +1,217 @@
+package com.jsoft.medpdfmaker.parser.impl;
+
+import com.jsoft.medpdfmaker.domain.ServiceRecord;
+import com.jsoft.medpdfmaker.exception.ParseException;
+import com.jsoft.medpdfmaker.parser.ParseSession;
+import com.jsoft.medpdfmaker.parser.Result;
+import com.jsoft.medpdfmaker.parser.ValueExtractor;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ServiceRecordXlsbStreamingParserTest {
+
+    private static final String[] HEADER = {"TrackingNumber", "LastName", "FirstName", "MemberNumber",
+            "Date of Birth", "Date of Service", "Appointment Pick-up Time", "Wheelchair", "Number of Passengers",
+            "Trip_Price", "ZipCode", "Ride Cancellation"};
+
+    private Path xlsxFile;
+    private Path xlsbFile;
+    private List<ValueExtractor> extractors;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        xlsxFile = Files.createTempFile("xlsb-parser-test", ".xlsx");
+        xlsbFile = Files.createTempFile("xlsb-parser-test", ".xlsb");
+        extractors = Arrays.asList(new BooleanValueExtractor(), new LocalDateValueExtractor(),
+                new LocalTimeValueExtractor(), new IntegerValueExtractor(new DataFormatter()),
+                new DecimalMoneyValueExtractor(new DataFormatter()),
+                new StringValueExtractor(new DataFormatter()));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Files.deleteIfExists(xlsxFile);
+        Files.deleteIfExists(xlsbFile);
+    }
+
+    @Test
+    void parseSameRecordsAsXlsx() throws IOException {
+        writeWorkbooks(false);
+        final List<ServiceRecord> records = assertSameRecords(0);
+        assertEquals(3, records.size());
+        final ServiceRecord first = records.get(0);
+        assertEquals("T-1", first.getRefId());
+        assertEquals(LocalDate.of(2020, 1, 3), first.getPickupDate());
+        assertEquals(LocalTime.of(9, 30), first.getPickupTime());
+        assertEquals(new BigDecimal("25.50"), first.getTripPrice());
+        assertEquals("12345", first.getZipCode());
+        // row between first and the next one was hidden
+        assertEquals("T-3", records.get(1).getRefId());
+        assertTrue(records.get(2).isCancelled());
+    }
+
+    @Test
+    void parseSameRecordsAsXlsxWithDate1904() throws IOException {
+        writeWorkbooks(true);
+        final List<ServiceRecord> records = assertSameRecords(0);
+        assertEquals(LocalDate.of(2020, 1, 3), records.get(0).getPickupDate());
+    }
+
+    @Test
+    void parseHiddenOrMissingSheet() throws IOException {
+        writeWorkbooks(false);
+        final ServiceRecordXlsbStreamingParser parser = newParser();
+        final List<ServiceRecord> records = new ArrayList<>();
+        try (final ParseSession<ServiceRecord> session = parser.open(xlsbFile.toFile())) {
+            assertEquals(Result.WARNING, session.parse(1, records::add));
+            assertEquals(Result.WARNING, session.parse(5, records::add));
+            assertEquals(Result.OK, session.parse(0, records::add));
+        }
+        assertEquals(3, records.size());
+    }
+
+    @Test
+    void parseInlineStrings() throws IOException {
+        try (final XlsbWriter writer = new XlsbWriter(xlsbFile, false)) {
+            writer.startSheet("Data", false);
+            writer.startRow(0, -1);
+            for (int i = 0; i < 6; i++) {
+                writer.inlineStringCell(i, 0, HEADER[i]);
+            }
+            writer.startRow(1, -1);
+            writer.inlineStringCell(0, 0, "T-1");
+            writer.inlineStringCell(1, 0, "Smith");
+            writer.inlineStringCell(2, 0, "John");
+            writer.numberCell(3, 0, 12345);
+            writer.inlineStringCell(4, 0, "02/03/1950");
+            writer.inlineStringCell(5, 0, "01/03/2020");
+        }
+        final List<ServiceRecord> records = new ArrayList<>();
+        assertEquals(Result.OK, newParser().parse(xlsbFile.toFile(), 0, records::add));
+        assertEquals(1, records.size());
+        assertEquals("Smith", records.get(0).getLName());
+        assertEquals("12345", records.get(0).getMemberId());
+        assertEquals(LocalDate.of(2020, 1, 3), records.get(0).getPickupDate());
+    }
+
+    @Test
+    void parseInvalidFile() throws IOException {
+        Files.write(xlsbFile, "not an excel book".getBytes());
+        final File srcFile = xlsbFile.toFile();
+        assertThrows(ParseException.class, () -> newParser().parse(srcFile, 0, r -> {}));
+    }
+
+    @Test
+    void rkNumber() {
+        assertEquals(2.0, XlsbSheetHandler.rkNumber(2 << 2 | 0x02));
+        assertEquals(-7.0, XlsbSheetHandler.rkNumber(-7 << 2 | 0x02));
+        assertEquals(1.23, XlsbSheetHandler.rkNumber(123 << 2 | 0x03));
+        assertEquals(0.5, XlsbSheetHandler.rkNumber((int) (Double.doubleToLongBits(0.5) >>> 32)));
+        assertEquals(0.005, XlsbSheetHandler.rkNumber((int) (Double.doubleToLongBits(0.5) >>> 32) | 0x01));
+    }
+
+    private ServiceRecordXlsbStreamingParser newParser() {
+        return new ServiceRecordXlsbStreamingParser(new ServiceRecordBuilder(extractors, new BigDecimal("10.00")));
+    }
+
+    private List<ServiceRecord> assertSameRecords(int sheetIdx) throws IOException {
+        final List<ServiceRecord> expected = new ArrayList<>();
+        final Result expectedResult = new ServiceRecordXlsxStreamingParser(
+                new ServiceRecordBuilder(extractors, new BigDecimal("10.00"))).parse(xlsxFile.toFile(), sheetIdx, expected::add);
+        final List<ServiceRecord> actual = new ArrayList<>();
+        assertEquals(expectedResult, newParser().parse(xlsbFile.toFile(), sheetIdx, actual::add));
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertSameRecord(expected.get(i), actual.get(i));
+        }
+        return actual;
+    }
+
+    private static void assertSameRecord(ServiceRecord expected, ServiceRecord actual) {
+        assertEquals(expected, actual);
+        assertEquals(expected.isCancelled(), actual.isCancelled());
+        assertEquals(expected.isWheelChairYesNo(), actual.isWheelChairYesNo());
+        assertEquals(expected.getTotalPassengers(), actual.getTotalPassengers());
+        assertEquals(expected.getTripPrice(), actual.getTripPrice());
+        assertEquals(expected.getZipCode(), actual.getZipCode());
+    }
+
+    private void writeWorkbooks(boolean date1904) throws IOException {
+        try (final XSSFWorkbook workbook = new XSSFWorkbook()) {
+            workbook.getCTWorkbook().getWorkbookPr().setDate1904(date1904);
+            final CellStyle hiddenStyle = workbook.createCellStyle();
+            hiddenStyle.setHidden(true);
+            final CellStyle dateStyle = workbook.createCellStyle();
+            dateStyle.setDataFormat(workbook.getCreationHelper().createDataFormat().getFormat("m/d/yy"));
+            final CellStyle timeStyle = workbook.createCellStyle();
+            timeStyle.setDataFormat(workbook.getCreationHelper().createDataFormat().getFormat("h:mm AM/PM"));
+            final CellStyle moneyStyle = workbook.createCellStyle();
+            moneyStyle.setDataFormat(workbook.getCreationHelper().createDataFormat().getFormat("\"$\"#,##0.00"));
+
+            final Sheet sheet = workbook.createSheet("Data");
+            final Row header = sheet.createRow(0);
+            for (int i = 0; i < HEADER.length; i++) {
+                header.createCell(i).setCellValue(HEADER[i]);
+            }
+            writeRecord(sheet.createRow(1), dateStyle, timeStyle, moneyStyle, "T-1", false);
+            final Row hiddenRow = sheet.createRow(2);
+            writeRecord(hiddenRow, dateStyle, timeStyle, moneyStyle, "T-2", false);
+            hiddenRow.setRowStyle(hiddenStyle);
+            writeRecord(sheet.createRow(4), dateStyle, timeStyle, moneyStyle, "T-3", false);
+            writeRecord(sheet.createRow(5), dateStyle, timeStyle, moneyStyle, "T-4", true);
+
+            final Sheet hiddenSheet = workbook.createSheet("Hidden");
+            hiddenSheet.createRow(0).createCell(0).setCellValue(HEADER[0]);
+            hiddenSheet.createRow(1).createCell(0).setCellValue("H-1");
+            workbook.setSheetHidden(1, true);
+
+            try (final OutputStream out = Files.newOutputStream(xlsxFile)) {
+                workbook.write(out);
+            }
+            XlsbWriter.write(workbook, xlsbFile);
+        }
+    }
+
+    private static void writeRecord(Row row, CellStyle dateStyle, CellStyle timeStyle, CellStyle moneyStyle,
+                                    String refId, boolean cancelled) {
+        row.createCell(0).setCellValue(refId);
+        row.createCell(1).setCellValue("Smith");
+        row.createCell(2).setCellValue("John");
+        row.createCell(3).setCellValue(1234567);
+        row.createCell(4).setCellValue("02/03/1950");
+        row.createCell(5).setCellValue(Date.from(LocalDate.of(2020, 1, 3).atStartOfDay(ZoneId.systemDefault()).toInstant()));
+        row.getCell(5).setCellStyle(dateStyle);
+        row.createCell(6).setCellValue(9.5 / 24);
+        row.getCell(6).setCellStyle(timeStyle);
+        row.createCell(7).setCellValue(true);
+        row.createCell(8).setCellValue(2);
+        row.createCell(9).setCellValue(25.5);
+        row.getCell(9).setCellStyle(moneyStyle);
+        row.createCell(10).setCellValue(12345);
+        row.createCell(11).setCellValue(cancelled ? "Yes" : "No");
+        // blank cell in the middle of the row
+        row.createCell(12);
+    }
+}
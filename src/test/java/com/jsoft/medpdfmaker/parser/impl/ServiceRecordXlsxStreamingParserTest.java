@@ -0,0 +1,301 @@
+package com.jsoft.medpdfmaker.parser.impl;
+
+import com.jsoft.medpdfmaker.domain.ServiceRecord;
+import com.jsoft.medpdfmaker.exception.ParseException;
+import com.jsoft.medpdfmaker.exception.UnknownAttributeException;
+import com.jsoft.medpdfmaker.parser.ParseSession;
+import com.jsoft.medpdfmaker.parser.Result;
+import com.jsoft.medpdfmaker.parser.ValueExtractor;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ServiceRecordXlsxStreamingParserTest {
+
+    private static final String[] HEADER = {"TrackingNumber", "LastName", "FirstName", "MemberNumber",
+            "Date of Birth", "Date of Service", "Wheelchair", "Number of Passengers"};
+
+    private Path excelFile;
+    private List<ValueExtractor> extractors;
+    private ServiceRecordXlsxStreamingParser parser;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        excelFile = Files.createTempFile("streaming-parser-test", ".xlsx");
+        extractors = Arrays.asList(new BooleanValueExtractor(), new LocalDateValueExtractor(),
+                new LocalTimeValueExtractor(), new IntegerValueExtractor(new DataFormatter()),
+                new DecimalMoneyValueExtractor(new DataFormatter()),
+                new StringValueExtractor(new DataFormatter()));
+        parser = new ServiceRecordXlsxStreamingParser(new ServiceRecordBuilder(extractors, new BigDecimal("10.00")));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Files.deleteIfExists(excelFile);
+    }
+
+    @Test
+    void parseVisibleRows() throws IOException {
+        writeWorkbook(false);
+        final List<ServiceRecord> records = new ArrayList<>();
+        assertEquals(Result.OK, parser.parse(excelFile.toFile(), 0, records::add));
+        assertEquals(2, records.size());
+
+        final ServiceRecord first = records.get(0);
+        assertEquals("T-1", first.getRefId());
+        assertEquals("Smith", first.getLName());
+        assertEquals("John", first.getFName());
+        assertEquals("M-1", first.getMemberId());
+        assertEquals(LocalDate.of(1950, 2, 3), first.getDayOfBirth());
+        assertEquals(LocalDate.of(2020, 1, 3), first.getPickupDate());
+        assertTrue(first.isWheelChairYesNo());
+        assertEquals(Integer.valueOf(2), first.getTotalPassengers());
+        assertEquals(new BigDecimal("10.00"), first.getTripPrice());
+
+        // row between first and last was hidden
+        assertEquals("T-3", records.get(1).getRefId());
+    }
+
+    @Test
+    void parseWithUnknownColumn() throws IOException {
+        writeWorkbook(true);
+        final List<ServiceRecord> records = new ArrayList<>();
+        assertEquals(Result.WARNING, parser.parse(excelFile.toFile(), 0, records::add));
+        assertEquals(2, records.size());
+    }
+
+    @Test
+    void parseHiddenOrMissingSheet() throws IOException {
+        writeWorkbook(false);
+        final List<ServiceRecord> records = new ArrayList<>();
+        assertEquals(Result.WARNING, parser.parse(excelFile.toFile(), 1, records::add));
+        assertEquals(Result.WARNING, parser.parse(excelFile.toFile(), 5, records::add));
+        assertTrue(records.isEmpty());
+    }
+
+    @Test
+    void parseSeveralSheetsInOneSession() throws IOException {
+        writeWorkbook(false);
+        final List<ServiceRecord> records = new ArrayList<>();
+        try (final ParseSession<ServiceRecord> session = parser.open(excelFile.toFile())) {
+            assertEquals(Result.OK, session.parse(0, records::add));
+            assertEquals(Result.WARNING, session.parse(1, records::add));
+            assertEquals(Result.OK, session.parse(0, records::add));
+        }
+        assertEquals(4, records.size());
+        assertEquals("T-1", records.get(2).getRefId());
+    }
+
+    @Test
+    void parseRowWithoutRequiredValue() throws IOException {
+        try (final XSSFWorkbook workbook = new XSSFWorkbook()) {
+            final Sheet sheet = workbook.createSheet("Data");
+            writeHeader(sheet.createRow(0), false);
+            final Row row = sheet.createRow(1);
+            row.createCell(7).setCellValue(2);
+            saveWorkbook(workbook);
+        }
+        final List<ServiceRecord> records = new ArrayList<>();
+        assertEquals(Result.ERROR, parser.parse(excelFile.toFile(), 0, records::add));
+        assertTrue(records.isEmpty());
+    }
+
+    @Test
+    void parseWithProjection() throws IOException {
+        writeWorkbook(false);
+        final ServiceRecordXlsxStreamingParser projectedParser = new ServiceRecordXlsxStreamingParser(
+                new ServiceRecordBuilder(extractors, new BigDecimal("10.00"), Collections.singleton("WHEELCHAIR")));
+        final List<ServiceRecord> records = new ArrayList<>();
+        assertEquals(Result.OK, projectedParser.parse(excelFile.toFile(), 0, records::add));
+        assertEquals(2, records.size());
+        final ServiceRecord first = records.get(0);
+        assertTrue(first.isWheelChairYesNo());
+        // required attributes are always extracted
+        assertEquals("T-1", first.getRefId());
+        assertEquals(LocalDate.of(1950, 2, 3), first.getDayOfBirth());
+        // out of projection
+        assertNull(first.getTotalPassengers());
+    }
+
+    @Test
+    void parseRowWithoutRequiredValueWithProjection() throws IOException {
+        try (final XSSFWorkbook workbook = new XSSFWorkbook()) {
+            final Sheet sheet = workbook.createSheet("Data");
+            writeHeader(sheet.createRow(0), false);
+            sheet.createRow(1).createCell(7).setCellValue(2);
+            saveWorkbook(workbook);
+        }
+        final ServiceRecordXlsxStreamingParser projectedParser = new ServiceRecordXlsxStreamingParser(
+                new ServiceRecordBuilder(extractors, new BigDecimal("10.00"), Collections.emptySet()));
+        final List<ServiceRecord> records = new ArrayList<>();
+        // value of the skipped attribute makes the row not empty
+        assertEquals(Result.ERROR, projectedParser.parse(excelFile.toFile(), 0, records::add));
+        assertTrue(records.isEmpty());
+    }
+
+    @Test
+    void unknownProjectedAttribute() {
+        final HashSet<String> projection = new HashSet<>(Arrays.asList("WHEELCHAIR", "UNKNOWN"));
+        assertThrows(UnknownAttributeException.class,
+                () -> new ServiceRecordBuilder(extractors, BigDecimal.TEN, projection));
+    }
+
+    @Test
+    void parseWithFilters() throws IOException {
+        try (final XSSFWorkbook workbook = new XSSFWorkbook()) {
+            final CellStyle dateStyle = workbook.createCellStyle();
+            dateStyle.setDataFormat(workbook.getCreationHelper().createDataFormat().getFormat("m/d/yy"));
+            final Sheet sheet = workbook.createSheet("Data");
+            writeHeader(sheet.createRow(0), false);
+            writeRecord(sheet.createRow(1), dateStyle, "T-1");
+            final Row rejectedByDate = sheet.createRow(2);
+            writeRecord(rejectedByDate, dateStyle, "T-2");
+            rejectedByDate.getCell(5).setCellValue("01/04/2020");
+            // invalid value is not extracted, because the row is rejected
+            rejectedByDate.getCell(4).setCellValue("N/A");
+            final Row rejectedByWheelchair = sheet.createRow(3);
+            writeRecord(rejectedByWheelchair, dateStyle, "T-3");
+            rejectedByWheelchair.getCell(6).setCellValue(false);
+            final Row withoutDate = sheet.createRow(4);
+            writeRecord(withoutDate, dateStyle, "T-4");
+            withoutDate.removeCell(withoutDate.getCell(5));
+            saveWorkbook(workbook);
+        }
+        final ServiceRecordBuilder builder = new ServiceRecordBuilder(extractors, new BigDecimal("10.00"));
+        builder.addFilter("DATE OF SERVICE", value -> LocalDate.of(2020, 1, 3).equals(value));
+        builder.addFilter("WHEELCHAIR", value -> (Boolean) value);
+        final List<ServiceRecord> records = new ArrayList<>();
+        assertEquals(Result.OK, new ServiceRecordXlsxStreamingParser(builder).parse(excelFile.toFile(), 0, records::add));
+        assertEquals(2, records.size());
+        final ServiceRecord first = records.get(0);
+        assertEquals("T-1", first.getRefId());
+        assertEquals(LocalDate.of(2020, 1, 3), first.getPickupDate());
+        assertTrue(first.isWheelChairYesNo());
+        assertEquals(LocalDate.of(1950, 2, 3), first.getDayOfBirth());
+        // row without filtered value is not rejected
+        assertEquals("T-4", records.get(1).getRefId());
+        assertNull(records.get(1).getPickupDate());
+    }
+
+    @Test
+    void parseWithDiskSharedStrings() throws IOException {
+        writeWorkbook(false);
+        final ServiceRecordBuilder builder = new ServiceRecordBuilder(extractors, new BigDecimal("10.00"));
+        final ServiceRecordXlsxStreamingParser diskParser = new ServiceRecordXlsxStreamingParser(() -> builder, 1);
+        final List<ServiceRecord> records = new ArrayList<>();
+        assertEquals(Result.OK, diskParser.parse(excelFile.toFile(), 0, records::add));
+        assertEquals(2, records.size());
+        assertEquals("T-1", records.get(0).getRefId());
+        assertEquals("Smith", records.get(0).getLName());
+        assertEquals(LocalDate.of(1950, 2, 3), records.get(0).getDayOfBirth());
+        assertEquals("T-3", records.get(1).getRefId());
+    }
+
+    @Test
+    void parseWithStringPool() throws IOException {
+        try (final XSSFWorkbook workbook = new XSSFWorkbook()) {
+            final CellStyle dateStyle = workbook.createCellStyle();
+            dateStyle.setDataFormat(workbook.getCreationHelper().createDataFormat().getFormat("m/d/yy"));
+            final Sheet sheet = workbook.createSheet("Data");
+            writeHeader(sheet.createRow(0), false);
+            for (int i = 1; i <= 2; i++) {
+                final Row row = sheet.createRow(i);
+                writeRecord(row, dateStyle, "T-" + i);
+                row.getCell(3).setCellValue(12345);
+            }
+            saveWorkbook(workbook);
+        }
+        extractors = Arrays.asList(new BooleanValueExtractor(), new LocalDateValueExtractor(),
+                new IntegerValueExtractor(new DataFormatter()),
+                new StringValueExtractor(new DataFormatter(), new StringPool()));
+        final ServiceRecordXlsxStreamingParser pooledParser =
+                new ServiceRecordXlsxStreamingParser(new ServiceRecordBuilder(extractors, new BigDecimal("10.00")));
+        final List<ServiceRecord> records = new ArrayList<>();
+        assertEquals(Result.OK, pooledParser.parse(excelFile.toFile(), 0, records::add));
+        assertEquals(2, records.size());
+        // shared string
+        assertSame(records.get(0).getLName(), records.get(1).getLName());
+        // formatted number
+        assertEquals("12345", records.get(0).getMemberId());
+        assertSame(records.get(0).getMemberId(), records.get(1).getMemberId());
+    }
+
+    @Test
+    void parseInvalidFile() throws IOException {
+        Files.write(excelFile, "not an excel book".getBytes());
+        final File srcFile = excelFile.toFile();
+        assertThrows(ParseException.class, () -> parser.parse(srcFile, 0, r -> {}));
+    }
+
+    private void writeWorkbook(boolean withUnknownColumn) throws IOException {
+        try (final XSSFWorkbook workbook = new XSSFWorkbook()) {
+            final CellStyle hiddenStyle = workbook.createCellStyle();
+            hiddenStyle.setHidden(true);
+            final CellStyle dateStyle = workbook.createCellStyle();
+            dateStyle.setDataFormat(workbook.getCreationHelper().createDataFormat().getFormat("m/d/yy"));
+
+            final Sheet sheet = workbook.createSheet("Data");
+            writeHeader(sheet.createRow(0), withUnknownColumn);
+            writeRecord(sheet.createRow(1), dateStyle, "T-1");
+            final Row hiddenRow = sheet.createRow(2);
+            writeRecord(hiddenRow, dateStyle, "T-2");
+            hiddenRow.setRowStyle(hiddenStyle);
+            writeRecord(sheet.createRow(4), dateStyle, "T-3");
+
+            final Sheet hiddenSheet = workbook.createSheet("Hidden");
+            writeHeader(hiddenSheet.createRow(0), false);
+            writeRecord(hiddenSheet.createRow(1), dateStyle, "H-1");
+            workbook.setSheetHidden(1, true);
+            saveWorkbook(workbook);
+        }
+    }
+
+    private void writeHeader(Row row, boolean withUnknownColumn) {
+        for (int i = 0; i < HEADER.length; i++) {
+            row.createCell(i).setCellValue(HEADER[i]);
+        }
+        if (withUnknownColumn) {
+            row.createCell(HEADER.length).setCellValue("Unknown");
+        }
+    }
+
+    private void writeRecord(Row row, CellStyle dateStyle, String refId) {
+        row.createCell(0).setCellValue(refId);
+        row.createCell(1).setCellValue("Smith");
+        row.createCell(2).setCellValue("John");
+        row.createCell(3).setCellValue("M-1");
+        row.createCell(4).setCellValue("02/03/1950");
+        row.createCell(5).setCellValue(Date.from(LocalDate.of(2020, 1, 3).atStartOfDay(ZoneId.systemDefault()).toInstant()));
+        row.getCell(5).setCellStyle(dateStyle);
+        row.createCell(6).setCellValue(true);
+        row.createCell(7).setCellValue(2);
+    }
+
+    private void saveWorkbook(XSSFWorkbook workbook) throws IOException {
+        try (final OutputStream out = Files.newOutputStream(excelFile)) {
+            workbook.write(out);
+        }
+    }
+}
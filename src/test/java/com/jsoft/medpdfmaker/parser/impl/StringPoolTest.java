@@ -0,0 +1,49 @@
+package com.jsoft.medpdfmaker.parser.impl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StringPoolTest {
+
+    private StringPool stringPool;
+
+    @BeforeEach
+    void setUp() {
+        stringPool = new StringPool();
+    }
+
+    @Test
+    void canonical() {
+        assertNull(stringPool.canonical(null));
+        final String first = "Brooklyn";
+        assertSame(first, stringPool.canonical(first));
+        assertSame(first, stringPool.canonical(new String(first)));
+        assertEquals(1, stringPool.size());
+    }
+
+    @Test
+    void canonicalSharedString() {
+        final String first = "NY";
+        assertSame(first, stringPool.canonical(first));
+        // shared strings are mapped to the same canonical instances as other strings
+        assertSame(first, stringPool.canonical(100, new String(first)));
+        // value of the known index is not checked again
+        assertSame(first, stringPool.canonical(100, "ignored"));
+        assertSame(first, stringPool.canonical(-1, new String(first)));
+        assertEquals(1, stringPool.size());
+    }
+
+    @Test
+    void canonicalManySharedStrings() {
+        final String[] first = new String[1000];
+        for (int i = 0; i < first.length; i++) {
+            first[i] = stringPool.canonical(i, String.valueOf(i));
+        }
+        for (int i = first.length - 1; i >= 0; i--) {
+            assertSame(first[i], stringPool.canonical(i, String.valueOf(i)));
+        }
+        assertEquals(1000, stringPool.size());
+    }
+}
@@ -44,4 +44,14 @@ class StringValueExtractorTest {
         when(dataFormatterMock.formatCellValue(cellMock)).thenReturn("xyz");
         assertEquals("xyz", stringValueExtractor.extractValue(cellMock));
     }
-}
\ No newline at end of file
+
+    @Test
+    void extractValueWithStringPool() {
+        final StringValueExtractor extractor = new StringValueExtractor(dataFormatterMock, new StringPool());
+        final String first = "xyz";
+        when(dataFormatterMock.formatCellValue(cellMock)).thenReturn(first);
+        assertSame(first, extractor.extractValue(cellMock));
+        when(dataFormatterMock.formatCellValue(cellMock)).thenReturn(new String(first));
+        assertSame(first, extractor.extractValue(cellMock));
+    }
+}
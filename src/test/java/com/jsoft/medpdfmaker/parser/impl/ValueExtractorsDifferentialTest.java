@@ -0,0 +1,191 @@
+package com.jsoft.medpdfmaker.parser.impl;
+
+import com.jsoft.medpdfmaker.excel.StreamingCell;
+import com.jsoft.medpdfmaker.exception.ValueExtractException;
+import com.jsoft.medpdfmaker.parser.ValueExtractor;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.TimeZone;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compare results of the value extractors with the results of ReferenceValueExtractors.
+ */
+class ValueExtractorsDifferentialTest {
+
+    private static final int RANDOM_VALUES = 5000;
+
+    private static TimeZone defaultTimeZone;
+
+    private final Random random = new Random(20191103L);
+
+    @BeforeAll
+    static void setUpTimeZone() {
+        // Calendar used by the reference extractors moves the time that falls into daylight saving time gap.
+        defaultTimeZone = TimeZone.getDefault();
+        TimeZone.setDefault(TimeZone.getTimeZone("UTC"));
+    }
+
+    @AfterAll
+    static void restoreTimeZone() {
+        TimeZone.setDefault(defaultTimeZone);
+    }
+
+    @Test
+    void dateStrings() {
+        final List<String> values = new ArrayList<>(Arrays.asList(
+            "", " ", "N/A", "1/2", "1//2020", " 01/02/2020 ", "01/02/2020x", "01-02-2020", "2020-01-02",
+            "1/2/3/4", "03-Jan-2020", "3-Jan-2020", "03-Jan-20", "03-JAN-20", "03-jan-20", "03-Sept-2020",
+            "29-Feb-2019", "31-Apr-20", "32-Jan-2020", "00-Jan-2020", "03-Jan-02020", "03-Jan-", "03-Jan", "03-",
+            "02/30/2020", "2/29/2019", "13/01/2020", "00/01/2020", "01/00/2020", "01/02/0000", "01/02/+2020",
+            "001/02/2020", "01/002/2020", "01/02/20201", "1/2/20", "01/02/202", "01/02/2", "12/31/99"
+        ));
+        final String[] parts = {"0", "00", "1", "01", "2", "02", "9", "12", "13", "28", "29", "30", "31", "32", "99",
+            "001", "2020", "1900", "0001"};
+        final String[] months = {"Jan", "Feb", "Apr", "Sep", "Dec", "JAN", "feb", "Xyz"};
+        for (final String first : parts) {
+            for (final String second : parts) {
+                for (final String third : parts) {
+                    values.add(first + "/" + second + "/" + third);
+                }
+            }
+            for (final String month : months) {
+                for (final String year : parts) {
+                    values.add(first + "-" + month + "-" + year);
+                }
+            }
+        }
+        values.addAll(randomStrings("0123456789/-JanFebSep ", 12));
+        assertSameStringResults(new ReferenceValueExtractors.DateExtractor(), new LocalDateValueExtractor(), values);
+    }
+
+    @Test
+    void timeStrings() {
+        final List<String> values = new ArrayList<>(Arrays.asList(
+            "", " ", "am", "W/C", "N/A", "N/W/CA", "w/c 10:30", "~10:30", "10:30:00", "10:30 a.m.", "1030",
+            ":30", "10:", "10;30", "10 : 30 pm", "0:30PM", "12:00AM", "12:00PM", "24:00", "24:01", "000:30",
+            "0000000001:30", "10:0000000030", "11:00 рm", "ß10:30"
+        ));
+        final String[] hours = {"0", "00", "1", "9", "09", "11", "12", "13", "23", "24", "25", "000"};
+        final String[] minutes = {"0", "00", "5", "05", "30", "59", "60", "000"};
+        final String[] separators = {":", ";", " : ", "."};
+        final String[] markers = {"", "AM", "am", "PM", "pm", " a.m.", "A", "P", "M", "AMPM"};
+        for (final String hour : hours) {
+            for (final String minute : minutes) {
+                for (final String separator : separators) {
+                    for (final String marker : markers) {
+                        values.add(hour + separator + minute + marker);
+                    }
+                }
+            }
+        }
+        values.addAll(randomStrings("0123456789:;APMapm /WCN.", 8));
+        assertSameStringResults(new ReferenceValueExtractors.TimeExtractor(), new LocalTimeValueExtractor(), values);
+    }
+
+    @Test
+    void booleanStrings() {
+        final List<String> values = new ArrayList<>(Arrays.asList(
+            "", " ", "YES", "yes", "Y E S", "No", "0", "1", "10", "CANCELLED", "cancelled ride", "Yes(must)",
+            "YEﬆ", "ſes", "\tYES\t", "no\nyes"
+        ));
+        values.addAll(randomStrings("YESyes CANCELLEDcancelled1(MUST)0Noß\t", 10));
+        assertSameStringResults(new ReferenceValueExtractors.BooleanExtractor(), new BooleanValueExtractor(),
+            values);
+    }
+
+    @Test
+    void moneyStrings() {
+        final List<String> values = new ArrayList<>(Arrays.asList(
+            "", " ", "35", "35.1", "35.001", "-35.001", "+.5", ".", "+", "1.", "1.2.3", "1e2", "1E-2", "1e", "1e+",
+            "$35", "35,00", " 35 ", "\t35\t", "1e0000000001", "١٢", "35 .5"
+        ));
+        values.addAll(randomStrings("0123456789.+-eE $,", 8));
+        final DataFormatter formatter = new DataFormatter();
+        assertSameStringResults(new ReferenceValueExtractors.DecimalMoneyExtractor(formatter),
+            new DecimalMoneyValueExtractor(formatter), values);
+    }
+
+    @Test
+    void numericDates() throws IOException {
+        final List<Double> values = new ArrayList<>(Arrays.asList(
+            0.0, 1e-9, 0.5, 0.9999999999, 1.0, 59.0, 60.0, 60.5, 61.0, 61.75, 366.0, 1462.0, 41918.01, 43831.999994,
+            2958465.0, 2958465.99999999, 2958466.0, 3000000.25
+        ));
+        for (int i = 0; i < RANDOM_VALUES; i++) {
+            values.add(random.nextDouble() * 80000);
+        }
+        try (Workbook xssf = new XSSFWorkbook(); Workbook hssf = new HSSFWorkbook()) {
+            final CellStyle dateStyle = xssf.createCellStyle();
+            dateStyle.setDataFormat((short) 14);
+            final CellStyle numberStyle = xssf.createCellStyle();
+            final Cell xssfCell = xssf.createSheet().createRow(0).createCell(0);
+            final Cell hssfCell = hssf.createSheet().createRow(0).createCell(0);
+            final StreamingCell streamingCell = new StreamingCell();
+            for (final double value : values) {
+                for (final boolean date1904 : new boolean[]{false, true}) {
+                    for (final CellStyle style : new CellStyle[]{dateStyle, numberStyle, null}) {
+                        streamingCell.reset(0, 0, style, date1904);
+                        streamingCell.setCellValue(value);
+                        assertSameNumericResults(streamingCell);
+                    }
+                }
+                xssfCell.setCellValue(value);
+                assertSameNumericResults(xssfCell);
+                hssfCell.setCellValue(value);
+                assertSameNumericResults(hssfCell);
+            }
+        }
+    }
+
+    private void assertSameNumericResults(Cell cell) {
+        assertEquals(outcome(new ReferenceValueExtractors.DateExtractor(), cell),
+            outcome(new LocalDateValueExtractor(), cell), "Date from " + cell.getNumericCellValue());
+        assertEquals(outcome(new ReferenceValueExtractors.TimeExtractor(), cell),
+            outcome(new LocalTimeValueExtractor(), cell), "Time from " + cell.getNumericCellValue());
+    }
+
+    private void assertSameStringResults(ValueExtractor<?> reference, ValueExtractor<?> extractor,
+                                         List<String> values) {
+        final StreamingCell cell = new StreamingCell();
+        for (final String value : values) {
+            cell.reset(0, 0, null, false);
+            cell.setCellValue(value);
+            assertEquals(outcome(reference, cell), outcome(extractor, cell), "Extract from \"" + value + "\"");
+        }
+    }
+
+    private static String outcome(ValueExtractor<?> extractor, Cell cell) {
+        try {
+            return String.valueOf(extractor.extractValue(cell));
+        } catch (ValueExtractException e) {
+            return "ValueExtractException";
+        }
+    }
+
+    private List<String> randomStrings(String alphabet, int maxLength) {
+        final List<String> result = new ArrayList<>(RANDOM_VALUES);
+        for (int i = 0; i < RANDOM_VALUES; i++) {
+            final char[] value = new char[random.nextInt(maxLength + 1)];
+            for (int j = 0; j < value.length; j++) {
+                value[j] = alphabet.charAt(random.nextInt(alphabet.length()));
+            }
+            result.add(new String(value));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,349 @@
+package com.jsoft.medpdfmaker.parser.impl;
+
+import org.apache.poi.ss.usermodel.BuiltinFormats;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writer of the xlsb workbooks for the tests and benchmarks, POI can read this format only.
+ * Only the records read by the xlsb parser are written (sheets, number formats, cell formats, shared strings,
+ * rows and cell values), so the workbooks are valid for POI, but not complete enough for Excel.
+ * Sheets are written to the package as the rows are added, shared strings and styles are written when
+ * the writer is closed.
+ */
+class XlsbWriter implements Closeable {
+
+    private static final int FIRST_CUSTOM_FORMAT = 164;
+    private static final int RK_MAX = (1 << 29) - 1;
+    private static final int RK_MIN = -(1 << 29);
+
+    private final ZipOutputStream zip;
+    private final boolean date1904;
+    private final ByteArrayOutputStream record = new ByteArrayOutputStream();
+    private final byte[] header = new byte[6];
+    private final Map<String, Integer> numberFormats = new LinkedHashMap<>();
+    private final List<int[]> cellFormats = new ArrayList<>();
+    private final Map<String, Integer> sharedStrings = new LinkedHashMap<>();
+    private final List<String> sheetNames = new ArrayList<>();
+    private final List<Boolean> hiddenSheets = new ArrayList<>();
+    private int sharedStringsCount;
+    private boolean sheetStarted;
+
+    /**
+     * @param file file to write.
+     * @param date1904 true if workbook uses 1904 date windowing.
+     */
+    XlsbWriter(Path file, boolean date1904) throws IOException {
+        this.zip = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(file)));
+        this.date1904 = date1904;
+        addStyle("General", false);
+    }
+
+    /**
+     * Convert the workbook to xlsb: sheets and their visibility, cell values (cached results of the formulas),
+     * number formats and hidden flags of the cell styles, styles of the rows.
+     */
+    static void write(XSSFWorkbook workbook, Path file) throws IOException {
+        try (final XlsbWriter writer = new XlsbWriter(file, workbook.isDate1904())) {
+            for (int styleIdx = 1; styleIdx < workbook.getNumCellStyles(); styleIdx++) {
+                final XSSFCellStyle style = workbook.getCellStyleAt(styleIdx);
+                writer.addStyle(style.getDataFormatString(), style.getHidden());
+            }
+            for (int sheetIdx = 0; sheetIdx < workbook.getNumberOfSheets(); sheetIdx++) {
+                final Sheet sheet = workbook.getSheetAt(sheetIdx);
+                writer.startSheet(sheet.getSheetName(), workbook.isSheetHidden(sheetIdx));
+                for (final Row row : sheet) {
+                    writer.startRow(row.getRowNum(), row.isFormatted() ? row.getRowStyle().getIndex() : -1);
+                    for (final Cell cell : row) {
+                        writer.writeCell(cell);
+                    }
+                }
+            }
+        }
+    }
+
+    private void writeCell(Cell cell) throws IOException {
+        final int style = cell.getCellStyle().getIndex();
+        final CellType type = (cell.getCellType() == CellType.FORMULA) ? cell.getCachedFormulaResultType() : cell.getCellType();
+        switch (type) {
+            case NUMERIC:
+                numberCell(cell.getColumnIndex(), style, cell.getNumericCellValue());
+                break;
+            case STRING:
+                stringCell(cell.getColumnIndex(), style, cell.getStringCellValue());
+                break;
+            case BOOLEAN:
+                booleanCell(cell.getColumnIndex(), style, cell.getBooleanCellValue());
+                break;
+            case ERROR:
+                cellHeader(cell.getColumnIndex(), style);
+                record.write(cell.getErrorCellValue());
+                writeRecord(3); // BrtCellError
+                break;
+            default:
+                cellHeader(cell.getColumnIndex(), style);
+                writeRecord(1); // BrtCellBlank
+        }
+    }
+
+    /**
+     * Add cell format.
+     * @param numberFormat number format string.
+     * @param hidden protection hidden flag.
+     * @return index of the format.
+     */
+    int addStyle(String numberFormat, boolean hidden) {
+        int formatIdx = BuiltinFormats.getBuiltinFormat(numberFormat);
+        if (formatIdx < 0) {
+            formatIdx = numberFormats.computeIfAbsent(numberFormat, f -> FIRST_CUSTOM_FORMAT + numberFormats.size());
+        }
+        cellFormats.add(new int[]{formatIdx, hidden ? 1 : 0});
+        return cellFormats.size() - 1;
+    }
+
+    void startSheet(String name, boolean hidden) throws IOException {
+        endSheet();
+        sheetNames.add(name);
+        hiddenSheets.add(hidden);
+        zip.putNextEntry(new ZipEntry("xl/worksheets/sheet" + sheetNames.size() + ".bin"));
+        writeRecord(129); // BrtBeginSheet
+        writeRecord(145); // BrtBeginSheetData
+        sheetStarted = true;
+    }
+
+    /**
+     * @param rowIdx zero based row index.
+     * @param styleIdx format of the row or -1 if the row is not formatted.
+     */
+    void startRow(int rowIdx, int styleIdx) throws IOException {
+        writeInt(rowIdx);
+        writeInt(Math.max(styleIdx, 0));
+        writeShort(300);
+        // fGhostDirty flag tells that the row has a format
+        writeShort(styleIdx < 0 ? 0 : 1 << 14);
+        record.write(0);
+        writeInt(0);
+        writeRecord(0); // BrtRowHdr
+    }
+
+    void numberCell(int columnIdx, int styleIdx, double value) throws IOException {
+        cellHeader(columnIdx, styleIdx);
+        if (value == Math.rint(value) && value >= RK_MIN && value <= RK_MAX) {
+            // integer RkNumber
+            writeInt(((int) value << 2) | 0x02);
+            writeRecord(2); // BrtCellRk
+        } else {
+            writeLong(Double.doubleToLongBits(value));
+            writeRecord(5); // BrtCellReal
+        }
+    }
+
+    void stringCell(int columnIdx, int styleIdx, String value) throws IOException {
+        cellHeader(columnIdx, styleIdx);
+        writeInt(sharedStrings.computeIfAbsent(value, v -> sharedStrings.size()));
+        sharedStringsCount++;
+        writeRecord(7); // BrtCellIsst
+    }
+
+    void inlineStringCell(int columnIdx, int styleIdx, String value) throws IOException {
+        cellHeader(columnIdx, styleIdx);
+        writeString(value);
+        writeRecord(6); // BrtCellSt
+    }
+
+    void booleanCell(int columnIdx, int styleIdx, boolean value) throws IOException {
+        cellHeader(columnIdx, styleIdx);
+        record.write(value ? 1 : 0);
+        writeRecord(4); // BrtCellBool
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            endSheet();
+            writeWorkbook();
+            writeStyles();
+            writeSharedStrings();
+            writePackageParts();
+        } finally {
+            zip.close();
+        }
+    }
+
+    private void endSheet() throws IOException {
+        if (sheetStarted) {
+            writeRecord(146); // BrtEndSheetData
+            writeRecord(130); // BrtEndSheet
+            zip.closeEntry();
+            sheetStarted = false;
+        }
+    }
+
+    private void writeWorkbook() throws IOException {
+        zip.putNextEntry(new ZipEntry("xl/workbook.bin"));
+        writeRecord(131); // BrtBeginBook
+        writeInt(date1904 ? 1 : 0);
+        writeInt(0);
+        writeString("");
+        writeRecord(153); // BrtWbProp
+        writeRecord(143); // BrtBeginBundleShs
+        for (int i = 0; i < sheetNames.size(); i++) {
+            writeInt(hiddenSheets.get(i) ? 1 : 0);
+            writeInt(i + 1);
+            writeString("rId" + (i + 1));
+            writeString(sheetNames.get(i));
+            writeRecord(156); // BrtBundleSh
+        }
+        writeRecord(144); // BrtEndBundleShs
+        writeRecord(132); // BrtEndBook
+        zip.closeEntry();
+    }
+
+    private void writeStyles() throws IOException {
+        zip.putNextEntry(new ZipEntry("xl/styles.bin"));
+        writeRecord(278); // BrtBeginStyleSheet
+        writeInt(numberFormats.size());
+        writeRecord(615); // BrtBeginFmts
+        for (final Map.Entry<String, Integer> format : numberFormats.entrySet()) {
+            writeShort(format.getValue());
+            writeString(format.getKey());
+            writeRecord(44); // BrtFmt
+        }
+        writeRecord(616); // BrtEndFmts
+        writeInt(cellFormats.size());
+        writeRecord(617); // BrtBeginCellXFs
+        for (final int[] format : cellFormats) {
+            writeShort(0);
+            writeShort(format[0]);
+            writeShort(0);
+            writeShort(0);
+            writeShort(0);
+            record.write(0);
+            record.write(0);
+            // fLocked and fHidden protection flags
+            writeShort(1 << 12 | format[1] << 13);
+            writeShort(0);
+            writeRecord(47); // BrtXf
+        }
+        writeRecord(618); // BrtEndCellXFs
+        writeRecord(279); // BrtEndStyleSheet
+        zip.closeEntry();
+    }
+
+    private void writeSharedStrings() throws IOException {
+        zip.putNextEntry(new ZipEntry("xl/sharedStrings.bin"));
+        writeInt(sharedStringsCount);
+        writeInt(sharedStrings.size());
+        writeRecord(159); // BrtBeginSst
+        for (final String value : sharedStrings.keySet()) {
+            record.write(0);
+            writeString(value);
+            writeRecord(19); // BrtSstItem
+        }
+        writeRecord(160); // BrtEndSst
+        zip.closeEntry();
+    }
+
+    private void writePackageParts() throws IOException {
+        final StringBuilder types = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>")
+                .append("<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">")
+                .append("<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>")
+                .append("<Override PartName=\"/xl/workbook.bin\" ContentType=\"application/vnd.ms-excel.sheet.binary.macroEnabled.main\"/>")
+                .append("<Override PartName=\"/xl/styles.bin\" ContentType=\"application/vnd.ms-excel.styles\"/>")
+                .append("<Override PartName=\"/xl/sharedStrings.bin\" ContentType=\"application/vnd.ms-excel.sharedStrings\"/>");
+        final StringBuilder workbookRels = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>")
+                .append("<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">");
+        for (int i = 1; i <= sheetNames.size(); i++) {
+            types.append("<Override PartName=\"/xl/worksheets/sheet").append(i)
+                    .append(".bin\" ContentType=\"application/vnd.ms-excel.worksheet\"/>");
+            workbookRels.append(relationship("rId" + i, "worksheet", "worksheets/sheet" + i + ".bin"));
+        }
+        types.append("</Types>");
+        workbookRels.append(relationship("rIdStyles", "styles", "styles.bin"))
+                .append(relationship("rIdStrings", "sharedStrings", "sharedStrings.bin"))
+                .append("</Relationships>");
+        writeEntry("[Content_Types].xml", types.toString());
+        writeEntry("_rels/.rels", "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"
+                + "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">"
+                + relationship("rId1", "officeDocument", "xl/workbook.bin") + "</Relationships>");
+        writeEntry("xl/_rels/workbook.bin.rels", workbookRels.toString());
+    }
+
+    private static String relationship(String id, String type, String target) {
+        return String.format("<Relationship Id=\"%s\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/%s\" Target=\"%s\"/>",
+                id, type, target);
+    }
+
+    private void writeEntry(String name, String content) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(content.getBytes(StandardCharsets.UTF_8));
+        zip.closeEntry();
+    }
+
+    private void cellHeader(int columnIdx, int styleIdx) {
+        writeInt(columnIdx);
+        // 24 bit style index and the flags byte
+        writeInt(styleIdx & 0xFFFFFF);
+    }
+
+    private void writeString(String value) {
+        writeInt(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            writeShort(value.charAt(i));
+        }
+    }
+
+    private void writeShort(int value) {
+        record.write(value);
+        record.write(value >>> 8);
+    }
+
+    private void writeInt(int value) {
+        writeShort(value);
+        writeShort(value >>> 16);
+    }
+
+    private void writeLong(long value) {
+        writeInt((int) value);
+        writeInt((int) (value >>> 32));
+    }
+
+    /**
+     * Write the record which data was collected in the buffer: variable length type and size, then the data.
+     */
+    private void writeRecord(int recordType) throws IOException {
+        int length = 0;
+        if (recordType < 0x80) {
+            header[length++] = (byte) recordType;
+        } else {
+            header[length++] = (byte) ((recordType & 0x7F) | 0x80);
+            header[length++] = (byte) (recordType >>> 7);
+        }
+        int size = record.size();
+        do {
+            header[length++] = (byte) ((size & 0x7F) | (size >= 0x80 ? 0x80 : 0));
+            size >>>= 7;
+        } while (size > 0);
+        zip.write(header, 0, length);
+        record.writeTo(zip);
+        record.reset();
+    }
+}
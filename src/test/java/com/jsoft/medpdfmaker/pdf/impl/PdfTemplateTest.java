@@ -0,0 +1,42 @@
+package com.jsoft.medpdfmaker.pdf.impl;
+
+import com.jsoft.medpdfmaker.Constants;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.interactive.form.PDAcroForm;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PdfTemplateTest {
+
+    private final PdfTemplate template = new PdfTemplate(Constants.PDF_TEMPLATE_RESOURCE_PATH);
+
+    @Test
+    void copiesAreIndependent() throws IOException {
+        final String emptyValue;
+        final ByteArrayOutputStream saved = new ByteArrayOutputStream();
+        try (PDDocument first = template.newDocument()) {
+            final PDAcroForm acroForm = first.getDocumentCatalog().getAcroForm();
+            emptyValue = acroForm.getField("Text1").getValueAsString();
+            acroForm.getField("Text1").setValue("100001");
+            first.save(saved);
+        }
+        try (PDDocument second = template.newDocument()) {
+            assertEquals(emptyValue, second.getDocumentCatalog().getAcroForm().getField("Text1").getValueAsString());
+            assertEquals(1, second.getNumberOfPages());
+        }
+        try (PDDocument reloaded = PDDocument.load(saved.toByteArray())) {
+            final PDAcroForm acroForm = reloaded.getDocumentCatalog().getAcroForm();
+            assertEquals("100001", acroForm.getField("Text1").getValueAsString());
+            assertNotNull(acroForm.getField("Text57"));
+        }
+    }
+
+    @Test
+    void missingResource() {
+        assertThrows(IllegalStateException.class, () -> new PdfTemplate("template/Missing.pdf").newDocument());
+    }
+}
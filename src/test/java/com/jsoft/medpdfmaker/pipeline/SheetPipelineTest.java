@@ -0,0 +1,270 @@
+package com.jsoft.medpdfmaker.pipeline;
+
+import com.jsoft.medpdfmaker.domain.MemberIdPriceKey;
+import com.jsoft.medpdfmaker.domain.ServiceRecord;
+import com.jsoft.medpdfmaker.domain.ServiceRecordGroupKey;
+import com.jsoft.medpdfmaker.exception.ParseException;
+import com.jsoft.medpdfmaker.parser.ParseSession;
+import com.jsoft.medpdfmaker.parser.Result;
+import com.jsoft.medpdfmaker.parser.ValueExtractor;
+import com.jsoft.medpdfmaker.parser.impl.BooleanValueExtractor;
+import com.jsoft.medpdfmaker.parser.impl.DecimalMoneyValueExtractor;
+import com.jsoft.medpdfmaker.parser.impl.IntegerValueExtractor;
+import com.jsoft.medpdfmaker.parser.impl.LocalDateValueExtractor;
+import com.jsoft.medpdfmaker.parser.impl.ServiceRecordBuilder;
+import com.jsoft.medpdfmaker.parser.impl.ServiceRecordXlsxStreamingParser;
+import com.jsoft.medpdfmaker.parser.impl.StringValueExtractor;
+import com.jsoft.medpdfmaker.pdf.PageGenerator;
+import com.jsoft.medpdfmaker.pdf.PageHandler;
+import com.jsoft.medpdfmaker.repository.impl.HashServiceRecordRepository;
+import com.jsoft.medpdfmaker.repository.impl.PresortedGroupEmitter;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SheetPipelineTest {
+
+    private static final Path WORK_FOLDER = Paths.get("work");
+
+    private final List<Path> writtenPages = Collections.synchronizedList(new ArrayList<>());
+
+    /**
+     * Page generator that does not write the files: every record is one page named by its member ID and price,
+     * pages of some groups are delayed, so the groups are rendered out of order.
+     */
+    private static PageGenerator pageGenerator(String failingMemberId) {
+        final Random random = new Random();
+        return new PageGenerator() {
+            @Override
+            public void generate(Path workFolder, List<ServiceRecord> memberServiceRecords,
+                                 PageHandler pageHandler) throws IOException {
+                if (random.nextInt(4) == 0) {
+                    try {
+                        Thread.sleep(1);
+                    } catch (InterruptedException e) {
+                        throw new IOException("Rendering was interrupted", e);
+                    }
+                }
+                for (final ServiceRecord record : memberServiceRecords) {
+                    if (record.getMemberId().equals(failingMemberId)) {
+                        throw new IOException("Page cannot be written");
+                    }
+                    pageHandler.onPage(workFolder.resolve(record.getMemberId() + "_" + record.getTripPrice()));
+                }
+            }
+
+            @Override
+            public Set<String> getUsedAttributes() {
+                return Collections.emptySet();
+            }
+        };
+    }
+
+    private static ParseSession<ServiceRecord> parseSession(int members, Result result) {
+        return new ParseSession<ServiceRecord>() {
+            @Override
+            public Result parse(int sheetIdx, Consumer<ServiceRecord> rowCallBack) {
+                for (int member = 0; member < members; member++) {
+                    for (int price = 1; price <= 3; price++) {
+                        final ServiceRecord record = new ServiceRecord();
+                        record.setMemberId(String.format("M%05d", member));
+                        record.setTripPrice(BigDecimal.valueOf(price));
+                        rowCallBack.accept(record);
+                    }
+                }
+                return result;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    @Test
+    void pagesAreWrittenInOrderOfGroups() throws IOException {
+        final SheetPipeline pipeline = new SheetPipeline(WORK_FOLDER, writtenPages::add, () -> pageGenerator(null), 3, 4);
+        final PresortedGroupEmitter emitter = new PresortedGroupEmitter(pipeline::submitGroup);
+        assertEquals(Result.WARNING, pipeline.run(parseSession(1000, Result.WARNING), 0, emitter::accept, emitter::finish));
+        assertEquals(3000, writtenPages.size());
+        for (int i = 0; i < writtenPages.size(); i++) {
+            assertEquals(WORK_FOLDER.resolve(String.format("M%05d_%d", i / 3, i % 3 + 1)), writtenPages.get(i));
+        }
+    }
+
+    @Test
+    void groupStageEndIsSkippedOnErrors() throws IOException {
+        final SheetPipeline pipeline = new SheetPipeline(WORK_FOLDER, writtenPages::add, () -> pageGenerator(null), 2, 4);
+        final Result result = pipeline.run(parseSession(10, Result.ERROR), 0, record -> { },
+                () -> fail("Groups of the sheet with errors must not be rendered"));
+        assertEquals(Result.ERROR, result);
+        assertTrue(writtenPages.isEmpty());
+    }
+
+    @Test
+    void cancelStopsParsingWithoutInterrupts() throws IOException {
+        final SheetPipeline pipeline = new SheetPipeline(WORK_FOLDER, writtenPages::add, () -> pageGenerator(null), 2, 2);
+        final AtomicInteger parsedRecords = new AtomicInteger();
+        final AtomicBoolean interrupted = new AtomicBoolean();
+        final ParseSession<ServiceRecord> parseSession = new ParseSession<ServiceRecord>() {
+            @Override
+            public Result parse(int sheetIdx, Consumer<ServiceRecord> rowCallBack) throws IOException {
+                parseSession(100000, Result.OK).parse(sheetIdx, record -> {
+                    parsedRecords.incrementAndGet();
+                    if (Thread.currentThread().isInterrupted()) {
+                        interrupted.set(true);
+                    }
+                    rowCallBack.accept(record);
+                });
+                return Result.OK;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        final List<ServiceRecord> consumed = new ArrayList<>();
+        final Result result = assertTimeoutPreemptively(Duration.ofSeconds(30), () -> pipeline.run(parseSession, 0,
+                record -> {
+                    consumed.add(record);
+                    if (consumed.size() == 1000) {
+                        pipeline.cancel();
+                    }
+                }, () -> fail("Groups of the cancelled sheet must not be rendered")));
+        assertNull(result);
+        assertEquals(1000, consumed.size());
+        assertTrue(parsedRecords.get() < 300000);
+        assertFalse(interrupted.get());
+    }
+
+    /**
+     * Unsorted sheet is parsed again by the same session after the pipeline is cancelled, as the application does it,
+     * with the shared strings in the temporary file, which must not be closed by the cancelled parse stage.
+     */
+    @Test
+    void unsortedSheetIsParsedAgainWithDiskSharedStrings() throws IOException {
+        final int rows = 3000;
+        final Path excelFile = Files.createTempFile("sheet-pipeline-test", ".xlsx");
+        try {
+            try (final XSSFWorkbook workbook = new XSSFWorkbook()) {
+                final Sheet sheet = workbook.createSheet("Data");
+                final String[] header = {"TrackingNumber", "LastName", "FirstName", "MemberNumber", "Date of Birth", "Date of Service"};
+                final Row headerRow = sheet.createRow(0);
+                for (int i = 0; i < header.length; i++) {
+                    headerRow.createCell(i).setCellValue(header[i]);
+                }
+                final Random random = new Random(23);
+                for (int i = 1; i <= rows; i++) {
+                    final int member = random.nextInt(500);
+                    final Row row = sheet.createRow(i);
+                    row.createCell(0).setCellValue("T-" + i);
+                    row.createCell(1).setCellValue("Last" + member);
+                    row.createCell(2).setCellValue("First" + member);
+                    row.createCell(3).setCellValue(String.format("M%05d", member));
+                    row.createCell(4).setCellValue("02/03/1950");
+                    row.createCell(5).setCellValue("01/03/2020");
+                }
+                try (final OutputStream out = Files.newOutputStream(excelFile)) {
+                    workbook.write(out);
+                }
+            }
+            final List<ValueExtractor> extractors = Arrays.asList(new BooleanValueExtractor(), new LocalDateValueExtractor(),
+                    new IntegerValueExtractor(new DataFormatter()), new DecimalMoneyValueExtractor(new DataFormatter()),
+                    new StringValueExtractor(new DataFormatter()));
+            // the smallest threshold, so the shared strings are kept on disk, and the strings are read by the thread
+            // of the parse stage, which converts the rows itself
+            final ServiceRecordXlsxStreamingParser parser = new ServiceRecordXlsxStreamingParser(
+                    () -> new ServiceRecordBuilder(extractors, new BigDecimal("10.00")), 1, 1);
+            try (final ParseSession<ServiceRecord> parseSession = parser.open(excelFile.toFile())) {
+                final SheetPipeline presortedPipeline = new SheetPipeline(WORK_FOLDER, writtenPages::add,
+                        () -> pageGenerator(null), 2, 2);
+                final PresortedGroupEmitter emitter = new PresortedGroupEmitter(presortedPipeline::submitGroup);
+                assertNull(presortedPipeline.run(parseSession, 0, record -> {
+                    emitter.accept(record);
+                    if (emitter.isOutOfOrder()) {
+                        presortedPipeline.cancel();
+                    }
+                }, emitter::finish));
+                writtenPages.clear();
+
+                final HashServiceRecordRepository repository = new HashServiceRecordRepository();
+                final SheetPipeline pipeline = new SheetPipeline(WORK_FOLDER, writtenPages::add, () -> pageGenerator(null), 2, 2);
+                assertEquals(Result.OK, pipeline.run(parseSession, 0,
+                        record -> repository.put(new MemberIdPriceKey(record), record), () -> {
+                            for (final ServiceRecordGroupKey key : repository.getKeys()) {
+                                pipeline.submitGroup(key, repository.getGroupByKey(key));
+                            }
+                        }));
+                assertEquals(rows, writtenPages.size());
+                for (final ServiceRecordGroupKey key : repository.getKeys()) {
+                    final ServiceRecord record = repository.getGroupByKey(key).get(0);
+                    assertEquals("Last" + Integer.parseInt(record.getMemberId().substring(1)), record.getLName());
+                }
+            }
+        } finally {
+            Files.deleteIfExists(excelFile);
+        }
+    }
+
+    @Test
+    void renderFailureStopsAllStages() {
+        final SheetPipeline pipeline = new SheetPipeline(WORK_FOLDER, writtenPages::add, () -> pageGenerator("M00500"), 2, 2);
+        final PresortedGroupEmitter emitter = new PresortedGroupEmitter(pipeline::submitGroup);
+        final IOException e = assertTimeoutPreemptively(Duration.ofSeconds(30), () -> assertThrows(IOException.class,
+                () -> pipeline.run(parseSession(100000, Result.OK), 0, emitter::accept, emitter::finish)));
+        assertEquals("Page cannot be written", e.getMessage());
+        assertTrue(writtenPages.size() <= 1500);
+    }
+
+    @Test
+    void parseFailureStopsAllStages() {
+        final SheetPipeline pipeline = new SheetPipeline(WORK_FOLDER, writtenPages::add, () -> pageGenerator(null), 2, 2);
+        final ParseSession<ServiceRecord> parseSession = new ParseSession<ServiceRecord>() {
+            @Override
+            public Result parse(int sheetIdx, Consumer<ServiceRecord> rowCallBack) {
+                throw new ParseException("Sheet cannot be read");
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        assertTimeoutPreemptively(Duration.ofSeconds(30), () -> assertThrows(ParseException.class,
+                () -> pipeline.run(parseSession, 0, record -> { }, () -> { })));
+    }
+
+    @Test
+    void writeFailureStopsAllStages() {
+        final SheetPipeline pipeline = new SheetPipeline(WORK_FOLDER, page -> {
+            throw new IOException("Disk is full");
+        }, () -> pageGenerator(null), 2, 2);
+        final List<ServiceRecord> records = new ArrayList<>();
+        assertTimeoutPreemptively(Duration.ofSeconds(30), () -> assertThrows(IOException.class,
+                () -> pipeline.run(parseSession(100000, Result.OK), 0, records::add, () -> {
+                    for (final ServiceRecord record : records) {
+                        pipeline.submitGroup(new MemberIdPriceKey(record), Collections.singletonList(record));
+                    }
+                })));
+    }
+}
@@ -0,0 +1,135 @@
+package com.jsoft.medpdfmaker.repository.impl;
+
+import com.jsoft.medpdfmaker.domain.MemberIdPriceKey;
+import com.jsoft.medpdfmaker.domain.ServiceRecord;
+import com.jsoft.medpdfmaker.domain.ServiceRecordGroupKey;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColumnarServiceRecordRepositoryTest {
+
+    private ColumnarServiceRecordRepository serviceRecordRepository;
+
+    @BeforeEach
+    void setUp() {
+        serviceRecordRepository = new ColumnarServiceRecordRepository();
+    }
+
+    private static ServiceRecord makeServiceRecord(int idx, int member, BigDecimal price) {
+        final ServiceRecord result = new ServiceRecord();
+        result.setRefId("T-" + idx);
+        result.setLName("Last" + member);
+        result.setFName("First" + member);
+        result.setMemberId(String.valueOf(100000 + member));
+        result.setDayOfBirth(LocalDate.of(1950, 1, 1).plusDays(member));
+        result.setPickupDate(LocalDate.of(2020, 1, 1).plusDays(idx % 60));
+        result.setOrigin(idx % 1000 + " Main St");
+        result.setTripPrice(price);
+        return result;
+    }
+
+    private static void assertSameAttributes(ServiceRecord expected, ServiceRecord actual) {
+        assertEquals(expected, actual);
+        assertEquals(expected.getFAndLName(), actual.getFAndLName());
+        assertEquals(expected.isCancelled(), actual.isCancelled());
+        assertEquals(expected.isWheelChairYesNo(), actual.isWheelChairYesNo());
+        assertEquals(expected.getApptTime(), actual.getApptTime());
+        assertEquals(expected.getOrigin(), actual.getOrigin());
+        assertEquals(expected.getDestination(), actual.getDestination());
+        assertEquals(expected.getTotalPassengers(), actual.getTotalPassengers());
+        assertEquals(expected.getNotes(), actual.getNotes());
+        assertEquals(expected.getTelephone(), actual.getTelephone());
+        assertEquals(expected.getCoordinatorInitials(), actual.getCoordinatorInitials());
+        assertEquals(expected.getCity(), actual.getCity());
+        assertEquals(expected.getState(), actual.getState());
+        assertEquals(expected.getZipCode(), actual.getZipCode());
+        assertEquals(expected.getAreaCode(), actual.getAreaCode());
+        assertEquals(expected.getPhone(), actual.getPhone());
+        assertEquals(expected.getTripPrice(), actual.getTripPrice());
+    }
+
+    @Test
+    void putInvalid() {
+        assertThrows(IllegalArgumentException.class, () -> serviceRecordRepository.put(null, new ServiceRecord()));
+        assertThrows(IllegalArgumentException.class, () -> serviceRecordRepository.put(new MemberIdPriceKey(new ServiceRecord()), null));
+    }
+
+    @Test
+    void viewsKeepAllAttributes() {
+        final ServiceRecord full = makeServiceRecord(1, 1, new BigDecimal("-12.34"));
+        full.setCancelled(true);
+        full.setWheelChairYesNo(true);
+        full.setPickupTime(LocalTime.of(0, 0));
+        full.setApptTime(LocalTime.of(23, 59, 58, 1000));
+        full.setDestination("Oak Ave");
+        full.setTotalPassengers(0);
+        full.setNotes("Notes é中");
+        full.setTelephone("555-0100");
+        full.setCoordinatorInitials("AB");
+        full.setCity("City");
+        full.setState("ST");
+        full.setZipCode("12345");
+        full.setAreaCode("555");
+        full.setPhone("0100");
+        // values that do not fit the columns
+        final ServiceRecord unusual = makeServiceRecord(2, 1, BigDecimal.ONE);
+        unusual.setDayOfBirth(LocalDate.of(1970, 1, 1));
+        unusual.setPickupDate(LocalDate.MAX);
+        unusual.setTotalPassengers(Integer.MAX_VALUE);
+        final ServiceRecord empty = new ServiceRecord();
+        final List<ServiceRecord> expected = new ArrayList<>();
+        expected.add(full);
+        expected.add(unusual);
+        expected.add(empty);
+        for (final ServiceRecord serviceRecord : expected) {
+            serviceRecordRepository.put(new MemberIdPriceKey(full), serviceRecord);
+        }
+        final List<ServiceRecord> actual = serviceRecordRepository.getGroupByKey(new MemberIdPriceKey(full));
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertSameAttributes(expected.get(i), actual.get(i));
+        }
+        assertEquals("1", actual.get(1).getTripPrice().toString());
+        assertNull(actual.get(2).getRefId());
+        assertFalse(actual.get(2).isCancelled());
+        // records are copies, changes of them do not get into the repository
+        actual.get(0).setTripPrice(BigDecimal.TEN);
+        actual.get(0).setCancelled(true);
+        assertSameAttributes(full, serviceRecordRepository.getGroupByKey(new MemberIdPriceKey(full)).get(0));
+    }
+
+    @Test
+    void keysAndGroupsAreSameAsInTreeRepository() {
+        final ServiceRecordRepository treeRepository = new ServiceRecordRepository();
+        final Random random = new Random(21);
+        // more rows than in one chunk of the columns
+        for (int i = 0; i < 10000; i++) {
+            final ServiceRecord serviceRecord = makeServiceRecord(i, random.nextInt(300),
+                    random.nextInt(20) == 0 ? null : BigDecimal.valueOf(2000 + random.nextInt(3) * 500, 2));
+            serviceRecordRepository.put(new MemberIdPriceKey(serviceRecord), serviceRecord);
+            treeRepository.put(new MemberIdPriceKey(serviceRecord), serviceRecord);
+        }
+        assertEquals(new ArrayList<>(treeRepository.getKeys()), new ArrayList<>(serviceRecordRepository.getKeys()));
+        for (final ServiceRecordGroupKey key : treeRepository.getKeys()) {
+            final List<ServiceRecord> expected = treeRepository.getGroupByKey(key);
+            final List<ServiceRecord> actual = serviceRecordRepository.getGroupByKey(key);
+            assertEquals(expected, actual);
+            for (int i = 0; i < expected.size(); i++) {
+                assertSameAttributes(expected.get(i), actual.get(i));
+            }
+        }
+        assertNull(serviceRecordRepository.getGroupByKey(new MemberIdPriceKey(makeServiceRecord(0, 1000, BigDecimal.ONE))));
+        serviceRecordRepository.clean();
+        assertTrue(serviceRecordRepository.isEmpty());
+        assertTrue(serviceRecordRepository.getKeys().isEmpty());
+    }
+}
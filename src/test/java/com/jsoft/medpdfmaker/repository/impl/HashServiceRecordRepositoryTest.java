@@ -0,0 +1,93 @@
+package com.jsoft.medpdfmaker.repository.impl;
+
+import com.jsoft.medpdfmaker.domain.MemberIdPriceKey;
+import com.jsoft.medpdfmaker.domain.ServiceRecord;
+import com.jsoft.medpdfmaker.domain.ServiceRecordGroupKey;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashServiceRecordRepositoryTest {
+
+    private HashServiceRecordRepository serviceRecordRepository;
+
+    @BeforeEach
+    void setUp() {
+        serviceRecordRepository = new HashServiceRecordRepository();
+    }
+
+    private ServiceRecord makeServiceRecord(String memberId, BigDecimal price) {
+        final ServiceRecord result = new ServiceRecord();
+        result.setMemberId(memberId);
+        result.setTripPrice(price);
+        return result;
+    }
+
+    @Test
+    void putInvalid() {
+        assertThrows(IllegalArgumentException.class, () -> serviceRecordRepository.put(null, new ServiceRecord()));
+        assertThrows(IllegalArgumentException.class, () -> serviceRecordRepository.put(new MemberIdPriceKey(makeServiceRecord("key", BigDecimal.ZERO)), null));
+    }
+
+    @Test
+    void keysAndGroupsAreSameAsInTreeRepository() {
+        final ServiceRecordRepository treeRepository = new ServiceRecordRepository();
+        final Random random = new Random(19);
+        for (int i = 0; i < 5000; i++) {
+            final String memberId = random.nextInt(50) == 0 ? null : "M" + random.nextInt(300);
+            final BigDecimal price;
+            switch (random.nextInt(4)) {
+                case 0:
+                    price = null;
+                    break;
+                case 1:
+                    // same price with another scale must get to the same group
+                    price = BigDecimal.valueOf(random.nextInt(3));
+                    break;
+                default:
+                    price = BigDecimal.valueOf(random.nextInt(300), 2);
+            }
+            final ServiceRecord serviceRecord = makeServiceRecord(memberId, price);
+            serviceRecordRepository.put(new MemberIdPriceKey(serviceRecord), serviceRecord);
+            treeRepository.put(new MemberIdPriceKey(serviceRecord), serviceRecord);
+        }
+        final List<ServiceRecordGroupKey> expectedKeys = new ArrayList<>(treeRepository.getKeys());
+        final Set<ServiceRecordGroupKey> actualKeys = serviceRecordRepository.getKeys();
+        assertEquals(expectedKeys, new ArrayList<>(actualKeys));
+        for (final ServiceRecordGroupKey key : expectedKeys) {
+            assertTrue(actualKeys.contains(key));
+            assertEquals(treeRepository.getGroupByKey(key), serviceRecordRepository.getGroupByKey(key));
+        }
+    }
+
+    @Test
+    void keysAreSortedAgainAfterPut() {
+        final ServiceRecord second = makeServiceRecord("k2", BigDecimal.ONE);
+        final ServiceRecord first = makeServiceRecord("k1", BigDecimal.ONE);
+        serviceRecordRepository.put(new MemberIdPriceKey(second), second);
+        assertEquals(1, serviceRecordRepository.getKeys().size());
+        serviceRecordRepository.put(new MemberIdPriceKey(first), first);
+        final List<ServiceRecordGroupKey> keys = new ArrayList<>(serviceRecordRepository.getKeys());
+        assertEquals(new MemberIdPriceKey(first), keys.get(0));
+        assertEquals(new MemberIdPriceKey(second), keys.get(1));
+    }
+
+    @Test
+    void isEmptyAndClean() {
+        assertTrue(serviceRecordRepository.isEmpty());
+        final ServiceRecord serviceRecord = makeServiceRecord("some-key", BigDecimal.ZERO);
+        serviceRecordRepository.put(new MemberIdPriceKey(serviceRecord), serviceRecord);
+        assertFalse(serviceRecordRepository.isEmpty());
+        assertFalse(serviceRecordRepository.getKeys().isEmpty());
+        serviceRecordRepository.clean();
+        assertTrue(serviceRecordRepository.isEmpty());
+        assertTrue(serviceRecordRepository.getKeys().isEmpty());
+    }
+}
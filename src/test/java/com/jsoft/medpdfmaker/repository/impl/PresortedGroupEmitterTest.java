@@ -0,0 +1,90 @@
+package com.jsoft.medpdfmaker.repository.impl;
+
+import com.jsoft.medpdfmaker.domain.MemberIdPriceKey;
+import com.jsoft.medpdfmaker.domain.ServiceRecord;
+import com.jsoft.medpdfmaker.domain.ServiceRecordGroupKey;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PresortedGroupEmitterTest {
+
+    private final List<ServiceRecordGroupKey> emittedKeys = new ArrayList<>();
+    private final List<List<ServiceRecord>> emittedGroups = new ArrayList<>();
+    private final PresortedGroupEmitter emitter = new PresortedGroupEmitter((key, group) -> {
+        emittedKeys.add(key);
+        emittedGroups.add(new ArrayList<>(group));
+    });
+
+    private ServiceRecord makeServiceRecord(String memberId, BigDecimal price) {
+        final ServiceRecord result = new ServiceRecord();
+        result.setMemberId(memberId);
+        result.setTripPrice(price);
+        return result;
+    }
+
+    @Test
+    void groupsAreSameAsInTreeRepository() {
+        final Random random = new Random(23);
+        final List<ServiceRecord> records = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            final String memberId = random.nextInt(50) == 0 ? null : "M" + random.nextInt(300);
+            final BigDecimal price = random.nextInt(4) == 0 ? null : BigDecimal.valueOf(random.nextInt(300), 2);
+            records.add(makeServiceRecord(memberId, price));
+        }
+        // sorted by member only, prices of the member stay interleaved
+        records.sort(Comparator.comparing(ServiceRecord::getMemberId, Comparator.nullsFirst(Comparator.naturalOrder())));
+        final ServiceRecordRepository treeRepository = new ServiceRecordRepository();
+        for (final ServiceRecord serviceRecord : records) {
+            treeRepository.put(new MemberIdPriceKey(serviceRecord), serviceRecord);
+            emitter.accept(serviceRecord);
+        }
+        emitter.finish();
+        assertFalse(emitter.isOutOfOrder());
+        assertEquals(new ArrayList<>(treeRepository.getKeys()), emittedKeys);
+        assertEquals(emittedKeys.size(), emitter.getEmittedGroups());
+        for (int i = 0; i < emittedKeys.size(); i++) {
+            assertEquals(treeRepository.getGroupByKey(emittedKeys.get(i)), emittedGroups.get(i));
+        }
+    }
+
+    @Test
+    void groupsOfMemberAreEmittedWhenNextMemberStarts() {
+        emitter.accept(makeServiceRecord("k1", BigDecimal.TEN));
+        emitter.accept(makeServiceRecord("k1", BigDecimal.ONE));
+        assertTrue(emittedKeys.isEmpty());
+        emitter.accept(makeServiceRecord("k2", BigDecimal.ONE));
+        assertEquals(2, emittedKeys.size());
+        assertEquals(BigDecimal.ONE, emittedGroups.get(0).get(0).getTripPrice());
+        emitter.finish();
+        assertEquals(3, emittedKeys.size());
+    }
+
+    @Test
+    void outOfOrderInputStopsEmitter() {
+        emitter.accept(makeServiceRecord("k1", BigDecimal.ONE));
+        emitter.accept(makeServiceRecord("k3", BigDecimal.ONE));
+        emitter.accept(makeServiceRecord("k2", BigDecimal.ONE));
+        emitter.accept(makeServiceRecord("k4", BigDecimal.ONE));
+        emitter.finish();
+        assertTrue(emitter.isOutOfOrder());
+        assertEquals(1, emittedKeys.size());
+    }
+
+    @Test
+    void handlerErrorIsUnchecked() {
+        final PresortedGroupEmitter failingEmitter = new PresortedGroupEmitter((key, group) -> {
+            throw new IOException("disk is full");
+        });
+        failingEmitter.accept(makeServiceRecord("k1", BigDecimal.ONE));
+        assertThrows(UncheckedIOException.class, () -> failingEmitter.accept(makeServiceRecord("k2", BigDecimal.ONE)));
+    }
+}
@@ -0,0 +1,254 @@
+package com.jsoft.medpdfmaker.repository.impl;
+
+import com.jsoft.medpdfmaker.domain.MemberIdPriceKey;
+import com.jsoft.medpdfmaker.domain.ServiceRecord;
+import com.jsoft.medpdfmaker.domain.ServiceRecordGroupKey;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpillingServiceRecordRepositoryTest {
+
+    private Path folder;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        folder = Files.createTempDirectory("spilling-repository-test");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (final Stream<Path> paths = Files.walk(folder)) {
+            for (final Path path : paths.sorted((left, right) -> right.compareTo(left)).collect(Collectors.toList())) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    private static ServiceRecord makeServiceRecord(int idx, int member, BigDecimal price) {
+        final ServiceRecord result = new ServiceRecord();
+        result.setRefId("T-" + idx);
+        result.setLName("Last" + member);
+        result.setFName("First" + member);
+        result.setMemberId(String.valueOf(100000 + member));
+        result.setDayOfBirth(LocalDate.of(1950, 1, 1).plusDays(member));
+        result.setPickupDate(LocalDate.of(2020, 1, 1).plusDays(idx % 60));
+        result.setPickupTime(LocalTime.of(idx % 24, idx % 60));
+        result.setOrigin(idx % 1000 + " Main St");
+        result.setDestination(idx % 700 + " Oak Ave");
+        result.setTripPrice(price);
+        return result;
+    }
+
+    @Test
+    void putInvalid() {
+        final SpillingServiceRecordRepository repository = new SpillingServiceRecordRepository(folder, 1024, MemberIdPriceKey::new);
+        assertThrows(IllegalArgumentException.class, () -> repository.put(null, new ServiceRecord()));
+        assertThrows(IllegalArgumentException.class, () -> repository.put(new MemberIdPriceKey(new ServiceRecord()), null));
+    }
+
+    @Test
+    void codecKeepsAllAttributes() throws IOException {
+        final ServiceRecord expected = makeServiceRecord(7, 3, new BigDecimal("123456789012345678901234.5"));
+        expected.setCancelled(true);
+        expected.setWheelChairYesNo(true);
+        expected.setApptTime(LocalTime.of(23, 59, 58, 1000));
+        expected.setDayOfBirth(LocalDate.of(1930, 5, 6));
+        expected.setTotalPassengers(-2);
+        expected.setNotes("Notes é中");
+        expected.setTelephone("555-0100");
+        expected.setCoordinatorInitials("AB");
+        expected.setCity("City");
+        expected.setState("ST");
+        expected.setZipCode("12345");
+        expected.setAreaCode("555");
+        expected.setPhone("0100");
+        final ServiceRecordCodec codec = new ServiceRecordCodec();
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        codec.write(new DataOutputStream(bytes), expected);
+        codec.write(new DataOutputStream(bytes), new ServiceRecord());
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        final ServiceRecord actual = codec.read(in);
+        assertEquals(expected, actual);
+        assertTrue(actual.isCancelled());
+        assertTrue(actual.isWheelChairYesNo());
+        assertEquals(expected.getApptTime(), actual.getApptTime());
+        assertEquals(expected.getOrigin(), actual.getOrigin());
+        assertEquals(expected.getDestination(), actual.getDestination());
+        assertEquals(expected.getTotalPassengers(), actual.getTotalPassengers());
+        assertEquals(expected.getNotes(), actual.getNotes());
+        assertEquals(expected.getTelephone(), actual.getTelephone());
+        assertEquals(expected.getCoordinatorInitials(), actual.getCoordinatorInitials());
+        assertEquals(expected.getCity(), actual.getCity());
+        assertEquals(expected.getState(), actual.getState());
+        assertEquals(expected.getZipCode(), actual.getZipCode());
+        assertEquals(expected.getAreaCode(), actual.getAreaCode());
+        assertEquals(expected.getPhone(), actual.getPhone());
+        assertEquals(expected.getTripPrice(), actual.getTripPrice());
+        final ServiceRecord empty = codec.read(in);
+        assertNull(empty.getRefId());
+        assertNull(empty.getTripPrice());
+        assertFalse(empty.isCancelled());
+        assertEquals(-1, in.read());
+    }
+
+    @Test
+    void groupsAreSameAsInTreeRepository() {
+        // budget of a few records per run, so the runs are merged before the groups are read too
+        final SpillingServiceRecordRepository repository = new SpillingServiceRecordRepository(folder, 4096, MemberIdPriceKey::new);
+        final ServiceRecordRepository treeRepository = new ServiceRecordRepository();
+        final Random random = new Random(20);
+        for (int i = 0; i < 5000; i++) {
+            final ServiceRecord serviceRecord = makeServiceRecord(i, random.nextInt(200),
+                    random.nextInt(10) == 0 ? null : BigDecimal.valueOf(2000 + random.nextInt(3) * 500, 2));
+            repository.put(new MemberIdPriceKey(serviceRecord), serviceRecord);
+            treeRepository.put(new MemberIdPriceKey(serviceRecord), serviceRecord);
+        }
+        assertFalse(repository.isEmpty());
+        final List<ServiceRecordGroupKey> actualKeys = new ArrayList<>();
+        for (final ServiceRecordGroupKey key : repository.getKeys()) {
+            actualKeys.add(key);
+            assertEquals(treeRepository.getGroupByKey(key), repository.getGroupByKey(key));
+        }
+        assertEquals(new ArrayList<>(treeRepository.getKeys()), actualKeys);
+        assertEquals(actualKeys.size(), repository.getKeys().size());
+        repository.clean();
+        assertTrue(repository.isEmpty());
+        assertFalse(repository.getKeys().iterator().hasNext());
+        assertEquals(0, folder.toFile().list().length);
+    }
+
+    @Test
+    void groupsOfBufferedRecords() {
+        final SpillingServiceRecordRepository repository = new SpillingServiceRecordRepository(folder, 1 << 20, MemberIdPriceKey::new);
+        final ServiceRecord second = makeServiceRecord(1, 2, BigDecimal.ONE);
+        final ServiceRecord first = makeServiceRecord(2, 1, BigDecimal.ONE);
+        repository.put(new MemberIdPriceKey(second), second);
+        repository.put(new MemberIdPriceKey(first), first);
+        assertThrows(IllegalStateException.class, () -> repository.getGroupByKey(new MemberIdPriceKey(first)));
+        final List<ServiceRecordGroupKey> keys = new ArrayList<>();
+        for (final ServiceRecordGroupKey key : repository.getKeys()) {
+            keys.add(key);
+            assertEquals(1, repository.getGroupByKey(key).size());
+        }
+        assertEquals(new MemberIdPriceKey(first), keys.get(0));
+        assertEquals(new MemberIdPriceKey(second), keys.get(1));
+        assertThrows(IllegalStateException.class, () -> repository.getGroupByKey(new MemberIdPriceKey(first)));
+        assertEquals(0, folder.toFile().list().length);
+        // size is counted by the complete iteration until the next record is put
+        assertEquals(2, repository.getKeys().size());
+        final ServiceRecord third = makeServiceRecord(3, 3, BigDecimal.ONE);
+        repository.put(new MemberIdPriceKey(third), third);
+        assertEquals(3, repository.getKeys().size());
+    }
+
+    /**
+     * 5M records are grouped by the child JVM with 256 MB heap. Test takes about half a minute,
+     * it runs in the slow-tests profile only.
+     */
+    @Test
+    @Tag("slow")
+    void largeInputFitsSmallHeap() throws Exception {
+        final Path java = Paths.get(System.getProperty("java.home"), "bin", "java");
+        final Process process = new ProcessBuilder(java.toString(), "-Xmx256m", "-cp", testClassPath(),
+                LargeInput.class.getName(), folder.toString(), "5000000")
+                .redirectErrorStream(true)
+                .start();
+        final boolean completed = process.waitFor(10, TimeUnit.MINUTES);
+        if (!completed) {
+            process.destroyForcibly();
+        }
+        final String output = new String(readAll(process), StandardCharsets.UTF_8);
+        assertTrue(completed, "Grouping of the large input was not completed in time");
+        assertEquals(0, process.exitValue(), output);
+        assertTrue(output.contains("records 5000000"), output);
+    }
+
+    private static byte[] readAll(Process process) throws IOException {
+        final ByteArrayOutputStream result = new ByteArrayOutputStream();
+        final byte[] chunk = new byte[4096];
+        int read;
+        while ((read = process.getInputStream().read(chunk)) >= 0) {
+            result.write(chunk, 0, read);
+        }
+        return result.toByteArray();
+    }
+
+    private static String testClassPath() {
+        final String surefireClassPath = System.getProperty("surefire.test.class.path");
+        if (surefireClassPath != null) {
+            return surefireClassPath;
+        }
+        final List<String> result = new ArrayList<>();
+        for (ClassLoader loader = SpillingServiceRecordRepositoryTest.class.getClassLoader(); loader != null; loader = loader.getParent()) {
+            if (loader instanceof URLClassLoader) {
+                for (final URL url : ((URLClassLoader) loader).getURLs()) {
+                    result.add(url.getPath());
+                }
+            }
+        }
+        return result.isEmpty() ? System.getProperty("java.class.path") : String.join(File.pathSeparator, result);
+    }
+
+    /**
+     * Puts the records into the repository and checks the order of the groups and the records read back.
+     */
+    public static final class LargeInput {
+
+        public static void main(String[] args) {
+            final int rows = Integer.parseInt(args[1]);
+            final SpillingServiceRecordRepository repository = new SpillingServiceRecordRepository(Paths.get(args[0]),
+                    64L << 20, MemberIdPriceKey::new);
+            final Random random = new Random(rows);
+            for (int i = 0; i < rows; i++) {
+                final ServiceRecord serviceRecord = makeServiceRecord(i, random.nextInt(100000),
+                        BigDecimal.valueOf(2000 + random.nextInt(4) * 500, 2));
+                repository.put(new MemberIdPriceKey(serviceRecord), serviceRecord);
+            }
+            long records = 0;
+            ServiceRecordGroupKey previousKey = null;
+            for (final ServiceRecordGroupKey key : repository.getKeys()) {
+                if (previousKey != null && ((MemberIdPriceKey) previousKey).compareTo((MemberIdPriceKey) key) >= 0) {
+                    throw new IllegalStateException("Keys are not sorted: " + previousKey + ", " + key);
+                }
+                int previousIdx = -1;
+                for (final ServiceRecord serviceRecord : repository.getGroupByKey(key)) {
+                    final int idx = Integer.parseInt(serviceRecord.getRefId().substring(2));
+                    if (idx <= previousIdx) {
+                        throw new IllegalStateException("Records are not in the input order: " + serviceRecord.getRefId());
+                    }
+                    previousIdx = idx;
+                    records++;
+                }
+                previousKey = key;
+            }
+            repository.clean();
+            System.out.println("records " + records);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.jsoft.medpdfmaker.repository.impl;
+
+import com.jsoft.medpdfmaker.domain.MemberIdPriceKey;
+import com.jsoft.medpdfmaker.domain.ServiceRecord;
+import com.jsoft.medpdfmaker.domain.ServiceRecordGroupKey;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StripedServiceRecordRepositoryTest {
+
+    private static final int THREADS = 8;
+    private static final int RECORDS_PER_THREAD = 20000;
+
+    private static ServiceRecord makeServiceRecord(int trackingNumber, int member) {
+        final ServiceRecord result = new ServiceRecord();
+        result.setRefId(String.format("T-%07d", trackingNumber));
+        result.setMemberId(String.valueOf(100000 + member));
+        result.setTripPrice(BigDecimal.valueOf(2000 + (member % 3) * 500, 2));
+        return result;
+    }
+
+    @Test
+    void putInvalid() {
+        final StripedServiceRecordRepository repository = new StripedServiceRecordRepository();
+        assertThrows(IllegalArgumentException.class, () -> repository.put(null, new ServiceRecord()));
+        assertThrows(IllegalArgumentException.class, () -> repository.put(new MemberIdPriceKey(new ServiceRecord()), null));
+        assertThrows(IllegalArgumentException.class, () -> new StripedServiceRecordRepository(0));
+    }
+
+    /**
+     * Threads put their records at the same time, result must be the same as if one thread put all the records
+     * in the order of the rows. Tracking numbers are not in the order of the rows.
+     */
+    @Test
+    void concurrentPutsGiveSameGroupsAsOneThread() throws Exception {
+        final List<ServiceRecord> records = new ArrayList<>();
+        final Random random = new Random(22);
+        for (int i = 0; i < THREADS * RECORDS_PER_THREAD; i++) {
+            records.add(makeServiceRecord(random.nextInt(1000000), random.nextInt(500)));
+        }
+        final HashServiceRecordRepository expected = new HashServiceRecordRepository();
+        for (final ServiceRecord record : records) {
+            expected.put(new MemberIdPriceKey(record), record);
+        }
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            for (int round = 0; round < 3; round++) {
+                // a few stripes, so the threads really compete for them
+                final StripedServiceRecordRepository repository = new StripedServiceRecordRepository(4);
+                final List<Integer> shuffledRows = new ArrayList<>();
+                for (int i = 0; i < records.size(); i++) {
+                    shuffledRows.add(i);
+                }
+                Collections.shuffle(shuffledRows, random);
+                final CountDownLatch start = new CountDownLatch(1);
+                final List<Future<?>> futures = new ArrayList<>();
+                for (int thread = 0; thread < THREADS; thread++) {
+                    final List<Integer> part = shuffledRows.subList(thread * RECORDS_PER_THREAD, (thread + 1) * RECORDS_PER_THREAD);
+                    futures.add(executor.submit(() -> {
+                        start.await();
+                        for (final int row : part) {
+                            final ServiceRecord record = records.get(row);
+                            repository.put(new MemberIdPriceKey(record), record, row);
+                            // readers can work while the records are put
+                            if (row % 1000 == 0) {
+                                repository.getKeys();
+                            }
+                        }
+                        return null;
+                    }));
+                }
+                start.countDown();
+                for (final Future<?> future : futures) {
+                    future.get();
+                }
+                assertEquals(new ArrayList<>(expected.getKeys()), new ArrayList<>(repository.getKeys()));
+                for (final ServiceRecordGroupKey key : expected.getKeys()) {
+                    assertEquals(expected.getGroupByKey(key), repository.getGroupByKey(key));
+                }
+                repository.clean();
+                assertTrue(repository.isEmpty());
+                assertTrue(repository.getKeys().isEmpty());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void groupIsSortedAgainAfterPut() {
+        final StripedServiceRecordRepository repository = new StripedServiceRecordRepository(1);
+        final ServiceRecord first = makeServiceRecord(2, 1);
+        final ServiceRecord second = makeServiceRecord(1, 1);
+        final ServiceRecordGroupKey key = new MemberIdPriceKey(first);
+        repository.put(key, second, 7);
+        assertEquals(Collections.singletonList(second), repository.getGroupByKey(key));
+        repository.put(key, first, 3);
+        assertEquals(Collections.singleton(key), repository.getKeys());
+        final List<ServiceRecord> group = repository.getGroupByKey(key);
+        assertSame(first, group.get(0));
+        assertSame(second, group.get(1));
+        assertThrows(UnsupportedOperationException.class, () -> group.add(first));
+    }
+
+    @Test
+    void putsWithoutRowIndexKeepPutOrder() {
+        final StripedServiceRecordRepository repository = new StripedServiceRecordRepository(2);
+        final List<ServiceRecord> records = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            final ServiceRecord record = makeServiceRecord(10 - i, 1);
+            records.add(record);
+            repository.put(new MemberIdPriceKey(record), record);
+        }
+        assertEquals(records, repository.getGroupByKey(new MemberIdPriceKey(records.get(0))));
+    }
+}